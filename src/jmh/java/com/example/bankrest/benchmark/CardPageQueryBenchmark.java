@@ -0,0 +1,90 @@
+package com.example.bankrest.benchmark;
+
+import com.example.bankrest.BankRestApplication;
+import com.example.bankrest.dto.card.CardResponseDto;
+import com.example.bankrest.entity.Card;
+import com.example.bankrest.repository.CardRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Страница списка карт: загрузка сущностей Card с последующим маппингом против проекции сразу в CardResponseDto.
+ * Нужна БД из application.yml с заполненной таблицей cards (хотя бы несколько сотен строк).
+ * Запуск: ./gradlew jmh -Pjmh.includes=CardPageQueryBenchmark; профайлер gc показывает gc.alloc.rate.norm -
+ * байты кучи на одну страницу.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CardPageQueryBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private CardRepository cardRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankRestApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("fx.listen=false", "statements.enabled=false", "accrual.enabled=false")
+                .run();
+        cardRepository = context.getBean(CardRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /// Прежний путь: управляемые сущности со снимками для dirty checking, номер карты и его хэш читаются впустую.
+    @Benchmark
+    public List<CardResponseDto> entityPage() {
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery("select c from Card c order by c.createdAt desc, c.id desc", Card.class)
+                .setMaxResults(pageSize)
+                .getResultList()
+                .stream()
+                .map(CardPageQueryBenchmark::toResponse)
+                .toList());
+    }
+
+    @Benchmark
+    public List<CardResponseDto> projectionPage() {
+        return transactionTemplate.execute(status -> cardRepository.findFirstPage(Limit.of(pageSize)));
+    }
+
+    private static CardResponseDto toResponse(Card card) {
+        return CardResponseDto.builder()
+                .id(card.getId())
+                .masked("**** **** **** " + card.getLastDigits())
+                .cardHolderName(card.getCardholderName())
+                .balance(card.getBalance())
+                .availableBalance(card.getAvailableBalance())
+                .currency(card.getCurrency())
+                .expiryDate(card.getExpiryDate())
+                .status(card.getStatus())
+                .createdAt(card.getCreatedAt())
+                .build();
+    }
+}
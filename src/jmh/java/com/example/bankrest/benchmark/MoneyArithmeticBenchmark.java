@@ -0,0 +1,57 @@
+package com.example.bankrest.benchmark;
+
+import com.example.bankrest.entity.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение арифметики перевода (проверка средств, списание, зачисление) на BigDecimal и на Money.
+ * Запуск: ./gradlew jmh, профайлер gc показывает выделение памяти на операцию.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyArithmeticBenchmark {
+
+    private BigDecimal decimalFrom;
+    private BigDecimal decimalTo;
+    private BigDecimal decimalAmount;
+
+    private Money moneyFrom;
+    private Money moneyTo;
+    private Money moneyAmount;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        decimalFrom = new BigDecimal("1000000000.00");
+        decimalTo = new BigDecimal("0.00");
+        decimalAmount = new BigDecimal("10.50");
+
+        moneyFrom = Money.of(decimalFrom);
+        moneyTo = Money.of(decimalTo);
+        moneyAmount = Money.of(decimalAmount);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTransfer() {
+        if (decimalFrom.compareTo(decimalAmount) >= 0) {
+            decimalFrom = decimalFrom.subtract(decimalAmount);
+            decimalTo = decimalTo.add(decimalAmount);
+        }
+        return decimalTo;
+    }
+
+    @Benchmark
+    public Money moneyTransfer() {
+        if (!moneyFrom.isLessThan(moneyAmount)) {
+            moneyFrom = moneyFrom.minus(moneyAmount);
+            moneyTo = moneyTo.plus(moneyAmount);
+        }
+        return moneyTo;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.bankrest.accrual;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/// Начисление за месяц в копейках: проценты на положительный баланс минус ежемесячная комиссия.
+/// Комиссия не списывается глубже доступного остатка, чтобы начисление не уводило карту в минус.
+class AccrualCalculator {
+
+    private static final BigDecimal MONTHS_TIMES_BASIS_POINTS = BigDecimal.valueOf(12 * 10_000);
+
+    private final BigDecimal annualRateBps;
+    private final long monthlyFee;
+
+    AccrualCalculator(long annualRateBps, long monthlyFee) {
+        this.annualRateBps = BigDecimal.valueOf(annualRateBps);
+        this.monthlyFee = monthlyFee;
+    }
+
+    long posting(long balance, long availableBalance) {
+        long interest = balance <= 0 ? 0 : BigDecimal.valueOf(balance)
+                .multiply(annualRateBps)
+                .divide(MONTHS_TIMES_BASIS_POINTS, 0, RoundingMode.HALF_EVEN)
+                .longValueExact();
+        long fee = Math.min(monthlyFee, Math.max(0, availableBalance + interest));
+        return interest - fee;
+    }
+}
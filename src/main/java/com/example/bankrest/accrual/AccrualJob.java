@@ -0,0 +1,221 @@
+package com.example.bankrest.accrual;
+
+import com.example.bankrest.component.CardCacheEvictor;
+import com.example.bankrest.engine.BalanceEngine;
+import com.example.bankrest.entity.Money;
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ежемесячное начисление процентов и комиссий по всем активным картам. Карты читаются пачками по chunk-size
+ * в порядке id (keyset, без OFFSET) и обрабатываются параллельно в parallelism потоках. Пачка - одна транзакция:
+ * строки карт блокируются и перечитываются, суммы считаются по прочитанным под блокировкой балансам,
+ * затем один запрос пишет accrual_postings, строки истории и UPDATE балансов.
+ * <p>
+ * Идемпотентность: первичный ключ (card_id, period) в accrual_postings, баланс меняется только для
+ * строк, которые реально вставились, поэтому повторный или прерванный запуск не начислит дважды.
+ * Нагрузка ограничена числом одновременных пачек и RateLimiter по картам в секунду.
+ * Проценты считаются на баланс в момент начисления. С включенным движком балансов задача не работает:
+ * cards.balance в этом режиме принадлежит движку.
+ */
+@Component
+@Slf4j
+public class AccrualJob {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BalanceEngine balanceEngine;
+    private final CardCacheEvictor cardCacheEvictor;
+
+    @Value("${accrual.enabled:false}")
+    private boolean enabled;
+
+    @Value("${accrual.annual-rate-bps:0}")
+    private long annualRateBps;
+
+    @Value("${accrual.monthly-fee:0.00}")
+    private BigDecimal monthlyFee;
+
+    @Value("${accrual.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${accrual.parallelism:2}")
+    private int parallelism;
+
+    @Value("${accrual.max-cards-per-second:5000}")
+    private double maxCardsPerSecond;
+
+    public AccrualJob(JdbcTemplate jdbcTemplate,
+                      PlatformTransactionManager transactionManager,
+                      BalanceEngine balanceEngine,
+                      CardCacheEvictor cardCacheEvictor,
+                      @Value("${accrual.chunk-timeout-seconds:10}") int chunkTimeoutSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(chunkTimeoutSeconds);
+        this.balanceEngine = balanceEngine;
+        this.cardCacheEvictor = cardCacheEvictor;
+    }
+
+    /// Начисляет за прошлый месяц. Срабатывает ежедневно: после полного прохода повтор находит пустую выборку,
+    /// после сбоя - дочисляет оставшиеся карты.
+    @Scheduled(cron = "${accrual.cron:0 30 1 * * *}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            accrue(YearMonth.now().minusMonths(1));
+        } catch (RuntimeException e) {
+            log.error("AccrualJob.run.fail: {}", e.getMessage());
+        }
+    }
+
+    /// Проверка движка здесь, а не в run: accrue публичный, и прямой вызов не должен менять балансы в обход движка.
+    public void accrue(YearMonth period) {
+        if (balanceEngine.isEnabled()) {
+            log.error("AccrualJob.accrue.fail.balanceEngineEnabled: {}", period);
+            return;
+        }
+        AccrualCalculator calculator = new AccrualCalculator(annualRateBps, Money.of(monthlyFee).getMinorUnits());
+        RateLimiter rateLimiter = RateLimiter.create(maxCardsPerSecond);
+        Semaphore inFlight = new Semaphore(parallelism);
+        AtomicLong posted = new AtomicLong();
+        AtomicInteger failedChunks = new AtomicInteger();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "accrual-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long lastCardId = 0;
+        try {
+            while (true) {
+                List<Long> chunk = readChunk(period, lastCardId);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                lastCardId = chunk.get(chunk.size() - 1);
+                rateLimiter.acquire(chunk.size());
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        posted.addAndGet(applyChunk(period, chunk, calculator));
+                    } catch (RuntimeException e) {
+                        failedChunks.incrementAndGet();
+                        log.error("AccrualJob.applyChunk.fail: {} from {}: {}", period, chunk.get(0), e.getMessage());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            inFlight.acquire(parallelism);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+        log.info("AccrualJob.accrue.success: {}, {} cards posted, {} chunks failed", period, posted.get(), failedChunks.get());
+    }
+
+    /// Активные карты, открытые до конца периода и еще без начисления за него. Балансы здесь не читаются:
+    /// до блокировки в applyChunk их может изменить любой перевод.
+    private List<Long> readChunk(YearMonth period, long afterCardId) {
+        return jdbcTemplate.query("""
+                        SELECT c.id FROM cards c
+                        WHERE c.id > ? AND c.status = 'ACTIVE' AND c.created_at < ?
+                          AND NOT EXISTS (SELECT 1 FROM accrual_postings p WHERE p.card_id = c.id AND p.period = ?)
+                        ORDER BY c.id
+                        LIMIT ?
+                        """,
+                (rs, rowNum) -> rs.getLong("id"),
+                afterCardId,
+                Timestamp.valueOf(period.plusMonths(1).atDay(1).atStartOfDay()),
+                Date.valueOf(period.atDay(1)),
+                chunkSize);
+    }
+
+    /// Нулевые начисления тоже пишутся в accrual_postings, чтобы карта не попадала в выборку повторно.
+    /// Строки карт блокируются в порядке id, как и при переводах, и суммы считаются только по балансам,
+    /// прочитанным под этой блокировкой: до коммита их уже никто не изменит. Карта, которая перестала быть
+    /// активной, в пачку не попадает.
+    private int applyChunk(YearMonth period, List<Long> chunk, AccrualCalculator calculator) {
+        Integer updated = transactionTemplate.execute(status -> {
+            List<AccrualCard> locked = lockCards(chunk);
+            if (locked.isEmpty()) {
+                return 0;
+            }
+            List<Long> cardIds = new ArrayList<>(locked.size());
+            List<Long> amounts = new ArrayList<>(locked.size());
+            for (AccrualCard card : locked) {
+                cardIds.add(card.id());
+                amounts.add(calculator.posting(card.balance(), card.availableBalance()));
+            }
+            return post(period, cardIds, amounts);
+        });
+        cardCacheEvictor.evict(chunk);
+        return updated == null ? 0 : updated;
+    }
+
+    private List<AccrualCard> lockCards(List<Long> cardIds) {
+        return jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement("""
+                            SELECT id, balance, available_balance FROM cards
+                            WHERE id = ANY (?) AND status = 'ACTIVE'
+                            ORDER BY id
+                            FOR UPDATE
+                            """);
+                    statement.setArray(1, connection.createArrayOf("bigint", cardIds.toArray()));
+                    return statement;
+                },
+                (rs, rowNum) -> new AccrualCard(rs.getLong("id"), rs.getLong("balance"), rs.getLong("available_balance")));
+    }
+
+    private int post(YearMonth period, List<Long> cardIds, List<Long> amounts) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement("""
+                    WITH posted AS (
+                        INSERT INTO accrual_postings (card_id, period, amount)
+                        SELECT card_id, ?, amount FROM unnest(?::bigint[], ?::bigint[]) AS i(card_id, amount)
+                        ON CONFLICT (card_id, period) DO NOTHING
+                        RETURNING card_id, amount
+                    ), history AS (
+                        INSERT INTO card_transactions (card_id, direction, amount)
+                        SELECT card_id, CASE WHEN amount > 0 THEN 'CREDIT' ELSE 'DEBIT' END, abs(amount) FROM posted
+                        WHERE amount <> 0
+                    )
+                    UPDATE cards c
+                    SET balance = c.balance + p.amount, available_balance = c.available_balance + p.amount, updated_at = now()
+                    FROM posted p
+                    WHERE c.id = p.card_id AND p.amount <> 0
+                    """);
+            statement.setDate(1, Date.valueOf(period.atDay(1)));
+            statement.setArray(2, connection.createArrayOf("bigint", cardIds.toArray()));
+            statement.setArray(3, connection.createArrayOf("bigint", amounts.toArray()));
+            return statement;
+        });
+    }
+
+    private record AccrualCard(long id, long balance, long availableBalance) {
+    }
+}
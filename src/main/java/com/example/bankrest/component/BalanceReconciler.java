@@ -0,0 +1,182 @@
+package com.example.bankrest.component;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Сверка cards.balance с историей операций для диапазона id карт. Ожидаемый баланс карты -
+ * card_opening_balances (баланс до начала истории) плюс сумма операций в card_transactions.
+ * Переводы (есть карта-контрагент) и начисления (контрагента нет) суммируются отдельно:
+ * первые в целом по картам должны давать ноль, вторые - нет. Итоги считаются по валютам карт,
+ * а ноги переводов с конвертацией (валюта контрагента другая) - отдельно от переводов внутри валюты:
+ * в одной валюте их сумма нулю не равна.
+ * Диапазон проверяется одним запросом: баланс и операции видны в одном снимке, строки карт не блокируются,
+ * расхождения записываются в reconciliation_drifts тем же запросом, а наружу возвращаются только итоги.
+ * <p>
+ * Все диапазоны одного запуска импортируют один снимок из {@link #exportSnapshot()}, поэтому их итоги
+ * складываются в баланс всей базы на один момент: перевод между картами разных диапазонов не попадает
+ * в сумму наполовину.
+ */
+@Component
+@Slf4j
+public class BalanceReconciler {
+
+    private static final Pattern SNAPSHOT_ID = Pattern.compile("[0-9A-F]+(-[0-9A-F]+)+");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+
+    public BalanceReconciler(JdbcTemplate jdbcTemplate,
+                             DataSource dataSource,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${reconciliation.range-timeout-seconds:60}") int rangeTimeoutSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate.setTimeout(rangeTimeoutSeconds);
+    }
+
+    /// Открывает на отдельном соединении транзакцию только для чтения и экспортирует ее снимок.
+    /// Снимок существует, пока не закрыт {@link SharedSnapshot}; все это время VACUUM не чистит версии строк новее него.
+    public SharedSnapshot exportSnapshot() {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setReadOnly(true);
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT pg_export_snapshot()")) {
+                rs.next();
+                return new SharedSnapshot(connection, rs.getString(1));
+            }
+        } catch (SQLException e) {
+            if (connection != null) {
+                SharedSnapshot.release(connection);
+            }
+            throw new DataAccessResourceFailureException("Can't export reconciliation snapshot", e);
+        }
+    }
+
+    public RangeTotals reconcileRange(Long runId, String snapshotId, long fromCardId, long toCardId) {
+        if (!SNAPSHOT_ID.matcher(snapshotId).matches()) {
+            throw new IllegalArgumentException("Invalid snapshot id: " + snapshotId);
+        }
+        return transactionTemplate.execute(status -> {
+            // должна быть первой командой транзакции, параметром id снимка не передается
+            jdbcTemplate.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+            long[] drifted = new long[1];
+            // строк нет только у диапазона без карт, расхождений у него тоже нет
+            List<CurrencyTotals> currencies = jdbcTemplate.query("""
+                    WITH movements AS (
+                        SELECT t.card_id,
+                               sum(CASE WHEN t.direction = 'CREDIT' THEN t.amount ELSE -t.amount END) AS net,
+                               sum(CASE WHEN t.direction = 'CREDIT' THEN t.amount ELSE -t.amount END)
+                                   FILTER (WHERE t.counterparty_card_id IS NULL) AS posting_net,
+                               sum(CASE WHEN t.direction = 'CREDIT' THEN t.amount ELSE -t.amount END)
+                                   FILTER (WHERE cp.currency <> c.currency) AS fx_net
+                        FROM card_transactions t
+                        JOIN cards c ON c.id = t.card_id
+                        LEFT JOIN cards cp ON cp.id = t.counterparty_card_id
+                        WHERE t.card_id >= ? AND t.card_id < ?
+                        GROUP BY t.card_id
+                    ), checked AS (
+                        SELECT c.id, c.currency, c.balance, COALESCE(o.opening_balance, 0) AS opening,
+                               COALESCE(m.net, 0) AS net, COALESCE(m.posting_net, 0) AS posting_net,
+                               COALESCE(m.fx_net, 0) AS fx_net
+                        FROM cards c
+                        LEFT JOIN card_opening_balances o ON o.card_id = c.id
+                        LEFT JOIN movements m ON m.card_id = c.id
+                        WHERE c.id >= ? AND c.id < ?
+                    ), drifts AS (
+                        INSERT INTO reconciliation_drifts (run_id, card_id, balance, expected_balance)
+                        SELECT ?, id, balance, opening + net FROM checked WHERE balance <> opening + net
+                        RETURNING card_id
+                    )
+                    SELECT currency,
+                           count(*) AS cards,
+                           sum(balance) AS balance,
+                           sum(opening) AS opening,
+                           sum(net - posting_net - fx_net) AS net,
+                           sum(fx_net) AS fx_net,
+                           sum(posting_net) AS posting_net,
+                           (SELECT count(*) FROM drifts) AS drifted
+                    FROM checked
+                    GROUP BY currency
+                    ORDER BY currency
+                    """, (rs, rowNum) -> {
+                        drifted[0] = rs.getLong("drifted");
+                        return new CurrencyTotals(
+                                rs.getString("currency"),
+                                rs.getLong("cards"),
+                                rs.getLong("balance"),
+                                rs.getLong("opening"),
+                                rs.getLong("net"),
+                                rs.getLong("fx_net"),
+                                rs.getLong("posting_net"));
+                    },
+                    fromCardId, toCardId, fromCardId, toCardId, runId);
+            long cards = currencies.stream().mapToLong(CurrencyTotals::cards).sum();
+            return new RangeTotals(cards, drifted[0], currencies);
+        });
+    }
+
+    public record RangeTotals(long cards, long drifted, List<CurrencyTotals> currencies) {
+    }
+
+    /// Суммы в минорных единицах валюты. ledgerNet - переводы внутри валюты, fxNet - ноги переводов с конвертацией,
+    /// postingNet - начисления и комиссии.
+    public record CurrencyTotals(String currency, long cards, long balance, long openingBalance,
+                                 long ledgerNet, long fxNet, long postingNet) {
+    }
+
+    /// Экспортированный снимок и держащая его транзакция. close откатывает транзакцию и возвращает соединение в пул.
+    public static class SharedSnapshot implements AutoCloseable {
+
+        private final Connection connection;
+        private final String id;
+
+        SharedSnapshot(Connection connection, String id) {
+            this.connection = connection;
+            this.id = id;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        @Override
+        public void close() {
+            release(connection);
+        }
+
+        private static void release(Connection connection) {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                log.error("BalanceReconciler.SharedSnapshot.close.fail.rollback: {}", e.getMessage());
+            }
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.error("BalanceReconciler.SharedSnapshot.close.fail: {}", e.getMessage());
+            }
+        }
+    }
+}
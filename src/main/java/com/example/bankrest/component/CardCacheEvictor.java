@@ -0,0 +1,36 @@
+package com.example.bankrest.component;
+
+import com.example.bankrest.entity.Card;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Обновления cards через JdbcTemplate идут мимо Hibernate, и второй уровень кэша о них не знает.
+ * Вызывается после коммита такого обновления: затронутые карты вытесняются из региона Card,
+ * следующее чтение возьмет строку из БД. Вытеснение до коммита не помогло бы - параллельное чтение
+ * успело бы положить в кэш старую версию строки.
+ */
+@Component
+public class CardCacheEvictor {
+
+    private final Cache cache;
+
+    public CardCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.getCache();
+    }
+
+    public void evict(Collection<Long> cardIds) {
+        for (Long cardId : cardIds) {
+            cache.evict(Card.class, cardId);
+        }
+    }
+
+    public void evict(long[] cardIds) {
+        for (long cardId : cardIds) {
+            cache.evict(Card.class, cardId);
+        }
+    }
+}
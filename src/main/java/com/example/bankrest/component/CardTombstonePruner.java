@@ -0,0 +1,33 @@
+package com.example.bankrest.component;
+
+import com.example.bankrest.repository.CardRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Удаляет записи об удаленных картах старше tombstone-retention-days. Курсор ленты изменений старше этого срока
+ * отклоняется, поэтому удаленные записи никому уже не нужны. На нескольких узлах повторное удаление ничего не находит.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CardTombstonePruner {
+
+    private final CardRepository cardRepository;
+
+    @Value("${card-changes.tombstone-retention-days:30}")
+    private int retentionDays;
+
+    @Scheduled(cron = "${card-changes.tombstone-prune-cron:0 50 3 * * *}")
+    public void prune() {
+        try {
+            int deleted = cardRepository.deleteTombstonesOlderThan(retentionDays);
+            log.info("CardTombstonePruner.prune.success: {} tombstones deleted", deleted);
+        } catch (RuntimeException e) {
+            log.error("CardTombstonePruner.prune.fail: {}", e.getMessage());
+        }
+    }
+}
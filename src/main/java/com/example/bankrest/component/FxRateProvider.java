@@ -0,0 +1,123 @@
+package com.example.bankrest.component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Курсы валют в памяти. Переводы берут текущий снимок через {@link #current()} и не обращаются к БД за курсами.
+ * Снимок перечитывается из fx_rates по расписанию и сразу после изменения таблицы: триггер на fx_rates
+ * шлет NOTIFY fx_rates_changed, который слушает отдельный поток на своем соединении из пула.
+ */
+@Component
+@Slf4j
+public class FxRateProvider {
+
+    private static final String CHANNEL = "fx_rates_changed";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final AtomicReference<FxRates> snapshot = new AtomicReference<>();
+    private Thread listener;
+    private volatile boolean running;
+
+    @Value("${fx.default-currency:RUB}")
+    private String defaultCurrency;
+
+    @Value("${fx.listen:true}")
+    private boolean listen;
+
+    public FxRateProvider(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void start() {
+        snapshot.set(new FxRates(defaultCurrency, Map.of(), LocalDateTime.now()));
+        refresh();
+        if (listen) {
+            running = true;
+            listener = new Thread(this::listen, "fx-rates-listener");
+            listener.setDaemon(true);
+            listener.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (listener != null) {
+            listener.join(TimeUnit.SECONDS.toMillis(15));
+        }
+    }
+
+    public FxRates current() {
+        return snapshot.get();
+    }
+
+    public String getDefaultCurrency() {
+        return defaultCurrency;
+    }
+
+    /// При ошибке чтения остается прежний снимок.
+    @Scheduled(fixedDelayString = "${fx.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            Map<String, BigDecimal> rates = new HashMap<>();
+            jdbcTemplate.query("SELECT base_currency, quote_currency, rate FROM fx_rates", rs -> {
+                rates.put(FxRates.key(rs.getString("base_currency"), rs.getString("quote_currency")), rs.getBigDecimal("rate"));
+            });
+            snapshot.set(new FxRates(defaultCurrency, rates, LocalDateTime.now()));
+            log.info("FxRateProvider.refresh.success: {} rates", rates.size());
+        } catch (RuntimeException e) {
+            log.error("FxRateProvider.refresh.fail: {}", e.getMessage());
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(10_000);
+                    if (notifications != null && notifications.length > 0) {
+                        refresh();
+                    }
+                }
+                // соединение возвращается в пул - подписка не должна достаться следующему владельцу
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("UNLISTEN " + CHANNEL);
+                }
+            } catch (SQLException e) {
+                log.error("FxRateProvider.listen.fail: {}", e.getMessage());
+                try {
+                    TimeUnit.SECONDS.sleep(5);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
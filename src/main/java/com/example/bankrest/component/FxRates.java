@@ -0,0 +1,71 @@
+package com.example.bankrest.component;
+
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.exception.InvalidAmountException;
+import com.example.bankrest.exception.UnsupportedCurrencyException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Неизменяемый набор курсов из fx_rates на момент загрузки. Снимок целиком подменяется в {@link FxRateProvider},
+ * поэтому все конвертации, выполненные с одним экземпляром, видят согласованные курсы.
+ * Обратный курс, если его нет в таблице, вычисляется из прямого.
+ */
+public final class FxRates {
+
+    private static final int INVERSE_RATE_SCALE = 10;
+
+    private final Map<String, BigDecimal> rates;
+    private final Set<String> currencies;
+    private final LocalDateTime loadedAt;
+
+    FxRates(String defaultCurrency, Map<String, BigDecimal> directRates, LocalDateTime loadedAt) {
+        Map<String, BigDecimal> allRates = new HashMap<>(directRates);
+        Set<String> allCurrencies = new HashSet<>();
+        allCurrencies.add(defaultCurrency);
+        directRates.forEach((pair, rate) -> {
+            String base = pair.substring(0, 3);
+            String quote = pair.substring(4);
+            allCurrencies.add(base);
+            allCurrencies.add(quote);
+            allRates.putIfAbsent(key(quote, base), BigDecimal.ONE.divide(rate, INVERSE_RATE_SCALE, RoundingMode.HALF_EVEN));
+        });
+        this.rates = Map.copyOf(allRates);
+        this.currencies = Set.copyOf(allCurrencies);
+        this.loadedAt = loadedAt;
+    }
+
+    public boolean supports(String currency) {
+        return currencies.contains(currency);
+    }
+
+    public LocalDateTime getLoadedAt() {
+        return loadedAt;
+    }
+
+    /// Сумма в валюте to, округленная до копеек по банковскому правилу.
+    public Money convert(Money amount, String from, String to) {
+        if (from.equals(to)) {
+            return amount;
+        }
+        BigDecimal rate = rates.get(key(from, to));
+        if (rate == null) {
+            throw new UnsupportedCurrencyException("No exchange rate for " + from + "/" + to);
+        }
+        Money converted = Money.of(amount.toBigDecimal().multiply(rate).setScale(Money.SCALE, RoundingMode.HALF_EVEN));
+        if (!converted.isPositive()) {
+            throw new InvalidAmountException("Transfer amount is too small to convert");
+        }
+        return converted;
+    }
+
+    static String key(String base, String quote) {
+        return base + "/" + quote;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.bankrest.component;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживание месячных секций card_transactions. Заранее создает секции на months-ahead месяцев вперед,
+ * чтобы вставки не попадали в секцию по умолчанию, и отсоединяет секции старше retention-months.
+ * Отсоединенная секция остается отдельной таблицей (архив) или удаляется, если drop-detached включен.
+ * Перед отсоединением сумма операций секции переносится в card_opening_balances, чтобы сверка балансов
+ * по оставшейся истории сходилась.
+ * Запускается при старте и по расписанию; на нескольких узлах лишняя попытка создать секцию просто логируется.
+ */
+@Component
+@Slf4j
+public class PartitionMaintenance {
+
+    private static final String PARENT_TABLE = "card_transactions";
+    private static final Pattern PARTITION_NAME = Pattern.compile("^" + PARENT_TABLE + "_(\\d{4})_(\\d{2})$");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${transfer.history.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${transfer.history.retention-months:24}")
+    private int retentionMonths;
+
+    @Value("${transfer.history.partitions.drop-detached:false}")
+    private boolean dropDetached;
+
+    public PartitionMaintenance(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${transfer.history.partitions.cron:0 0 3 * * *}")
+    public void maintain() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            createPartition(current.plusMonths(i));
+        }
+        detachExpired(current.minusMonths(retentionMonths));
+    }
+
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + PARENT_TABLE
+                    + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        } catch (RuntimeException e) {
+            log.error("PartitionMaintenance.createPartition.fail: {}: {}", partition, e.getMessage());
+        }
+    }
+
+    /// Секции строго старше месяца oldestKept. Секция по умолчанию под шаблон имени не подходит и не трогается.
+    private void detachExpired(YearMonth oldestKept) {
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT child.relname FROM pg_inherits
+                JOIN pg_class parent ON parent.oid = pg_inherits.inhparent
+                JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+                WHERE parent.relname = ?
+                """, String.class, PARENT_TABLE);
+
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (!month.isBefore(oldestKept)) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.update("INSERT INTO card_opening_balances (card_id, opening_balance) "
+                            + "SELECT t.card_id, sum(CASE WHEN t.direction = 'CREDIT' THEN t.amount ELSE -t.amount END) "
+                            + "FROM " + partition + " t JOIN cards c ON c.id = t.card_id GROUP BY t.card_id "
+                            + "ON CONFLICT (card_id) DO UPDATE "
+                            + "SET opening_balance = card_opening_balances.opening_balance + excluded.opening_balance");
+                    jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + partition);
+                    if (dropDetached) {
+                        jdbcTemplate.execute("DROP TABLE " + partition);
+                    }
+                });
+                log.info("PartitionMaintenance.detachExpired.success: {}, dropped: {}", partition, dropDetached);
+            } catch (RuntimeException e) {
+                log.error("PartitionMaintenance.detachExpired.fail: {}: {}", partition, e.getMessage());
+            }
+        }
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARENT_TABLE + "_" + month.format(PARTITION_SUFFIX);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.bankrest.component;
+
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.entity.TransactionDirection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запись истории операций карт. На каждый перевод - две строки: списание у отправителя и зачисление получателю,
+ * каждая в валюте своей карты.
+ * Пишется в текущей транзакции перевода одним пакетным INSERT, поэтому история откатывается вместе с переводом.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionLedger {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void recordTransfer(Long fromCardId, Long toCardId, Money debitAmount, Money creditAmount) {
+        recordTransfers(List.of(new Entry(fromCardId, toCardId, debitAmount, creditAmount)));
+    }
+
+    public void recordTransfers(List<Entry> transfers) {
+        if (transfers.isEmpty()) {
+            return;
+        }
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(transfers.size() * 2);
+        for (Entry transfer : transfers) {
+            rows.add(new Object[]{transfer.fromCardId(), transfer.toCardId(), TransactionDirection.DEBIT.name(),
+                    transfer.debitAmount().getMinorUnits(), createdAt});
+            rows.add(new Object[]{transfer.toCardId(), transfer.fromCardId(), TransactionDirection.CREDIT.name(),
+                    transfer.creditAmount().getMinorUnits(), createdAt});
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO card_transactions (card_id, counterparty_card_id, direction, amount, created_at)
+                VALUES (?, ?, ?, ?, ?)
+                """, rows);
+    }
+
+    /// debitAmount - в валюте отправителя, creditAmount - в валюте получателя; для одной валюты они равны.
+    public record Entry(Long fromCardId, Long toCardId, Money debitAmount, Money creditAmount) {
+    }
+}
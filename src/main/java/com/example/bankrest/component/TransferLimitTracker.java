@@ -0,0 +1,345 @@
+package com.example.bankrest.component;
+
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.exception.TransferLimitExceededException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Лимиты списаний по карте-отправителю за скользящие 24 часа и 30 дней. Списания считаются по часовым корзинам
+ * (час - номер часа от эпохи UTC): дневной лимит - сумма корзин текущего и 23 предыдущих часов, месячный - 720 часов.
+ * Счетчики живут в памяти: ConcurrentHashMap по id карты и неизменяемое состояние в AtomicReference,
+ * которое меняется CAS-циклом без блокировок. Проверка выполняется до блокировки строк карт и не делает запросов в БД.
+ * Сумма резервируется сразу и возвращается, если перевод не состоялся или его транзакция откатилась.
+ * <p>
+ * Локальные изменения по расписанию прибавляются к card_spend_buckets (UPDATE spent = spent + delta), поэтому
+ * несколько узлов не затирают списания друг друга. После сброса корзины сброшенных карт перечитываются из БД
+ * вместе со списаниями других узлов, и следующие резервы проверяются уже по значению из БД.
+ * Узел узнает о чужих списаниях по карте не позже одного интервала сброса после своего перевода по ней:
+ * на этот интервал лимит может быть превышен на сумму, списанную другими узлами.
+ * После аварийного рестарта теряются списания только за последний интервал сброса.
+ */
+@Component
+@Slf4j
+public class TransferLimitTracker {
+
+    static final int DAY_HOURS = 24;
+    static final int MONTH_HOURS = 30 * DAY_HOURS;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentMap<Long, AtomicReference<Spend>> counters = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    @Value("${transfer.limits.enabled:true}")
+    private boolean enabled;
+
+    @Value("${transfer.limits.daily:100000.00}")
+    private BigDecimal dailyLimit;
+
+    @Value("${transfer.limits.monthly:1000000.00}")
+    private BigDecimal monthlyLimit;
+
+    private long dailyLimitMinorUnits;
+    private long monthlyLimitMinorUnits;
+
+    public TransferLimitTracker(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void start() {
+        dailyLimitMinorUnits = Money.of(dailyLimit).getMinorUnits();
+        monthlyLimitMinorUnits = Money.of(monthlyLimit).getMinorUnits();
+        if (!enabled) {
+            return;
+        }
+        Map<Long, Buckets> loaded = new HashMap<>();
+        jdbcTemplate.query("""
+                        SELECT card_id, bucket_hour, spent FROM card_spend_buckets
+                        WHERE bucket_hour > ?
+                        ORDER BY card_id, bucket_hour
+                        """,
+                rs -> {
+                    loaded.merge(rs.getLong("card_id"), Buckets.of(rs.getLong("bucket_hour"), rs.getLong("spent")), Buckets::merge);
+                },
+                currentHour() - MONTH_HOURS);
+        loaded.forEach((cardId, buckets) -> counters.put(cardId, new AtomicReference<>(Spend.of(buckets))));
+        log.info("TransferLimitTracker.start.success: {} cards", counters.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    /// Резервирует сумму в лимитах карты или бросает {@link TransferLimitExceededException}.
+    public Reservation reserve(Long cardId, Money amount) {
+        return reserve(cardId, amount, currentHour());
+    }
+
+    Reservation reserve(Long cardId, Money amount, long hour) {
+        if (!enabled) {
+            return null;
+        }
+        long value = amount.getMinorUnits();
+
+        AtomicReference<Spend> counter = counters.computeIfAbsent(cardId, id -> new AtomicReference<>(Spend.of(Buckets.EMPTY)));
+        while (true) {
+            Spend current = counter.get();
+            Spend next = current.plus(hour, value);
+            if (next.spentSince(hour - DAY_HOURS) > dailyLimitMinorUnits) {
+                log.info("TransferLimitTracker.reserve.fail.dailyLimit: {}", cardId);
+                throw new TransferLimitExceededException("Daily transfer limit exceeded");
+            }
+            if (next.spentSince(hour - MONTH_HOURS) > monthlyLimitMinorUnits) {
+                log.info("TransferLimitTracker.reserve.fail.monthlyLimit: {}", cardId);
+                throw new TransferLimitExceededException("Monthly transfer limit exceeded");
+            }
+            if (counter.compareAndSet(current, next)) {
+                dirty.add(cardId);
+                return new Reservation(cardId, value, hour);
+            }
+        }
+    }
+
+    /// Возвращает зарезервированную сумму в корзину ее часа. Уже сброшенный резерв уходит в БД отрицательной дельтой.
+    public void release(Reservation reservation) {
+        if (reservation == null) {
+            return;
+        }
+        AtomicReference<Spend> counter = counters.get(reservation.cardId());
+        if (counter == null) {
+            return;
+        }
+        counter.updateAndGet(spend -> spend.plus(reservation.hour(), -reservation.amount()));
+        dirty.add(reservation.cardId());
+    }
+
+    /// Возвращает резерв после отката текущей транзакции. Вне транзакции ничего не делает.
+    public void releaseOnRollback(Reservation reservation) {
+        if (reservation == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    release(reservation);
+                }
+            }
+        });
+    }
+
+    /// Сбрасывает локальные дельты, затем перечитывает корзины сброшенных карт. Строки пишутся в порядке
+    /// (card_id, bucket_hour), чтобы параллельные сбросы разных узлов не взаимоблокировались.
+    @Scheduled(fixedDelayString = "${transfer.limits.flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled || dirty.isEmpty()) {
+            return;
+        }
+        long fromHour = currentHour() - MONTH_HOURS;
+        List<Long> cardIds = new ArrayList<>(dirty.size());
+        List<Object[]> rows = new ArrayList<>(dirty.size());
+        for (Long cardId : dirty) {
+            dirty.remove(cardId);
+            Spend sent = counters.get(cardId).updateAndGet(Spend::send);
+            cardIds.add(cardId);
+            sent.inFlight().forEach((hour, delta) -> {
+                if (hour > fromHour && delta != 0L) {
+                    rows.add(new Object[]{cardId, hour, delta});
+                }
+            });
+        }
+        rows.sort(Comparator.<Object[]>comparingLong(row -> (Long) row[0]).thenComparingLong(row -> (Long) row[1]));
+        try {
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO card_spend_buckets (card_id, bucket_hour, spent) VALUES (?, ?, ?)
+                    ON CONFLICT (card_id, bucket_hour) DO UPDATE SET spent = card_spend_buckets.spent + excluded.spent
+                    """, rows);
+        } catch (RuntimeException e) {
+            log.error("TransferLimitTracker.flush.fail: {}", e.getMessage());
+            cardIds.forEach(cardId -> counters.get(cardId).updateAndGet(Spend::returnInFlight));
+            dirty.addAll(cardIds);
+            return;
+        }
+        cardIds.forEach(cardId -> counters.get(cardId).updateAndGet(Spend::confirmInFlight));
+        log.info("TransferLimitTracker.flush.success: {} cards", cardIds.size());
+
+        try {
+            refresh(cardIds, fromHour);
+        } catch (RuntimeException e) {
+            log.error("TransferLimitTracker.flush.fail.refresh: {}", e.getMessage());
+        }
+    }
+
+    /// Корзины старше 30 дней больше не участвуют в лимитах.
+    @Scheduled(fixedDelayString = "${transfer.limits.prune-interval-ms:3600000}")
+    public void prune() {
+        if (!enabled) {
+            return;
+        }
+        int deleted = jdbcTemplate.update("DELETE FROM card_spend_buckets WHERE bucket_hour <= ?", currentHour() - MONTH_HOURS);
+        log.info("TransferLimitTracker.prune.success: {} buckets", deleted);
+    }
+
+    private void refresh(List<Long> cardIds, long fromHour) {
+        Map<Long, Buckets> loaded = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement("""
+                            SELECT card_id, bucket_hour, spent FROM card_spend_buckets
+                            WHERE card_id = ANY (?) AND bucket_hour > ?
+                            ORDER BY card_id, bucket_hour
+                            """);
+                    Array ids = connection.createArrayOf("bigint", cardIds.toArray());
+                    statement.setArray(1, ids);
+                    statement.setLong(2, fromHour);
+                    return statement;
+                },
+                rs -> {
+                    loaded.merge(rs.getLong("card_id"), Buckets.of(rs.getLong("bucket_hour"), rs.getLong("spent")), Buckets::merge);
+                });
+        for (Long cardId : cardIds) {
+            Buckets confirmed = loaded.getOrDefault(cardId, Buckets.EMPTY);
+            counters.get(cardId).updateAndGet(spend -> spend.withConfirmed(confirmed));
+        }
+    }
+
+    private static long currentHour() {
+        return TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis());
+    }
+
+    /// hour - номер часа от эпохи UTC, в корзину которого записан резерв.
+    public record Reservation(long cardId, long amount, long hour) {
+    }
+
+    /// confirmed - корзины из БД, inFlight - дельты, отправленные текущим сбросом, pending - еще не отправленные.
+    private record Spend(Buckets confirmed, Buckets inFlight, Buckets pending) {
+
+        static Spend of(Buckets buckets) {
+            return new Spend(buckets, Buckets.EMPTY, Buckets.EMPTY);
+        }
+
+        long spentSince(long afterHour) {
+            return confirmed.sumAfter(afterHour) + inFlight.sumAfter(afterHour) + pending.sumAfter(afterHour);
+        }
+
+        Spend plus(long hour, long amount) {
+            return new Spend(confirmed, inFlight, pending.plus(hour, amount));
+        }
+
+        Spend send() {
+            return new Spend(confirmed, inFlight.merge(pending), Buckets.EMPTY);
+        }
+
+        Spend confirmInFlight() {
+            return new Spend(confirmed.merge(inFlight), Buckets.EMPTY, pending);
+        }
+
+        Spend returnInFlight() {
+            return new Spend(confirmed, Buckets.EMPTY, inFlight.merge(pending));
+        }
+
+        /// Корзины из БД уже содержат все подтвержденные дельты; pending в БД еще нет, он сохраняется.
+        Spend withConfirmed(Buckets buckets) {
+            return new Spend(buckets, inFlight, pending);
+        }
+    }
+
+    /// Неизменяемые корзины, отсортированные по часу. У карты их обычно единицы, поэтому массивы копируются целиком.
+    private static final class Buckets {
+
+        static final Buckets EMPTY = new Buckets(new long[0], new long[0]);
+
+        private final long[] hours;
+        private final long[] amounts;
+
+        private Buckets(long[] hours, long[] amounts) {
+            this.hours = hours;
+            this.amounts = amounts;
+        }
+
+        static Buckets of(long hour, long amount) {
+            return new Buckets(new long[]{hour}, new long[]{amount});
+        }
+
+        long sumAfter(long afterHour) {
+            long sum = 0L;
+            for (int i = hours.length - 1; i >= 0 && hours[i] > afterHour; i--) {
+                sum += amounts[i];
+            }
+            return sum;
+        }
+
+        Buckets plus(long hour, long amount) {
+            int index = Arrays.binarySearch(hours, hour);
+            if (index >= 0) {
+                long[] nextAmounts = amounts.clone();
+                nextAmounts[index] += amount;
+                return new Buckets(hours, nextAmounts);
+            }
+            int insertAt = -index - 1;
+            long[] nextHours = new long[hours.length + 1];
+            long[] nextAmounts = new long[amounts.length + 1];
+            System.arraycopy(hours, 0, nextHours, 0, insertAt);
+            System.arraycopy(amounts, 0, nextAmounts, 0, insertAt);
+            nextHours[insertAt] = hour;
+            nextAmounts[insertAt] = amount;
+            System.arraycopy(hours, insertAt, nextHours, insertAt + 1, hours.length - insertAt);
+            System.arraycopy(amounts, insertAt, nextAmounts, insertAt + 1, amounts.length - insertAt);
+            return new Buckets(nextHours, nextAmounts).trim(hour - MONTH_HOURS);
+        }
+
+        Buckets merge(Buckets other) {
+            Buckets result = this;
+            for (int i = 0; i < other.hours.length; i++) {
+                result = result.plus(other.hours[i], other.amounts[i]);
+            }
+            return result;
+        }
+
+        void forEach(HourConsumer consumer) {
+            for (int i = 0; i < hours.length; i++) {
+                consumer.accept(hours[i], amounts[i]);
+            }
+        }
+
+        /// Отбрасывает корзины, вышедшие из месячного окна.
+        private Buckets trim(long afterHour) {
+            int from = 0;
+            while (from < hours.length && hours[from] <= afterHour) {
+                from++;
+            }
+            if (from == 0) {
+                return this;
+            }
+            return new Buckets(Arrays.copyOfRange(hours, from, hours.length), Arrays.copyOfRange(amounts, from, amounts.length));
+        }
+    }
+
+    @FunctionalInterface
+    private interface HourConsumer {
+        void accept(long hour, long amount);
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.bankrest.component;
+
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.exception.SuspiciousTransferException;
+import com.example.bankrest.util.LongLongHashMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Потоковая оценка подозрительности переводов по карте-отправителю без запросов в БД.
+ * Для каждой карты хранятся экспоненциально затухающие частота переводов, среднее и дисперсия суммы
+ * в примитивных массивах; слот карты ищется через {@link LongLongHashMap}, поэтому оценка - O(1).
+ * Итоговая оценка - максимум из z-оценки суммы (в сигмах) и частоты, приведенной к той же шкале:
+ * частота burst-rate дает hold-score. Перевод с оценкой не ниже hold-score задерживается, не ниже reject-score - отклоняется.
+ * Карты разбиты на сегменты со своей блокировкой, состояние периодически сохраняется компактным снимком в файл.
+ */
+@Component
+@Slf4j
+public class TransferRiskScorer {
+
+    private static final int SEGMENTS = 64;
+    private static final int SNAPSHOT_MAGIC = 0x5C0E5C0E;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final Counter heldCounter;
+    private final Counter rejectedCounter;
+
+    @Value("${transfer.risk.enabled:true}")
+    private boolean enabled;
+
+    @Value("${transfer.risk.rate-half-life-seconds:3600}")
+    private long rateHalfLifeSeconds;
+
+    @Value("${transfer.risk.amount-alpha:0.1}")
+    private double amountAlpha;
+
+    @Value("${transfer.risk.warmup-transfers:5}")
+    private int warmupTransfers;
+
+    @Value("${transfer.risk.burst-rate:20}")
+    private double burstRate;
+
+    @Value("${transfer.risk.hold-score:4.0}")
+    private double holdScore;
+
+    @Value("${transfer.risk.reject-score:8.0}")
+    private double rejectScore;
+
+    @Value("${transfer.risk.idle-days:30}")
+    private long idleDays;
+
+    @Value("${transfer.risk.snapshot-path:./data/risk/scores.bin}")
+    private String snapshotPath;
+
+    public TransferRiskScorer(MeterRegistry meterRegistry) {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(16);
+        }
+        this.heldCounter = Counter.builder("transfer.risk.flagged")
+                .tag("action", "held")
+                .description("Transfers held by the risk scorer")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("transfer.risk.flagged")
+                .tag("action", "rejected")
+                .description("Transfers rejected by the risk scorer")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Path path = Path.of(snapshotPath);
+        if (!Files.exists(path)) {
+            return;
+        }
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                log.error("TransferRiskScorer.start.fail.unknownSnapshotFormat: {}", path);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long cardId = in.readLong();
+                Segment segment = segmentFor(cardId);
+                synchronized (segment) {
+                    int slot = segment.slotFor(cardId);
+                    segment.rate[slot] = in.readDouble();
+                    segment.mean[slot] = in.readDouble();
+                    segment.variance[slot] = in.readDouble();
+                    segment.count[slot] = in.readInt();
+                    segment.lastAt[slot] = in.readLong();
+                }
+                loaded++;
+            }
+        } catch (IOException e) {
+            // поврежденный снимок не должен мешать старту: статистика накопится заново
+            log.error("TransferRiskScorer.start.fail.readSnapshot: {}", e.getMessage());
+        }
+        log.info("TransferRiskScorer.start.success: {} cards", loaded);
+    }
+
+    @PreDestroy
+    public void stop() {
+        snapshot();
+    }
+
+    /**
+     * Оценивает перевод и обновляет статистику карты. Частота учитывает каждую попытку,
+     * а среднее и дисперсия суммы - только пропущенные переводы, чтобы выбросы не сдвигали норму.
+     *
+     * @throws SuspiciousTransferException если оценка достигла hold-score или reject-score
+     */
+    public void check(Long cardId, Money amount) {
+        check(cardId, amount, true);
+    }
+
+    /**
+     * То же, но при countAttempt = false перевод продолжает уже учтенное действие пользователя - например,
+     * следующий перевод с той же карты в одной пачке. Частота не растет, сумма оценивается как обычно,
+     * поэтому зарплатная пачка из сотни переводов по частоте выглядит как один перевод.
+     */
+    public void check(Long cardId, Money amount, boolean countAttempt) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        double value = amount.getMinorUnits();
+        Segment segment = segmentFor(cardId);
+        double score;
+        synchronized (segment) {
+            int slot = segment.slotFor(cardId);
+            double rate = decayedRate(segment, slot, now) + (countAttempt ? 1.0 : 0.0);
+            segment.rate[slot] = rate;
+            segment.lastAt[slot] = now;
+
+            score = holdScore * rate / burstRate;
+            if (segment.count[slot] >= warmupTransfers) {
+                double deviation = Math.max(Math.sqrt(segment.variance[slot]), Math.max(segment.mean[slot] * 0.1, 1.0));
+                score = Math.max(score, (value - segment.mean[slot]) / deviation);
+            }
+
+            if (score < holdScore) {
+                double diff = value - segment.mean[slot];
+                if (segment.count[slot] == 0) {
+                    segment.mean[slot] = value;
+                } else {
+                    double increment = amountAlpha * diff;
+                    segment.mean[slot] += increment;
+                    segment.variance[slot] = (1 - amountAlpha) * (segment.variance[slot] + diff * increment);
+                }
+                segment.count[slot] = Math.min(segment.count[slot] + 1, Integer.MAX_VALUE - 1);
+                return;
+            }
+        }
+
+        if (score >= rejectScore) {
+            rejectedCounter.increment();
+            log.info("TransferRiskScorer.check.fail.rejected: {}, score {}", cardId, score);
+            throw new SuspiciousTransferException("Transfer rejected as suspicious", false);
+        }
+        heldCounter.increment();
+        log.info("TransferRiskScorer.check.fail.held: {}, score {}", cardId, score);
+        throw new SuspiciousTransferException("Transfer held for review as suspicious", true);
+    }
+
+    /// Пишет снимок во временный файл и атомарно подменяет им старый. Карты без переводов дольше idle-days
+    /// в снимок не попадают и удаляются из памяти, сегменты при этом уплотняются.
+    /// Записи идут в файл сразу по сегментам, а число карт, известное только после обхода, дописывается в заголовок.
+    @Scheduled(fixedDelayString = "${transfer.risk.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long idleBefore = now - TimeUnit.DAYS.toMillis(idleDays);
+        Path path = Path.of(snapshotPath);
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "scores", ".tmp");
+            int written = 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(0);
+                for (Segment segment : segments) {
+                    synchronized (segment) {
+                        segment.compact(idleBefore);
+                        for (int slot = 0; slot < segment.size; slot++) {
+                            out.writeLong(segment.cardIds[slot]);
+                            out.writeDouble(segment.rate[slot]);
+                            out.writeDouble(segment.mean[slot]);
+                            out.writeDouble(segment.variance[slot]);
+                            out.writeInt(segment.count[slot]);
+                            out.writeLong(segment.lastAt[slot]);
+                            written++;
+                        }
+                    }
+                }
+            }
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, written), 2L * Integer.BYTES);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("TransferRiskScorer.snapshot.success: {} cards", written);
+        } catch (IOException e) {
+            log.error("TransferRiskScorer.snapshot.fail: {}", e.getMessage());
+        }
+    }
+
+    private double decayedRate(Segment segment, int slot, long now) {
+        long elapsedMs = Math.max(0L, now - segment.lastAt[slot]);
+        return segment.rate[slot] * Math.pow(0.5, elapsedMs / (rateHalfLifeSeconds * 1000.0));
+    }
+
+    private Segment segmentFor(long cardId) {
+        return segments[(int) ((cardId * 0x9E3779B97F4A7C15L) >>> 58)];
+    }
+
+    /// Статистика карт сегмента: слоты идут подряд с 0, карта -> слот хранится в LongLongHashMap.
+    private static final class Segment {
+
+        private final LongLongHashMap slots;
+        private long[] cardIds;
+        private double[] rate;
+        private double[] mean;
+        private double[] variance;
+        private int[] count;
+        private long[] lastAt;
+        private int size;
+
+        Segment(int capacity) {
+            slots = new LongLongHashMap(capacity);
+            allocate(capacity);
+        }
+
+        int slotFor(long cardId) {
+            long slot = slots.get(cardId, -1L);
+            if (slot >= 0) {
+                return (int) slot;
+            }
+            if (size == cardIds.length) {
+                grow(cardIds.length * 2);
+            }
+            cardIds[size] = cardId;
+            slots.put(cardId, size);
+            return size++;
+        }
+
+        void compact(long idleBefore) {
+            int target = 0;
+            for (int slot = 0; slot < size; slot++) {
+                if (lastAt[slot] < idleBefore) {
+                    slots.remove(cardIds[slot]);
+                    continue;
+                }
+                if (target != slot) {
+                    cardIds[target] = cardIds[slot];
+                    rate[target] = rate[slot];
+                    mean[target] = mean[slot];
+                    variance[target] = variance[slot];
+                    count[target] = count[slot];
+                    lastAt[target] = lastAt[slot];
+                    slots.put(cardIds[target], target);
+                }
+                target++;
+            }
+            Arrays.fill(cardIds, target, size, 0L);
+            Arrays.fill(rate, target, size, 0.0);
+            Arrays.fill(mean, target, size, 0.0);
+            Arrays.fill(variance, target, size, 0.0);
+            Arrays.fill(count, target, size, 0);
+            Arrays.fill(lastAt, target, size, 0L);
+            size = target;
+        }
+
+        private void allocate(int capacity) {
+            cardIds = new long[capacity];
+            rate = new double[capacity];
+            mean = new double[capacity];
+            variance = new double[capacity];
+            count = new int[capacity];
+            lastAt = new long[capacity];
+        }
+
+        private void grow(int capacity) {
+            cardIds = Arrays.copyOf(cardIds, capacity);
+            rate = Arrays.copyOf(rate, capacity);
+            mean = Arrays.copyOf(mean, capacity);
+            variance = Arrays.copyOf(variance, capacity);
+            count = Arrays.copyOf(count, capacity);
+            lastAt = Arrays.copyOf(lastAt, capacity);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.bankrest.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Доля попаданий по каждому региону второго уровня кэша: hibernate.second.level.cache.hit.ratio{region}.
+ * Счетчики попаданий и промахов по регионам публикует HibernateMetrics из hibernate-micrometer,
+ * здесь из них считается готовое отношение для дашбордов и алертов. Нужен hibernate.generate_statistics.
+ */
+@Configuration
+public class CacheMetricsConfig {
+
+    @Bean
+    public MeterBinder secondLevelCacheHitRatio(EntityManagerFactory entityManagerFactory) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return registry -> {
+            for (String region : statistics.getSecondLevelCacheRegionNames()) {
+                CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+                if (regionStatistics == null) {
+                    continue;
+                }
+                Gauge.builder("hibernate.second.level.cache.hit.ratio", regionStatistics, CacheMetricsConfig::hitRatio)
+                        .description("Second-level cache hit ratio of the region")
+                        .tag("region", region)
+                        .register(registry);
+            }
+        };
+    }
+
+    /// NaN, пока к региону не было обращений.
+    private static double hitRatio(CacheRegionStatistics statistics) {
+        long hits = statistics.getHitCount();
+        long requests = hits + statistics.getMissCount();
+        return requests == 0 ? Double.NaN : (double) hits / requests;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.bankrest.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Переводы выполняются на виртуальных потоках: ожидание блокировок строк в БД не занимает потоки сервлет-контейнера.
+ * SecurityContext отправившего запрос пользователя передается в задачу при ее отправке.
+ * Виртуальные потоки не ограничивают число задач, поэтому число переводов в работе ограничивает
+ * TransferService (transfer.max-in-flight) еще до записи перевода в БД.
+ */
+@Configuration
+public class TransferExecutorConfig {
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService transferExecutor() {
+        return new DelegatingSecurityContextExecutorService(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /// Ограниченный пул регулярных переводов: число потоков не больше доли пула соединений,
+    /// при заполненной очереди задачу выполняет отправивший ее поток планировщика.
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService scheduledTransferExecutor(@Value("${transfer.scheduled.workers:8}") int workers,
+                                                     @Value("${transfer.scheduled.queue-size:1000}") int queueSize) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "scheduled-transfer-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /// Потоки сверки: каждый держит одно соединение на время запроса своего диапазона.
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService reconciliationExecutor(@Value("${reconciliation.parallelism:4}") int parallelism) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "reconciliation-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
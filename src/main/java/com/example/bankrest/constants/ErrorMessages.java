@@ -14,6 +14,21 @@ public final class ErrorMessages {
     public static final String DIFFERENT_CARDHOLDERS_ERROR_MESSAGE = "One of the cards is not cardholder";
     public static final String SAME_CARD_TRANSFER_ERROR_MESSAGE = "Can't transfer to the same card";
     public static final String CARD_ALREADY_BLOCKED_ERROR_MESSAGE = "Card already blocked";
+    public static final String TRANSFER_OPERATION_ERROR_MESSAGE = "Transfer operation failed";
+    public static final String TRANSFER_NOT_FOUND_ERROR_MESSAGE = "Transfer not found";
+    public static final String INVALID_AMOUNT_ERROR_MESSAGE = "Invalid amount";
+    public static final String TRANSFER_LIMIT_EXCEEDED_ERROR_MESSAGE = "Transfer limit exceeded";
+    public static final String SUSPICIOUS_TRANSFER_ERROR_MESSAGE = "Transfer looks suspicious";
+    public static final String HOLD_NOT_FOUND_ERROR_MESSAGE = "Hold not found";
+    public static final String SCHEDULED_TRANSFER_NOT_FOUND_ERROR_MESSAGE = "Scheduled transfer not found";
+    public static final String INVALID_CURSOR_ERROR_MESSAGE = "Invalid cursor";
+    public static final String RECONCILIATION_RUN_NOT_FOUND_ERROR_MESSAGE = "Reconciliation run not found";
+    public static final String RECONCILIATION_ALREADY_RUNNING_ERROR_MESSAGE = "Reconciliation is already running";
+    public static final String UNSUPPORTED_CURRENCY_ERROR_MESSAGE = "Unsupported currency";
+    public static final String UNKNOWN_CARD_FIELD_ERROR_MESSAGE = "Unknown card field";
+    public static final String TOO_MANY_CARD_IDS_ERROR_MESSAGE = "Too many card ids";
+    public static final String TRANSFER_CAPACITY_EXCEEDED_ERROR_MESSAGE = "Too many transfers in progress";
+    public static final String CURSOR_EXPIRED_ERROR_MESSAGE = "Cursor expired, sync changes from scratch";
 
     private ErrorMessages() {}
 }
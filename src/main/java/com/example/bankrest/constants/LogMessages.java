@@ -13,6 +13,21 @@ public final class LogMessages {
     public static final String DIFFERENT_CARDHOLDERS_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleDifferentCardHolders.fail.differentCardHolders";
     public static final String SAME_CARD_TRANSFER_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleSameCardTransfer.fail.sameCardTransfer";
     public static final String CARD_ALREADY_BLOCKED_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleCardAlreadyBlocked.fail.cardAlreadyBlocked";
+    public static final String TRANSFER_OPERATION_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleTransferOperation.fail.transferOperation";
+    public static final String TRANSFER_NOT_FOUND_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleTransferNotFound.fail.transferNotFound";
+    public static final String INVALID_AMOUNT_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleInvalidAmount.fail.invalidAmount";
+    public static final String TRANSFER_LIMIT_EXCEEDED_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleTransferLimitExceeded.fail.transferLimitExceeded";
+    public static final String SUSPICIOUS_TRANSFER_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleSuspiciousTransfer.fail.suspiciousTransfer";
+    public static final String HOLD_NOT_FOUND_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleHoldNotFound.fail.holdNotFound";
+    public static final String SCHEDULED_TRANSFER_NOT_FOUND_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleScheduledTransferNotFound.fail.scheduledTransferNotFound";
+    public static final String INVALID_CURSOR_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleInvalidCursor.fail.invalidCursor";
+    public static final String RECONCILIATION_RUN_NOT_FOUND_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleReconciliationRunNotFound.fail.reconciliationRunNotFound";
+    public static final String RECONCILIATION_ALREADY_RUNNING_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleReconciliationAlreadyRunning.fail.reconciliationAlreadyRunning";
+    public static final String UNSUPPORTED_CURRENCY_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleUnsupportedCurrency.fail.unsupportedCurrency";
+    public static final String UNKNOWN_CARD_FIELD_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleUnknownCardField.fail.unknownCardField";
+    public static final String TOO_MANY_CARD_IDS_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleTooManyCardIds.fail.tooManyCardIds";
+    public static final String TRANSFER_CAPACITY_EXCEEDED_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleTransferCapacityExceeded.fail.transferCapacityExceeded";
+    public static final String CURSOR_EXPIRED_LOG_MESSAGE_IN_GLOBAL_HANDLER = "GlobalRestControllerExceptionHandler.handleCursorExpired.fail.cursorExpired";
 
     private LogMessages() {}
 }
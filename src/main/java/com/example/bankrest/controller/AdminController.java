@@ -1,19 +1,29 @@
 package com.example.bankrest.controller;
 
+import com.example.bankrest.dto.card.CardCountMode;
+import com.example.bankrest.dto.card.CardPageDto;
 import com.example.bankrest.dto.card.CardRequestDto;
 import com.example.bankrest.dto.card.CardResponseDto;
+import com.example.bankrest.dto.card.CardSearchFilter;
+import com.example.bankrest.dto.card.ReconciliationRunDto;
+import com.example.bankrest.dto.card.TransferResponseDto;
+import com.example.bankrest.entity.Status;
 import com.example.bankrest.service.CardService;
+import com.example.bankrest.service.ReconciliationService;
+import com.example.bankrest.service.TransferService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+
 @RequiredArgsConstructor
 @RestController
 @RequestMapping("/api/admin/cards")
@@ -22,6 +32,8 @@ import org.springframework.web.bind.annotation.*;
 public class AdminController {
 
     private final CardService cardService;
+    private final ReconciliationService reconciliationService;
+    private final TransferService transferService;
 
     @PostMapping("/create")
     @Operation(summary = "Создание карты", description = "Подтверждение создания карты для пользователя. Только для администратора")
@@ -36,18 +48,52 @@ public class AdminController {
     }
 
     @GetMapping("/all")
-    @Operation(summary = "Получение карт", description = "Получение всех карт пользователей с пагинацией. Только для администратора")
+    @Operation(summary = "Получение карт", description = "Получение всех карт пользователей с курсорной пагинацией. " +
+            "Общее число карт считается только при count=EXACT или оценивается при count=ESTIMATE. " +
+            "fields - поля карты через запятую, например id,masked,status. Только для администратора")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Список карт успешно получен"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор или неизвестное поле"),
             @ApiResponse(responseCode = "403", description = "Доступ запрещен. Требуется роль администратора")
     })
-    public ResponseEntity<Page<CardResponseDto>> getAllCards(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        Page<CardResponseDto> response = cardService.getAllCards(page, size);
+    public ResponseEntity<CardPageDto> getAllCards(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "NONE") CardCountMode count,
+            @RequestParam(required = false) String fields) {
+        CardPageDto response = cardService.getAllCards(cursor, size, count, fields);
         return ResponseEntity.ok().body(response);
     }
 
+    @GetMapping("/search")
+    @Operation(summary = "Поиск карт", description = "Поиск карт по статусу, владельцу, сроку действия (включительно), " +
+            "последним четырем цифрам и началу имени держателя. Условия объединяются через И, новые карты первыми. " +
+            "Для следующей страницы передайте nextCursor в параметре cursor. Только для администратора")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Карты найдены"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещен. Требуется роль администратора")
+    })
+    public ResponseEntity<CardPageDto> searchCards(
+            @RequestParam(required = false) Status status,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiresFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiresTo,
+            @RequestParam(required = false) String lastDigits,
+            @RequestParam(required = false) String holderName,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        CardSearchFilter filter = CardSearchFilter.builder()
+                .status(status)
+                .userId(userId)
+                .expiresFrom(expiresFrom)
+                .expiresTo(expiresTo)
+                .lastDigits(lastDigits)
+                .holderNamePrefix(holderName)
+                .build();
+        return ResponseEntity.ok().body(cardService.searchCards(filter, cursor, size));
+    }
+
     @PostMapping("/{cardId}/block")
     @Operation(summary = "Блокировка карты", description = "Блокировка карты пользователя после их запроса. Только для администратора")
     @ApiResponses({
@@ -85,4 +131,56 @@ public class AdminController {
         CardResponseDto response = cardService.activateCard(cardId);
         return ResponseEntity.ok().body(response);
     }
+
+    @PostMapping("/reconciliation")
+    @Operation(summary = "Запуск сверки балансов", description = "Запуск сверки балансов всех карт с историей операций. Только для администратора")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Сверка запущена"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещен. Требуется роль администратора"),
+            @ApiResponse(responseCode = "409", description = "Сверка уже выполняется")
+    })
+    public ResponseEntity<ReconciliationRunDto> startReconciliation() {
+        ReconciliationRunDto response = reconciliationService.startRun();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    @GetMapping("/reconciliation/{runId}")
+    @Operation(summary = "Прогресс сверки балансов", description = "Прогресс, скорость и итоги запуска сверки. Только для администратора")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Состояние сверки успешно получено"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещен. Требуется роль администратора"),
+            @ApiResponse(responseCode = "404", description = "Запуск сверки не найден")
+    })
+    public ResponseEntity<ReconciliationRunDto> getReconciliation(@PathVariable Long runId) {
+        ReconciliationRunDto response = reconciliationService.getRun(runId);
+        return ResponseEntity.ok().body(response);
+    }
+
+    @PostMapping("/transfers/{transferId}/release")
+    @Operation(summary = "Одобрение задержанного перевода", description = "Исполнение перевода, задержанного как подозрительный, " +
+            "без повторной оценки риска. Лимиты и баланс проверяются как обычно. Только для администратора")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Перевод исполнен, результат в статусе перевода"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещен. Требуется роль администратора"),
+            @ApiResponse(responseCode = "404", description = "Перевод не найден"),
+            @ApiResponse(responseCode = "409", description = "Перевод не задержан")
+    })
+    public ResponseEntity<TransferResponseDto> releaseHeldTransfer(@PathVariable Long transferId) {
+        TransferResponseDto response = transferService.releaseHeld(transferId);
+        return ResponseEntity.ok().body(response);
+    }
+
+    @PostMapping("/transfers/{transferId}/reject")
+    @Operation(summary = "Отклонение задержанного перевода", description = "Перевод, задержанный как подозрительный, " +
+            "помечается неуспешным. Только для администратора")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Перевод отклонен"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещен. Требуется роль администратора"),
+            @ApiResponse(responseCode = "404", description = "Перевод не найден"),
+            @ApiResponse(responseCode = "409", description = "Перевод не задержан")
+    })
+    public ResponseEntity<TransferResponseDto> rejectHeldTransfer(@PathVariable Long transferId) {
+        TransferResponseDto response = transferService.rejectHeld(transferId);
+        return ResponseEntity.ok().body(response);
+    }
 }
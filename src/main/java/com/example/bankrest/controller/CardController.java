@@ -1,9 +1,24 @@
 package com.example.bankrest.controller;
 
+import com.example.bankrest.dto.card.BatchTransferRequestDto;
+import com.example.bankrest.dto.card.BatchTransferResponseDto;
+import com.example.bankrest.dto.card.CardBalanceDto;
+import com.example.bankrest.dto.card.CardChangesDto;
+import com.example.bankrest.dto.card.CardCountMode;
+import com.example.bankrest.dto.card.CardPageDto;
 import com.example.bankrest.dto.card.CardRequestDto;
 import com.example.bankrest.dto.card.CardResponseDto;
+import com.example.bankrest.dto.card.CardTransactionPageDto;
+import com.example.bankrest.dto.card.HoldResponseDto;
+import com.example.bankrest.dto.card.ScheduledTransferRequestDto;
+import com.example.bankrest.dto.card.ScheduledTransferResponseDto;
 import com.example.bankrest.dto.card.TransferCardRequestDto;
+import com.example.bankrest.dto.card.TransferResponseDto;
+import com.example.bankrest.entity.Money;
 import com.example.bankrest.service.CardService;
+import com.example.bankrest.service.HoldService;
+import com.example.bankrest.service.ScheduledTransferService;
+import com.example.bankrest.service.TransferService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -11,12 +26,14 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.math.BigDecimal;
+import java.net.URI;
 import java.util.List;
 
 @RequiredArgsConstructor
@@ -26,41 +43,105 @@ import java.util.List;
 @Tag(name = "Управление картами", description = "API для управления картами от пользователей")
 public class CardController {
 
+    /// Ответы с ETag клиент может хранить, но обязан перепроверять. Заголовок, выставленный здесь,
+    /// Spring Security не заменяет своим no-store, иначе клиенты не присылали бы If-None-Match.
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final CardService cardService;
+    private final TransferService transferService;
+    private final HoldService holdService;
+    private final ScheduledTransferService scheduledTransferService;
 
     @PostMapping("/create")
     @Operation(summary = "Запрос на создание карты", description = "Запрос пользователя на создание карты")
     @ApiResponses({
             @ApiResponse(responseCode = "202", description = "Запрос на создание успешно создан"),
+            @ApiResponse(responseCode = "400", description = "Валюта не поддерживается"),
             @ApiResponse(responseCode = "404", description = "Пользователь не найден"),
 //            @ApiResponse(responseCode = "409", description = "Карта уже находится в ожидании создания")
     })
-    public ResponseEntity<CardResponseDto> requestCreateCard() {
-        CardResponseDto response = cardService.requestCreateCard();
+    public ResponseEntity<CardResponseDto> requestCreateCard(@RequestParam(required = false) String currency) {
+        CardResponseDto response = cardService.requestCreateCard(currency);
         return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
     }
 
     @GetMapping
-    @Operation(summary = "Получение карт", description = "Получение всех карт")
+    @Operation(summary = "Получение карт", description = "Карты пользователя, новые первыми. " +
+            "Для следующей страницы передайте nextCursor из предыдущего ответа в параметре cursor. " +
+            "fields - поля карты через запятую, например id,masked,status; без него возвращаются все поля")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Карты найдены"),
+            @ApiResponse(responseCode = "304", description = "Карты не изменились с ETag из If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор или неизвестное поле"),
             @ApiResponse(responseCode = "404", description = "Пользователь не найден")
     })
-    public ResponseEntity<List<CardResponseDto>> findUserCards(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        Page<CardResponseDto> cards = cardService.getUserCards(page, size);
-        return ResponseEntity.ok().body(cards.getContent());
+    public ResponseEntity<CardPageDto> findUserCards(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "NONE") CardCountMode count,
+            @RequestParam(required = false) String fields,
+            WebRequest request) {
+        if (request.checkNotModified(cardService.getUserCardsEtag(cursor, size, count, fields))) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(cardService.getUserCards(cursor, size, count, fields));
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Изменения карт", description = "Карты, измененные после курсора since, и id удаленных карт. " +
+            "Без since возвращаются все карты. Следующий запрос делается с nextCursor из ответа, " +
+            "при hasMore = true - сразу, иначе по расписанию синхронизации")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Изменения найдены"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор"),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден"),
+            @ApiResponse(responseCode = "410", description = "Курсор старше истории удалений, синхронизацию нужно начать без since")
+    })
+    public ResponseEntity<CardChangesDto> findCardChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok().body(cardService.getCardChanges(since, size));
     }
 
     @GetMapping("/{cardId}/balance")
     @Operation(summary = "Получение баланса", description = "Получение баланса карты")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Баланс найден"),
+            @ApiResponse(responseCode = "304", description = "Баланс не изменился с ETag из If-None-Match"),
+            @ApiResponse(responseCode = "404", description = "Карта или пользователь не найдены")
+    })
+    public ResponseEntity<Money> findBalance(@PathVariable Long cardId, WebRequest request) {
+        if (request.checkNotModified(cardService.getBalanceEtag(cardId))) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(cardService.getBalance(cardId));
+    }
+
+    @GetMapping("/balances")
+    @Operation(summary = "Балансы карт", description = "Балансы нескольких карт одним запросом: ids - id карт через запятую, " +
+            "без ids возвращаются балансы всех карт пользователя. Чужие и несуществующие карты в ответ не попадают")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Балансы найдены"),
+            @ApiResponse(responseCode = "400", description = "Слишком много id карт"),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    })
+    public ResponseEntity<List<CardBalanceDto>> findBalances(@RequestParam(required = false) List<Long> ids) {
+        return ResponseEntity.ok().body(cardService.getBalances(ids));
+    }
+
+    @GetMapping("/{cardId}/transactions")
+    @Operation(summary = "История операций карты", description = "Операции карты, новые первыми. " +
+            "Для следующей страницы передайте nextCursor из предыдущего ответа в параметре cursor")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Страница истории"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор"),
             @ApiResponse(responseCode = "404", description = "Карта или пользователь не найдены")
     })
-    public ResponseEntity<BigDecimal> findBalance(@PathVariable Long cardId) {
-        return ResponseEntity.ok().body(cardService.getBalance(cardId));
+    public ResponseEntity<CardTransactionPageDto> findCardTransactions(
+            @PathVariable Long cardId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok().body(cardService.getCardTransactions(cardId, cursor, size));
     }
 
     @PostMapping("/{cardId}/block")
@@ -76,14 +157,110 @@ public class CardController {
     }
 
     @PostMapping("/{cardId}/transfer")
-    @Operation(summary = "Переводы между картами", description = "Перевод денег с одной карты на другую")
+    @Operation(summary = "Переводы между картами", description = "Асинхронный перевод денег с одной карты на другую. " +
+            "Возвращает id перевода, статус которого можно получить по ссылке из заголовка Location")
     @ApiResponses({
-            @ApiResponse(responseCode = "202", description = "Транзакция прошла успешно"),
-            @ApiResponse(responseCode = "404", description = "Карта не найдена"),
-            @ApiResponse(responseCode = "409", description = "Ошибка операции перевода")
+            @ApiResponse(responseCode = "202", description = "Перевод принят к исполнению"),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    })
+    public ResponseEntity<TransferResponseDto> transferCard(@PathVariable Long cardId, @RequestBody TransferCardRequestDto transferCardRequestDto) {
+        TransferResponseDto response = transferService.submitTransfer(cardId, transferCardRequestDto);
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/cards/transfers/{transferId}")
+                .buildAndExpand(response.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(response);
+    }
+
+    @PostMapping("/transfers/batch")
+    @Operation(summary = "Пакетные переводы", description = "Выполнение списка переводов одной транзакцией. " +
+            "Режим ALL_OR_NOTHING откатывает всю пачку при первой ошибке, BEST_EFFORT применяет все успешные переводы")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Пачка обработана, результат по каждому переводу в списке results"),
+            @ApiResponse(responseCode = "409", description = "Пустая или слишком большая пачка")
+    })
+    public ResponseEntity<BatchTransferResponseDto> transferBatch(@RequestBody BatchTransferRequestDto batchTransferRequestDto) {
+        return ResponseEntity.ok().body(transferService.executeBatch(batchTransferRequestDto));
+    }
+
+    @GetMapping("/transfers/{transferId}")
+    @Operation(summary = "Статус перевода", description = "Получение статуса и результата перевода")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Перевод найден"),
+            @ApiResponse(responseCode = "404", description = "Перевод или пользователь не найдены")
+    })
+    public ResponseEntity<TransferResponseDto> findTransfer(@PathVariable Long transferId) {
+        return ResponseEntity.ok().body(transferService.getTransfer(transferId));
+    }
+
+    @PostMapping("/{cardId}/holds")
+    @Operation(summary = "Авторизация холда", description = "Резервирование суммы на карте-отправителе до списания. " +
+            "Холд нужно захватить или отменить до истечения срока, иначе резерв вернется автоматически")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Сумма зарезервирована"),
+            @ApiResponse(responseCode = "404", description = "Карта или пользователь не найдены"),
+            @ApiResponse(responseCode = "409", description = "Недостаточно средств или карта не активна")
+    })
+    public ResponseEntity<HoldResponseDto> authorizeHold(@PathVariable Long cardId, @RequestBody TransferCardRequestDto transferCardRequestDto) {
+        HoldResponseDto response = holdService.authorize(cardId, transferCardRequestDto);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @PostMapping("/holds/{holdId}/capture")
+    @Operation(summary = "Захват холда", description = "Списание зарезервированной суммы и зачисление на карту получателя")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Холд захвачен"),
+            @ApiResponse(responseCode = "404", description = "Холд или пользователь не найдены"),
+            @ApiResponse(responseCode = "409", description = "Холд уже завершен или просрочен")
+    })
+    public ResponseEntity<HoldResponseDto> captureHold(@PathVariable Long holdId) {
+        return ResponseEntity.ok().body(holdService.capture(holdId));
+    }
+
+    @PostMapping("/holds/{holdId}/void")
+    @Operation(summary = "Отмена холда", description = "Возврат зарезервированной суммы в доступный остаток")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Холд отменен"),
+            @ApiResponse(responseCode = "404", description = "Холд или пользователь не найдены"),
+            @ApiResponse(responseCode = "409", description = "Холд уже завершен или просрочен")
+    })
+    public ResponseEntity<HoldResponseDto> voidHold(@PathVariable Long holdId) {
+        return ResponseEntity.ok().body(holdService.voidHold(holdId));
+    }
+
+    @PostMapping("/{cardId}/scheduled-transfers")
+    @Operation(summary = "Создание регулярного перевода", description = "Регулярный перевод между своими картами " +
+            "с периодичностью DAILY, WEEKLY или MONTHLY. Первый запуск - firstRunAt или сразу")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Регулярный перевод создан"),
+            @ApiResponse(responseCode = "404", description = "Карта или пользователь не найдены"),
+            @ApiResponse(responseCode = "409", description = "Карты не активны или принадлежат разным держателям")
+    })
+    public ResponseEntity<ScheduledTransferResponseDto> createScheduledTransfer(@PathVariable Long cardId,
+                                                                                @RequestBody ScheduledTransferRequestDto requestDto) {
+        ScheduledTransferResponseDto response = scheduledTransferService.createScheduledTransfer(cardId, requestDto);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @GetMapping("/scheduled-transfers")
+    @Operation(summary = "Регулярные переводы", description = "Получение регулярных переводов пользователя")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Регулярные переводы найдены"),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    })
+    public ResponseEntity<List<ScheduledTransferResponseDto>> findScheduledTransfers(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok().body(scheduledTransferService.getUserScheduledTransfers(page, size).getContent());
+    }
+
+    @DeleteMapping("/scheduled-transfers/{scheduledTransferId}")
+    @Operation(summary = "Отмена регулярного перевода", description = "Отмена будущих запусков регулярного перевода")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Регулярный перевод отменен"),
+            @ApiResponse(responseCode = "404", description = "Регулярный перевод или пользователь не найдены")
     })
-    public ResponseEntity<Void> transferCard(@PathVariable Long cardId, @RequestBody TransferCardRequestDto transferCardRequestDto) {
-        cardService.moneyTransfer(cardId, transferCardRequestDto);
-        return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+    public ResponseEntity<ScheduledTransferResponseDto> cancelScheduledTransfer(@PathVariable Long scheduledTransferId) {
+        return ResponseEntity.ok().body(scheduledTransferService.cancelScheduledTransfer(scheduledTransferId));
     }
 }
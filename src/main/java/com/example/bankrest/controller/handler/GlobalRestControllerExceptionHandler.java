@@ -6,10 +6,15 @@ import com.example.bankrest.dto.auth.ErrorResponseDto;
 import com.example.bankrest.exception.*;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 import java.time.LocalDateTime;
@@ -78,6 +83,100 @@ public class GlobalRestControllerExceptionHandler extends ResponseEntityExceptio
         return createResponse(request, ex, HttpStatus.CONFLICT, ErrorMessages.CARD_ALREADY_BLOCKED_ERROR_MESSAGE, LogMessages.CARD_ALREADY_BLOCKED_LOG_MESSAGE_IN_GLOBAL_HANDLER);
     }
 
+    @ExceptionHandler(TransferOperationException.class)
+    public ResponseEntity<ErrorResponseDto> handleTransferOperation(HttpServletRequest request, TransferOperationException ex) {
+        return createResponse(request, ex, HttpStatus.CONFLICT, ErrorMessages.TRANSFER_OPERATION_ERROR_MESSAGE, LogMessages.TRANSFER_OPERATION_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+    }
+
+    @ExceptionHandler(TransferNotFoundException.class)
+    public ResponseEntity<ErrorResponseDto> handleTransferNotFound(HttpServletRequest request, TransferNotFoundException ex) {
+        return createResponse(request, ex, HttpStatus.NOT_FOUND, ErrorMessages.TRANSFER_NOT_FOUND_ERROR_MESSAGE, LogMessages.TRANSFER_NOT_FOUND_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+    }
+
+    @ExceptionHandler(InvalidAmountException.class)
+    public ResponseEntity<ErrorResponseDto> handleInvalidAmount(HttpServletRequest request, InvalidAmountException ex) {
+        return createResponse(request, ex, HttpStatus.BAD_REQUEST, ErrorMessages.INVALID_AMOUNT_ERROR_MESSAGE, LogMessages.INVALID_AMOUNT_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+    }
+
+    @ExceptionHandler(TransferLimitExceededException.class)
+    public ResponseEntity<ErrorResponseDto> handleTransferLimitExceeded(HttpServletRequest request, TransferLimitExceededException ex) {
+        return createResponse(request, ex, HttpStatus.CONFLICT, ErrorMessages.TRANSFER_LIMIT_EXCEEDED_ERROR_MESSAGE, LogMessages.TRANSFER_LIMIT_EXCEEDED_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+    }
+
+    @ExceptionHandler(SuspiciousTransferException.class)
+    public ResponseEntity<ErrorResponseDto> handleSuspiciousTransfer(HttpServletRequest request, SuspiciousTransferException ex) {
+        return createResponse(request, ex, HttpStatus.CONFLICT, ErrorMessages.SUSPICIOUS_TRANSFER_ERROR_MESSAGE, LogMessages.SUSPICIOUS_TRANSFER_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+    }
+
+    @ExceptionHandler(HoldNotFoundException.class)
+    public ResponseEntity<ErrorResponseDto> handleHoldNotFound(HttpServletRequest request, HoldNotFoundException ex) {
+        return createResponse(request, ex, HttpStatus.NOT_FOUND, ErrorMessages.HOLD_NOT_FOUND_ERROR_MESSAGE, LogMessages.HOLD_NOT_FOUND_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+    }
+
+    @ExceptionHandler(ScheduledTransferNotFoundException.class)
+    public ResponseEntity<ErrorResponseDto> handleScheduledTransferNotFound(HttpServletRequest request, ScheduledTransferNotFoundException ex) {
+        return createResponse(request, ex, HttpStatus.NOT_FOUND, ErrorMessages.SCHEDULED_TRANSFER_NOT_FOUND_ERROR_MESSAGE, LogMessages.SCHEDULED_TRANSFER_NOT_FOUND_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorResponseDto> handleInvalidCursor(HttpServletRequest request, InvalidCursorException ex) {
+        return createResponse(request, ex, HttpStatus.BAD_REQUEST, ErrorMessages.INVALID_CURSOR_ERROR_MESSAGE, LogMessages.INVALID_CURSOR_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+    }
+
+    @ExceptionHandler(ReconciliationRunNotFoundException.class)
+    public ResponseEntity<ErrorResponseDto> handleReconciliationRunNotFound(HttpServletRequest request, ReconciliationRunNotFoundException ex) {
+        return createResponse(request, ex, HttpStatus.NOT_FOUND, ErrorMessages.RECONCILIATION_RUN_NOT_FOUND_ERROR_MESSAGE, LogMessages.RECONCILIATION_RUN_NOT_FOUND_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+    }
+
+    @ExceptionHandler(ReconciliationAlreadyRunningException.class)
+    public ResponseEntity<ErrorResponseDto> handleReconciliationAlreadyRunning(HttpServletRequest request, ReconciliationAlreadyRunningException ex) {
+        return createResponse(request, ex, HttpStatus.CONFLICT, ErrorMessages.RECONCILIATION_ALREADY_RUNNING_ERROR_MESSAGE, LogMessages.RECONCILIATION_ALREADY_RUNNING_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+    }
+
+    @ExceptionHandler(UnsupportedCurrencyException.class)
+    public ResponseEntity<ErrorResponseDto> handleUnsupportedCurrency(HttpServletRequest request, UnsupportedCurrencyException ex) {
+        return createResponse(request, ex, HttpStatus.BAD_REQUEST, ErrorMessages.UNSUPPORTED_CURRENCY_ERROR_MESSAGE, LogMessages.UNSUPPORTED_CURRENCY_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+    }
+
+    @ExceptionHandler(UnknownCardFieldException.class)
+    public ResponseEntity<ErrorResponseDto> handleUnknownCardField(HttpServletRequest request, UnknownCardFieldException ex) {
+        return createResponse(request, ex, HttpStatus.BAD_REQUEST, ErrorMessages.UNKNOWN_CARD_FIELD_ERROR_MESSAGE, LogMessages.UNKNOWN_CARD_FIELD_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+    }
+
+    @ExceptionHandler(TooManyCardIdsException.class)
+    public ResponseEntity<ErrorResponseDto> handleTooManyCardIds(HttpServletRequest request, TooManyCardIdsException ex) {
+        return createResponse(request, ex, HttpStatus.BAD_REQUEST, ErrorMessages.TOO_MANY_CARD_IDS_ERROR_MESSAGE, LogMessages.TOO_MANY_CARD_IDS_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+    }
+
+    /// Клиенту предлагается повторить запрос через секунду: переводы в работе завершаются за доли секунды.
+    @ExceptionHandler(TransferCapacityExceededException.class)
+    public ResponseEntity<ErrorResponseDto> handleTransferCapacityExceeded(HttpServletRequest request, TransferCapacityExceededException ex) {
+        ResponseEntity<ErrorResponseDto> response = createResponse(request, ex, HttpStatus.SERVICE_UNAVAILABLE,
+                ErrorMessages.TRANSFER_CAPACITY_EXCEEDED_ERROR_MESSAGE, LogMessages.TRANSFER_CAPACITY_EXCEEDED_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response.getBody());
+    }
+
+    @ExceptionHandler(CursorExpiredException.class)
+    public ResponseEntity<ErrorResponseDto> handleCursorExpired(HttpServletRequest request, CursorExpiredException ex) {
+        return createResponse(request, ex, HttpStatus.GONE, ErrorMessages.CURSOR_EXPIRED_ERROR_MESSAGE, LogMessages.CURSOR_EXPIRED_LOG_MESSAGE_IN_GLOBAL_HANDLER);
+    }
+
+    /// Money.of при разборе тела бросает InvalidAmountException внутри ValueInstantiationException Jackson,
+    /// а Spring оборачивает ее еще раз. Такая ошибка отдается так же, как ошибка суммы из сервиса.
+    @Override
+    protected ResponseEntity<Object> handleHttpMessageNotReadable(HttpMessageNotReadableException ex, HttpHeaders headers,
+                                                                  HttpStatusCode status, WebRequest request) {
+        for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof InvalidAmountException invalidAmount && request instanceof ServletWebRequest servletRequest) {
+                ResponseEntity<ErrorResponseDto> response = handleInvalidAmount(servletRequest.getRequest(), invalidAmount);
+                return ResponseEntity.status(response.getStatusCode()).body(response.getBody());
+            }
+        }
+        return super.handleHttpMessageNotReadable(ex, headers, status, request);
+    }
+
     private ResponseEntity<ErrorResponseDto> createResponse(HttpServletRequest request,
                                                             RuntimeException ex,
                                                             HttpStatus status,
@@ -0,0 +1,17 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.BatchTransferItemStatus;
+import com.example.bankrest.entity.Money;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class BatchTransferItemResultDto {
+    int index;
+    Long fromCardId;
+    Long toCardId;
+    Money amount;
+    BatchTransferItemStatus status;
+    String errorMessage;
+}
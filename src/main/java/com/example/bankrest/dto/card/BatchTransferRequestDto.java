@@ -0,0 +1,17 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.BatchTransferMode;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Builder
+public class BatchTransferRequestDto {
+    @NotEmpty
+    List<BatchTransferItemDto> transfers;
+
+    BatchTransferMode mode;
+}
@@ -0,0 +1,16 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.BatchTransferMode;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Builder
+public class BatchTransferResponseDto {
+    BatchTransferMode mode;
+    int completed;
+    int failed;
+    List<BatchTransferItemResultDto> results;
+}
@@ -0,0 +1,13 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.Money;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class CardBalanceDto {
+    Long cardId;
+    Money balance;
+    String currency;
+}
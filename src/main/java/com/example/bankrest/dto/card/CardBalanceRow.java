@@ -0,0 +1,13 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.Money;
+import lombok.Value;
+
+/// Строка запроса балансов нескольких карт; держатель нужен только как ключ шарда BalanceEngine.
+@Value
+public class CardBalanceRow {
+    Long cardId;
+    String cardholderName;
+    Money balance;
+    String currency;
+}
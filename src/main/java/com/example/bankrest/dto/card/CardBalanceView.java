@@ -0,0 +1,11 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.Money;
+import lombok.Value;
+
+/// Проекция для чтения баланса: держатель карты нужен только как ключ шарда BalanceEngine.
+@Value
+public class CardBalanceView {
+    String cardholderName;
+    Money balance;
+}
@@ -0,0 +1,19 @@
+package com.example.bankrest.dto.card;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Builder
+public class CardChangesDto {
+    /// Карты, созданные или измененные после курсора, в порядке изменения.
+    List<CardResponseDto> changed;
+    /// id карт, удаленных после курсора.
+    List<Long> deleted;
+    /// Курсор для следующего запроса изменений, отдается всегда.
+    String nextCursor;
+    /// true, если изменений больше страницы и следующий запрос стоит сделать сразу.
+    boolean hasMore;
+}
@@ -0,0 +1,6 @@
+package com.example.bankrest.dto.card;
+
+/// Нужен ли в странице карт общий итог: NONE - без подсчета, EXACT - COUNT(*), ESTIMATE - оценка по статистике таблицы.
+public enum CardCountMode {
+    NONE, EXACT, ESTIMATE
+}
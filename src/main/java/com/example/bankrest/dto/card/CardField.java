@@ -0,0 +1,51 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.exception.UnknownCardFieldException;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/// Поля CardResponseDto для параметра fields= списков карт. Имена совпадают с именами полей в JSON.
+public enum CardField {
+    ID("id"),
+    MASKED("masked"),
+    CARD_HOLDER_NAME("cardHolderName"),
+    BALANCE("balance"),
+    AVAILABLE_BALANCE("availableBalance"),
+    CURRENCY("currency"),
+    EXPIRY_DATE("expiryDate"),
+    STATUS("status"),
+    CREATED_AT("createdAt"),
+    UPDATED_AT("updatedAt");
+
+    private final String jsonName;
+
+    CardField(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    public String getJsonName() {
+        return jsonName;
+    }
+
+    /// Список через запятую, например "id,masked,status". Пустой набор означает все поля; id отдается всегда.
+    public static Set<CardField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return EnumSet.noneOf(CardField.class);
+        }
+        Set<CardField> parsed = EnumSet.of(ID);
+        for (String name : fields.split(",")) {
+            parsed.add(fromJsonName(name.trim()));
+        }
+        return parsed;
+    }
+
+    private static CardField fromJsonName(String name) {
+        for (CardField field : values()) {
+            if (field.jsonName.equals(name)) {
+                return field;
+            }
+        }
+        throw new UnknownCardFieldException("Unknown card field: " + name);
+    }
+}
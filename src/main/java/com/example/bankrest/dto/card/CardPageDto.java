@@ -0,0 +1,18 @@
+package com.example.bankrest.dto.card;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Builder
+public class CardPageDto {
+    List<CardResponseDto> items;
+    /// Курсор следующей страницы; null, если это последняя страница.
+    String nextCursor;
+    /// Общее число карт; null, если не запрашивалось.
+    Long total;
+    /// true, если total - оценка по статистике таблицы, а не точный подсчет.
+    Boolean totalEstimated;
+}
@@ -1,19 +1,29 @@
 package com.example.bankrest.dto.card;
 
+import com.example.bankrest.entity.Money;
 import com.example.bankrest.entity.Status;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Value;
-
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
+/// Публичный конструктор нужен запросам-проекциям CardRepository: порядок полей совпадает с select new.
+/// Null-поля не сериализуются: при выборке fields= в ответе остаются только запрошенные поля.
 @Value
-@Builder
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class CardResponseDto {
     Long id;
     String masked;
     String cardHolderName;
-    BigDecimal balance;
+    Money balance;
+    Money availableBalance;
+    String currency;
     LocalDate expiryDate;
     Status status;
+    LocalDateTime createdAt;
+    LocalDateTime updatedAt;
 }
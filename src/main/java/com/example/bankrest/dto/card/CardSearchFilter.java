@@ -0,0 +1,21 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.Status;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/// Условия поиска карт администратором; null-поле означает отсутствие условия.
+@Value
+@Builder
+public class CardSearchFilter {
+    Status status;
+    Long userId;
+    /// Границы срока действия включительно.
+    LocalDate expiresFrom;
+    LocalDate expiresTo;
+    String lastDigits;
+    /// Начало имени держателя, без учета регистра.
+    String holderNamePrefix;
+}
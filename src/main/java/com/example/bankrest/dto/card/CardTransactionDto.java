@@ -0,0 +1,17 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.entity.TransactionDirection;
+import lombok.Builder;
+import lombok.Value;
+import java.time.LocalDateTime;
+
+@Value
+@Builder
+public class CardTransactionDto {
+    Long id;
+    Long counterpartyCardId;
+    TransactionDirection direction;
+    Money amount;
+    LocalDateTime createdAt;
+}
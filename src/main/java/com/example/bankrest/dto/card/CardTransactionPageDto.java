@@ -0,0 +1,14 @@
+package com.example.bankrest.dto.card;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+@Builder
+public class CardTransactionPageDto {
+    List<CardTransactionDto> items;
+    /// Курсор следующей страницы; null, если это последняя страница.
+    String nextCursor;
+}
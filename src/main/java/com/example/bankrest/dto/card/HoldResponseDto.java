@@ -0,0 +1,20 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.HoldStatus;
+import com.example.bankrest.entity.Money;
+import lombok.Builder;
+import lombok.Value;
+import java.time.LocalDateTime;
+
+@Value
+@Builder
+public class HoldResponseDto {
+    Long id;
+    Long fromCardId;
+    Long toCardId;
+    Money amount;
+    HoldStatus status;
+    LocalDateTime expiresAt;
+    LocalDateTime createdAt;
+    LocalDateTime updatedAt;
+}
@@ -0,0 +1,18 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.Money;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class ReconciliationCurrencyDto {
+    String currency;
+    long cards;
+    Money totalBalance;
+    Money totalOpeningBalance;
+    Money ledgerNet;
+    Money fxNet;
+    Money postingsNet;
+    Boolean conserved;
+}
@@ -0,0 +1,24 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.ReconciliationRunStatus;
+import lombok.Builder;
+import lombok.Value;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Value
+@Builder
+public class ReconciliationRunDto {
+    Long id;
+    ReconciliationRunStatus status;
+    int rangesTotal;
+    int rangesDone;
+    int rangesFailed;
+    long cardsChecked;
+    long driftedCards;
+    List<ReconciliationCurrencyDto> currencies;
+    Boolean conserved;
+    double cardsPerSecond;
+    LocalDateTime startedAt;
+    LocalDateTime completedAt;
+}
@@ -0,0 +1,16 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.entity.ScheduleFrequency;
+import lombok.Builder;
+import lombok.Value;
+import java.time.LocalDateTime;
+
+@Value
+@Builder
+public class ScheduledTransferRequestDto {
+    Long toCardId;
+    Money amount;
+    ScheduleFrequency frequency;
+    LocalDateTime firstRunAt;
+}
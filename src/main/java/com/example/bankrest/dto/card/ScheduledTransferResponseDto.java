@@ -0,0 +1,21 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.entity.ScheduleFrequency;
+import com.example.bankrest.entity.ScheduledTransferStatus;
+import lombok.Builder;
+import lombok.Value;
+import java.time.LocalDateTime;
+
+@Value
+@Builder
+public class ScheduledTransferResponseDto {
+    Long id;
+    Long fromCardId;
+    Long toCardId;
+    Money amount;
+    ScheduleFrequency frequency;
+    LocalDateTime nextRunAt;
+    LocalDateTime lastRunAt;
+    ScheduledTransferStatus status;
+}
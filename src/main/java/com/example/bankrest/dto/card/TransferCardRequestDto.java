@@ -1,14 +1,13 @@
 package com.example.bankrest.dto.card;
 
+import com.example.bankrest.entity.Money;
 import lombok.Builder;
 import lombok.Value;
 
-import java.math.BigDecimal;
-
 @Value
 @Builder
 public class TransferCardRequestDto {
     Long id;
-    BigDecimal amount;
+    Money amount;
 
 }
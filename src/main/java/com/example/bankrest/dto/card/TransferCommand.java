@@ -0,0 +1,16 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.Money;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class TransferCommand {
+    Long transferId;
+    Long fromCardId;
+    Long toCardId;
+    Money amount;
+    /// Перевод одобрен администратором после задержки: оценка риска для него не выполняется.
+    boolean reviewed;
+}
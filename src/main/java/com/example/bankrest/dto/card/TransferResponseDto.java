@@ -0,0 +1,20 @@
+package com.example.bankrest.dto.card;
+
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.entity.TransferStatus;
+import lombok.Builder;
+import lombok.Value;
+import java.time.LocalDateTime;
+
+@Value
+@Builder
+public class TransferResponseDto {
+    Long id;
+    Long fromCardId;
+    Long toCardId;
+    Money amount;
+    TransferStatus status;
+    String errorMessage;
+    LocalDateTime createdAt;
+    LocalDateTime updatedAt;
+}
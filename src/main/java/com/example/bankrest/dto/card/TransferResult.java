@@ -0,0 +1,32 @@
+package com.example.bankrest.dto.card;
+
+import lombok.Value;
+
+@Value
+public class TransferResult {
+    TransferCommand command;
+    boolean executed;
+    RuntimeException error;
+
+    public static TransferResult success(TransferCommand command) {
+        return new TransferResult(command, true, null);
+    }
+
+    public static TransferResult failure(TransferCommand command, RuntimeException error) {
+        return new TransferResult(command, true, error);
+    }
+
+    /// Перевод не выполнялся, потому что пачка была прервана ошибкой предыдущего перевода.
+    public static TransferResult skipped(TransferCommand command) {
+        return new TransferResult(command, false, null);
+    }
+
+    /// Перевод уже исполнен в другом месте: повторять нечего, и ошибкой это не считается.
+    public static TransferResult alreadyProcessed(TransferCommand command) {
+        return new TransferResult(command, true, null);
+    }
+
+    public boolean isSuccess() {
+        return executed && error == null;
+    }
+}
@@ -0,0 +1,383 @@
+package com.example.bankrest.engine;
+
+import com.example.bankrest.component.CardCacheEvictor;
+import com.example.bankrest.component.TransactionLedger;
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.exception.TransferOperationException;
+import com.example.bankrest.util.LongLongHashMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Движок балансов в памяти для режима максимальной пропускной способности (balance-engine.enabled).
+ * Карты распределяются по однопоточным шардам по имени держателя: переводы разрешены только между картами
+ * одного держателя, поэтому обе карты перевода всегда попадают в один шард.
+ * Каждая операция пишется в WAL шарда до ответа, балансы периодически сбрасываются снимком в cards.balance,
+ * а при старте восстанавливаются из последнего снимка и WAL.
+ * Число шардов хранится в balance_engine_state: при другом balance-engine.shards те же карты попали бы
+ * в другие шарды, поэтому сменить его можно только после штатной остановки, когда в WAL нет операций после снимка.
+ * Во включенном режиме движок - единственное хранилище перевода: запись в WAL и есть факт перевода.
+ * История операций (card_transactions) и статус COMPLETED в transfers пишутся снимком в одной транзакции
+ * с балансами и номером операции, поэтому БД не расходится с журналом, а только отстает от него
+ * не больше чем на интервал снимка.
+ */
+@Component
+@Slf4j
+public class BalanceEngine {
+
+    private static final Pattern WAL_FILE = Pattern.compile("shard-(\\d+)\\.wal");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CardCacheEvictor cardCacheEvictor;
+    private final TransactionLedger transactionLedger;
+    private final Counter droppedRecordsCounter;
+
+    @Value("${balance-engine.enabled:false}")
+    private boolean enabled;
+
+    @Value("${balance-engine.shards:4}")
+    private int shardCount;
+
+    @Value("${balance-engine.queue-size:4096}")
+    private int queueSize;
+
+    @Value("${balance-engine.wal-dir:./data/wal}")
+    private String walDir;
+
+    @Value("${balance-engine.wal-size-mb:64}")
+    private int walSizeMb;
+
+    private final List<BalanceShard> shards = new ArrayList<>();
+    private final List<WriteAheadLog> logs = new ArrayList<>();
+    private final Object snapshotLock = new Object();
+    private volatile LocalDateTime startedAt;
+
+    public BalanceEngine(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                         CardCacheEvictor cardCacheEvictor, TransactionLedger transactionLedger, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cardCacheEvictor = cardCacheEvictor;
+        this.transactionLedger = transactionLedger;
+        this.droppedRecordsCounter = Counter.builder("balance.engine.recovery.dropped")
+                .description("WAL operations dropped on recovery because their cards no longer exist")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        startedAt = LocalDateTime.now();
+        Path directory = Path.of(walDir);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't create WAL directory " + directory, e);
+        }
+
+        Map<Integer, Long> snapshotSequences = loadSnapshotSequences();
+        List<List<WriteAheadLog.WalRecord>> unsaved = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            WriteAheadLog wal = new WriteAheadLog(directory.resolve("shard-" + i + ".wal"), walSizeMb * 1024 * 1024);
+            logs.add(wal);
+            unsaved.add(readUnsaved(wal, snapshotSequences.getOrDefault(i, 0L)));
+        }
+        boolean pending = unsaved.stream().anyMatch(records -> !records.isEmpty())
+                || hasUnsavedBeyondShardCount(directory, snapshotSequences);
+        checkShardCount(pending);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(recover(i, logs.get(i), snapshotSequences.getOrDefault(i, 0L), unsaved.get(i)));
+        }
+        shards.forEach(BalanceShard::start);
+        log.info("BalanceEngine.start.success: {} shards", shardCount);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        snapshot();
+        for (BalanceShard shard : shards) {
+            shard.stop();
+        }
+        for (WriteAheadLog wal : logs) {
+            wal.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /// Время запуска движка: перевод, не менявшийся с этого момента, уже не исполняется ни одним потоком узла.
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    /// Возврат без исключения означает, что перевод записан в WAL и сброшен на диск. transferId может быть null.
+    public void transfer(String shardKey, Long transferId, long fromCardId, long fromSeed, long toCardId, long toSeed, long amount) {
+        if (amount <= 0) {
+            throw new TransferOperationException("Transfer amount must be positive");
+        }
+        await(shardFor(shardKey).transfer(transferId == null ? 0L : transferId, fromCardId, fromSeed, toCardId, toSeed, amount));
+    }
+
+    public long getBalance(String shardKey, long cardId, long seed) {
+        return await(shardFor(shardKey).balance(cardId, seed));
+    }
+
+    /**
+     * Выполняет action, только если перевод не записан в WAL: для записанного статус COMPLETED поставит снимок.
+     * Проверка и action идут под той же блокировкой, что и снимок, поэтому перевод не может уйти из памяти шарда
+     * в снимок между ними. Возвращает false, если перевод записан и action не выполнялся.
+     * Перевод ищется во всех шардах: ключ шарда (держатель карты) по id перевода неизвестен.
+     */
+    public boolean runUnlessLogged(long transferId, Runnable action) {
+        if (!enabled) {
+            throw new TransferOperationException("Balance engine is disabled");
+        }
+        synchronized (snapshotLock) {
+            List<CompletableFuture<Boolean>> answers = shards.stream()
+                    .map(shard -> shard.isUnsaved(transferId))
+                    .toList();
+            for (CompletableFuture<Boolean> answer : answers) {
+                if (await(answer)) {
+                    return false;
+                }
+            }
+            action.run();
+            return true;
+        }
+    }
+
+    /// Сбрасывает измененные с прошлого снимка балансы в cards.balance вместе с историей операций,
+    /// статусами переводов и номером последней операции шарда.
+    @Scheduled(fixedDelayString = "${balance-engine.snapshot-interval-ms:5000}")
+    public void snapshot() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (snapshotLock) {
+            shards.forEach(this::snapshot);
+        }
+    }
+
+    private void snapshot(BalanceShard shard) {
+        BalanceShard.ShardSnapshot snapshot;
+        try {
+            snapshot = shard.snapshot().join();
+        } catch (RuntimeException e) {
+            log.error("BalanceEngine.snapshot.fail.shard {}: {}", shard.getIndex(), e.getMessage());
+            return;
+        }
+        if (snapshot.cardIds().length == 0) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeSnapshot(snapshot));
+            cardCacheEvictor.evict(snapshot.cardIds());
+            shard.compact(snapshot.sequence());
+            log.info("BalanceEngine.snapshot.success.shard {}: {} cards", snapshot.shard(), snapshot.cardIds().length);
+        } catch (RuntimeException e) {
+            log.error("BalanceEngine.snapshot.fail.shard {}: {}", snapshot.shard(), e.getMessage());
+            shard.markDirty(snapshot);
+        }
+    }
+
+    /// available_balance сдвигается на ту же разницу, что и balance, чтобы не потерять холды карты.
+    /// Терминальный статус записанного перевода не меняется: FAILED ставится только через runUnlessLogged,
+    /// то есть переводу, которого в WAL нет, и клиент, повторивший FAILED перевод, не переведет деньги дважды.
+    private void writeSnapshot(BalanceShard.ShardSnapshot snapshot) {
+        List<Object[]> updates = new ArrayList<>(snapshot.cardIds().length);
+        for (int i = 0; i < snapshot.cardIds().length; i++) {
+            updates.add(new Object[]{snapshot.balances()[i], snapshot.balances()[i], snapshot.cardIds()[i]});
+        }
+        jdbcTemplate.batchUpdate("""
+                UPDATE cards SET available_balance = available_balance + (? - balance), balance = ?, updated_at = now()
+                WHERE id = ?
+                """, updates);
+
+        List<TransactionLedger.Entry> entries = new ArrayList<>(snapshot.transfers().size());
+        List<Long> transferIds = new ArrayList<>();
+        for (WriteAheadLog.WalRecord record : snapshot.transfers()) {
+            Money amount = Money.ofMinorUnits(record.amount());
+            entries.add(new TransactionLedger.Entry(record.fromCardId(), record.toCardId(), amount, amount));
+            if (record.transferId() != 0L) {
+                transferIds.add(record.transferId());
+            }
+        }
+        transactionLedger.recordTransfers(entries);
+        if (!transferIds.isEmpty()) {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement("""
+                        UPDATE transfers SET status = 'COMPLETED', error_message = NULL, updated_at = now()
+                        WHERE id = ANY (?) AND status = 'PENDING'
+                        """);
+                statement.setArray(1, connection.createArrayOf("bigint", transferIds.toArray()));
+                return statement;
+            });
+        }
+        jdbcTemplate.update("""
+                INSERT INTO balance_engine_snapshots (shard, last_sequence, taken_at) VALUES (?, ?, now())
+                ON CONFLICT (shard) DO UPDATE SET last_sequence = excluded.last_sequence, taken_at = excluded.taken_at
+                """, snapshot.shard(), snapshot.sequence());
+    }
+
+    private Map<Integer, Long> loadSnapshotSequences() {
+        Map<Integer, Long> sequences = new HashMap<>();
+        jdbcTemplate.query("SELECT shard, last_sequence FROM balance_engine_snapshots",
+                rs -> {
+                    sequences.put(rs.getInt("shard"), rs.getLong("last_sequence"));
+                });
+        return sequences;
+    }
+
+    /// Записи WAL с номером больше номера снимка: уже попавшие в снимок, но еще не убранные сжатием, пропускаются.
+    private static List<WriteAheadLog.WalRecord> readUnsaved(WriteAheadLog wal, long snapshotSequence) {
+        List<WriteAheadLog.WalRecord> records = new ArrayList<>();
+        long lastSequence = snapshotSequence;
+        for (WriteAheadLog.WalRecord record : wal.readAll()) {
+            if (record.sequence() > lastSequence) {
+                records.add(record);
+                lastSequence = record.sequence();
+            }
+        }
+        return records;
+    }
+
+    /// WAL шардов с номером не меньше balance-engine.shards остаются от запуска с большим числом шардов.
+    private boolean hasUnsavedBeyondShardCount(Path directory, Map<Integer, Long> snapshotSequences) {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Matcher matcher = WAL_FILE.matcher(file.getFileName().toString());
+                if (!matcher.matches() || Integer.parseInt(matcher.group(1)) < shardCount) {
+                    continue;
+                }
+                try (WriteAheadLog wal = new WriteAheadLog(file, walSizeMb * 1024 * 1024)) {
+                    if (!readUnsaved(wal, snapshotSequences.getOrDefault(Integer.parseInt(matcher.group(1)), 0L)).isEmpty()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't list WAL directory " + directory, e);
+        }
+    }
+
+    /// Смена числа шардов допустима, только если в WAL нет операций после снимка: тогда все балансы уже в БД,
+    /// и шарды при новом распределении возьмут их оттуда.
+    private void checkShardCount(boolean pending) {
+        List<Integer> stored = jdbcTemplate.queryForList("SELECT shard_count FROM balance_engine_state WHERE id = 1", Integer.class);
+        if (!stored.isEmpty() && stored.get(0) != shardCount && pending) {
+            closeLogs();
+            throw new IllegalStateException("balance-engine.shards changed from " + stored.get(0) + " to " + shardCount
+                    + " while write-ahead logs still hold operations missing from the snapshot;"
+                    + " start with " + stored.get(0) + " shards and stop the engine cleanly before changing it");
+        }
+        jdbcTemplate.update("""
+                INSERT INTO balance_engine_state (id, shard_count) VALUES (1, ?)
+                ON CONFLICT (id) DO UPDATE SET shard_count = excluded.shard_count
+                """, shardCount);
+    }
+
+    private void closeLogs() {
+        for (WriteAheadLog wal : logs) {
+            try {
+                wal.close();
+            } catch (IOException e) {
+                log.error("BalanceEngine.closeLogs.fail: {}", e.getMessage());
+            }
+        }
+    }
+
+    /// Снимок в БД + повтор записей WAL с номером больше номера снимка.
+    /// Операция по карте, которой уже нет в cards, не повторяется: ее нельзя применить, и она попадает
+    /// в лог ошибок и счетчик balance.engine.recovery.dropped.
+    private BalanceShard recover(int index, WriteAheadLog wal, long snapshotSequence, List<WriteAheadLog.WalRecord> records) {
+        long lastSequence = records.isEmpty() ? snapshotSequence : records.get(records.size() - 1).sequence();
+        LongLongHashMap balances = new LongLongHashMap(Math.max(16, records.size() * 2));
+        List<WriteAheadLog.WalRecord> replayed = new ArrayList<>(records.size());
+        if (!records.isEmpty()) {
+            Set<Long> cardIds = new HashSet<>();
+            records.forEach(record -> {
+                cardIds.add(record.fromCardId());
+                cardIds.add(record.toCardId());
+            });
+            loadBalances(cardIds, balances);
+            for (WriteAheadLog.WalRecord record : records) {
+                if (balances.containsKey(record.fromCardId()) && balances.containsKey(record.toCardId())) {
+                    balances.addTo(record.fromCardId(), -record.amount());
+                    balances.addTo(record.toCardId(), record.amount());
+                    replayed.add(record);
+                } else {
+                    log.error("BalanceEngine.recover.fail.cardNotFound.shard {}: sequence {}, transfer {}, cards {} -> {}, amount {}",
+                            index, record.sequence(), record.transferId(), record.fromCardId(), record.toCardId(), record.amount());
+                }
+            }
+            int dropped = records.size() - replayed.size();
+            if (dropped > 0) {
+                droppedRecordsCounter.increment(dropped);
+                log.error("BalanceEngine.recover.fail.shard {}: dropped {} operations", index, dropped);
+            }
+            log.info("BalanceEngine.recover.shard {}: replayed {} operations", index, replayed.size());
+        }
+        return new BalanceShard(index, wal, queueSize, lastSequence, balances, replayed);
+    }
+
+    private void loadBalances(Set<Long> cardIds, LongLongHashMap balances) {
+        jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement("SELECT id, balance FROM cards WHERE id = ANY (?)");
+                    Array ids = connection.createArrayOf("bigint", cardIds.toArray());
+                    statement.setArray(1, ids);
+                    return statement;
+                },
+                rs -> {
+                    balances.put(rs.getLong("id"), rs.getLong("balance"));
+                });
+    }
+
+    private BalanceShard shardFor(String shardKey) {
+        if (!enabled) {
+            throw new TransferOperationException("Balance engine is disabled");
+        }
+        return shards.get(Math.floorMod(shardKey.hashCode(), shards.size()));
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
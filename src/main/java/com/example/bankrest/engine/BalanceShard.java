@@ -0,0 +1,278 @@
+package com.example.bankrest.engine;
+
+import com.example.bankrest.exception.InsufficientFundsException;
+import com.example.bankrest.exception.TransferOperationException;
+import com.example.bankrest.util.LongLongHashMap;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Однопоточный обработчик балансов своей части карт. Все изменения состояния делает только поток шарда,
+ * поэтому балансы хранятся в обычной {@link LongLongHashMap} без блокировок. Команды забираются из очереди пачками:
+ * изменения пачки пишутся в WAL, один force() на пачку, и только после него вызывающим отдаются ответы.
+ * Примененные с прошлого снимка переводы копятся в памяти и уходят в снимок: история операций и статус перевода
+ * пишутся в БД той же транзакцией, что и балансы.
+ */
+@Slf4j
+class BalanceShard {
+
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private final int index;
+    private final WriteAheadLog wal;
+    private final BlockingQueue<Command> queue;
+    private final LongLongHashMap balances;
+    private final LongLongHashMap dirty;
+    private List<WriteAheadLog.WalRecord> unsaved;
+    private final LongLongHashMap unsavedTransferIds;
+    private final Thread thread;
+    private long sequence;
+    private volatile boolean running;
+
+    /// recoveredTransfers - повторенные из WAL переводы, которых еще нет в БД.
+    BalanceShard(int index, WriteAheadLog wal, int queueSize, long sequence, LongLongHashMap recoveredBalances,
+                 List<WriteAheadLog.WalRecord> recoveredTransfers) {
+        this.index = index;
+        this.wal = wal;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.sequence = sequence;
+        this.balances = recoveredBalances;
+        this.dirty = new LongLongHashMap(Math.max(16, recoveredBalances.size()));
+        recoveredBalances.forEach((cardId, balance) -> dirty.put(cardId, 1L));
+        this.unsaved = new ArrayList<>(recoveredTransfers);
+        this.unsavedTransferIds = new LongLongHashMap(Math.max(16, recoveredTransfers.size()));
+        recoveredTransfers.forEach(this::rememberTransferId);
+        this.thread = new Thread(this::run, "balance-shard-" + index);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        running = true;
+        thread.start();
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    /// seed - баланс карты из БД; используется, только если шард еще не знает эту карту.
+    /// transferId = 0 - операция без записи в transfers.
+    CompletableFuture<Void> transfer(long transferId, long fromCardId, long fromSeed, long toCardId, long toSeed, long amount) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        enqueue(new TransferCommand(transferId, fromCardId, fromSeed, toCardId, toSeed, amount, future));
+        return future;
+    }
+
+    CompletableFuture<Long> balance(long cardId, long seed) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        enqueue(new BalanceCommand(cardId, seed, future));
+        return future;
+    }
+
+    CompletableFuture<ShardSnapshot> snapshot() {
+        CompletableFuture<ShardSnapshot> future = new CompletableFuture<>();
+        enqueue(new SnapshotCommand(future));
+        return future;
+    }
+
+    /// Записан ли перевод в WAL, но еще не отдан в снимок. Отвечает после всех команд, поставленных в очередь раньше.
+    CompletableFuture<Boolean> isUnsaved(long transferId) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        enqueue(new UnsavedQuery(transferId, future));
+        return future;
+    }
+
+    void compact(long upToSequence) {
+        enqueue(new CompactCommand(upToSequence));
+    }
+
+    /// Возвращает карты в грязные, а переводы - в несохраненные, если запись снимка в БД не удалась.
+    void markDirty(ShardSnapshot snapshot) {
+        enqueue(new MarkDirtyCommand(snapshot.cardIds(), snapshot.transfers()));
+    }
+
+    private void enqueue(Command command) {
+        if (!running) {
+            throw new TransferOperationException("Balance engine is not running");
+        }
+        try {
+            queue.put(command);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferOperationException("Balance engine request was interrupted");
+        }
+    }
+
+    private void run() {
+        List<Command> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        List<Runnable> acknowledgements = new ArrayList<>(MAX_BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                Command first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+                boolean logged = false;
+                for (Command command : batch) {
+                    logged |= process(command, acknowledgements);
+                }
+                if (logged) {
+                    wal.force();
+                }
+                acknowledgements.forEach(Runnable::run);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                // состояние в памяти могло разойтись с WAL - шард останавливается, восстановление при перезапуске
+                log.error("BalanceShard.run.fail.shard {}: {}", index, e.getMessage());
+                TransferOperationException error = new TransferOperationException("Balance engine failure");
+                batch.forEach(command -> command.fail(error));
+                running = false;
+            } finally {
+                batch.clear();
+                acknowledgements.clear();
+            }
+        }
+    }
+
+    private boolean process(Command command, List<Runnable> acknowledgements) {
+        if (command instanceof TransferCommand transfer) {
+            try {
+                applyTransfer(transfer);
+                acknowledgements.add(() -> transfer.future().complete(null));
+                return true;
+            } catch (InsufficientFundsException | TransferOperationException e) {
+                transfer.future().completeExceptionally(e);
+                return false;
+            }
+        }
+        if (command instanceof BalanceCommand query) {
+            long balance = balanceOf(query.cardId(), query.seed());
+            acknowledgements.add(() -> query.future().complete(balance));
+        } else if (command instanceof UnsavedQuery query) {
+            boolean unsavedTransfer = unsavedTransferIds.containsKey(query.transferId());
+            acknowledgements.add(() -> query.future().complete(unsavedTransfer));
+        } else if (command instanceof SnapshotCommand snapshot) {
+            snapshot.future().complete(takeSnapshot());
+        } else if (command instanceof CompactCommand compact) {
+            wal.compact(compact.upToSequence());
+        } else if (command instanceof MarkDirtyCommand markDirty) {
+            for (long cardId : markDirty.cardIds()) {
+                dirty.put(cardId, 1L);
+            }
+            List<WriteAheadLog.WalRecord> restored = new ArrayList<>(markDirty.transfers());
+            markDirty.transfers().forEach(this::rememberTransferId);
+            restored.addAll(unsaved);
+            unsaved = restored;
+        }
+        return false;
+    }
+
+    private void applyTransfer(TransferCommand transfer) {
+        long fromBalance = balanceOf(transfer.fromCardId(), transfer.fromSeed());
+        long toBalance = balanceOf(transfer.toCardId(), transfer.toSeed());
+        if (fromBalance < transfer.amount()) {
+            throw new InsufficientFundsException("There are not enough funds on the sender card");
+        }
+        if (!wal.hasRoom()) {
+            throw new TransferOperationException("Balance engine log is full, waiting for snapshot");
+        }
+
+        long nextSequence = sequence + 1;
+        wal.append(nextSequence, transfer.transferId(), transfer.fromCardId(), transfer.toCardId(), transfer.amount());
+        sequence = nextSequence;
+        WriteAheadLog.WalRecord record = new WriteAheadLog.WalRecord(nextSequence, transfer.transferId(),
+                transfer.fromCardId(), transfer.toCardId(), transfer.amount());
+        unsaved.add(record);
+        rememberTransferId(record);
+        balances.put(transfer.fromCardId(), fromBalance - transfer.amount());
+        balances.put(transfer.toCardId(), Math.addExact(toBalance, transfer.amount()));
+        dirty.put(transfer.fromCardId(), 1L);
+        dirty.put(transfer.toCardId(), 1L);
+    }
+
+    private void rememberTransferId(WriteAheadLog.WalRecord record) {
+        if (record.transferId() != 0L) {
+            unsavedTransferIds.put(record.transferId(), 1L);
+        }
+    }
+
+    private long balanceOf(long cardId, long seed) {
+        if (!balances.containsKey(cardId)) {
+            balances.put(cardId, seed);
+        }
+        return balances.get(cardId, seed);
+    }
+
+    private ShardSnapshot takeSnapshot() {
+        long[] cardIds = dirty.keys();
+        long[] snapshotBalances = new long[cardIds.length];
+        for (int i = 0; i < cardIds.length; i++) {
+            snapshotBalances[i] = balances.get(cardIds[i], 0L);
+        }
+        dirty.clear();
+        unsavedTransferIds.clear();
+        List<WriteAheadLog.WalRecord> transfers = unsaved;
+        unsaved = new ArrayList<>();
+        return new ShardSnapshot(index, sequence, cardIds, snapshotBalances, transfers);
+    }
+
+    record ShardSnapshot(int shard, long sequence, long[] cardIds, long[] balances,
+                         List<WriteAheadLog.WalRecord> transfers) {
+    }
+
+    private interface Command {
+        default void fail(RuntimeException error) {
+        }
+    }
+
+    private record TransferCommand(long transferId, long fromCardId, long fromSeed, long toCardId, long toSeed, long amount,
+                                   CompletableFuture<Void> future) implements Command {
+        @Override
+        public void fail(RuntimeException error) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private record BalanceCommand(long cardId, long seed, CompletableFuture<Long> future) implements Command {
+        @Override
+        public void fail(RuntimeException error) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private record UnsavedQuery(long transferId, CompletableFuture<Boolean> future) implements Command {
+        @Override
+        public void fail(RuntimeException error) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private record SnapshotCommand(CompletableFuture<ShardSnapshot> future) implements Command {
+        @Override
+        public void fail(RuntimeException error) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private record CompactCommand(long upToSequence) implements Command {
+    }
+
+    private record MarkDirtyCommand(long[] cardIds, List<WriteAheadLog.WalRecord> transfers) implements Command {
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.bankrest.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Журнал упреждающей записи шарда в отображенном в память файле фиксированного размера.
+ * Запись: sequence, transferId, from, to, amount и контрольная сумма - по 8 байт. Чтение останавливается на первой
+ * пустой или поврежденной записи, поэтому недописанный при падении хвост просто отбрасывается.
+ * Формат записи не совместим с журналом из 5 полей: перед обновлением движок нужно остановить штатно,
+ * тогда снимок при остановке переносит все операции в БД и журнал остается пустым.
+ */
+class WriteAheadLog implements Closeable {
+
+    static final int RECORD_SIZE = 6 * Long.BYTES;
+    private static final long CHECKSUM_SEED = 0x5EED_BA1A_0CE5_1A7EL;
+
+    private final Path path;
+    private final Path compactPath;
+    private final int capacity;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    WriteAheadLog(Path path, int capacityBytes) {
+        this.path = path;
+        this.compactPath = path.resolveSibling(path.getFileName() + ".compact");
+        this.capacity = capacityBytes - capacityBytes % RECORD_SIZE;
+        try {
+            // остаток сжатия, прерванного до переименования: основной файл при этом не тронут
+            Files.deleteIfExists(compactPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't remove stale compacted log " + compactPath, e);
+        }
+        map();
+    }
+
+    List<WalRecord> readAll() {
+        List<WalRecord> records = new ArrayList<>();
+        for (int offset = 0; offset + RECORD_SIZE <= buffer.capacity(); offset += RECORD_SIZE) {
+            WalRecord record = readAt(offset);
+            if (record == null) {
+                break;
+            }
+            records.add(record);
+        }
+        return records;
+    }
+
+    boolean hasRoom() {
+        return buffer.remaining() >= RECORD_SIZE;
+    }
+
+    /// transferId = 0 - операция без записи в transfers.
+    void append(long sequence, long transferId, long fromCardId, long toCardId, long amount) {
+        buffer.putLong(sequence)
+                .putLong(transferId)
+                .putLong(fromCardId)
+                .putLong(toCardId)
+                .putLong(amount)
+                .putLong(checksum(sequence, transferId, fromCardId, toCardId, amount));
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Удаляет записи, уже попавшие в снимок (sequence <= upToSequence). Оставшиеся записи пишутся в отдельный файл,
+     * он сбрасывается на диск и атомарно заменяет журнал, после чего журнал отображается заново.
+     * Падение в любой момент оставляет на диске либо старый, либо новый журнал целиком.
+     */
+    void compact(long upToSequence) {
+        List<WalRecord> retained = readAll().stream()
+                .filter(record -> record.sequence() > upToSequence)
+                .toList();
+        ByteBuffer content = ByteBuffer.allocate(retained.size() * RECORD_SIZE);
+        for (WalRecord record : retained) {
+            content.putLong(record.sequence())
+                    .putLong(record.transferId())
+                    .putLong(record.fromCardId())
+                    .putLong(record.toCardId())
+                    .putLong(record.amount())
+                    .putLong(checksum(record.sequence(), record.transferId(), record.fromCardId(), record.toCardId(), record.amount()));
+        }
+        content.flip();
+        try {
+            try (FileChannel compacted = FileChannel.open(compactPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (content.hasRemaining()) {
+                    compacted.write(content);
+                }
+                compacted.force(true);
+            }
+            force();
+            channel.close();
+            Files.move(compactPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            forceDirectory();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't compact write-ahead log " + path, e);
+        }
+        map();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void map() {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't open write-ahead log " + path, e);
+        }
+        buffer.position(findEnd());
+    }
+
+    /// Без сброса каталога переименование может не пережить падение питания.
+    private void forceDirectory() throws IOException {
+        try (FileChannel directory = FileChannel.open(path.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+    }
+
+    private int findEnd() {
+        int offset = 0;
+        while (offset + RECORD_SIZE <= buffer.capacity() && readAt(offset) != null) {
+            offset += RECORD_SIZE;
+        }
+        return offset;
+    }
+
+    private WalRecord readAt(int offset) {
+        long sequence = buffer.getLong(offset);
+        if (sequence == 0L) {
+            return null;
+        }
+        long transferId = buffer.getLong(offset + Long.BYTES);
+        long fromCardId = buffer.getLong(offset + 2 * Long.BYTES);
+        long toCardId = buffer.getLong(offset + 3 * Long.BYTES);
+        long amount = buffer.getLong(offset + 4 * Long.BYTES);
+        long checksum = buffer.getLong(offset + 5 * Long.BYTES);
+        if (checksum != checksum(sequence, transferId, fromCardId, toCardId, amount)) {
+            return null;
+        }
+        return new WalRecord(sequence, transferId, fromCardId, toCardId, amount);
+    }
+
+    private static long checksum(long sequence, long transferId, long fromCardId, long toCardId, long amount) {
+        long hash = CHECKSUM_SEED;
+        hash = (hash ^ sequence) * 0x100000001B3L;
+        hash = (hash ^ transferId) * 0x100000001B3L;
+        hash = (hash ^ fromCardId) * 0x100000001B3L;
+        hash = (hash ^ toCardId) * 0x100000001B3L;
+        hash = (hash ^ amount) * 0x100000001B3L;
+        return hash;
+    }
+
+    record WalRecord(long sequence, long transferId, long fromCardId, long toCardId, long amount) {
+    }
+}
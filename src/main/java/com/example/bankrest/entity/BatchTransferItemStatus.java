@@ -0,0 +1,5 @@
+package com.example.bankrest.entity;
+
+public enum BatchTransferItemStatus {
+    COMPLETED, FAILED, ROLLED_BACK, SKIPPED
+}
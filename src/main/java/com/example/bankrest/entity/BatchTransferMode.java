@@ -0,0 +1,5 @@
+package com.example.bankrest.entity;
+
+public enum BatchTransferMode {
+    ALL_OR_NOTHING, BEST_EFFORT
+}
@@ -2,11 +2,22 @@ package com.example.bankrest.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Generated;
+import org.hibernate.generator.EventType;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+/// READ_WRITE: обновление карты ставит в кэше мягкую блокировку до коммита, и параллельные чтения идут в БД.
+/// Переводы читают карты запросами с FOR UPDATE, которые всегда обращаются к БД, поэтому баланс
+/// для списания никогда не берется из кэша.
+/// Балансы меняются и мимо Hibernate (движок, холды, начисления), и кэш узнает об этом только после коммита.
+/// Поэтому UPDATE карты пишет лишь измененные колонки (@DynamicUpdate): смена статуса не вернет в строку
+/// устаревший баланс из кэша. Сами изменения карты делаются по строке, прочитанной с блокировкой.
+/// Регион кэша локален для процесса и между узлами не сбрасывается - см. ehcache.xml.
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -14,6 +25,9 @@ import java.time.LocalDateTime;
 @ToString(exclude = "user")
 @Entity
 @Table(name = "cards")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
 public class Card {
 
     @Id
@@ -36,8 +50,16 @@ public class Card {
     @Column(name = "cardholder_name", nullable = false)
     private String cardholderName;
 
-    @Column(precision = 15, scale = 2)
-    private BigDecimal balance;
+    @Column(nullable = false)
+    private Money balance;
+
+    /// Код валюты ISO 4217, в ней хранятся balance и available_balance.
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    /// Доступный остаток: баланс за вычетом активных холдов. Списания проверяют именно его.
+    @Column(name = "available_balance", nullable = false)
+    private Money availableBalance;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -49,18 +71,14 @@ public class Card {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
-    @Column(name = "updated_at")
+    /// Ставит триггер по часам базы, как и deleted_at удаленных карт: лента изменений сравнивает их между собой.
+    @Generated(event = {EventType.INSERT, EventType.UPDATE})
+    @Column(name = "updated_at", insertable = false, updatable = false)
     private LocalDateTime updatedAt;
 
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
-        updatedAt = LocalDateTime.now();
-    }
-
-    @PreUpdate
-    protected void onUpdate() {
-        updatedAt = LocalDateTime.now();
     }
 
 }
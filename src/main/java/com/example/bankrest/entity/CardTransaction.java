@@ -0,0 +1,36 @@
+package com.example.bankrest.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/// Строка истории операций карты. Пишется пакетно через {@link com.example.bankrest.component.TransactionLedger}.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "card_transactions")
+public class CardTransaction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+
+    @Column(name = "counterparty_card_id")
+    private Long counterpartyCardId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TransactionDirection direction;
+
+    @Column(nullable = false)
+    private Money amount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,5 @@
+package com.example.bankrest.entity;
+
+public enum HoldStatus {
+    ACTIVE, CAPTURED, VOIDED, EXPIRED
+}
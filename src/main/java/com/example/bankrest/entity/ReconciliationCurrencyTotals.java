@@ -0,0 +1,36 @@
+package com.example.bankrest.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+/// Итоги запуска сверки по одной валюте, в минорных единицах этой валюты.
+/// ledgerNet - переводы между картами этой валюты, fxNet - ноги переводов с конвертацией.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Embeddable
+public class ReconciliationCurrencyTotals {
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    @Column(nullable = false)
+    private long cards;
+
+    @Column(name = "total_balance", nullable = false)
+    private long totalBalance;
+
+    @Column(name = "total_opening_balance", nullable = false)
+    private long totalOpeningBalance;
+
+    @Column(name = "ledger_net", nullable = false)
+    private long ledgerNet;
+
+    @Column(name = "fx_net", nullable = false)
+    private long fxNet;
+
+    @Column(name = "postings_net", nullable = false)
+    private long postingsNet;
+}
@@ -0,0 +1,58 @@
+package com.example.bankrest.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/// Суммы хранятся в минорных единицах по валютам: их накапливают атомарные UPDATE по мере обработки диапазонов.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "reconciliation_runs")
+public class ReconciliationRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ReconciliationRunStatus status;
+
+    @Column(name = "ranges_total", nullable = false)
+    private int rangesTotal;
+
+    @Column(name = "ranges_done", nullable = false)
+    private int rangesDone;
+
+    @Column(name = "ranges_failed", nullable = false)
+    private int rangesFailed;
+
+    @Column(name = "cards_checked", nullable = false)
+    private long cardsChecked;
+
+    @Column(name = "drifted_cards", nullable = false)
+    private long driftedCards;
+
+    /// Валют у карт единицы, поэтому итоги читаются вместе с запуском.
+    @Builder.Default
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "reconciliation_currency_totals", joinColumns = @JoinColumn(name = "run_id"))
+    @OrderBy("currency")
+    private List<ReconciliationCurrencyTotals> currencyTotals = new ArrayList<>();
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    /// Ставит и обновляет база: по умолчанию при вставке и при каждом завершенном диапазоне.
+    @Column(name = "heartbeat_at", insertable = false, updatable = false)
+    private LocalDateTime heartbeatAt;
+}
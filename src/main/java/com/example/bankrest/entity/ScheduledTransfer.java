@@ -0,0 +1,77 @@
+package com.example.bankrest.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "scheduled_transfers")
+public class ScheduledTransfer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "from_card_id", nullable = false)
+    private Long fromCardId;
+
+    @Column(name = "to_card_id", nullable = false)
+    private Long toCardId;
+
+    @Column(nullable = false)
+    private Money amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ScheduleFrequency frequency;
+
+    /// День месяца первого запуска: ежемесячный перевод с 31-го числа в коротких месяцах идет в последний день.
+    @Column(name = "anchor_day", nullable = false)
+    private Integer anchorDay;
+
+    @Column(name = "next_run_at", nullable = false)
+    private LocalDateTime nextRunAt;
+
+    @Column(name = "last_run_at")
+    private LocalDateTime lastRunAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ScheduledTransferStatus status;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public LocalDateTime followingRunAt(LocalDateTime runAt) {
+        return switch (frequency) {
+            case DAILY -> runAt.plusDays(1);
+            case WEEKLY -> runAt.plusWeeks(1);
+            case MONTHLY -> {
+                LocalDateTime nextMonth = runAt.plusMonths(1);
+                yield nextMonth.withDayOfMonth(Math.min(anchorDay, nextMonth.toLocalDate().lengthOfMonth()));
+            }
+        };
+    }
+}
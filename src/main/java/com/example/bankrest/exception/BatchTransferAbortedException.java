@@ -0,0 +1,16 @@
+package com.example.bankrest.exception;
+
+import com.example.bankrest.dto.card.TransferResult;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class BatchTransferAbortedException extends RuntimeException {
+    private final List<TransferResult> results;
+
+    public BatchTransferAbortedException(String message, List<TransferResult> results) {
+        super(message);
+        this.results = results;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.bankrest.exception;
+
+public class ReconciliationAlreadyRunningException extends RuntimeException {
+    public ReconciliationAlreadyRunningException(String message) {
+        super(message);
+    }
+}
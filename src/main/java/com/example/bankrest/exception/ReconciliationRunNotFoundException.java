@@ -0,0 +1,7 @@
+package com.example.bankrest.exception;
+
+public class ReconciliationRunNotFoundException extends RuntimeException {
+    public ReconciliationRunNotFoundException(String message) {
+        super(message);
+    }
+}
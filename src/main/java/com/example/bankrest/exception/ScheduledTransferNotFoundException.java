@@ -0,0 +1,7 @@
+package com.example.bankrest.exception;
+
+public class ScheduledTransferNotFoundException extends RuntimeException {
+    public ScheduledTransferNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.bankrest.exception;
+
+import lombok.Getter;
+
+@Getter
+public class SuspiciousTransferException extends RuntimeException {
+    private final boolean held;
+
+    public SuspiciousTransferException(String message, boolean held) {
+        super(message);
+        this.held = held;
+    }
+}
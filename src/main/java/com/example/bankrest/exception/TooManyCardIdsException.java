@@ -0,0 +1,7 @@
+package com.example.bankrest.exception;
+
+public class TooManyCardIdsException extends RuntimeException {
+    public TooManyCardIdsException(String message) {
+        super(message);
+    }
+}
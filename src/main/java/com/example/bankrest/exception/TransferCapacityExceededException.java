@@ -0,0 +1,7 @@
+package com.example.bankrest.exception;
+
+public class TransferCapacityExceededException extends RuntimeException {
+    public TransferCapacityExceededException(String message) {
+        super(message);
+    }
+}
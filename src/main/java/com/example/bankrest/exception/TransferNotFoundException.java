@@ -0,0 +1,7 @@
+package com.example.bankrest.exception;
+
+public class TransferNotFoundException extends RuntimeException {
+    public TransferNotFoundException(String message) {
+        super(message);
+    }
+}
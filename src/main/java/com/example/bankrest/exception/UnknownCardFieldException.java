@@ -0,0 +1,7 @@
+package com.example.bankrest.exception;
+
+public class UnknownCardFieldException extends RuntimeException {
+    public UnknownCardFieldException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.bankrest.repository;
+
+import com.example.bankrest.dto.card.CardField;
+import com.example.bankrest.dto.card.CardResponseDto;
+import com.example.bankrest.util.CursorCodec;
+
+import java.util.List;
+import java.util.Set;
+
+public interface CardFieldsRepository {
+
+    /// Страница карт, новые первыми, с выборкой только перечисленных полей. userId и after могут быть null:
+    /// все карты и первая страница соответственно. id и createdAt читаются всегда - по ним строится курсор.
+    List<CardResponseDto> findPageWithFields(Long userId, CursorCodec.Position after, Set<CardField> fields, int limit);
+}
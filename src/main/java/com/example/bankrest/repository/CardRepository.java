@@ -1,26 +1,156 @@
 package com.example.bankrest.repository;
 
+import com.example.bankrest.dto.card.CardBalanceRow;
+import com.example.bankrest.dto.card.CardBalanceView;
+import com.example.bankrest.dto.card.CardResponseDto;
 import com.example.bankrest.entity.Card;
 import com.example.bankrest.entity.Status;
 import com.example.bankrest.entity.User;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import jakarta.validation.constraints.NotNull;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface CardRepository extends JpaRepository<Card, Long> {
+public interface CardRepository extends JpaRepository<Card, Long>, CardFieldsRepository, CardSearchRepository {
     boolean existsByHashCardNumber(String cardNumberHash);
 
-    @Query("select c from Card c where c.user.id = :id")
-    Page<Card> findByUser_Id(@Param("id")Long id, Pageable pageable);
+    /// Списки карт строятся проекцией сразу в CardResponseDto: сущности не попадают в контекст персистентности,
+    /// а зашифрованный номер и его хэш не читаются. Keyset-пагинация по индексам (created_at DESC, id DESC)
+    /// и (user_id, created_at DESC, id DESC): страница читается с позиции курсора без OFFSET и без COUNT.
+    String CARD_RESPONSE_PROJECTION = """
+            select new com.example.bankrest.dto.card.CardResponseDto(
+                c.id, concat('**** **** **** ', c.lastDigits), c.cardholderName, c.balance, c.availableBalance,
+                c.currency, c.expiryDate, c.status, c.createdAt, c.updatedAt)
+            from Card c
+            """;
+
+    @Query(CARD_RESPONSE_PROJECTION + "order by c.createdAt desc, c.id desc")
+    List<CardResponseDto> findFirstPage(Limit limit);
+
+    @Query(CARD_RESPONSE_PROJECTION + """
+            where (c.createdAt, c.id) < (:createdAt, :id)
+            order by c.createdAt desc, c.id desc
+            """)
+    List<CardResponseDto> findPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") Long id,
+                                        Limit limit);
+
+    @Query(CARD_RESPONSE_PROJECTION + """
+            where c.user.id = :userId
+            order by c.createdAt desc, c.id desc
+            """)
+    List<CardResponseDto> findUserFirstPage(@Param("userId") Long userId, Limit limit);
+
+    @Query(CARD_RESPONSE_PROJECTION + """
+            where c.user.id = :userId and (c.createdAt, c.id) < (:createdAt, :id)
+            order by c.createdAt desc, c.id desc
+            """)
+    List<CardResponseDto> findUserPageAfter(@Param("userId") Long userId,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") Long id,
+                                            Limit limit);
+
+    /// Изменения для синхронизации: карты с updated_at в (курсор, until] по индексу (user_id, updated_at, id).
+    /// Верхняя граница отсекает свежие строки, которые еще могут обогнать незакоммиченные изменения.
+    @Query(CARD_RESPONSE_PROJECTION + """
+            where c.user.id = :userId and c.updatedAt <= :until
+            order by c.updatedAt, c.id
+            """)
+    List<CardResponseDto> findUserChangesFirstPage(@Param("userId") Long userId,
+                                                   @Param("until") LocalDateTime until,
+                                                   Limit limit);
+
+    @Query(CARD_RESPONSE_PROJECTION + """
+            where c.user.id = :userId and (c.updatedAt, c.id) > (:updatedAt, :id) and c.updatedAt <= :until
+            order by c.updatedAt, c.id
+            """)
+    List<CardResponseDto> findUserChangesAfter(@Param("userId") Long userId,
+                                               @Param("updatedAt") LocalDateTime updatedAt,
+                                               @Param("id") Long id,
+                                               @Param("until") LocalDateTime until,
+                                               Limit limit);
+
+    /// Удаленные карты пользователя из card_tombstones, записи в них делает триггер на удаление из cards.
+    @Query(value = """
+            SELECT card_id FROM card_tombstones
+            WHERE user_id = :userId AND deleted_at > :since AND deleted_at <= :until
+            ORDER BY card_id
+            """, nativeQuery = true)
+    List<Long> findDeletedCardIds(@Param("userId") Long userId,
+                                  @Param("since") LocalDateTime since,
+                                  @Param("until") LocalDateTime until);
+
+    /// Удаляет записи об удаленных картах старше срока хранения; срок считается по часам базы, как и deleted_at.
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM card_tombstones WHERE deleted_at < localtimestamp - make_interval(days => :retentionDays)",
+            nativeQuery = true)
+    int deleteTombstonesOlderThan(@Param("retentionDays") int retentionDays);
+
+    /// Текущее время базы в тех же единицах, что updated_at и deleted_at.
+    @Query(value = "SELECT localtimestamp", nativeQuery = true)
+    LocalDateTime findDatabaseTime();
+
+    long countByUser_Id(Long userId);
+
+    /// Оценка числа строк из статистики планировщика; -1, если таблица еще ни разу не анализировалась.
+    @Query(value = "SELECT CAST(reltuples AS BIGINT) FROM pg_class WHERE oid = CAST('cards' AS regclass)", nativeQuery = true)
+    long estimateCount();
 
     Optional<Card> findByIdAndUser_Id(@NotNull Long id, @NotNull Long user_id);
 
+    boolean existsByIdAndUser_Id(@NotNull Long id, @NotNull Long user_id);
+
+    long countByIdInAndUser_Id(@NotNull Collection<Long> ids, @NotNull Long user_id);
+
+    /// Баланс без загрузки сущности: c.user.id сравнивается по внешнему ключу, пользователь не подтягивается.
+    @Query("""
+            select new com.example.bankrest.dto.card.CardBalanceView(c.cardholderName, c.balance)
+            from Card c where c.id = :cardId and c.user.id = :userId
+            """)
+    Optional<CardBalanceView> findBalanceByIdAndUserId(@Param("cardId") Long cardId, @Param("userId") Long userId);
+
+    /// Балансы выбранных карт пользователя одним запросом по первичному ключу; чужие id отсекает условие на user_id.
+    @Query("""
+            select new com.example.bankrest.dto.card.CardBalanceRow(c.id, c.cardholderName, c.balance, c.currency)
+            from Card c where c.id in :cardIds and c.user.id = :userId
+            order by c.id
+            """)
+    List<CardBalanceRow> findBalancesByIdInAndUserId(@Param("cardIds") Collection<Long> cardIds, @Param("userId") Long userId);
+
+    /// Балансы всех карт пользователя по индексу user_id.
+    @Query("""
+            select new com.example.bankrest.dto.card.CardBalanceRow(c.id, c.cardholderName, c.balance, c.currency)
+            from Card c where c.user.id = :userId
+            order by c.id
+            """)
+    List<CardBalanceRow> findBalancesByUserId(@Param("userId") Long userId);
+
+    /// Версия карты для ETag баланса: любое изменение баланса обновляет updated_at.
+    @Query("select coalesce(c.updatedAt, c.createdAt) from Card c where c.id = :cardId and c.user.id = :userId")
+    Optional<LocalDateTime> findVersionByIdAndUserId(@Param("cardId") Long cardId, @Param("userId") Long userId);
+
+    /// Отпечаток набора карт пользователя для ETag списка: число карт и хэш пар (id, updated_at).
+    /// Меняется при добавлении, удалении и любом обновлении карты, даже если max(updated_at) остался прежним.
+    @Query(value = """
+            SELECT count(*) || ':' || coalesce(md5(string_agg(id || ':' || coalesce(updated_at, created_at), ',' ORDER BY id)), '')
+            FROM cards WHERE user_id = :userId
+            """, nativeQuery = true)
+    String findCardsVersionByUserId(@Param("userId") Long userId);
+
     Optional<Boolean> deleteCardById(@NotNull Long id);
 
     Optional<Card> findByUser_IdAndStatus(@NotNull Long userId, Status status);
@@ -31,4 +161,45 @@ public interface CardRepository extends JpaRepository<Card, Long> {
     @Query("select c from Card c where c.id = :cardId")
     Optional<Card> findByIdWithLock(@Param("cardId") Long cardId);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id in :cardIds order by c.id")
+    List<Card> findAllByIdInWithLock(@Param("cardIds") Collection<Long> cardIds);
+
+    /// Холд: уменьшает доступный остаток одним условным UPDATE, строка блокируется только на время этого запроса и коммита.
+    /// У native UPDATE указано пространство cards: без него Hibernate после коммита сбросил бы весь второй уровень кэша,
+    /// а так - только регион Card.
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "cards"))
+    @Query(value = """
+            UPDATE cards SET available_balance = available_balance - :amount, updated_at = now()
+            WHERE id = :cardId AND status = 'ACTIVE' AND available_balance >= :amount
+            """, nativeQuery = true)
+    int reserveAvailable(@Param("cardId") Long cardId, @Param("amount") long amount);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "cards"))
+    @Query(value = "UPDATE cards SET available_balance = available_balance + :amount, updated_at = now() WHERE id = :cardId",
+            nativeQuery = true)
+    int releaseAvailable(@Param("cardId") Long cardId, @Param("amount") long amount);
+
+    /// Списание по захваченному холду: доступный остаток уже уменьшен при авторизации.
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "cards"))
+    @Query(value = "UPDATE cards SET balance = balance - :amount, updated_at = now() WHERE id = :cardId",
+            nativeQuery = true)
+    int debitHeld(@Param("cardId") Long cardId, @Param("amount") long amount);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "cards"))
+    @Query(value = """
+            UPDATE cards SET balance = balance + :amount, available_balance = available_balance + :amount, updated_at = now()
+            WHERE id = :cardId AND status = 'ACTIVE'
+            """, nativeQuery = true)
+    int credit(@Param("cardId") Long cardId, @Param("amount") long amount);
+
+    @Query("select min(c.id) from Card c")
+    Long findMinId();
+
+    @Query("select max(c.id) from Card c")
+    Long findMaxId();
 }
@@ -0,0 +1,13 @@
+package com.example.bankrest.repository;
+
+import com.example.bankrest.dto.card.CardResponseDto;
+import com.example.bankrest.dto.card.CardSearchFilter;
+import com.example.bankrest.util.CursorCodec;
+
+import java.util.List;
+
+public interface CardSearchRepository {
+
+    /// Карты по фильтру, новые первыми, начиная после позиции after (null - первая страница).
+    List<CardResponseDto> search(CardSearchFilter filter, CursorCodec.Position after, int limit);
+}
@@ -0,0 +1,87 @@
+package com.example.bankrest.repository;
+
+import com.example.bankrest.dto.card.CardResponseDto;
+import com.example.bankrest.dto.card.CardSearchFilter;
+import com.example.bankrest.entity.Card;
+import com.example.bankrest.util.CursorCodec;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Поиск собирается через Criteria API только из заданных условий, поэтому планировщик видит простой запрос
+ * и выбирает подходящий индекс: по статусу, держателю, сроку, последним цифрам или триграммам имени.
+ * Keyset по (created_at, id) записан через OR: сравнение кортежей в Criteria API не выражается.
+ */
+class CardSearchRepositoryImpl implements CardSearchRepository {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<CardResponseDto> search(CardSearchFilter filter, CursorCodec.Position after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CardResponseDto> query = cb.createQuery(CardResponseDto.class);
+        Root<Card> card = query.from(Card.class);
+        Path<LocalDateTime> createdAt = card.get("createdAt");
+        Path<Long> id = card.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getStatus() != null) {
+            predicates.add(cb.equal(card.get("status"), filter.getStatus()));
+        }
+        if (filter.getUserId() != null) {
+            predicates.add(cb.equal(card.get("user").get("id"), filter.getUserId()));
+        }
+        if (filter.getExpiresFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(card.<LocalDate>get("expiryDate"), filter.getExpiresFrom()));
+        }
+        if (filter.getExpiresTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(card.<LocalDate>get("expiryDate"), filter.getExpiresTo()));
+        }
+        if (filter.getLastDigits() != null) {
+            predicates.add(cb.equal(card.get("lastDigits"), filter.getLastDigits()));
+        }
+        if (filter.getHolderNamePrefix() != null) {
+            String pattern = escapeLike(filter.getHolderNamePrefix().toLowerCase(Locale.ROOT)) + "%";
+            predicates.add(cb.like(cb.lower(card.get("cardholderName")), pattern, LIKE_ESCAPE));
+        }
+        if (after != null) {
+            predicates.add(cb.or(
+                    cb.lessThan(createdAt, after.createdAt()),
+                    cb.and(cb.equal(createdAt, after.createdAt()), cb.lessThan(id, after.id()))));
+        }
+
+        query.select(cb.construct(CardResponseDto.class,
+                        id,
+                        cb.concat("**** **** **** ", card.get("lastDigits")),
+                        card.get("cardholderName"),
+                        card.get("balance"),
+                        card.get("availableBalance"),
+                        card.get("currency"),
+                        card.get("expiryDate"),
+                        card.get("status"),
+                        createdAt,
+                        card.get("updatedAt")))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(cb.desc(createdAt), cb.desc(id));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
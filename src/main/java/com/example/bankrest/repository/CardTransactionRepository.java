@@ -0,0 +1,38 @@
+package com.example.bankrest.repository;
+
+import com.example.bankrest.entity.CardTransaction;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/// Keyset-пагинация по индексу (card_id, created_at, id): любая страница - один проход по индексу без OFFSET и COUNT.
+/// Таблица секционирована по месяцам created_at, поэтому запросы ограничены снизу since (срок хранения истории),
+/// а страница после курсора - еще и сверху, чтобы планировщик отбрасывал лишние секции.
+public interface CardTransactionRepository extends JpaRepository<CardTransaction, Long> {
+
+    @Query(value = """
+            SELECT * FROM card_transactions
+            WHERE card_id = :cardId AND created_at >= :since
+            ORDER BY created_at DESC, id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<CardTransaction> findFirstPage(@Param("cardId") Long cardId,
+                                        @Param("since") LocalDateTime since,
+                                        @Param("limit") int limit);
+
+    @Query(value = """
+            SELECT * FROM card_transactions
+            WHERE card_id = :cardId AND created_at >= :since AND created_at <= :createdAt
+              AND (created_at, id) < (:createdAt, :id)
+            ORDER BY created_at DESC, id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<CardTransaction> findPageAfter(@Param("cardId") Long cardId,
+                                        @Param("since") LocalDateTime since,
+                                        @Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") Long id,
+                                        @Param("limit") int limit);
+}
@@ -0,0 +1,42 @@
+package com.example.bankrest.repository;
+
+import com.example.bankrest.entity.Hold;
+import com.example.bankrest.entity.HoldStatus;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface HoldRepository extends JpaRepository<Hold, Long> {
+
+    Optional<Hold> findByIdAndUserId(@NotNull Long id, @NotNull Long userId);
+
+    /// Переводит холд из ACTIVE в новый статус; 0 - холд уже завершен другим запросом или просрочен.
+    @Modifying
+    @Query("update Hold h set h.status = :status, h.updatedAt = :updatedAt " +
+            "where h.id = :id and h.status = com.example.bankrest.entity.HoldStatus.ACTIVE and h.expiresAt > :updatedAt")
+    int completeActive(@Param("id") Long id,
+                       @Param("status") HoldStatus status,
+                       @Param("updatedAt") LocalDateTime updatedAt);
+
+    /// Просроченные холды, которые не заняты сейчас capture/void или другим экземпляром чистильщика.
+    @Query(value = """
+            SELECT * FROM holds
+            WHERE status = 'ACTIVE' AND expires_at <= :now
+            ORDER BY expires_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Hold> findExpiredForUpdateSkipLocked(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("update Hold h set h.status = com.example.bankrest.entity.HoldStatus.EXPIRED, h.updatedAt = :updatedAt " +
+            "where h.id in :ids")
+    int markExpired(@Param("ids") Collection<Long> ids, @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -0,0 +1,86 @@
+package com.example.bankrest.repository;
+
+import com.example.bankrest.entity.ReconciliationRun;
+import com.example.bankrest.entity.ReconciliationRunStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, Long> {
+
+    boolean existsByStatus(ReconciliationRunStatus status);
+
+    /// Прибавляет итоги диапазона, диапазоны обновляют строку запуска из разных потоков.
+    /// Вызывается в одной транзакции с {@link #addCurrencyTotals} для каждой валюты диапазона.
+    /// Пространство reconciliation_runs не дает Hibernate сбрасывать после этого UPDATE весь второй уровень кэша.
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "reconciliation_runs"))
+    @Query(value = """
+            UPDATE reconciliation_runs
+            SET ranges_done = ranges_done + 1,
+                cards_checked = cards_checked + :cards,
+                drifted_cards = drifted_cards + :drifted,
+                heartbeat_at = now()
+            WHERE id = :id
+            """, nativeQuery = true)
+    int addRange(@Param("id") Long id,
+                 @Param("cards") long cards,
+                 @Param("drifted") long drifted);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "reconciliation_currency_totals"))
+    @Query(value = """
+            INSERT INTO reconciliation_currency_totals AS t
+                (run_id, currency, cards, total_balance, total_opening_balance, ledger_net, fx_net, postings_net)
+            VALUES (:id, :currency, :cards, :balance, :openingBalance, :ledgerNet, :fxNet, :postingsNet)
+            ON CONFLICT (run_id, currency) DO UPDATE
+            SET cards = t.cards + excluded.cards,
+                total_balance = t.total_balance + excluded.total_balance,
+                total_opening_balance = t.total_opening_balance + excluded.total_opening_balance,
+                ledger_net = t.ledger_net + excluded.ledger_net,
+                fx_net = t.fx_net + excluded.fx_net,
+                postings_net = t.postings_net + excluded.postings_net
+            """, nativeQuery = true)
+    int addCurrencyTotals(@Param("id") Long id,
+                          @Param("currency") String currency,
+                          @Param("cards") long cards,
+                          @Param("balance") long balance,
+                          @Param("openingBalance") long openingBalance,
+                          @Param("ledgerNet") long ledgerNet,
+                          @Param("fxNet") long fxNet,
+                          @Param("postingsNet") long postingsNet);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "reconciliation_runs"))
+    @Query(value = "UPDATE reconciliation_runs SET ranges_failed = ranges_failed + 1, heartbeat_at = now() WHERE id = :id", nativeQuery = true)
+    int addFailedRange(@Param("id") Long id);
+
+    /// Только для RUNNING: запуск, который уже заменили как брошенный, не должен перезаписать свой FAILED.
+    @Transactional
+    @Modifying
+    @Query("update ReconciliationRun r set r.status = :status, r.completedAt = :completedAt "
+            + "where r.id = :id and r.status = com.example.bankrest.entity.ReconciliationRunStatus.RUNNING")
+    int complete(@Param("id") Long id,
+                 @Param("status") ReconciliationRunStatus status,
+                 @Param("completedAt") LocalDateTime completedAt);
+
+    /// heartbeat_at и порог сравниваются по часам базы, поэтому расхождение часов узлов не влияет на результат.
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "reconciliation_runs"))
+    @Query(value = """
+            UPDATE reconciliation_runs SET status = 'FAILED', completed_at = now()
+            WHERE status = 'RUNNING' AND heartbeat_at < now() - make_interval(secs => :staleAfterSeconds)
+            """, nativeQuery = true)
+    int failAbandoned(@Param("staleAfterSeconds") long staleAfterSeconds);
+}
@@ -0,0 +1,30 @@
+package com.example.bankrest.repository;
+
+import com.example.bankrest.entity.ScheduledTransfer;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ScheduledTransferRepository extends JpaRepository<ScheduledTransfer, Long> {
+
+    Optional<ScheduledTransfer> findByIdAndUserId(@NotNull Long id, @NotNull Long userId);
+
+    Page<ScheduledTransfer> findByUserId(@NotNull Long userId, Pageable pageable);
+
+    /// Пачка наступивших поручений. Строки, которые сейчас забирает другой узел, пропускаются.
+    @Query(value = """
+            SELECT * FROM scheduled_transfers
+            WHERE status = 'ACTIVE' AND next_run_at <= :now
+            ORDER BY next_run_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<ScheduledTransfer> findDueForUpdateSkipLocked(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
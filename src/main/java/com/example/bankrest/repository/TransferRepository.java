@@ -0,0 +1,51 @@
+package com.example.bankrest.repository;
+
+import com.example.bankrest.entity.Transfer;
+import com.example.bankrest.entity.TransferStatus;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface TransferRepository extends JpaRepository<Transfer, Long> {
+
+    Optional<Transfer> findByIdAndUserId(@NotNull Long id, @NotNull Long userId);
+
+    /// Пачка зависших переводов PENDING. Строки, которые сейчас забирает другой узел, пропускаются.
+    @Query(value = """
+            SELECT * FROM transfers
+            WHERE status = 'PENDING' AND updated_at < :staleBefore
+            ORDER BY updated_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Transfer> findStaleForUpdateSkipLocked(@Param("staleBefore") LocalDateTime staleBefore, @Param("limit") int limit);
+
+    /// Блокирует переводы, еще ожидающие исполнения, и возвращает их id. Повторное исполнение того же перевода
+    /// ждет здесь коммита первого и уже не видит его в PENDING.
+    @Query(value = "SELECT id FROM transfers WHERE id IN (:ids) AND status = 'PENDING' ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockPending(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update Transfer t set t.status = :status, t.errorMessage = :errorMessage, t.updatedAt = :updatedAt " +
+            "where t.id in :ids and t.status = com.example.bankrest.entity.TransferStatus.PENDING")
+    int completePending(@Param("ids") Collection<Long> ids,
+                        @Param("status") TransferStatus status,
+                        @Param("errorMessage") String errorMessage,
+                        @Param("updatedAt") LocalDateTime updatedAt);
+
+    /// Решение по переводу, задержанному оценкой риска: PENDING для повторного исполнения или FAILED.
+    @Modifying
+    @Query("update Transfer t set t.status = :status, t.errorMessage = :errorMessage, t.updatedAt = :updatedAt " +
+            "where t.id = :id and t.status = com.example.bankrest.entity.TransferStatus.HELD")
+    int reviewHeld(@Param("id") Long id,
+                   @Param("status") TransferStatus status,
+                   @Param("errorMessage") String errorMessage,
+                   @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -2,14 +2,27 @@ package com.example.bankrest.repository;
 
 import com.example.bankrest.entity.Role;
 import com.example.bankrest.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    /// Кэш запросов хранит только id, сам пользователь берется из региона User.
+    /// Любая запись в users через Hibernate делает закэшированные результаты недействительными.
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByUsername(String username);
 
+    /// Только id по индексу username, без загрузки пользователя - для путей, которым нужна лишь проверка владельца.
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("select u.id from User u where u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
     boolean existsByUsername(String username);
 
     boolean existsByRole(Role role);
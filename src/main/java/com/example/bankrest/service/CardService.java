@@ -1,28 +1,55 @@
 package com.example.bankrest.service;
 
 import com.example.bankrest.component.CardNumberGenerator;
+import com.example.bankrest.component.FxRateProvider;
+import com.example.bankrest.component.FxRates;
+import com.example.bankrest.component.TransactionLedger;
+import com.example.bankrest.component.TransferLimitTracker;
+import com.example.bankrest.component.TransferRiskScorer;
+import com.example.bankrest.dto.card.CardBalanceDto;
+import com.example.bankrest.dto.card.CardBalanceRow;
+import com.example.bankrest.dto.card.CardBalanceView;
+import com.example.bankrest.dto.card.CardChangesDto;
+import com.example.bankrest.dto.card.CardCountMode;
+import com.example.bankrest.dto.card.CardField;
 import com.example.bankrest.dto.card.CardInfo;
+import com.example.bankrest.dto.card.CardPageDto;
 import com.example.bankrest.dto.card.CardResponseDto;
+import com.example.bankrest.dto.card.CardSearchFilter;
+import com.example.bankrest.dto.card.CardTransactionDto;
+import com.example.bankrest.dto.card.CardTransactionPageDto;
 import com.example.bankrest.dto.card.TransferCardRequestDto;
+import com.example.bankrest.dto.card.TransferCommand;
+import com.example.bankrest.dto.card.TransferResult;
+import com.example.bankrest.engine.BalanceEngine;
 import com.example.bankrest.entity.Card;
+import com.example.bankrest.entity.CardTransaction;
+import com.example.bankrest.entity.Money;
 import com.example.bankrest.entity.Status;
+import com.example.bankrest.entity.TransferStatus;
 import com.example.bankrest.entity.User;
 import com.example.bankrest.exception.*;
 import com.example.bankrest.repository.CardRepository;
+import com.example.bankrest.repository.CardTransactionRepository;
+import com.example.bankrest.repository.TransferRepository;
 import com.example.bankrest.repository.UserRepository;
+import com.example.bankrest.util.CursorCodec;
+import com.google.common.hash.Hashing;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
 
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
@@ -32,21 +59,42 @@ public class CardService {
 
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
+    private final TransferRepository transferRepository;
     private final CardNumberGenerator cardNumberGenerator;
-
-    private static final BigDecimal DEFAULT_BALANCE_WHEN_CREATING_CARD = BigDecimal.ZERO;
+    private final BalanceEngine balanceEngine;
+    private final TransferLimitTracker transferLimitTracker;
+    private final TransferRiskScorer transferRiskScorer;
+    private final TransactionLedger transactionLedger;
+    private final CardTransactionRepository cardTransactionRepository;
+    private final FxRateProvider fxRateProvider;
+
+    private static final Money DEFAULT_BALANCE_WHEN_CREATING_CARD = Money.ZERO;
     private static final Status DEFAULT_STATUS_WHEN_CREATING_CARD = Status.PENDING_ACTIVE;
     private static final LocalDate DEFAULT_EXPIRY_DATE_WHEN_CREATING_CARD = LocalDate.now().plusYears(5);
+    private static final int MAX_TRANSACTIONS_PAGE_SIZE = 100;
+    private static final int MAX_CARDS_PAGE_SIZE = 100;
+    private static final int MAX_BALANCE_CARD_IDS = 100;
+
+    @Value("${transfer.history.retention-months:24}")
+    private int historyRetentionMonths;
+
+    @Value("${card-changes.settle-seconds:15}")
+    private long changesSettleSeconds;
+
+    @Value("${card-changes.tombstone-retention-days:30}")
+    private int tombstoneRetentionDays;
 
+    /// Без указания валюты карта открывается в валюте по умолчанию.
     @Transactional
-    public CardResponseDto requestCreateCard() {
+    public CardResponseDto requestCreateCard(String currency) {
+        String cardCurrency = resolveCurrency(currency);
         User user = getAuthenticatedUser();
 //        if (cardRepository.existsByUserAndStatus(user, DEFAULT_STATUS_WHEN_CREATING_CARD)) {
 //            log.error("CardService.requestCreateCard.fail.CardAlreadyHasPendingCard");
 //            throw new Card("Card already has pending card");
 //        }
         CardInfo cardInfo = cardNumberGenerator.generateUniqueCardNumber();
-        Card card = buildCard(cardInfo, user);
+        Card card = buildCard(cardInfo, user, cardCurrency);
         cardRepository.save(card);
 
         log.info("CardService.requestCreateCard.success.forUser: {}", user.getId());
@@ -64,7 +112,29 @@ public class CardService {
         return createResponse(card);
     }
 
-    private Card buildCard(CardInfo cardInfo, User user) {
+    /// Money хранит суммы с двумя знаками после запятой, а лимиты и оценка риска считают минорные единицы
+    /// без учета валюты. Поэтому карта открывается только в валюте с двумя знаками: не JPY и не KWD.
+    private String resolveCurrency(String currency) {
+        if (currency == null || currency.isBlank()) {
+            return fxRateProvider.getDefaultCurrency();
+        }
+        String normalized = currency.trim().toUpperCase(Locale.ROOT);
+        if (!fxRateProvider.current().supports(normalized) || !hasMoneyScale(normalized)) {
+            log.info("CardService.requestCreateCard.fail.unsupportedCurrency: {}", normalized);
+            throw new UnsupportedCurrencyException("Unsupported currency: " + normalized);
+        }
+        return normalized;
+    }
+
+    private static boolean hasMoneyScale(String currency) {
+        try {
+            return Currency.getInstance(currency).getDefaultFractionDigits() == Money.SCALE;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private Card buildCard(CardInfo cardInfo, User user, String currency) {
         return Card.builder()
                 .cardNumber(cardInfo.getCardNumber())
                 .lastDigits(cardInfo.getLastDigits())
@@ -72,6 +142,8 @@ public class CardService {
                 .user(user)
                 .cardholderName(buildCardHolderName(user.getFirstname(), user.getLastname()))
                 .balance(DEFAULT_BALANCE_WHEN_CREATING_CARD)
+                .availableBalance(DEFAULT_BALANCE_WHEN_CREATING_CARD)
+                .currency(currency)
                 .status(DEFAULT_STATUS_WHEN_CREATING_CARD)
                 .expiryDate(DEFAULT_EXPIRY_DATE_WHEN_CREATING_CARD)
                 .build();
@@ -87,8 +159,12 @@ public class CardService {
                 .masked(getMask(card.getLastDigits()))
                 .cardHolderName(card.getCardholderName())
                 .balance(card.getBalance())
+                .availableBalance(card.getAvailableBalance())
+                .currency(card.getCurrency())
                 .expiryDate(card.getExpiryDate())
                 .status(card.getStatus())
+                .createdAt(card.getCreatedAt())
+                .updatedAt(card.getUpdatedAt())
                 .build();
     }
 
@@ -96,62 +172,300 @@ public class CardService {
         return "**** **** **** " + lastDigits;
     }
 
-    public Page<CardResponseDto> getUserCards(int page, int size) {
+    /// Карты пользователя, новые первыми. Итог считается только по запросу; оценки для карт одного пользователя нет,
+    /// ESTIMATE дает точный подсчет по индексу user_id. fields сужает и запрос, и ответ до перечисленных полей.
+    public CardPageDto getUserCards(String cursor, int size, CardCountMode countMode, String fields) {
         User user = getAuthenticatedUser();
-        Page<Card> cards = cardRepository.findByUser_Id(user.getId(),
-                PageRequest.of(page, size, Sort.by("createdAt").descending()));
-        log.info("CardService.getUserCards.success: {}", cards.getTotalElements());
+        int limit = Math.clamp(size, 1, MAX_CARDS_PAGE_SIZE);
+        Set<CardField> selected = CardField.parse(fields);
+
+        List<CardResponseDto> cards;
+        if (!selected.isEmpty()) {
+            cards = cardRepository.findPageWithFields(user.getId(), decodeCursor(cursor), selected, limit + 1);
+        } else if (cursor == null || cursor.isBlank()) {
+            cards = cardRepository.findUserFirstPage(user.getId(), Limit.of(limit + 1));
+        } else {
+            CursorCodec.Position position = CursorCodec.decode(cursor);
+            cards = cardRepository.findUserPageAfter(user.getId(), position.createdAt(), position.id(), Limit.of(limit + 1));
+        }
+        Long total = countMode == CardCountMode.NONE ? null : cardRepository.countByUser_Id(user.getId());
+        log.info("CardService.getUserCards.success.forUser: {}", user.getId());
 
-        return cards.map(this::createResponse);
+        return createCardPage(cards, limit, total, total == null ? null : false, selected);
     }
 
-    public BigDecimal getBalance(Long cardId) {
-        User user = getAuthenticatedUser();
-        Card card = cardRepository.findByIdAndUser_Id(cardId,
-                user.getId()).orElseThrow(() -> new CardNotFoundException("Card not found"));
-        log.info("CardService.getBalance.success.forUser: {}", card.getUser().getId());
+    /**
+     * Strong ETag списка карт: отпечаток карт пользователя плюс параметры страницы. Считается одним запросом
+     * по индексу user_id без построения ответа, поэтому неизмененный список отдается как 304 почти бесплатно.
+     */
+    public String getUserCardsEtag(String cursor, int size, CardCountMode countMode, String fields) {
+        Long userId = getAuthenticatedUserId();
+        String version = cardRepository.findCardsVersionByUserId(userId);
+        return createEtag(userId + "|" + version + "|" + cursor + "|" + size + "|" + countMode + "|" + CardField.parse(fields));
+    }
+
+    /**
+     * Изменения карт пользователя после курсора since: измененные карты по (updated_at, id) и id удаленных карт.
+     * Без курсора отдаются все карты, удаленные не нужны. Курсор ответа продолжает синхронизацию, даже если изменений не было.
+     * <p>
+     * Отдаются только изменения старше settle-seconds: updated_at ставится до коммита, и транзакция, начатая раньше,
+     * может закоммититься уже после того, как курсор прошел ее время. Окно должно быть больше самой долгой
+     * транзакции над картами. С включенным движком балансов баланс в ответе - на момент последнего снимка.
+     * <p>
+     * updated_at, deleted_at и граница until берутся с часов базы. Записи об удаленных картах хранятся
+     * tombstone-retention-days, поэтому курсор старше этого срока отклоняется: клиент начинает синхронизацию заново.
+     */
+    public CardChangesDto getCardChanges(String since, int size) {
+        Long userId = getAuthenticatedUserId();
+        int limit = Math.clamp(size, 1, MAX_CARDS_PAGE_SIZE);
+        LocalDateTime now = cardRepository.findDatabaseTime();
+        LocalDateTime until = now.minusSeconds(changesSettleSeconds);
+
+        CursorCodec.Position position = null;
+        List<CardResponseDto> cards;
+        if (since == null || since.isBlank()) {
+            cards = cardRepository.findUserChangesFirstPage(userId, until, Limit.of(limit + 1));
+        } else {
+            position = CursorCodec.decode(since);
+            if (position.createdAt().isBefore(now.minusDays(tombstoneRetentionDays))) {
+                log.info("CardService.getCardChanges.fail.cursorExpired.forUser: {}", userId);
+                throw new CursorExpiredException("Cursor is older than the deleted cards history");
+            }
+            if (position.createdAt().isAfter(until)) {
+                until = position.createdAt();
+            }
+            cards = cardRepository.findUserChangesAfter(userId, position.createdAt(), position.id(), until, Limit.of(limit + 1));
+        }
+
+        boolean hasMore = cards.size() > limit;
+        List<CardResponseDto> page = hasMore ? cards.subList(0, limit) : cards;
+        CardResponseDto last = page.isEmpty() ? null : page.get(page.size() - 1);
+        // удаленные карты отдаются по ту же границу, что и измененные: следующая страница начнет с нее
+        LocalDateTime pageEnd = hasMore ? last.getUpdatedAt() : until;
+        List<Long> deleted = position == null
+                ? List.of()
+                : cardRepository.findDeletedCardIds(userId, position.createdAt(), pageEnd);
+        log.info("CardService.getCardChanges.success.forUser: {}, {} changed, {} deleted", userId, page.size(), deleted.size());
+
+        return CardChangesDto.builder()
+                .changed(page)
+                .deleted(deleted)
+                .nextCursor(hasMore ? CursorCodec.encode(last.getUpdatedAt(), last.getId()) : CursorCodec.encode(until, Long.MAX_VALUE))
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /// С движком балансов cards.updated_at не меняется до снимка, поэтому тег считается от баланса в движке.
+    public String getBalanceEtag(Long cardId) {
+        Long userId = getAuthenticatedUserId();
+        if (balanceEngine.isEnabled()) {
+            CardBalanceView card = cardRepository.findBalanceByIdAndUserId(cardId, userId)
+                    .orElseThrow(() -> new CardNotFoundException("Card not found"));
+            long balance = balanceEngine.getBalance(card.getCardholderName(), cardId, card.getBalance().getMinorUnits());
+            return createEtag(userId + "|" + cardId + "|" + balance);
+        }
+        LocalDateTime version = cardRepository.findVersionByIdAndUserId(cardId, userId)
+                .orElseThrow(() -> new CardNotFoundException("Card not found"));
+        return createEtag(userId + "|" + cardId + "|" + version);
+    }
 
+    private static String createEtag(String version) {
+        return "\"" + Hashing.sha256().hashString(version, StandardCharsets.UTF_8) + "\"";
+    }
+
+    /// Самый частый запрос: два скалярных запроса (id пользователя и баланс карты) вместо загрузки User и Card.
+    public Money getBalance(Long cardId) {
+        Long userId = getAuthenticatedUserId();
+        CardBalanceView card = cardRepository.findBalanceByIdAndUserId(cardId, userId)
+                .orElseThrow(() -> new CardNotFoundException("Card not found"));
+        log.info("CardService.getBalance.success.forUser: {}", userId);
+
+        if (balanceEngine.isEnabled()) {
+            long balance = balanceEngine.getBalance(card.getCardholderName(), cardId,
+                    card.getBalance().getMinorUnits());
+            return Money.ofMinorUnits(balance);
+        }
         return card.getBalance();
     }
 
+    /**
+     * Балансы нескольких карт пользователя одним запросом вместо запроса на каждую карту. Без cardIds - все карты
+     * пользователя. Несуществующие и чужие карты в ответ не попадают, ошибки по ним нет.
+     */
+    public List<CardBalanceDto> getBalances(List<Long> cardIds) {
+        Long userId = getAuthenticatedUserId();
+        List<CardBalanceRow> rows;
+        if (cardIds == null || cardIds.isEmpty()) {
+            rows = cardRepository.findBalancesByUserId(userId);
+        } else {
+            Set<Long> uniqueIds = new HashSet<>(cardIds);
+            if (uniqueIds.size() > MAX_BALANCE_CARD_IDS) {
+                throw new TooManyCardIdsException("At most " + MAX_BALANCE_CARD_IDS + " card ids per request");
+            }
+            rows = cardRepository.findBalancesByIdInAndUserId(uniqueIds, userId);
+        }
+        log.info("CardService.getBalances.success.forUser: {}, {} cards", userId, rows.size());
+
+        return rows.stream().map(this::createBalanceResponse).toList();
+    }
+
+    private CardBalanceDto createBalanceResponse(CardBalanceRow row) {
+        Money balance = balanceEngine.isEnabled()
+                ? Money.ofMinorUnits(balanceEngine.getBalance(row.getCardholderName(), row.getCardId(), row.getBalance().getMinorUnits()))
+                : row.getBalance();
+        return CardBalanceDto.builder()
+                .cardId(row.getCardId())
+                .balance(balance)
+                .currency(row.getCurrency())
+                .build();
+    }
+
+    /**
+     * История операций карты, новые первыми. Страница продолжается с позиции курсора из предыдущего ответа;
+     * запрашивается на одну строку больше, чтобы понять, есть ли следующая страница, без COUNT.
+     */
+    public CardTransactionPageDto getCardTransactions(Long cardId, String cursor, int size) {
+        Long userId = getAuthenticatedUserId();
+        if (!cardRepository.existsByIdAndUser_Id(cardId, userId)) {
+            throw new CardNotFoundException("Card not found");
+        }
+        int limit = Math.clamp(size, 1, MAX_TRANSACTIONS_PAGE_SIZE);
+
+        LocalDateTime since = LocalDateTime.now().minusMonths(historyRetentionMonths);
+        List<CardTransaction> transactions;
+        if (cursor == null || cursor.isBlank()) {
+            transactions = cardTransactionRepository.findFirstPage(cardId, since, limit + 1);
+        } else {
+            CursorCodec.Position position = CursorCodec.decode(cursor);
+            transactions = cardTransactionRepository.findPageAfter(cardId, since, position.createdAt(), position.id(), limit + 1);
+        }
+
+        boolean hasNext = transactions.size() > limit;
+        List<CardTransaction> page = hasNext ? transactions.subList(0, limit) : transactions;
+        CardTransaction last = page.isEmpty() ? null : page.get(page.size() - 1);
+        log.info("CardService.getCardTransactions.success.forUser: {}", userId);
+
+        return CardTransactionPageDto.builder()
+                .items(page.stream().map(this::createTransactionResponse).toList())
+                .nextCursor(hasNext ? CursorCodec.encode(last.getCreatedAt(), last.getId()) : null)
+                .build();
+    }
+
+    private CardTransactionDto createTransactionResponse(CardTransaction transaction) {
+        return CardTransactionDto.builder()
+                .id(transaction.getId())
+                .counterpartyCardId(transaction.getCounterpartyCardId())
+                .direction(transaction.getDirection())
+                .amount(transaction.getAmount())
+                .createdAt(transaction.getCreatedAt())
+                .build();
+    }
+
     private User getAuthenticatedUser() {
         UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         return userRepository.findByUsername(userDetails.getUsername()).orElseThrow(() -> new UserNotFoundException("User not found"));
     }
 
+    private Long getAuthenticatedUserId() {
+        UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return userRepository.findIdByUsername(userDetails.getUsername()).orElseThrow(() -> new UserNotFoundException("User not found"));
+    }
+
+    /**
+     * Все карты, новые первыми, keyset-пагинацией: глубина страницы не влияет на стоимость запроса.
+     * COUNT(*) по всей таблице выполняется только при EXACT; ESTIMATE берет число строк из статистики
+     * планировщика и откатывается на точный подсчет, если статистики еще нет.
+     */
     @PreAuthorize("hasRole('ADMIN')")
-    public Page<CardResponseDto> getAllCards(int page, int size) {
-        Page<Card> cards = cardRepository.findAll(PageRequest.of(page, size, Sort.by("createdAt").descending()));
-        log.info("CardService.getAllCards.success: {}", cards.getTotalElements());
+    public CardPageDto getAllCards(String cursor, int size, CardCountMode countMode, String fields) {
+        int limit = Math.clamp(size, 1, MAX_CARDS_PAGE_SIZE);
+        Set<CardField> selected = CardField.parse(fields);
+
+        List<CardResponseDto> cards;
+        if (!selected.isEmpty()) {
+            cards = cardRepository.findPageWithFields(null, decodeCursor(cursor), selected, limit + 1);
+        } else if (cursor == null || cursor.isBlank()) {
+            cards = cardRepository.findFirstPage(Limit.of(limit + 1));
+        } else {
+            CursorCodec.Position position = CursorCodec.decode(cursor);
+            cards = cardRepository.findPageAfter(position.createdAt(), position.id(), Limit.of(limit + 1));
+        }
+
+        Long total = null;
+        Boolean totalEstimated = null;
+        if (countMode == CardCountMode.ESTIMATE) {
+            long estimate = cardRepository.estimateCount();
+            totalEstimated = estimate >= 0;
+            total = totalEstimated ? estimate : cardRepository.count();
+        } else if (countMode == CardCountMode.EXACT) {
+            total = cardRepository.count();
+            totalEstimated = false;
+        }
+        log.info("CardService.getAllCards.success: {}", Math.min(cards.size(), limit));
+
+        return createCardPage(cards, limit, total, totalEstimated, selected);
+    }
+
+    /// Поиск карт по фильтру с той же keyset-пагинацией, что у списка всех карт; итог не считается.
+    @PreAuthorize("hasRole('ADMIN')")
+    public CardPageDto searchCards(CardSearchFilter filter, String cursor, int size) {
+        int limit = Math.clamp(size, 1, MAX_CARDS_PAGE_SIZE);
+        List<CardResponseDto> cards = cardRepository.search(filter, decodeCursor(cursor), limit + 1);
+        log.info("CardService.searchCards.success: {}", Math.min(cards.size(), limit));
+
+        return createCardPage(cards, limit, null, null, EnumSet.noneOf(CardField.class));
+    }
 
-        return cards.map(this::createResponse);
+    private static CursorCodec.Position decodeCursor(String cursor) {
+        return cursor == null || cursor.isBlank() ? null : CursorCodec.decode(cursor);
     }
 
+    /// Запрошено на одну карту больше страницы: лишняя строка означает, что есть следующая страница.
+    /// createdAt нужен для курсора и читается всегда, но в ответ попадает, только если его запросили.
+    private CardPageDto createCardPage(List<CardResponseDto> cards, int limit, Long total, Boolean totalEstimated,
+                                       Set<CardField> fields) {
+        boolean hasNext = cards.size() > limit;
+        List<CardResponseDto> page = hasNext ? cards.subList(0, limit) : cards;
+        CardResponseDto last = page.isEmpty() ? null : page.get(page.size() - 1);
+        List<CardResponseDto> items = fields.isEmpty() || fields.contains(CardField.CREATED_AT)
+                ? page
+                : page.stream().map(card -> card.toBuilder().createdAt(null).build()).toList();
+
+        return CardPageDto.builder()
+                .items(items)
+                .nextCursor(hasNext ? CursorCodec.encode(last.getCreatedAt(), last.getId()) : null)
+                .total(total)
+                .totalEstimated(totalEstimated)
+                .build();
+    }
+
+    /// Смена статуса не обращается к card.getUser(): владелец уже известен по id из запроса.
     @Transactional
     public CardResponseDto requestCardBlock(Long cardId) {
-        User user = getAuthenticatedUser();
+        Long userId = getAuthenticatedUserId();
         Card card = cardRepository.findByIdAndUser_Id(cardId,
-                user.getId()).orElseThrow(() -> new CardNotFoundException("Card not found"));
+                userId).orElseThrow(() -> new CardNotFoundException("Card not found"));
         if (card.getStatus().equals(Status.BLOCKED)) {
             throw new CardAlreadyBlockedException("Card already is blocked");
         } else {
             card.setStatus(Status.PENDING_BLOCK);
-            log.info("CardService.requestCardBlock.success.forUser: {}", card.getUser().getId());
+            log.info("CardService.requestCardBlock.success.forUser: {}", userId);
             return createResponse(card);
         }
     }
 
+    /// Карта читается с блокировкой, а не через findById: статус проверяется по строке из БД, а не по кэшу.
     @Transactional
     @PreAuthorize("hasRole('ADMIN')")
     public CardResponseDto cardBlock(Long cardId) {
-        Card card = cardRepository.findById(cardId)
+        Card card = cardRepository.findByIdWithLock(cardId)
                 .orElseThrow(() -> new CardNotFoundException("Card not found"));
         switch (card.getStatus()) {
             case ACTIVE:
                 throw new CardAlreadyActiveException("Card already activated");
             case PENDING_BLOCK:
                 card.setStatus(Status.BLOCKED);
-                log.info("CardService.cardBlock.success.forUser: {}", card.getUser().getId());
+                log.info("CardService.cardBlock.success.forCard: {}", cardId);
                 return createResponse(card);
             case BLOCKED:
                 throw new CardAlreadyBlockedException("Card already is blocked");
@@ -166,7 +480,7 @@ public class CardService {
     @Transactional
     @PreAuthorize("hasRole('ADMIN')")
     public CardResponseDto activateCard(Long cardId) {
-        Card card = cardRepository.findById(cardId)
+        Card card = cardRepository.findByIdWithLock(cardId)
                 .orElseThrow(() -> new CardNotFoundException("Card not found"));
         switch (card.getStatus()) {
             case ACTIVE:
@@ -175,7 +489,7 @@ public class CardService {
                 throw new CardPendingBlockException("Card waiting be block");
             case BLOCKED:
                 card.setStatus(Status.ACTIVE);
-                log.info("CardService.activateCard.success.forUser {}", card.getUser().getId());
+                log.info("CardService.activateCard.success.forCard: {}", cardId);
                 return createResponse(card);
             default:
                 throw new CardInvalidStatusException("Card status conflict");
@@ -189,8 +503,24 @@ public class CardService {
                 .orElseThrow(() -> new CardNotFoundException("Card not found"));
     }
 
+    /// Оценка риска и лимиты проверяются до блокировки строк: отклоненный перевод не занимает ни карты, ни соединение надолго.
+    /// При включенном движке балансов переводы идут только через {@link #moneyTransferThroughEngine}.
     @Transactional(timeout = 5)
     public void moneyTransfer(Long cardId, TransferCardRequestDto transferCardRequestDto) {
+        moneyTransfer(cardId, transferCardRequestDto, false);
+    }
+
+    /// При reviewed = true перевод уже одобрен администратором после задержки и оценка риска пропускается.
+    @Transactional(timeout = 5)
+    public void moneyTransfer(Long cardId, TransferCardRequestDto transferCardRequestDto, boolean reviewed) {
+        if (balanceEngine.isEnabled()) {
+            throw new TransferOperationException("Transfers must go through the balance engine while it is enabled");
+        }
+        checkTransferAmount(transferCardRequestDto.getAmount());
+        if (!reviewed) {
+            transferRiskScorer.check(cardId, transferCardRequestDto.getAmount());
+        }
+        transferLimitTracker.releaseOnRollback(transferLimitTracker.reserve(cardId, transferCardRequestDto.getAmount()));
 
         Long firstLock = Math.min(cardId, transferCardRequestDto.getId());
         Long secondLock = Math.max(cardId, transferCardRequestDto.getId());
@@ -201,19 +531,182 @@ public class CardService {
         Card from = cardId.equals(firstCard.getId()) ? firstCard : secondCard;
         Card to = transferCardRequestDto.getId().equals(secondCard.getId()) ? secondCard : firstCard;
 
-        if (checkTransferCard(from, to, transferCardRequestDto.getAmount())) {
-            from.setBalance(from.getBalance().subtract(transferCardRequestDto.getAmount()));
-            to.setBalance(to.getBalance().add(transferCardRequestDto.getAmount()));
-            log.info("CardService.moneyTransfer.success");
+        Money creditAmount = isSameCurrency(from, to)
+                ? transferCardRequestDto.getAmount()
+                : fxRateProvider.current().convert(transferCardRequestDto.getAmount(), from.getCurrency(), to.getCurrency());
+        applyTransfer(from, to, transferCardRequestDto.getAmount(), creditAmount);
+        transactionLedger.recordTransfer(from.getId(), to.getId(), transferCardRequestDto.getAmount(), creditAmount);
+        log.info("CardService.moneyTransfer.success");
+    }
+
+    /// Строки карт не блокируются: проверки статуса и держателя идут по данным из БД,
+    /// а списание с проверкой баланса атомарно выполняет шард BalanceEngine.
+    /// Метод работает вне транзакции: движок - единственное хранилище перевода, историю операций и статус перевода
+    /// пишет его снимок, а принятый движком перевод нельзя откатить вместе с транзакцией БД.
+    /// Журнал движка хранит одну сумму на перевод, поэтому переводы между валютами здесь не поддерживаются.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void moneyTransferThroughEngine(TransferCommand command) {
+        checkTransferAmount(command.getAmount());
+        if (!command.isReviewed()) {
+            transferRiskScorer.check(command.getFromCardId(), command.getAmount());
+        }
+        TransferLimitTracker.Reservation reservation = transferLimitTracker.reserve(command.getFromCardId(), command.getAmount());
+        try {
+            Card from = cardRepository.findById(command.getFromCardId()).orElseThrow(() -> new CardNotFoundException("Sender card not found"));
+            Card to = cardRepository.findById(command.getToCardId()).orElseThrow(() -> new CardNotFoundException("Recipient card not found"));
+            checkTransferCards(from, to);
+            if (!isSameCurrency(from, to)) {
+                log.info("CardService.moneyTransfer.fail.crossCurrencyThroughEngine");
+                throw new TransferOperationException("Cross-currency transfers are not supported by the balance engine");
+            }
+
+            balanceEngine.transfer(from.getCardholderName(), command.getTransferId(),
+                    from.getId(), from.getBalance().getMinorUnits(),
+                    to.getId(), to.getBalance().getMinorUnits(),
+                    command.getAmount().getMinorUnits());
+        } catch (RuntimeException e) {
+            transferLimitTracker.release(reservation);
+            throw e;
+        }
+        log.info("CardService.moneyTransfer.success.throughEngine");
+    }
+
+    /**
+     * Применяет пачку переводов в одной транзакции. Все затронутые карты блокируются одним запросом
+     * в порядке возрастания id, поэтому параллельные пачки не могут взаимно заблокироваться.
+     * Балансы меняются в памяти и сбрасываются в БД пакетными UPDATE при коммите.
+     * При atomic = false ошибка одного перевода не откатывает остальные - она возвращается в результате этого перевода.
+     * При atomic = true первая ошибка откатывает всю пачку через {@link BatchTransferAbortedException}.
+     * Переводы между валютами всей пачки считаются по одному снимку курсов.
+     * <p>
+     * Переводы пачки из API с одной карты - одно действие пользователя: в частоту оценки риска засчитывается
+     * только первый из них. Переводы с transferId (конвейер, регулярные переводы) отправлены по отдельности
+     * и засчитываются каждый.
+     * <p>
+     * Строки transfers блокируются до строк карт, как и при одиночном исполнении. Перевод, который уже не в PENDING
+     * (его исполнил другой узел после восстановления), пропускается без повторного списания.
+     */
+    @Transactional(timeout = 30)
+    public List<TransferResult> moneyTransferBatch(List<TransferCommand> commands, boolean atomic) {
+        Set<Long> pendingTransferIds = lockPendingTransfers(commands);
+        Map<Long, Card> cards = lockCards(commands);
+        Set<Long> scoredCards = new HashSet<>();
+        List<TransferResult> results = new ArrayList<>(commands.size());
+        List<Long> completedTransferIds = new ArrayList<>();
+        List<TransactionLedger.Entry> applied = new ArrayList<>(commands.size());
+        FxRates fxRates = null;
+
+        for (TransferCommand command : commands) {
+            if (command.getTransferId() != null && !pendingTransferIds.contains(command.getTransferId())) {
+                results.add(TransferResult.alreadyProcessed(command));
+                continue;
+            }
+            TransferLimitTracker.Reservation reservation = null;
+            try {
+                Card from = getLockedCard(cards, command.getFromCardId(), "Sender card not found");
+                Card to = getLockedCard(cards, command.getToCardId(), "Recipient card not found");
+                checkTransferAmount(command.getAmount());
+                if (!command.isReviewed()) {
+                    boolean countAttempt = command.getTransferId() != null || scoredCards.add(from.getId());
+                    transferRiskScorer.check(from.getId(), command.getAmount(), countAttempt);
+                }
+                reservation = transferLimitTracker.reserve(from.getId(), command.getAmount());
+                Money creditAmount = command.getAmount();
+                if (!isSameCurrency(from, to)) {
+                    if (fxRates == null) {
+                        fxRates = fxRateProvider.current();
+                    }
+                    creditAmount = fxRates.convert(command.getAmount(), from.getCurrency(), to.getCurrency());
+                }
+                applyTransfer(from, to, command.getAmount(), creditAmount);
+                transferLimitTracker.releaseOnRollback(reservation);
+                results.add(TransferResult.success(command));
+                applied.add(new TransactionLedger.Entry(from.getId(), to.getId(), command.getAmount(), creditAmount));
+                if (command.getTransferId() != null) {
+                    completedTransferIds.add(command.getTransferId());
+                }
+            } catch (RuntimeException e) {
+                transferLimitTracker.release(reservation);
+                results.add(TransferResult.failure(command, e));
+                if (atomic) {
+                    log.info("CardService.moneyTransferBatch.fail.rollback: {}", e.getMessage());
+                    commands.subList(results.size(), commands.size())
+                            .forEach(skipped -> results.add(TransferResult.skipped(skipped)));
+                    throw new BatchTransferAbortedException("Transfer batch was rolled back", results);
+                }
+            }
+        }
+        transactionLedger.recordTransfers(applied);
+        if (!completedTransferIds.isEmpty()) {
+            transferRepository.completePending(completedTransferIds, TransferStatus.COMPLETED, null, LocalDateTime.now());
         }
+        log.info("CardService.moneyTransferBatch.success: {}", commands.size());
+
+        return results;
+    }
+
+    private Set<Long> lockPendingTransfers(List<TransferCommand> commands) {
+        List<Long> transferIds = commands.stream()
+                .map(TransferCommand::getTransferId)
+                .filter(Objects::nonNull)
+                .toList();
+        return transferIds.isEmpty() ? Set.of() : new HashSet<>(transferRepository.lockPending(transferIds));
     }
 
-    private boolean checkTransferCard(Card cardFrom, Card cardTo, BigDecimal amount) {
-        if (cardFrom.getBalance().compareTo(amount) < 0) {
+    private Map<Long, Card> lockCards(List<TransferCommand> commands) {
+        Set<Long> cardIds = new TreeSet<>();
+        for (TransferCommand command : commands) {
+            cardIds.add(command.getFromCardId());
+            cardIds.add(command.getToCardId());
+        }
+
+        Map<Long, Card> cards = new HashMap<>();
+        for (Card card : cardRepository.findAllByIdInWithLock(cardIds)) {
+            cards.put(card.getId(), card);
+        }
+        return cards;
+    }
+
+    private Card getLockedCard(Map<Long, Card> cards, Long cardId, String notFoundMessage) {
+        Card card = cards.get(cardId);
+        if (card == null) {
+            throw new CardNotFoundException(notFoundMessage);
+        }
+        return card;
+    }
+
+    /// amount списывается в валюте отправителя, creditAmount зачисляется в валюте получателя.
+    private void applyTransfer(Card from, Card to, Money amount, Money creditAmount) {
+        if (checkTransferCard(from, to, amount)) {
+            from.setBalance(from.getBalance().minus(amount));
+            from.setAvailableBalance(from.getAvailableBalance().minus(amount));
+            to.setBalance(to.getBalance().plus(creditAmount));
+            to.setAvailableBalance(to.getAvailableBalance().plus(creditAmount));
+        }
+    }
+
+    private static boolean isSameCurrency(Card from, Card to) {
+        return Objects.equals(from.getCurrency(), to.getCurrency());
+    }
+
+    private boolean checkTransferCard(Card cardFrom, Card cardTo, Money amount) {
+        checkTransferAmount(amount);
+        if (cardFrom.getAvailableBalance().isLessThan(amount)) {
             log.info("CardService.moneyTransfer.fail.notEnoughFunds");
             throw new InsufficientFundsException("There are not enough funds on the sender card");
         }
 
+        return checkTransferCards(cardFrom, cardTo);
+    }
+
+    static void checkTransferAmount(Money amount) {
+        if (amount == null || !amount.isPositive()) {
+            log.info("CardService.moneyTransfer.fail.amountIsNotPositive");
+            throw new InvalidAmountException("Transfer amount must be positive");
+        }
+    }
+
+    static boolean checkTransferCards(Card cardFrom, Card cardTo) {
         if (cardFrom.getStatus() != Status.ACTIVE || cardTo.getStatus() != Status.ACTIVE) {
             log.info("CardService.moneyTransfer.fail.oneCardIsNotActive");
             throw new CardNotActiveException("One of the cards is not active");
@@ -0,0 +1,196 @@
+package com.example.bankrest.service;
+
+import com.example.bankrest.component.FxRateProvider;
+import com.example.bankrest.component.TransactionLedger;
+import com.example.bankrest.component.TransferLimitTracker;
+import com.example.bankrest.component.TransferRiskScorer;
+import com.example.bankrest.dto.card.HoldResponseDto;
+import com.example.bankrest.dto.card.TransferCardRequestDto;
+import com.example.bankrest.engine.BalanceEngine;
+import com.example.bankrest.entity.Card;
+import com.example.bankrest.entity.Hold;
+import com.example.bankrest.entity.HoldStatus;
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.entity.User;
+import com.example.bankrest.exception.*;
+import com.example.bankrest.repository.CardRepository;
+import com.example.bankrest.repository.HoldRepository;
+import com.example.bankrest.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Map;
+
+/**
+ * Двухфазные переводы: authorize резервирует сумму в доступном остатке карты-отправителя, capture списывает ее
+ * и зачисляет получателю, void возвращает резерв. Каждый шаг - условный UPDATE одной строки карты без
+ * SELECT ... FOR UPDATE, поэтому строки популярных карт блокируются только на время короткой транзакции шага.
+ * Не захваченные вовремя холды возвращает {@link HoldSweeper}.
+ */
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+@Service
+@Slf4j
+public class HoldService {
+
+    private final HoldRepository holdRepository;
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+    private final BalanceEngine balanceEngine;
+    private final TransferLimitTracker transferLimitTracker;
+    private final TransferRiskScorer transferRiskScorer;
+    private final TransactionLedger transactionLedger;
+    private final FxRateProvider fxRateProvider;
+
+    @Value("${transfer.holds.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    @Transactional(timeout = 5)
+    public HoldResponseDto authorize(Long cardId, TransferCardRequestDto transferCardRequestDto) {
+        checkEngineDisabled();
+        CardService.checkTransferAmount(transferCardRequestDto.getAmount());
+        User user = getAuthenticatedUser();
+        Card from = cardRepository.findByIdAndUser_Id(cardId, user.getId())
+                .orElseThrow(() -> new CardNotFoundException("Sender card not found"));
+        Card to = cardRepository.findById(transferCardRequestDto.getId())
+                .orElseThrow(() -> new CardNotFoundException("Recipient card not found"));
+        CardService.checkTransferCards(from, to);
+
+        transferRiskScorer.check(from.getId(), transferCardRequestDto.getAmount());
+        transferLimitTracker.releaseOnRollback(transferLimitTracker.reserve(from.getId(), transferCardRequestDto.getAmount()));
+
+        if (cardRepository.reserveAvailable(from.getId(), transferCardRequestDto.getAmount().getMinorUnits()) == 0) {
+            log.info("HoldService.authorize.fail.notEnoughFunds: {}", from.getId());
+            throw new InsufficientFundsException("There are not enough funds on the sender card");
+        }
+        Money creditAmount = Objects.equals(from.getCurrency(), to.getCurrency())
+                ? transferCardRequestDto.getAmount()
+                : fxRateProvider.current().convert(transferCardRequestDto.getAmount(), from.getCurrency(), to.getCurrency());
+        Hold hold = holdRepository.save(Hold.builder()
+                .userId(user.getId())
+                .fromCardId(from.getId())
+                .toCardId(to.getId())
+                .amount(transferCardRequestDto.getAmount())
+                .creditAmount(creditAmount)
+                .status(HoldStatus.ACTIVE)
+                .expiresAt(LocalDateTime.now().plusSeconds(ttlSeconds))
+                .build());
+        log.info("HoldService.authorize.success: {}", hold.getId());
+
+        return createResponse(hold, HoldStatus.ACTIVE);
+    }
+
+    /// Строки карт обновляются в порядке возрастания id, чтобы встречные capture не заблокировали друг друга.
+    @Transactional(timeout = 5)
+    public HoldResponseDto capture(Long holdId) {
+        checkEngineDisabled();
+        Hold hold = getUserHold(holdId);
+        completeActive(hold, HoldStatus.CAPTURED);
+
+        long amount = hold.getAmount().getMinorUnits();
+        long creditAmount = hold.getCreditAmount().getMinorUnits();
+        if (hold.getFromCardId() < hold.getToCardId()) {
+            cardRepository.debitHeld(hold.getFromCardId(), amount);
+            credit(hold.getToCardId(), creditAmount);
+        } else {
+            credit(hold.getToCardId(), creditAmount);
+            cardRepository.debitHeld(hold.getFromCardId(), amount);
+        }
+        transactionLedger.recordTransfer(hold.getFromCardId(), hold.getToCardId(), hold.getAmount(), hold.getCreditAmount());
+        log.info("HoldService.capture.success: {}", holdId);
+
+        return createResponse(hold, HoldStatus.CAPTURED);
+    }
+
+    @Transactional(timeout = 5)
+    public HoldResponseDto voidHold(Long holdId) {
+        checkEngineDisabled();
+        Hold hold = getUserHold(holdId);
+        completeActive(hold, HoldStatus.VOIDED);
+        cardRepository.releaseAvailable(hold.getFromCardId(), hold.getAmount().getMinorUnits());
+        log.info("HoldService.voidHold.success: {}", holdId);
+
+        return createResponse(hold, HoldStatus.VOIDED);
+    }
+
+    /// Пачка просроченных холдов: строки берутся через SKIP LOCKED, резерв возвращается одним UPDATE на карту.
+    /// При включенном движке холды не трогаются: они дождутся его выключения.
+    @Transactional(timeout = 30)
+    public int expireStaleHolds(int limit) {
+        if (balanceEngine.isEnabled()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Hold> holds = holdRepository.findExpiredForUpdateSkipLocked(now, limit);
+        if (holds.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Long> releasedByCard = new HashMap<>();
+        for (Hold hold : holds) {
+            releasedByCard.merge(hold.getFromCardId(), hold.getAmount().getMinorUnits(), Long::sum);
+        }
+        releasedByCard.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> cardRepository.releaseAvailable(entry.getKey(), entry.getValue()));
+        holdRepository.markExpired(holds.stream().map(Hold::getId).toList(), now);
+        log.info("HoldService.expireStaleHolds.success: {}", holds.size());
+
+        return holds.size();
+    }
+
+    /// Холды меняют cards.balance и available_balance напрямую, а при включенном движке балансы карт
+    /// принадлежат ему: снимок перезаписал бы такое изменение.
+    private void checkEngineDisabled() {
+        if (balanceEngine.isEnabled()) {
+            throw new TransferOperationException("Holds are not available while the balance engine is enabled");
+        }
+    }
+
+    private void completeActive(Hold hold, HoldStatus status) {
+        if (holdRepository.completeActive(hold.getId(), status, LocalDateTime.now()) == 0) {
+            log.info("HoldService.completeActive.fail.holdIsNotActive: {}", hold.getId());
+            throw new TransferOperationException("Hold is not active");
+        }
+    }
+
+    private void credit(Long cardId, long amount) {
+        if (cardRepository.credit(cardId, amount) == 0) {
+            log.info("HoldService.capture.fail.recipientIsNotActive: {}", cardId);
+            throw new CardNotActiveException("One of the cards is not active");
+        }
+    }
+
+    private Hold getUserHold(Long holdId) {
+        User user = getAuthenticatedUser();
+        return holdRepository.findByIdAndUserId(holdId, user.getId())
+                .orElseThrow(() -> new HoldNotFoundException("Hold not found"));
+    }
+
+    private HoldResponseDto createResponse(Hold hold, HoldStatus status) {
+        return HoldResponseDto.builder()
+                .id(hold.getId())
+                .fromCardId(hold.getFromCardId())
+                .toCardId(hold.getToCardId())
+                .amount(hold.getAmount())
+                .status(status)
+                .expiresAt(hold.getExpiresAt())
+                .createdAt(hold.getCreatedAt())
+                .updatedAt(hold.getUpdatedAt())
+                .build();
+    }
+
+    private User getAuthenticatedUser() {
+        UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return userRepository.findByUsername(userDetails.getUsername()).orElseThrow(() -> new UserNotFoundException("User not found"));
+    }
+}
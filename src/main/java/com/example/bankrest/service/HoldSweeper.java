@@ -0,0 +1,34 @@
+package com.example.bankrest.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Возвращает резерв просроченных холдов. Каждая пачка - отдельная транзакция {@link HoldService#expireStaleHolds},
+ * а SKIP LOCKED позволяет запускать чистильщик на нескольких узлах без очереди на одних и тех же строках.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HoldSweeper {
+
+    private final HoldService holdService;
+
+    @Value("${transfer.holds.sweep-batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${transfer.holds.sweep-interval-ms:10000}")
+    public void sweep() {
+        int expired;
+        try {
+            do {
+                expired = holdService.expireStaleHolds(batchSize);
+            } while (expired == batchSize);
+        } catch (RuntimeException e) {
+            log.error("HoldSweeper.sweep.fail: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.bankrest.service;
+
+import com.example.bankrest.component.BalanceReconciler;
+import com.example.bankrest.dto.card.ReconciliationCurrencyDto;
+import com.example.bankrest.dto.card.ReconciliationRunDto;
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.entity.ReconciliationCurrencyTotals;
+import com.example.bankrest.entity.ReconciliationRun;
+import com.example.bankrest.entity.ReconciliationRunStatus;
+import com.example.bankrest.exception.ReconciliationAlreadyRunningException;
+import com.example.bankrest.exception.ReconciliationRunNotFoundException;
+import com.example.bankrest.repository.CardRepository;
+import com.example.bankrest.repository.ReconciliationRunRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Сверка балансов всех карт с историей операций. Пространство id карт делится на диапазоны по range-size,
+ * диапазоны проверяются параллельно в reconciliationExecutor через {@link BalanceReconciler}.
+ * Итоги диапазонов копятся в строке запуска, по ней же отдается прогресс и скорость.
+ * В конце для каждой валюты проверяется сохранение денег: сумма переводов внутри валюты равна нулю,
+ * а сумма балансов - сумме начальных балансов, переводов с конвертацией и начислений. Все диапазоны читают один экспортированный снимок базы, иначе итоги разных
+ * диапазонов относились бы к разным моментам и перевод между ними давал бы ложное нарушение.
+ * <p>
+ * Каждый завершенный диапазон обновляет heartbeat_at запуска. Запуск, который не подавал признаков жизни
+ * дольше stale-after-seconds (узел упал), при следующем старте помечается FAILED, и новый запуск его заменяет.
+ * <p>
+ * Без транзакции на уровне класса: строка запуска должна быть закоммичена до того, как диапазоны начнут ее обновлять.
+ * При включенном движке балансов cards.balance отстает на интервал снимка, и свежие переводы дадут ложные расхождения.
+ */
+@Service
+@Slf4j
+public class ReconciliationService {
+
+    private final ReconciliationRunRepository reconciliationRunRepository;
+    private final CardRepository cardRepository;
+    private final BalanceReconciler balanceReconciler;
+    private final ExecutorService reconciliationExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter cardsCheckedCounter;
+
+    @Value("${reconciliation.range-size:50000}")
+    private long rangeSize;
+
+    /// Должно быть больше range-timeout-seconds: диапазон дольше таймаута не выполняется, и heartbeat успевает обновиться.
+    @Value("${reconciliation.stale-after-seconds:600}")
+    private long staleAfterSeconds;
+
+    public ReconciliationService(ReconciliationRunRepository reconciliationRunRepository,
+                                 CardRepository cardRepository,
+                                 BalanceReconciler balanceReconciler,
+                                 @Qualifier("reconciliationExecutor") ExecutorService reconciliationExecutor,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.reconciliationRunRepository = reconciliationRunRepository;
+        this.cardRepository = cardRepository;
+        this.balanceReconciler = balanceReconciler;
+        this.reconciliationExecutor = reconciliationExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cardsCheckedCounter = Counter.builder("reconciliation.cards.checked")
+                .description("Cards checked by balance reconciliation")
+                .register(meterRegistry);
+    }
+
+    public ReconciliationRunDto startRun() {
+        int abandoned = reconciliationRunRepository.failAbandoned(staleAfterSeconds);
+        if (abandoned > 0) {
+            log.info("ReconciliationService.startRun.abandonedRunsFailed: {}", abandoned);
+        }
+        if (reconciliationRunRepository.existsByStatus(ReconciliationRunStatus.RUNNING)) {
+            throw new ReconciliationAlreadyRunningException("Reconciliation is already running");
+        }
+        Long minId = cardRepository.findMinId();
+        Long maxId = cardRepository.findMaxId();
+        long fromRange = minId == null ? 0 : Math.floorDiv(minId, rangeSize);
+        long toRange = minId == null ? 0 : Math.floorDiv(maxId, rangeSize) + 1;
+
+        ReconciliationRun run;
+        try {
+            run = reconciliationRunRepository.save(ReconciliationRun.builder()
+                    .status(ReconciliationRunStatus.RUNNING)
+                    .rangesTotal(Math.toIntExact(toRange - fromRange))
+                    .startedAt(LocalDateTime.now())
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // одновременный запуск с другого узла: единственность RUNNING держит частичный уникальный индекс
+            throw new ReconciliationAlreadyRunningException("Reconciliation is already running");
+        }
+
+        Long runId = run.getId();
+        CompletableFuture<?>[] ranges = new CompletableFuture<?>[Math.toIntExact(toRange - fromRange)];
+        BalanceReconciler.SharedSnapshot snapshot = ranges.length == 0 ? null : exportSnapshot(runId);
+        for (long range = fromRange; range < toRange; range++) {
+            long fromCardId = range * rangeSize;
+            ranges[(int) (range - fromRange)] = CompletableFuture.runAsync(
+                    () -> reconcileRange(runId, snapshot.id(), fromCardId, fromCardId + rangeSize), reconciliationExecutor);
+        }
+        CompletableFuture.allOf(ranges).whenComplete((ignored, error) -> {
+            if (snapshot != null) {
+                snapshot.close();
+            }
+            finishRun(runId);
+        });
+        log.info("ReconciliationService.startRun.success: {}, {} ranges", runId, ranges.length);
+
+        return createResponse(run);
+    }
+
+    public ReconciliationRunDto getRun(Long runId) {
+        return reconciliationRunRepository.findById(runId)
+                .map(this::createResponse)
+                .orElseThrow(() -> new ReconciliationRunNotFoundException("Reconciliation run not found"));
+    }
+
+    /// Запуск уже сохранен, поэтому без снимка он сразу завершается FAILED, а не висит RUNNING до таймаута.
+    private BalanceReconciler.SharedSnapshot exportSnapshot(Long runId) {
+        try {
+            return balanceReconciler.exportSnapshot();
+        } catch (RuntimeException e) {
+            log.error("ReconciliationService.exportSnapshot.fail: {}: {}", runId, e.getMessage());
+            reconciliationRunRepository.complete(runId, ReconciliationRunStatus.FAILED, LocalDateTime.now());
+            throw e;
+        }
+    }
+
+    private void reconcileRange(Long runId, String snapshotId, long fromCardId, long toCardId) {
+        try {
+            BalanceReconciler.RangeTotals totals = balanceReconciler.reconcileRange(runId, snapshotId, fromCardId, toCardId);
+            // диапазон засчитывается вместе со всеми своими валютами или не засчитывается совсем
+            transactionTemplate.executeWithoutResult(status -> {
+                reconciliationRunRepository.addRange(runId, totals.cards(), totals.drifted());
+                for (BalanceReconciler.CurrencyTotals currency : totals.currencies()) {
+                    reconciliationRunRepository.addCurrencyTotals(runId, currency.currency(), currency.cards(),
+                            currency.balance(), currency.openingBalance(), currency.ledgerNet(), currency.fxNet(),
+                            currency.postingNet());
+                }
+            });
+            cardsCheckedCounter.increment(totals.cards());
+        } catch (RuntimeException e) {
+            log.error("ReconciliationService.reconcileRange.fail: {} from {}: {}", runId, fromCardId, e.getMessage());
+            reconciliationRunRepository.addFailedRange(runId);
+        }
+    }
+
+    private void finishRun(Long runId) {
+        try {
+            ReconciliationRun run = reconciliationRunRepository.findById(runId)
+                    .orElseThrow(() -> new ReconciliationRunNotFoundException("Reconciliation run not found"));
+            ReconciliationRunStatus status = run.getRangesFailed() > 0
+                    ? ReconciliationRunStatus.FAILED
+                    : ReconciliationRunStatus.COMPLETED;
+            if (reconciliationRunRepository.complete(runId, status, LocalDateTime.now()) == 0) {
+                log.error("ReconciliationService.finishRun.fail.takenOver: {}", runId);
+                return;
+            }
+            log.info("ReconciliationService.finishRun.success: {}, status {}, {} cards, {} drifted, {} currencies",
+                    runId, status, run.getCardsChecked(), run.getDriftedCards(), run.getCurrencyTotals().size());
+        } catch (RuntimeException e) {
+            log.error("ReconciliationService.finishRun.fail: {}: {}", runId, e.getMessage());
+        }
+    }
+
+    private ReconciliationRunDto createResponse(ReconciliationRun run) {
+        LocalDateTime end = run.getCompletedAt() == null ? LocalDateTime.now() : run.getCompletedAt();
+        long elapsedMs = Math.max(1L, Duration.between(run.getStartedAt(), end).toMillis());
+        boolean completed = run.getStatus() == ReconciliationRunStatus.COMPLETED;
+        List<ReconciliationCurrencyDto> currencies = run.getCurrencyTotals().stream()
+                .map(totals -> createCurrencyResponse(totals, completed))
+                .toList();
+        Boolean conserved = completed
+                ? currencies.stream().allMatch(ReconciliationCurrencyDto::getConserved)
+                : null;
+
+        return ReconciliationRunDto.builder()
+                .id(run.getId())
+                .status(run.getStatus())
+                .rangesTotal(run.getRangesTotal())
+                .rangesDone(run.getRangesDone())
+                .rangesFailed(run.getRangesFailed())
+                .cardsChecked(run.getCardsChecked())
+                .driftedCards(run.getDriftedCards())
+                .currencies(currencies)
+                .conserved(conserved)
+                .cardsPerSecond(run.getCardsChecked() * 1000.0 / elapsedMs)
+                .startedAt(run.getStartedAt())
+                .completedAt(run.getCompletedAt())
+                .build();
+    }
+
+    private ReconciliationCurrencyDto createCurrencyResponse(ReconciliationCurrencyTotals totals, boolean completed) {
+        Boolean conserved = completed
+                ? totals.getLedgerNet() == 0 && totals.getTotalBalance()
+                        == totals.getTotalOpeningBalance() + totals.getFxNet() + totals.getPostingsNet()
+                : null;
+
+        return ReconciliationCurrencyDto.builder()
+                .currency(totals.getCurrency())
+                .cards(totals.getCards())
+                .totalBalance(Money.ofMinorUnits(totals.getTotalBalance()))
+                .totalOpeningBalance(Money.ofMinorUnits(totals.getTotalOpeningBalance()))
+                .ledgerNet(Money.ofMinorUnits(totals.getLedgerNet()))
+                .fxNet(Money.ofMinorUnits(totals.getFxNet()))
+                .postingsNet(Money.ofMinorUnits(totals.getPostingsNet()))
+                .conserved(conserved)
+                .build();
+    }
+}
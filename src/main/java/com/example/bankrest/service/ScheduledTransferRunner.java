@@ -0,0 +1,65 @@
+package com.example.bankrest.service;
+
+import com.example.bankrest.dto.card.TransferCommand;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Исполняет наступившие регулярные переводы. Поручения забираются пачками по chunk-size, пока они есть,
+ * и отдаются в ограниченный пул scheduledTransferExecutor. Когда очередь пула заполнена, перевод выполняет
+ * сам поток планировщика, и забор следующих пачек притормаживает до скорости исполнения - так пик
+ * конца месяца не разрастается в неограниченную очередь в памяти.
+ * Поручение забирается вместе с созданием перевода PENDING, поэтому запуск, потерянный при падении узла,
+ * не пропадает: его перевод исполнит {@link TransferRecoveryJob}.
+ */
+@Component
+@Slf4j
+public class ScheduledTransferRunner {
+
+    private final ScheduledTransferService scheduledTransferService;
+    private final TransferService transferService;
+    private final ExecutorService scheduledTransferExecutor;
+
+    @Value("${transfer.scheduled.enabled:true}")
+    private boolean enabled;
+
+    @Value("${transfer.scheduled.chunk-size:500}")
+    private int chunkSize;
+
+    public ScheduledTransferRunner(ScheduledTransferService scheduledTransferService,
+                                   TransferService transferService,
+                                   @Qualifier("scheduledTransferExecutor") ExecutorService scheduledTransferExecutor) {
+        this.scheduledTransferService = scheduledTransferService;
+        this.transferService = transferService;
+        this.scheduledTransferExecutor = scheduledTransferExecutor;
+    }
+
+    @Scheduled(fixedDelayString = "${transfer.scheduled.poll-interval-ms:10000}")
+    public void runDue() {
+        if (!enabled) {
+            return;
+        }
+        int claimed = 0;
+        try {
+            List<TransferCommand> commands;
+            do {
+                commands = scheduledTransferService.claimDue(chunkSize);
+                for (TransferCommand command : commands) {
+                    scheduledTransferExecutor.execute(() -> transferService.execute(command));
+                }
+                claimed += commands.size();
+            } while (commands.size() == chunkSize);
+        } catch (RuntimeException e) {
+            log.error("ScheduledTransferRunner.runDue.fail: {}", e.getMessage());
+        }
+        if (claimed > 0) {
+            log.info("ScheduledTransferRunner.runDue.success: {}", claimed);
+        }
+    }
+}
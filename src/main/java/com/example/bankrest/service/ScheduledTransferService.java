@@ -0,0 +1,153 @@
+package com.example.bankrest.service;
+
+import com.example.bankrest.dto.card.ScheduledTransferRequestDto;
+import com.example.bankrest.dto.card.ScheduledTransferResponseDto;
+import com.example.bankrest.dto.card.TransferCommand;
+import com.example.bankrest.entity.Card;
+import com.example.bankrest.entity.ScheduledTransfer;
+import com.example.bankrest.entity.ScheduledTransferStatus;
+import com.example.bankrest.entity.Transfer;
+import com.example.bankrest.entity.TransferStatus;
+import com.example.bankrest.entity.User;
+import com.example.bankrest.exception.*;
+import com.example.bankrest.repository.CardRepository;
+import com.example.bankrest.repository.ScheduledTransferRepository;
+import com.example.bankrest.repository.TransferRepository;
+import com.example.bankrest.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Регулярные переводы между картами одного держателя. Наступившие поручения забирает {@link ScheduledTransferRunner}
+ * через {@link #claimDue}: в одной короткой транзакции строки берутся с SKIP LOCKED, для каждой создается
+ * перевод PENDING и сдвигается next_run_at, поэтому после коммита другой узел эти поручения уже не увидит.
+ */
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+@Service
+@Slf4j
+public class ScheduledTransferService {
+
+    private final ScheduledTransferRepository scheduledTransferRepository;
+    private final TransferRepository transferRepository;
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+
+    @Transactional
+    public ScheduledTransferResponseDto createScheduledTransfer(Long cardId, ScheduledTransferRequestDto requestDto) {
+        CardService.checkTransferAmount(requestDto.getAmount());
+        if (requestDto.getFrequency() == null) {
+            throw new TransferOperationException("Frequency is required");
+        }
+        User user = getAuthenticatedUser();
+        Card from = cardRepository.findByIdAndUser_Id(cardId, user.getId())
+                .orElseThrow(() -> new CardNotFoundException("Sender card not found"));
+        Card to = cardRepository.findByIdAndUser_Id(requestDto.getToCardId(), user.getId())
+                .orElseThrow(() -> new CardNotFoundException("Recipient card not found"));
+        CardService.checkTransferCards(from, to);
+
+        LocalDateTime firstRunAt = requestDto.getFirstRunAt() == null ? LocalDateTime.now() : requestDto.getFirstRunAt();
+        ScheduledTransfer scheduledTransfer = scheduledTransferRepository.save(ScheduledTransfer.builder()
+                .userId(user.getId())
+                .fromCardId(from.getId())
+                .toCardId(to.getId())
+                .amount(requestDto.getAmount())
+                .frequency(requestDto.getFrequency())
+                .anchorDay(firstRunAt.getDayOfMonth())
+                .nextRunAt(firstRunAt)
+                .status(ScheduledTransferStatus.ACTIVE)
+                .build());
+        log.info("ScheduledTransferService.createScheduledTransfer.success.forUser: {}", user.getId());
+
+        return createResponse(scheduledTransfer);
+    }
+
+    public Page<ScheduledTransferResponseDto> getUserScheduledTransfers(int page, int size) {
+        User user = getAuthenticatedUser();
+        return scheduledTransferRepository.findByUserId(user.getId(), PageRequest.of(page, size, Sort.by("id").descending()))
+                .map(this::createResponse);
+    }
+
+    @Transactional
+    public ScheduledTransferResponseDto cancelScheduledTransfer(Long scheduledTransferId) {
+        User user = getAuthenticatedUser();
+        ScheduledTransfer scheduledTransfer = scheduledTransferRepository.findByIdAndUserId(scheduledTransferId, user.getId())
+                .orElseThrow(() -> new ScheduledTransferNotFoundException("Scheduled transfer not found"));
+        scheduledTransfer.setStatus(ScheduledTransferStatus.CANCELLED);
+        log.info("ScheduledTransferService.cancelScheduledTransfer.success: {}", scheduledTransferId);
+
+        return createResponse(scheduledTransfer);
+    }
+
+    /**
+     * Забирает до limit наступивших поручений и возвращает команды для их исполнения.
+     * Пропущенные за время простоя запуски не догоняются: поручение исполняется один раз,
+     * а next_run_at переносится на ближайший запуск в будущем.
+     */
+    @Transactional(timeout = 30)
+    public List<TransferCommand> claimDue(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ScheduledTransfer> due = scheduledTransferRepository.findDueForUpdateSkipLocked(now, limit);
+        if (due.isEmpty()) {
+            return List.of();
+        }
+
+        List<Transfer> transfers = new ArrayList<>(due.size());
+        for (ScheduledTransfer scheduledTransfer : due) {
+            transfers.add(Transfer.builder()
+                    .userId(scheduledTransfer.getUserId())
+                    .fromCardId(scheduledTransfer.getFromCardId())
+                    .toCardId(scheduledTransfer.getToCardId())
+                    .amount(scheduledTransfer.getAmount())
+                    .status(TransferStatus.PENDING)
+                    .build());
+
+            LocalDateTime nextRunAt = scheduledTransfer.getNextRunAt();
+            while (!nextRunAt.isAfter(now)) {
+                nextRunAt = scheduledTransfer.followingRunAt(nextRunAt);
+            }
+            scheduledTransfer.setLastRunAt(now);
+            scheduledTransfer.setNextRunAt(nextRunAt);
+        }
+        transferRepository.saveAll(transfers);
+        log.info("ScheduledTransferService.claimDue.success: {}", due.size());
+
+        return transfers.stream()
+                .map(transfer -> TransferCommand.builder()
+                        .transferId(transfer.getId())
+                        .fromCardId(transfer.getFromCardId())
+                        .toCardId(transfer.getToCardId())
+                        .amount(transfer.getAmount())
+                        .build())
+                .toList();
+    }
+
+    private ScheduledTransferResponseDto createResponse(ScheduledTransfer scheduledTransfer) {
+        return ScheduledTransferResponseDto.builder()
+                .id(scheduledTransfer.getId())
+                .fromCardId(scheduledTransfer.getFromCardId())
+                .toCardId(scheduledTransfer.getToCardId())
+                .amount(scheduledTransfer.getAmount())
+                .frequency(scheduledTransfer.getFrequency())
+                .nextRunAt(scheduledTransfer.getNextRunAt())
+                .lastRunAt(scheduledTransfer.getLastRunAt())
+                .status(scheduledTransfer.getStatus())
+                .build();
+    }
+
+    private User getAuthenticatedUser() {
+        UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return userRepository.findByUsername(userDetails.getUsername()).orElseThrow(() -> new UserNotFoundException("User not found"));
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.bankrest.service;
+
+import com.example.bankrest.dto.card.TransferCommand;
+import com.example.bankrest.dto.card.TransferResult;
+import com.example.bankrest.exception.TransferOperationException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конвейер группового коммита переводов. Запросы попадают в ограниченный кольцевой буфер своего шарда,
+ * единственный поток-потребитель шарда собирает их в пачки (не больше batch-size операций или
+ * batch-timeout-ms ожидания) и применяет каждую пачку одной транзакцией через {@link CardService#moneyTransferBatch}.
+ * Future каждого запроса завершается только после коммита его пачки.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransferPipeline {
+
+    private final CardService cardService;
+
+    @Value("${transfer.pipeline.enabled:false}")
+    private boolean enabled;
+
+    @Value("${transfer.pipeline.shards:4}")
+    private int shardCount;
+
+    @Value("${transfer.pipeline.buffer-size:1024}")
+    private int bufferSize;
+
+    @Value("${transfer.pipeline.batch-size:64}")
+    private int batchSize;
+
+    @Value("${transfer.pipeline.batch-timeout-ms:5}")
+    private long batchTimeoutMs;
+
+    @Value("${transfer.pipeline.submit-timeout-ms:1000}")
+    private long submitTimeoutMs;
+
+    private final List<BlockingQueue<PendingTransfer>> shards = new ArrayList<>();
+    private final List<Thread> consumers = new ArrayList<>();
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < shardCount; i++) {
+            BlockingQueue<PendingTransfer> queue = new ArrayBlockingQueue<>(bufferSize);
+            Thread consumer = new Thread(() -> consume(queue), "transfer-pipeline-" + i);
+            consumer.setDaemon(true);
+            shards.add(queue);
+            consumers.add(consumer);
+            consumer.start();
+        }
+        log.info("TransferPipeline.start.success: {} shards", shardCount);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread consumer : consumers) {
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Публикует перевод в конвейер и ждет коммита его пачки.
+     * Бизнес-ошибки перевода пробрасываются как есть, как если бы перевод выполнялся через {@link CardService#moneyTransfer}.
+     */
+    public void transfer(TransferCommand command) {
+        try {
+            submit(command).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public CompletableFuture<Void> submit(TransferCommand command) {
+        if (!running) {
+            throw new TransferOperationException("Transfer pipeline is not running");
+        }
+        PendingTransfer pending = new PendingTransfer(command, new CompletableFuture<>());
+        try {
+            if (!shardFor(command).offer(pending, submitTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.error("TransferPipeline.submit.fail.bufferIsFull");
+                throw new TransferOperationException("Transfer pipeline is overloaded");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferOperationException("Transfer submission was interrupted");
+        }
+        return pending.future();
+    }
+
+    /// Пара карт всегда попадает в один шард, поэтому переводы по одной паре применяются строго по очереди.
+    private BlockingQueue<PendingTransfer> shardFor(TransferCommand command) {
+        long key = Math.min(command.getFromCardId(), command.getToCardId());
+        return shards.get(Math.floorMod(Long.hashCode(key), shards.size()));
+    }
+
+    private void consume(BlockingQueue<PendingTransfer> queue) {
+        List<PendingTransfer> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingTransfer first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(queue, batch);
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void fillBatch(BlockingQueue<PendingTransfer> queue, List<PendingTransfer> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchTimeoutMs);
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            PendingTransfer next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void commit(List<PendingTransfer> batch) {
+        List<TransferCommand> commands = batch.stream().map(PendingTransfer::command).toList();
+        List<TransferResult> results;
+        try {
+            results = cardService.moneyTransferBatch(commands, false);
+        } catch (RuntimeException e) {
+            log.error("TransferPipeline.commit.fail: {}", e.getMessage());
+            TransferOperationException error = new TransferOperationException("Transfer batch failed to commit");
+            batch.forEach(pending -> pending.future().completeExceptionally(error));
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            TransferResult result = results.get(i);
+            if (result.isSuccess()) {
+                batch.get(i).future().complete(null);
+            } else {
+                batch.get(i).future().completeExceptionally(result.getError());
+            }
+        }
+    }
+
+    private record PendingTransfer(TransferCommand command, CompletableFuture<Void> future) {
+    }
+}
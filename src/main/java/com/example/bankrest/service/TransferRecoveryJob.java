@@ -0,0 +1,56 @@
+package com.example.bankrest.service;
+
+import com.example.bankrest.dto.card.TransferCommand;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Подбирает переводы, зависшие в PENDING: принятые {@link TransferService#submitTransfer} и созданные
+ * {@link ScheduledTransferService#claimDue}, если узел упал до их исполнения. Порог stale-after должен быть
+ * заметно больше времени исполнения перевода, иначе перевод в работе будет забран повторно - это безопасно,
+ * но лишне. Переводы исполняются последовательно в потоке планировщика: зависших обычно единицы.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransferRecoveryJob {
+
+    private final TransferService transferService;
+
+    @Value("${transfer.recovery.enabled:true}")
+    private boolean enabled;
+
+    @Value("${transfer.recovery.stale-after-seconds:300}")
+    private long staleAfterSeconds;
+
+    @Value("${transfer.recovery.batch-size:100}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${transfer.recovery.poll-interval-ms:60000}",
+            initialDelayString = "${transfer.recovery.poll-interval-ms:60000}")
+    public void recoverStale() {
+        if (!enabled) {
+            return;
+        }
+        int recovered = 0;
+        try {
+            List<TransferCommand> commands;
+            do {
+                commands = transferService.claimStale(batchSize, Duration.ofSeconds(staleAfterSeconds));
+                commands.forEach(transferService::recover);
+                recovered += commands.size();
+            } while (commands.size() == batchSize);
+        } catch (RuntimeException e) {
+            log.error("TransferRecoveryJob.recoverStale.fail: {}", e.getMessage());
+        }
+        if (recovered > 0) {
+            log.info("TransferRecoveryJob.recoverStale.success: {}", recovered);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.example.bankrest.service;
+
+import com.example.bankrest.component.CardLockManager;
+import com.example.bankrest.dto.card.*;
+import com.example.bankrest.engine.BalanceEngine;
+import com.example.bankrest.entity.BatchTransferItemStatus;
+import com.example.bankrest.entity.BatchTransferMode;
+import com.example.bankrest.entity.Transfer;
+import com.example.bankrest.entity.TransferStatus;
+import com.example.bankrest.exception.BatchTransferAbortedException;
+import com.example.bankrest.exception.CardNotFoundException;
+import com.example.bankrest.exception.SuspiciousTransferException;
+import com.example.bankrest.exception.TransferCapacityExceededException;
+import com.example.bankrest.exception.TransferNotFoundException;
+import com.example.bankrest.exception.TransferOperationException;
+import com.example.bankrest.exception.UserNotFoundException;
+import com.example.bankrest.repository.CardRepository;
+import com.example.bankrest.repository.TransferRepository;
+import com.example.bankrest.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Асинхронное выполнение переводов. Запрос сохраняет перевод в статусе PENDING и сразу возвращает его id,
+ * сам перевод выполняется в transferExecutor, а результат можно получить через {@link #getTransfer}.
+ * Число принятых, но еще не исполненных переводов ограничено transfer.max-in-flight: сверх него запрос
+ * отклоняется {@link TransferCapacityExceededException} до записи в БД.
+ * Переводы, оставшиеся в PENDING после падения узла, подбирает {@link TransferRecoveryJob}.
+ */
+@Service
+@Slf4j
+public class TransferService {
+
+    private static final int TRANSFER_TIMEOUT_SECONDS = 5;
+
+    private final TransferRepository transferRepository;
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+    private final CardService cardService;
+    private final TransferPipeline transferPipeline;
+    private final BalanceEngine balanceEngine;
+    private final CardLockManager cardLockManager;
+    private final ExecutorService transferExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final Semaphore inFlight;
+
+    @Value("${transfer.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    public TransferService(TransferRepository transferRepository,
+                           UserRepository userRepository,
+                           CardRepository cardRepository,
+                           CardService cardService,
+                           TransferPipeline transferPipeline,
+                           BalanceEngine balanceEngine,
+                           CardLockManager cardLockManager,
+                           @Qualifier("transferExecutor") ExecutorService transferExecutor,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${transfer.max-in-flight:256}") int maxInFlight) {
+        this.transferRepository = transferRepository;
+        this.userRepository = userRepository;
+        this.cardRepository = cardRepository;
+        this.cardService = cardService;
+        this.transferPipeline = transferPipeline;
+        this.balanceEngine = balanceEngine;
+        this.cardLockManager = cardLockManager;
+        this.transferExecutor = transferExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(TRANSFER_TIMEOUT_SECONDS);
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    public TransferResponseDto submitTransfer(Long cardId, TransferCardRequestDto transferCardRequestDto) {
+        CardService.checkTransferAmount(transferCardRequestDto.getAmount());
+        Long userId = getAuthenticatedUserId();
+        checkCardsOwned(userId, Arrays.asList(cardId, transferCardRequestDto.getId()));
+        if (!inFlight.tryAcquire()) {
+            log.info("TransferService.submitTransfer.fail.capacity.forUser: {}", userId);
+            throw new TransferCapacityExceededException("Too many transfers in progress, retry later");
+        }
+        Transfer transfer;
+        try {
+            transfer = saveAndExecute(userId, cardId, transferCardRequestDto);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+        log.info("TransferService.submitTransfer.success.forUser: {}", userId);
+
+        return createResponse(transfer);
+    }
+
+    /// Разрешение inFlight возвращает задача после исполнения. Если исполнитель задачу не принял,
+    /// перевод сразу помечается FAILED и исключение уходит вызывающему.
+    private Transfer saveAndExecute(Long userId, Long cardId, TransferCardRequestDto transferCardRequestDto) {
+        Transfer transfer = transferRepository.save(Transfer.builder()
+                .userId(userId)
+                .fromCardId(cardId)
+                .toCardId(transferCardRequestDto.getId())
+                .amount(transferCardRequestDto.getAmount())
+                .status(TransferStatus.PENDING)
+                .build());
+
+        TransferCommand command = TransferCommand.builder()
+                .transferId(transfer.getId())
+                .fromCardId(cardId)
+                .toCardId(transferCardRequestDto.getId())
+                .amount(transferCardRequestDto.getAmount())
+                .build();
+        try {
+            transferExecutor.execute(() -> {
+                try {
+                    execute(command);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            transactionTemplate.executeWithoutResult(status -> transferRepository.completePending(
+                    List.of(transfer.getId()), TransferStatus.FAILED, "Transfer executor is shut down", LocalDateTime.now()));
+            throw new TransferCapacityExceededException("Transfer executor is shut down");
+        }
+        return transfer;
+    }
+
+    public TransferResponseDto getTransfer(Long transferId) {
+        Long userId = getAuthenticatedUserId();
+        return transferRepository.findByIdAndUserId(transferId, userId)
+                .map(this::createResponse)
+                .orElseThrow(() -> new TransferNotFoundException("Transfer not found"));
+    }
+
+    /**
+     * Одобряет перевод, задержанный оценкой риска: он возвращается в PENDING и сразу исполняется без повторной оценки.
+     * Лимиты и баланс проверяются как обычно, поэтому одобренный перевод еще может завершиться FAILED.
+     * Задержанный перевод лимит карты не занимает: оценка риска выполняется до резерва.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public TransferResponseDto releaseHeld(Long transferId) {
+        Transfer transfer = reviewHeld(transferId, TransferStatus.PENDING, null);
+        execute(TransferCommand.builder()
+                .transferId(transfer.getId())
+                .fromCardId(transfer.getFromCardId())
+                .toCardId(transfer.getToCardId())
+                .amount(transfer.getAmount())
+                .reviewed(true)
+                .build());
+        log.info("TransferService.releaseHeld.success: {}", transferId);
+
+        return transferRepository.findById(transferId)
+                .map(this::createResponse)
+                .orElseThrow(() -> new TransferNotFoundException("Transfer not found"));
+    }
+
+    /// Отклоняет перевод, задержанный оценкой риска: он помечается FAILED, балансы и лимиты не меняются.
+    @PreAuthorize("hasRole('ADMIN')")
+    public TransferResponseDto rejectHeld(Long transferId) {
+        Transfer transfer = reviewHeld(transferId, TransferStatus.FAILED, "Transfer rejected after review");
+        log.info("TransferService.rejectHeld.success: {}", transferId);
+
+        return createResponse(transfer);
+    }
+
+    /// Статус меняется условным UPDATE, поэтому два решения по одному переводу не пройдут оба.
+    private Transfer reviewHeld(Long transferId, TransferStatus status, String errorMessage) {
+        return transactionTemplate.execute(tx -> {
+            if (transferRepository.reviewHeld(transferId, status, errorMessage, LocalDateTime.now()) == 0) {
+                if (!transferRepository.existsById(transferId)) {
+                    throw new TransferNotFoundException("Transfer not found");
+                }
+                log.info("TransferService.reviewHeld.fail.notHeld: {}", transferId);
+                throw new TransferOperationException("Transfer is not held for review");
+            }
+            return transferRepository.findById(transferId)
+                    .orElseThrow(() -> new TransferNotFoundException("Transfer not found"));
+        });
+    }
+
+    /**
+     * Синхронно выполняет пачку переводов одной транзакцией. В режиме ALL_OR_NOTHING первая ошибка
+     * откатывает всю пачку, в режиме BEST_EFFORT ошибочные переводы пропускаются, остальные применяются.
+     * Все карты пачки должны принадлежать текущему пользователю: одна чужая карта отклоняет всю пачку
+     * до начала исполнения. Проверка здесь, а не в CardService.moneyTransferBatch, потому что конвейер
+     * вызывает его без контекста пользователя.
+     */
+    public BatchTransferResponseDto executeBatch(BatchTransferRequestDto batchTransferRequestDto) {
+        List<BatchTransferItemDto> items = batchTransferRequestDto.getTransfers();
+        if (items == null || items.isEmpty() || items.size() > maxBatchSize) {
+            throw new TransferOperationException("Batch must contain from 1 to " + maxBatchSize + " transfers");
+        }
+        if (balanceEngine.isEnabled()) {
+            throw new TransferOperationException("Batch transfers are not available while the balance engine is enabled");
+        }
+        Long userId = getAuthenticatedUserId();
+        List<Long> cardIds = new ArrayList<>(items.size() * 2);
+        for (BatchTransferItemDto item : items) {
+            cardIds.add(item.getFromCardId());
+            cardIds.add(item.getToCardId());
+        }
+        checkCardsOwned(userId, cardIds);
+        BatchTransferMode mode = batchTransferRequestDto.getMode() == null
+                ? BatchTransferMode.ALL_OR_NOTHING
+                : batchTransferRequestDto.getMode();
+
+        List<TransferCommand> commands = items.stream()
+                .map(item -> TransferCommand.builder()
+                        .fromCardId(item.getFromCardId())
+                        .toCardId(item.getToCardId())
+                        .amount(item.getAmount())
+                        .build())
+                .toList();
+
+        List<TransferResult> results;
+        boolean rolledBack = false;
+        try {
+            results = cardService.moneyTransferBatch(commands, mode == BatchTransferMode.ALL_OR_NOTHING);
+        } catch (BatchTransferAbortedException e) {
+            results = e.getResults();
+            rolledBack = true;
+        }
+        log.info("TransferService.executeBatch.success: {} transfers, rolledBack: {}", commands.size(), rolledBack);
+
+        return createBatchResponse(mode, results, rolledBack);
+    }
+
+    private BatchTransferResponseDto createBatchResponse(BatchTransferMode mode, List<TransferResult> results, boolean rolledBack) {
+        List<BatchTransferItemResultDto> items = new ArrayList<>(results.size());
+        int completed = 0;
+        int failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            TransferResult result = results.get(i);
+            BatchTransferItemStatus status;
+            if (!result.isExecuted()) {
+                status = BatchTransferItemStatus.SKIPPED;
+            } else if (!result.isSuccess()) {
+                status = BatchTransferItemStatus.FAILED;
+                failed++;
+            } else if (rolledBack) {
+                status = BatchTransferItemStatus.ROLLED_BACK;
+            } else {
+                status = BatchTransferItemStatus.COMPLETED;
+                completed++;
+            }
+            items.add(BatchTransferItemResultDto.builder()
+                    .index(i)
+                    .fromCardId(result.getCommand().getFromCardId())
+                    .toCardId(result.getCommand().getToCardId())
+                    .amount(result.getCommand().getAmount())
+                    .status(status)
+                    .errorMessage(result.getError() == null ? null : result.getError().getMessage())
+                    .build());
+        }
+
+        return BatchTransferResponseDto.builder()
+                .mode(mode)
+                .completed(completed)
+                .failed(failed)
+                .results(items)
+                .build();
+    }
+
+    /// Без конвейера перевод и отметка COMPLETED коммитятся одной транзакцией, а до ее открытия
+    /// берутся блокировки карт в CardLockManager. В конвейере отметку ставит CardService.moneyTransferBatch
+    /// внутри транзакции пачки. Движок балансов строки не блокирует, поэтому блокировки ему не нужны.
+    void execute(TransferCommand command) {
+        try {
+            if (balanceEngine.isEnabled()) {
+                executeThroughEngine(command);
+            } else if (transferPipeline.isEnabled()) {
+                transferPipeline.transfer(command);
+            } else {
+                cardLockManager.withCardLocks(command.getFromCardId(), command.getToCardId(),
+                        () -> executeInTransaction(command));
+            }
+            log.info("TransferService.execute.success: {}", command.getTransferId());
+        } catch (RuntimeException e) {
+            log.info("TransferService.execute.fail: {}: {}", command.getTransferId(), e.getMessage());
+            TransferStatus failedStatus = e instanceof SuspiciousTransferException suspicious && suspicious.isHeld()
+                    ? TransferStatus.HELD
+                    : TransferStatus.FAILED;
+            completeFailed(command.getTransferId(), failedStatus, e.getMessage());
+        }
+    }
+
+    /// Исключение из движка обычно означает, что перевод не принят, но шард мог упасть уже после записи в WAL,
+    /// поэтому FAILED ставится через {@link #completeFailed}.
+    /// После приема перевода отметка COMPLETED ставится сразу, но только для скорости ответа:
+    /// если она не удалась, ее поставит снимок движка вместе с историей операций.
+    private void executeThroughEngine(TransferCommand command) {
+        cardService.moneyTransferThroughEngine(command);
+        try {
+            transactionTemplate.executeWithoutResult(status -> transferRepository.completePending(
+                    List.of(command.getTransferId()), TransferStatus.COMPLETED, null, LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            log.error("TransferService.executeThroughEngine.fail.markCompleted: {}: {}", command.getTransferId(), e.getMessage());
+        }
+    }
+
+    /// В режиме движка перевод, записанный в WAL, остается PENDING: его завершит снимок. Если движок не отвечает
+    /// (шард остановлен), статус тоже не пишется - после перезапуска перевод подберет {@link #recover}.
+    private void completeFailed(Long transferId, TransferStatus failedStatus, String errorMessage) {
+        Runnable markFailed = () -> transactionTemplate.executeWithoutResult(status -> transferRepository.completePending(
+                List.of(transferId), failedStatus, errorMessage, LocalDateTime.now()));
+        if (!balanceEngine.isEnabled()) {
+            markFailed.run();
+            return;
+        }
+        try {
+            if (!balanceEngine.runUnlessLogged(transferId, markFailed)) {
+                log.info("TransferService.completeFailed.skip.logged: {}", transferId);
+            }
+        } catch (RuntimeException e) {
+            log.error("TransferService.completeFailed.fail.engine: {}: {}", transferId, e.getMessage());
+        }
+    }
+
+    /**
+     * Забирает до limit переводов, которые дольше staleAfter висят в PENDING: узел, принявший перевод,
+     * упал до его исполнения. Строки берутся с SKIP LOCKED, и им сдвигается updated_at,
+     * поэтому другой узел те же переводы заберет не раньше, чем через staleAfter.
+     * В режиме движка берутся только переводы, не менявшиеся с его запуска: более новые еще может исполнять
+     * поток этого узла, и их запись в WAL может случиться уже после проверки в {@link #recover}.
+     */
+    List<TransferCommand> claimStale(int limit, Duration staleAfter) {
+        LocalDateTime staleBefore = LocalDateTime.now().minus(staleAfter);
+        if (balanceEngine.isEnabled() && balanceEngine.getStartedAt().isBefore(staleBefore)) {
+            staleBefore = balanceEngine.getStartedAt();
+        }
+        LocalDateTime claimBefore = staleBefore;
+        return transactionTemplate.execute(status -> {
+            List<Transfer> stale = transferRepository.findStaleForUpdateSkipLocked(claimBefore, limit);
+            stale.forEach(transfer -> transfer.setUpdatedAt(LocalDateTime.now()));
+            return stale.stream()
+                    .map(transfer -> TransferCommand.builder()
+                            .transferId(transfer.getId())
+                            .fromCardId(transfer.getFromCardId())
+                            .toCardId(transfer.getToCardId())
+                            .amount(transfer.getAmount())
+                            .build())
+                    .toList();
+        });
+    }
+
+    /// Повторное исполнение безопасно: перевод, уже исполненный другим узлом, не пройдет проверку PENDING
+    /// под блокировкой строки. Движок балансов не проверяет повторы, поэтому в его режиме зависший перевод
+    /// не исполняется повторно: записанный в WAL остается PENDING до снимка, остальные помечаются FAILED.
+    void recover(TransferCommand command) {
+        if (balanceEngine.isEnabled()) {
+            completeFailed(command.getTransferId(), TransferStatus.FAILED, "Transfer was interrupted");
+            log.info("TransferService.recover.fail.interrupted: {}", command.getTransferId());
+            return;
+        }
+        execute(command);
+    }
+
+    private void executeInTransaction(TransferCommand command) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (transferRepository.lockPending(List.of(command.getTransferId())).isEmpty()) {
+                log.info("TransferService.execute.skip.alreadyProcessed: {}", command.getTransferId());
+                return;
+            }
+            cardService.moneyTransfer(command.getFromCardId(), TransferCardRequestDto.builder()
+                    .id(command.getToCardId())
+                    .amount(command.getAmount())
+                    .build(), command.isReviewed());
+            transferRepository.completePending(List.of(command.getTransferId()),
+                    TransferStatus.COMPLETED, null, LocalDateTime.now());
+        });
+    }
+
+    private TransferResponseDto createResponse(Transfer transfer) {
+        return TransferResponseDto.builder()
+                .id(transfer.getId())
+                .fromCardId(transfer.getFromCardId())
+                .toCardId(transfer.getToCardId())
+                .amount(transfer.getAmount())
+                .status(transfer.getStatus())
+                .errorMessage(transfer.getErrorMessage())
+                .createdAt(transfer.getCreatedAt())
+                .updatedAt(transfer.getUpdatedAt())
+                .build();
+    }
+
+    /// Чужая и несуществующая карта неразличимы для клиента: обе дают CardNotFoundException.
+    private void checkCardsOwned(Long userId, Collection<Long> cardIds) {
+        if (cardIds.contains(null)) {
+            throw new CardNotFoundException("Card not found");
+        }
+        Set<Long> distinctIds = new HashSet<>(cardIds);
+        if (cardRepository.countByIdInAndUser_Id(distinctIds, userId) != distinctIds.size()) {
+            log.info("TransferService.checkCardsOwned.fail.forUser: {}", userId);
+            throw new CardNotFoundException("Card not found");
+        }
+    }
+
+    private Long getAuthenticatedUserId() {
+        UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return userRepository.findIdByUsername(userDetails.getUsername()).orElseThrow(() -> new UserNotFoundException("User not found"));
+    }
+}
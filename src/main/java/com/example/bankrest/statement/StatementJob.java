@@ -0,0 +1,334 @@
+package com.example.bankrest.statement;
+
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.entity.TransactionDirection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Месячные выписки по всем картам. Пространство id карт делится на выровненные диапазоны по range-size,
+ * диапазоны обрабатываются параллельно в ForkJoinPool. Каждый диапазон - один потоковый запрос с fetch-size,
+ * поэтому память не зависит от числа карт и операций: на карту пишется JSON с операциями периода и итогами,
+ * на диапазон - summary.csv с итогами всех его карт. Входящий баланс - card_opening_balances плюс операции
+ * до начала периода, исходящий - входящий плюс операции периода: выписка не зависит от текущего cards.balance
+ * и от того, когда ее сформировали.
+ * <p>
+ * Файлы диапазона пишутся во временный каталог, который переименовывается после записи, затем диапазон
+ * отмечается в statement_checkpoints. Прерванный запуск (статус RUNNING) продолжается со следующего
+ * срабатывания и пропускает отмеченные диапазоны. Файлы локальные, поэтому по умолчанию задача выключена
+ * и statements.enabled включают ровно на одном узле.
+ */
+@Component
+@Slf4j
+public class StatementJob {
+
+    private static final String SUMMARY_HEADER = "card_id,opening_balance,closing_balance,total_debit,total_credit,transactions\n";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${statements.enabled:false}")
+    private boolean enabled;
+
+    @Value("${statements.dir:./data/statements}")
+    private String statementsDir;
+
+    @Value("${statements.range-size:10000}")
+    private long rangeSize;
+
+    @Value("${statements.parallelism:4}")
+    private int parallelism;
+
+    @Value("${statements.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${statements.buffer-kb:64}")
+    private int bufferKb;
+
+    public StatementJob(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /// Заводит запуск за прошлый месяц, если его еще нет, и продолжает все незавершенные запуски.
+    @Scheduled(cron = "${statements.cron:0 15 * * * *}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            YearMonth previous = YearMonth.now().minusMonths(1);
+            jdbcTemplate.update("INSERT INTO statement_runs (period) VALUES (?) ON CONFLICT (period) DO NOTHING",
+                    Date.valueOf(previous.atDay(1)));
+            List<LocalDate> periods = jdbcTemplate.queryForList(
+                    "SELECT period FROM statement_runs WHERE status = 'RUNNING' ORDER BY period", LocalDate.class);
+            for (LocalDate period : periods) {
+                generate(YearMonth.from(period));
+            }
+        } catch (RuntimeException e) {
+            log.error("StatementJob.run.fail: {}", e.getMessage());
+        }
+    }
+
+    public void generate(YearMonth period) {
+        Set<Long> completedRanges = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT range_start FROM statement_checkpoints WHERE period = ?", Long.class, Date.valueOf(period.atDay(1))));
+        Run run = new Run(period,
+                period.atDay(1).atStartOfDay(),
+                period.plusMonths(1).atDay(1).atStartOfDay(),
+                Path.of(statementsDir, period.toString()),
+                completedRanges,
+                new AtomicInteger(),
+                new AtomicInteger());
+
+        Long minId = jdbcTemplate.queryForObject("SELECT min(id) FROM cards", Long.class);
+        Long maxId = jdbcTemplate.queryForObject("SELECT max(id) FROM cards", Long.class);
+        if (minId != null) {
+            try {
+                Files.createDirectories(run.directory());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Can't create statements directory " + run.directory(), e);
+            }
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new StatementRangeTask(this, run,
+                        Math.floorDiv(minId, rangeSize), Math.floorDiv(maxId, rangeSize) + 1));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        if (run.failedRanges().get() > 0) {
+            log.error("StatementJob.generate.fail: {}, {} ranges failed, will resume", period, run.failedRanges().get());
+            return;
+        }
+        jdbcTemplate.update("UPDATE statement_runs SET status = 'COMPLETED', completed_at = now() WHERE period = ?",
+                Date.valueOf(period.atDay(1)));
+        log.info("StatementJob.generate.success: {}, {} cards", period, run.cards().get());
+    }
+
+    /// Ошибка диапазона не останавливает остальные: он останется без отметки и будет повторен при следующем запуске.
+    void processRange(Run run, long range) {
+        long start = range * rangeSize;
+        if (run.completedRanges().contains(start)) {
+            return;
+        }
+        Path target = run.directory().resolve(Long.toString(start));
+        Path temporary = run.directory().resolve(start + ".tmp");
+        try {
+            deleteRecursively(temporary);
+            Files.createDirectories(temporary);
+            Integer cards = readOnlyTransaction.execute(status -> writeRange(run, start, start + rangeSize, temporary));
+            deleteRecursively(target);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            jdbcTemplate.update("""
+                    INSERT INTO statement_checkpoints (period, range_start, range_end, cards) VALUES (?, ?, ?, ?)
+                    ON CONFLICT (period, range_start) DO NOTHING
+                    """, Date.valueOf(run.period().atDay(1)), start, start + rangeSize, cards);
+            run.cards().addAndGet(cards == null ? 0 : cards);
+        } catch (IOException | RuntimeException e) {
+            run.failedRanges().incrementAndGet();
+            log.error("StatementJob.processRange.fail: {} from {}: {}", run.period(), start, e.getMessage());
+        }
+    }
+
+    /// Операции до начала периода сворачиваются в базе в одну сумму на карту, построчно читается только период.
+    private int writeRange(Run run, long start, long end, Path directory) {
+        try (RangeWriter writer = new RangeWriter(run, directory)) {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement("""
+                        WITH prior AS (
+                            SELECT card_id, sum(CASE WHEN direction = 'CREDIT' THEN amount ELSE -amount END) AS net
+                            FROM card_transactions
+                            WHERE card_id >= ? AND card_id < ? AND created_at < ?
+                            GROUP BY card_id
+                        )
+                        SELECT c.id AS card_id, COALESCE(o.opening_balance, 0) + COALESCE(p.net, 0) AS opening_balance,
+                               t.id AS transaction_id, t.counterparty_card_id, t.direction, t.amount, t.created_at
+                        FROM cards c
+                        LEFT JOIN card_opening_balances o ON o.card_id = c.id
+                        LEFT JOIN prior p ON p.card_id = c.id
+                        LEFT JOIN card_transactions t ON t.card_id = c.id AND t.created_at >= ? AND t.created_at < ?
+                        WHERE c.id >= ? AND c.id < ? AND c.created_at < ?
+                        ORDER BY c.id, t.created_at, t.id
+                        """);
+                statement.setFetchSize(fetchSize);
+                statement.setLong(1, start);
+                statement.setLong(2, end);
+                statement.setTimestamp(3, Timestamp.valueOf(run.start()));
+                statement.setTimestamp(4, Timestamp.valueOf(run.start()));
+                statement.setTimestamp(5, Timestamp.valueOf(run.end()));
+                statement.setLong(6, start);
+                statement.setLong(7, end);
+                statement.setTimestamp(8, Timestamp.valueOf(run.end()));
+                return statement;
+            }, writer);
+            writer.finishCard();
+            return writer.cards;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path file : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static String amount(long minorUnits) {
+        return Money.ofMinorUnits(minorUnits).toBigDecimal().toPlainString();
+    }
+
+    record Run(YearMonth period, LocalDateTime start, LocalDateTime end, Path directory,
+               Set<Long> completedRanges, AtomicInteger failedRanges, AtomicInteger cards) {
+    }
+
+    /// Строки приходят упорядоченными по карте, поэтому в памяти только итоги текущей карты.
+    private class RangeWriter implements RowCallbackHandler, Closeable {
+
+        private final Run run;
+        private final Path directory;
+        private final StatementFileWriter cardWriter;
+        private final StatementFileWriter summaryWriter;
+        private final StringBuilder line = new StringBuilder(128);
+        private long cardId = -1;
+        private long opening;
+        private long periodNet;
+        private long totalDebit;
+        private long totalCredit;
+        private int transactions;
+        private int cards;
+
+        RangeWriter(Run run, Path directory) throws IOException {
+            this.run = run;
+            this.directory = directory;
+            this.cardWriter = new StatementFileWriter(bufferKb * 1024);
+            this.summaryWriter = new StatementFileWriter(bufferKb * 1024);
+            summaryWriter.open(directory.resolve("summary.csv"));
+            summaryWriter.write(SUMMARY_HEADER);
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            try {
+                long rowCardId = rs.getLong("card_id");
+                if (rowCardId != cardId) {
+                    finishCard();
+                    startCard(rowCardId, rs.getLong("opening_balance"));
+                }
+                long transactionId = rs.getLong("transaction_id");
+                if (rs.wasNull()) {
+                    return;
+                }
+                boolean debit = TransactionDirection.DEBIT.name().equals(rs.getString("direction"));
+                long amount = rs.getLong("amount");
+                LocalDateTime createdAt = rs.getTimestamp("created_at").toLocalDateTime();
+                if (debit) {
+                    periodNet -= amount;
+                    totalDebit += amount;
+                } else {
+                    periodNet += amount;
+                    totalCredit += amount;
+                }
+
+                long counterpartyCardId = rs.getLong("counterparty_card_id");
+                boolean posting = rs.wasNull();
+
+                line.setLength(0);
+                line.append(transactions++ == 0 ? "" : ",")
+                        .append("{\"id\":").append(transactionId)
+                        .append(",\"counterpartyCardId\":").append(posting ? "null" : Long.toString(counterpartyCardId))
+                        .append(",\"direction\":\"").append(debit ? TransactionDirection.DEBIT : TransactionDirection.CREDIT)
+                        .append("\",\"amount\":").append(amount(amount))
+                        .append(",\"createdAt\":\"").append(createdAt).append("\"}");
+                cardWriter.write(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void startCard(long newCardId, long openingBalance) throws IOException {
+            cardId = newCardId;
+            opening = openingBalance;
+            periodNet = 0;
+            totalDebit = 0;
+            totalCredit = 0;
+            transactions = 0;
+            cardWriter.open(directory.resolve(newCardId + ".json"));
+            line.setLength(0);
+            line.append("{\"cardId\":").append(newCardId)
+                    .append(",\"period\":\"").append(run.period())
+                    .append("\",\"transactions\":[");
+            cardWriter.write(line);
+        }
+
+        void finishCard() throws IOException {
+            if (cardId < 0) {
+                return;
+            }
+            long closing = opening + periodNet;
+            line.setLength(0);
+            line.append("],\"openingBalance\":").append(amount(opening))
+                    .append(",\"closingBalance\":").append(amount(closing))
+                    .append(",\"totalDebit\":").append(amount(totalDebit))
+                    .append(",\"totalCredit\":").append(amount(totalCredit))
+                    .append("}\n");
+            cardWriter.write(line);
+            cardWriter.close();
+
+            line.setLength(0);
+            line.append(cardId).append(',').append(amount(opening))
+                    .append(',').append(amount(closing))
+                    .append(',').append(amount(totalDebit))
+                    .append(',').append(amount(totalCredit))
+                    .append(',').append(transactions).append('\n');
+            summaryWriter.write(line);
+            cards++;
+            cardId = -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                cardWriter.close();
+            } finally {
+                summaryWriter.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.bankrest.statement;
+
+import java.util.concurrent.RecursiveAction;
+
+/// Делит отрезок диапазонов карт [fromRange, toRange) пополам, пока не останется один диапазон,
+/// который обрабатывает {@link StatementJob#processRange}. Диапазоны выровнены по range-size.
+class StatementRangeTask extends RecursiveAction {
+
+    private final StatementJob job;
+    private final StatementJob.Run run;
+    private final long fromRange;
+    private final long toRange;
+
+    StatementRangeTask(StatementJob job, StatementJob.Run run, long fromRange, long toRange) {
+        this.job = job;
+        this.run = run;
+        this.fromRange = fromRange;
+        this.toRange = toRange;
+    }
+
+    @Override
+    protected void compute() {
+        if (toRange - fromRange == 1) {
+            job.processRange(run, fromRange);
+            return;
+        }
+        long middle = (fromRange + toRange) >>> 1;
+        invokeAll(new StatementRangeTask(job, run, fromRange, middle),
+                new StatementRangeTask(job, run, middle, toRange));
+    }
+}
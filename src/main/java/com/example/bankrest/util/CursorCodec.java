@@ -0,0 +1,51 @@
+package com.example.bankrest.util;
+
+import com.example.bankrest.exception.InvalidCursorException;
+
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор keyset-пагинации: позиция последней отданной строки (created_at или updated_at, id),
+ * упакованная в 16 байт и закодированная base64url. Клиент передает его обратно как есть.
+ */
+public final class CursorCodec {
+
+    private static final int CURSOR_BYTES = 2 * Long.BYTES;
+    private static final LocalDateTime EPOCH = LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC);
+
+    private CursorCodec() {}
+
+    public static String encode(LocalDateTime createdAt, Long id) {
+        ByteBuffer buffer = ByteBuffer.allocate(CURSOR_BYTES)
+                .putLong(ChronoUnit.MICROS.between(EPOCH, createdAt))
+                .putLong(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    public static Position decode(String cursor) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        if (bytes.length != CURSOR_BYTES) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            return new Position(EPOCH.plus(buffer.getLong(), ChronoUnit.MICROS), buffer.getLong());
+        } catch (DateTimeException | ArithmeticException e) {
+            // подделанный курсор с числом микросекунд за пределами LocalDateTime
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+
+    public record Position(LocalDateTime createdAt, long id) {
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.bankrest.util;
+
+import java.util.Arrays;
+
+/**
+ * Хеш-таблица long -> long с открытой адресацией и линейным пробированием, без упаковки в Long.
+ * Ключ 0 зарезервирован под пустую ячейку, поэтому подходит для id из BIGSERIAL.
+ * Не потокобезопасна: рассчитана на одного владельца-писателя.
+ */
+public class LongLongHashMap {
+
+    private static final long EMPTY_KEY = 0L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    public LongLongHashMap(int expectedSize) {
+        allocate(tableSizeFor(Math.max(4, (int) (expectedSize / LOAD_FACTOR))));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return keys[indexOf(key)] != EMPTY_KEY;
+    }
+
+    public long get(long key, long defaultValue) {
+        int index = indexOf(key);
+        return keys[index] == EMPTY_KEY ? defaultValue : values[index];
+    }
+
+    public void put(long key, long value) {
+        checkKey(key);
+        int index = indexOf(key);
+        if (keys[index] == EMPTY_KEY) {
+            keys[index] = key;
+            size++;
+        }
+        values[index] = value;
+        if (size > resizeThreshold) {
+            resize();
+        }
+    }
+
+    /// Прибавляет delta к значению ключа (отсутствующий ключ считается нулем) и возвращает новое значение.
+    public long addTo(long key, long delta) {
+        checkKey(key);
+        int index = indexOf(key);
+        if (keys[index] == EMPTY_KEY) {
+            keys[index] = key;
+            values[index] = delta;
+            size++;
+            if (size > resizeThreshold) {
+                resize();
+            }
+            return delta;
+        }
+        values[index] += delta;
+        return values[index];
+    }
+
+    public void remove(long key) {
+        int index = indexOf(key);
+        if (keys[index] == EMPTY_KEY) {
+            return;
+        }
+        keys[index] = EMPTY_KEY;
+        size--;
+
+        // обратный сдвиг, чтобы не оставлять "дыр" в цепочках пробирования
+        int next = (index + 1) & mask;
+        while (keys[next] != EMPTY_KEY) {
+            long movedKey = keys[next];
+            int ideal = hash(movedKey);
+            if (((next - ideal) & mask) >= ((next - index) & mask)) {
+                keys[index] = movedKey;
+                values[index] = values[next];
+                keys[next] = EMPTY_KEY;
+                index = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY_KEY);
+        size = 0;
+    }
+
+    public void forEach(LongLongConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY_KEY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public long[] keys() {
+        long[] result = new long[size];
+        int position = 0;
+        for (long key : keys) {
+            if (key != EMPTY_KEY) {
+                result[position++] = key;
+            }
+        }
+        return result;
+    }
+
+    private int indexOf(long key) {
+        int index = hash(key);
+        while (keys[index] != EMPTY_KEY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private int hash(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY_KEY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY_KEY) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    @FunctionalInterface
+    public interface LongLongConsumer {
+        void accept(long key, long value);
+    }
+}
@@ -0,0 +1,16 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+CREATE TABLE card_spend_counters (
+    card_id BIGINT PRIMARY KEY,
+    spend_day DATE NOT NULL,
+    day_spent BIGINT NOT NULL DEFAULT 0,
+    spend_month DATE NOT NULL,
+    month_spent BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_card_spend_counters_card_id FOREIGN KEY (card_id) REFERENCES cards(id) ON DELETE CASCADE
+);
+
+--changeset treebeaz:2
+CREATE INDEX idx_card_spend_counters_spend_month ON card_spend_counters(spend_month);
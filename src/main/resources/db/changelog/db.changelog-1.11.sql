@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+ALTER TABLE transfers DROP CONSTRAINT transfers_status_check;
+ALTER TABLE transfers ADD CONSTRAINT transfers_status_check CHECK ( status IN ('PENDING', 'COMPLETED', 'FAILED', 'HELD') );
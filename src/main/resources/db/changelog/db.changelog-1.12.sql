@@ -0,0 +1,31 @@
+--liquibase formatted sql
+
+-- balance был nullable с 1.1: старые строки с NULL ломали перенос в available_balance и opening_balance в 1.17.
+-- Набор добавлен позже остальных, но стоит первым, чтобы на новой базе выполниться до них
+--changeset treebeaz:0
+UPDATE cards SET balance = 0 WHERE balance IS NULL;
+ALTER TABLE cards ALTER COLUMN balance SET NOT NULL;
+
+--changeset treebeaz:1
+ALTER TABLE cards ADD COLUMN available_balance BIGINT NOT NULL DEFAULT 0;
+UPDATE cards SET available_balance = balance;
+
+--changeset treebeaz:2
+CREATE TABLE holds (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    from_card_id BIGINT NOT NULL,
+    to_card_id BIGINT NOT NULL,
+    amount BIGINT NOT NULL CHECK ( amount > 0 ),
+    status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE' CHECK ( status IN ('ACTIVE', 'CAPTURED', 'VOIDED', 'EXPIRED') ),
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_holds_user_id FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_holds_from_card_id FOREIGN KEY (from_card_id) REFERENCES cards(id) ON DELETE CASCADE
+);
+
+--changeset treebeaz:3
+CREATE INDEX idx_holds_user_id ON holds(user_id);
+CREATE INDEX idx_holds_active_expires_at ON holds(expires_at) WHERE status = 'ACTIVE';
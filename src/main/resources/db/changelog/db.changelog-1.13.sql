@@ -0,0 +1,25 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+CREATE TABLE scheduled_transfers (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    from_card_id BIGINT NOT NULL,
+    to_card_id BIGINT NOT NULL,
+    amount BIGINT NOT NULL CHECK ( amount > 0 ),
+    frequency VARCHAR(20) NOT NULL CHECK ( frequency IN ('DAILY', 'WEEKLY', 'MONTHLY') ),
+    anchor_day SMALLINT NOT NULL,
+    next_run_at TIMESTAMP NOT NULL,
+    last_run_at TIMESTAMP,
+    status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE' CHECK ( status IN ('ACTIVE', 'CANCELLED') ),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_scheduled_transfers_user_id FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_scheduled_transfers_from_card_id FOREIGN KEY (from_card_id) REFERENCES cards(id) ON DELETE CASCADE,
+    CONSTRAINT fk_scheduled_transfers_to_card_id FOREIGN KEY (to_card_id) REFERENCES cards(id) ON DELETE CASCADE
+);
+
+--changeset treebeaz:2
+CREATE INDEX idx_scheduled_transfers_user_id ON scheduled_transfers(user_id);
+CREATE INDEX idx_scheduled_transfers_active_next_run_at ON scheduled_transfers(next_run_at) WHERE status = 'ACTIVE';
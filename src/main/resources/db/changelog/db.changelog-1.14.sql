@@ -0,0 +1,16 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+CREATE TABLE card_transactions (
+    id BIGSERIAL PRIMARY KEY,
+    card_id BIGINT NOT NULL,
+    counterparty_card_id BIGINT NOT NULL,
+    direction VARCHAR(10) NOT NULL CHECK ( direction IN ('DEBIT', 'CREDIT') ),
+    amount BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_card_transactions_card_id FOREIGN KEY (card_id) REFERENCES cards(id) ON DELETE CASCADE
+);
+
+--changeset treebeaz:2
+CREATE INDEX idx_card_transactions_card_id_created_at_id ON card_transactions(card_id, created_at, id);
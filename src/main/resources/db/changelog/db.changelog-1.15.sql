@@ -0,0 +1,44 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1 splitStatements:false
+ALTER SEQUENCE card_transactions_id_seq OWNED BY NONE;
+ALTER TABLE card_transactions RENAME TO card_transactions_legacy;
+ALTER INDEX idx_card_transactions_card_id_created_at_id RENAME TO idx_card_transactions_legacy_card_id_created_at_id;
+
+CREATE TABLE card_transactions (
+    id BIGINT NOT NULL DEFAULT nextval('card_transactions_id_seq'),
+    card_id BIGINT NOT NULL,
+    counterparty_card_id BIGINT NOT NULL,
+    direction VARCHAR(10) NOT NULL CHECK ( direction IN ('DEBIT', 'CREDIT') ),
+    amount BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (id, created_at),
+    CONSTRAINT fk_card_transactions_card_id FOREIGN KEY (card_id) REFERENCES cards(id) ON DELETE CASCADE
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX idx_card_transactions_card_id_created_at_id ON card_transactions(card_id, created_at, id);
+
+-- страховка на случай, если задача обслуживания не успела создать месяц; в норме пуста
+CREATE TABLE card_transactions_default PARTITION OF card_transactions DEFAULT;
+
+-- месячные секции с первого месяца существующих данных и на три месяца вперед
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', COALESCE((SELECT min(created_at) FROM card_transactions_legacy), now()))::DATE;
+    last_month DATE := (date_trunc('month', now()) + INTERVAL '3 months')::DATE;
+BEGIN
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF card_transactions FOR VALUES FROM (%L) TO (%L)',
+                       'card_transactions_' || to_char(month_start, 'YYYY_MM'),
+                       month_start,
+                       (month_start + INTERVAL '1 month')::DATE);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+INSERT INTO card_transactions (id, card_id, counterparty_card_id, direction, amount, created_at)
+SELECT id, card_id, counterparty_card_id, direction, amount, created_at FROM card_transactions_legacy;
+
+DROP TABLE card_transactions_legacy;
+ALTER SEQUENCE card_transactions_id_seq OWNED BY card_transactions.id;
@@ -0,0 +1,21 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+CREATE TABLE statement_runs (
+    period DATE PRIMARY KEY,
+    status VARCHAR(20) NOT NULL DEFAULT 'RUNNING' CHECK ( status IN ('RUNNING', 'COMPLETED') ),
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP
+);
+
+--changeset treebeaz:2
+CREATE TABLE statement_checkpoints (
+    period DATE NOT NULL,
+    range_start BIGINT NOT NULL,
+    range_end BIGINT NOT NULL,
+    cards INT NOT NULL,
+    completed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (period, range_start),
+    CONSTRAINT fk_statement_checkpoints_period FOREIGN KEY (period) REFERENCES statement_runs(period) ON DELETE CASCADE
+);
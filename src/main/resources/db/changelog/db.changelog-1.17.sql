@@ -0,0 +1,45 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+CREATE TABLE card_opening_balances (
+    card_id BIGINT PRIMARY KEY,
+    opening_balance BIGINT NOT NULL,
+
+    CONSTRAINT fk_card_opening_balances_card_id FOREIGN KEY (card_id) REFERENCES cards(id) ON DELETE CASCADE
+);
+
+-- баланс карт на момент до начала истории операций: все, что было до card_transactions
+INSERT INTO card_opening_balances (card_id, opening_balance)
+SELECT c.id, c.balance - COALESCE(sum(CASE WHEN t.direction = 'CREDIT' THEN t.amount ELSE -t.amount END), 0)
+FROM cards c
+LEFT JOIN card_transactions t ON t.card_id = c.id
+GROUP BY c.id, c.balance;
+
+--changeset treebeaz:2
+CREATE TABLE reconciliation_runs (
+    id BIGSERIAL PRIMARY KEY,
+    status VARCHAR(20) NOT NULL DEFAULT 'RUNNING' CHECK ( status IN ('RUNNING', 'COMPLETED', 'FAILED') ),
+    ranges_total INT NOT NULL,
+    ranges_done INT NOT NULL DEFAULT 0,
+    ranges_failed INT NOT NULL DEFAULT 0,
+    cards_checked BIGINT NOT NULL DEFAULT 0,
+    drifted_cards BIGINT NOT NULL DEFAULT 0,
+    total_balance BIGINT NOT NULL DEFAULT 0,
+    total_opening_balance BIGINT NOT NULL DEFAULT 0,
+    ledger_net BIGINT NOT NULL DEFAULT 0,
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP
+);
+
+CREATE TABLE reconciliation_drifts (
+    run_id BIGINT NOT NULL,
+    card_id BIGINT NOT NULL,
+    balance BIGINT NOT NULL,
+    expected_balance BIGINT NOT NULL,
+
+    PRIMARY KEY (run_id, card_id),
+    CONSTRAINT fk_reconciliation_drifts_run_id FOREIGN KEY (run_id) REFERENCES reconciliation_runs(id) ON DELETE CASCADE
+);
+
+--changeset treebeaz:3
+CREATE UNIQUE INDEX idx_reconciliation_runs_single_running ON reconciliation_runs(status) WHERE status = 'RUNNING';
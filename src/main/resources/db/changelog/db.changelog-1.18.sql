@@ -0,0 +1,19 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+CREATE TABLE accrual_postings (
+    card_id BIGINT NOT NULL,
+    period DATE NOT NULL,
+    amount BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (card_id, period),
+    CONSTRAINT fk_accrual_postings_card_id FOREIGN KEY (card_id) REFERENCES cards(id) ON DELETE CASCADE
+);
+
+--changeset treebeaz:2
+-- начисления и комиссии попадают в историю карты без карты-контрагента
+ALTER TABLE card_transactions ALTER COLUMN counterparty_card_id DROP NOT NULL;
+
+--changeset treebeaz:3
+ALTER TABLE reconciliation_runs ADD COLUMN postings_net BIGINT NOT NULL DEFAULT 0;
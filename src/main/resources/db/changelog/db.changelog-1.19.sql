@@ -0,0 +1,33 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+ALTER TABLE cards ADD COLUMN currency VARCHAR(3) NOT NULL DEFAULT 'RUB';
+
+--changeset treebeaz:2
+-- курс по холду фиксируется при авторизации: сумма зачисления в валюте карты-получателя
+ALTER TABLE holds ADD COLUMN credit_amount BIGINT;
+UPDATE holds SET credit_amount = amount;
+ALTER TABLE holds ALTER COLUMN credit_amount SET NOT NULL;
+
+--changeset treebeaz:3
+-- 1 base_currency = rate quote_currency
+CREATE TABLE fx_rates (
+    base_currency VARCHAR(3) NOT NULL,
+    quote_currency VARCHAR(3) NOT NULL,
+    rate NUMERIC(20, 10) NOT NULL CHECK ( rate > 0 ),
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (base_currency, quote_currency)
+);
+
+--changeset treebeaz:4 splitStatements:false
+CREATE FUNCTION notify_fx_rates_changed() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('fx_rates_changed', '');
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_fx_rates_changed
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON fx_rates
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_fx_rates_changed();
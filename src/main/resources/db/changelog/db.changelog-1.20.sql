@@ -0,0 +1,9 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+UPDATE cards SET created_at = COALESCE(updated_at, CURRENT_TIMESTAMP) WHERE created_at IS NULL;
+ALTER TABLE cards ALTER COLUMN created_at SET NOT NULL;
+
+--changeset treebeaz:2
+CREATE INDEX idx_cards_created_at_id ON cards(created_at DESC, id DESC);
+CREATE INDEX idx_cards_user_id_created_at_id ON cards(user_id, created_at DESC, id DESC);
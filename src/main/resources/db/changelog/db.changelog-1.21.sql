@@ -0,0 +1,31 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+UPDATE cards SET updated_at = created_at WHERE updated_at IS NULL;
+ALTER TABLE cards ALTER COLUMN updated_at SET NOT NULL;
+
+--changeset treebeaz:2
+CREATE INDEX idx_cards_user_id_updated_at_id ON cards(user_id, updated_at, id);
+
+--changeset treebeaz:3
+-- удаленные карты для синхронизации изменений: card_id не ссылается на cards, строка переживает карту
+CREATE TABLE card_tombstones (
+    card_id BIGINT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    deleted_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_card_tombstones_user_id_deleted_at ON card_tombstones(user_id, deleted_at);
+
+--changeset treebeaz:4 splitStatements:false
+-- триггер ловит и удаление карты администратором, и каскадное удаление вместе с пользователем
+CREATE FUNCTION record_card_tombstone() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO card_tombstones (card_id, user_id, deleted_at) VALUES (OLD.id, OLD.user_id, now());
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_cards_tombstone
+    AFTER DELETE ON cards
+    FOR EACH ROW EXECUTE FUNCTION record_card_tombstone();
@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+-- поиск карт администратором: каждый фильтр опирается на свой индекс, сортировка - как у списка карт
+CREATE INDEX idx_cards_status_created_at_id ON cards(status, created_at DESC, id DESC);
+CREATE INDEX idx_cards_expiry_date ON cards(expiry_date);
+CREATE INDEX idx_cards_last_digits ON cards(last_digits);
+
+--changeset treebeaz:2
+-- префикс имени держателя ищется через lower(cardholder_name) LIKE 'prefix%'
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_cards_cardholder_name_trgm ON cards USING gin (lower(cardholder_name) gin_trgm_ops);
@@ -0,0 +1,24 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+-- списания по часовым корзинам для скользящих лимитов; bucket_hour - номер часа от эпохи UTC.
+-- без внешнего ключа на cards: сброс дельт удаленной карты не должен ронять всю пачку, старые корзины чистит prune
+CREATE TABLE card_spend_buckets (
+    card_id BIGINT NOT NULL,
+    bucket_hour BIGINT NOT NULL,
+    spent BIGINT NOT NULL DEFAULT 0,
+
+    CONSTRAINT pk_card_spend_buckets PRIMARY KEY (card_id, bucket_hour)
+);
+
+CREATE INDEX idx_card_spend_buckets_bucket_hour ON card_spend_buckets(bucket_hour);
+
+--changeset treebeaz:2
+-- списания текущего календарного месяца переносятся в час последнего обновления счетчика:
+-- так они попадают в оба окна и лимит после перехода не ослабевает
+INSERT INTO card_spend_buckets (card_id, bucket_hour, spent)
+SELECT card_id, floor(extract(epoch FROM updated_at AT TIME ZONE current_setting('TimeZone')) / 3600)::bigint, month_spent
+FROM card_spend_counters
+WHERE spend_month = date_trunc('month', current_date)::date AND month_spent > 0;
+
+DROP TABLE card_spend_counters;
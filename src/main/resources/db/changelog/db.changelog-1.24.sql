@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+-- поиск зависших переводов: индекс держит только PENDING, поэтому остается маленьким
+CREATE INDEX idx_transfers_pending_updated_at ON transfers(updated_at) WHERE status = 'PENDING';
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+-- признак жизни запуска сверки: запуск без обновлений дольше порога считается брошенным
+ALTER TABLE reconciliation_runs ADD COLUMN heartbeat_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
@@ -0,0 +1,14 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1 splitStatements:false
+-- updated_at ставит база, как и deleted_at в card_tombstones: лента изменений сравнивает их по одним часам
+CREATE FUNCTION stamp_card_updated_at() RETURNS trigger AS $$
+BEGIN
+    NEW.updated_at := now();
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_cards_updated_at
+    BEFORE INSERT OR UPDATE ON cards
+    FOR EACH ROW EXECUTE FUNCTION stamp_card_updated_at();
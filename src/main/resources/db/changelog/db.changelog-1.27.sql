@@ -0,0 +1,23 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+-- итоги сверки по валютам: суммы в минорных единицах разных валют складывать нельзя
+CREATE TABLE reconciliation_currency_totals (
+    run_id BIGINT NOT NULL,
+    currency VARCHAR(3) NOT NULL,
+    cards BIGINT NOT NULL DEFAULT 0,
+    total_balance BIGINT NOT NULL DEFAULT 0,
+    total_opening_balance BIGINT NOT NULL DEFAULT 0,
+    ledger_net BIGINT NOT NULL DEFAULT 0,
+    fx_net BIGINT NOT NULL DEFAULT 0,
+    postings_net BIGINT NOT NULL DEFAULT 0,
+
+    PRIMARY KEY (run_id, currency),
+    CONSTRAINT fk_reconciliation_currency_totals_run_id FOREIGN KEY (run_id) REFERENCES reconciliation_runs(id) ON DELETE CASCADE
+);
+
+ALTER TABLE reconciliation_runs
+    DROP COLUMN total_balance,
+    DROP COLUMN total_opening_balance,
+    DROP COLUMN ledger_net,
+    DROP COLUMN postings_net;
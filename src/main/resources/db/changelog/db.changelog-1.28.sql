@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+-- число шардов движка балансов, с которым записаны WAL: карта закреплена за шардом по остатку от деления
+CREATE TABLE balance_engine_state (
+    id SMALLINT PRIMARY KEY CHECK ( id = 1 ),
+    shard_count INT NOT NULL
+);
@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+CREATE TABLE balance_engine_snapshots (
+    shard INT PRIMARY KEY,
+    last_sequence BIGINT NOT NULL,
+    taken_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
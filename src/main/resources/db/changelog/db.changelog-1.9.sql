@@ -0,0 +1,9 @@
+--liquibase formatted sql
+
+--changeset treebeaz:1
+ALTER TABLE cards ALTER COLUMN balance DROP DEFAULT;
+ALTER TABLE cards ALTER COLUMN balance TYPE BIGINT USING (balance * 100)::BIGINT;
+ALTER TABLE cards ALTER COLUMN balance SET DEFAULT 0;
+
+--changeset treebeaz:2
+ALTER TABLE transfers ALTER COLUMN amount TYPE BIGINT USING (amount * 100)::BIGINT;
@@ -0,0 +1,53 @@
+package com.example.bankrest.accrual;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class AccrualCalculatorTest {
+
+    @Test
+    void posting_RoundInterestToKopecksHalfEven() {
+        AccrualCalculator calculator = new AccrualCalculator(500, 0);
+
+        // 1000.00 под 5% годовых: 416.666... копейки за месяц
+        assertThat(calculator.posting(100000, 100000)).isEqualTo(417);
+        // ровно половина копейки округляется к четному
+        assertThat(calculator.posting(120, 120)).isZero();
+        assertThat(calculator.posting(360, 360)).isEqualTo(2);
+    }
+
+    @Test
+    void posting_WhenBalanceIsNotPositive_AccrueNoInterest() {
+        AccrualCalculator calculator = new AccrualCalculator(500, 0);
+
+        assertThat(calculator.posting(0, 0)).isZero();
+        assertThat(calculator.posting(-5000, -5000)).isZero();
+    }
+
+    @Test
+    void posting_WhenEnoughAvailableBalance_ChargeFullFee() {
+        AccrualCalculator calculator = new AccrualCalculator(500, 1000);
+
+        assertThat(calculator.posting(100000, 100000)).isEqualTo(417 - 1000);
+    }
+
+    @Test
+    void posting_WhenAvailableBalanceIsLow_CapFeeAtAvailablePlusInterest() {
+        AccrualCalculator calculator = new AccrualCalculator(500, 1000);
+
+        // проценты 21 копейка, доступно 300: комиссия 321, карта не уходит в минус
+        assertThat(calculator.posting(5000, 300)).isEqualTo(-300);
+        // остаток заблокирован холдами: комиссия съедает только проценты
+        assertThat(calculator.posting(5000, 0)).isZero();
+        // доступный остаток уже отрицательный: комиссия не списывается, проценты начисляются
+        assertThat(calculator.posting(5000, -100)).isEqualTo(21);
+    }
+
+    @Test
+    void posting_WhenNoRateAndNoFee_ReturnZero() {
+        AccrualCalculator calculator = new AccrualCalculator(0, 0);
+
+        assertThat(calculator.posting(100000, 100000)).isZero();
+    }
+}
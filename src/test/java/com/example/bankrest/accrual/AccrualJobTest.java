@@ -0,0 +1,165 @@
+package com.example.bankrest.accrual;
+
+import com.example.bankrest.component.CardCacheEvictor;
+import com.example.bankrest.engine.BalanceEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccrualJobTest {
+
+    private static final YearMonth PERIOD = YearMonth.of(2026, 1);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private BalanceEngine balanceEngine;
+
+    @Mock
+    private CardCacheEvictor cardCacheEvictor;
+
+    private AccrualJob accrualJob;
+
+    @BeforeEach
+    void setUp() {
+        accrualJob = new AccrualJob(jdbcTemplate, transactionManager, balanceEngine, cardCacheEvictor, 10);
+        ReflectionTestUtils.setField(accrualJob, "annualRateBps", 500L);
+        ReflectionTestUtils.setField(accrualJob, "monthlyFee", new BigDecimal("10.00"));
+        ReflectionTestUtils.setField(accrualJob, "chunkSize", 2);
+        ReflectionTestUtils.setField(accrualJob, "parallelism", 1);
+        ReflectionTestUtils.setField(accrualJob, "maxCardsPerSecond", 1000.0);
+    }
+
+    @Test
+    void accrue_WhenBalanceEngineEnabled_DoNothing() {
+        when(balanceEngine.isEnabled()).thenReturn(true);
+
+        accrualJob.accrue(PERIOD);
+
+        verifyNoInteractions(jdbcTemplate, cardCacheEvictor);
+    }
+
+    @Test
+    void accrue_PostCalculatedAmountsOnlyForNewlyInsertedPostings() throws Exception {
+        stubChunk(1L, 2L);
+        stubLockedCards(List.of(cardRow(1L, 100000L, 100000L), cardRow(2L, 5000L, 300L)));
+        AtomicReference<String> sql = new AtomicReference<>();
+        List<Object[]> arrays = capturePosting(sql, 2);
+
+        accrualJob.accrue(PERIOD);
+
+        assertThat(arrays).containsExactly(new Object[]{1L, 2L}, new Object[]{-583L, -300L});
+        // повторный запуск не начислит дважды: баланс меняется только для строк, реально вставленных в accrual_postings
+        assertThat(sql.get()).contains("ON CONFLICT (card_id, period) DO NOTHING", "FROM posted p");
+        verify(cardCacheEvictor).evict(List.of(1L, 2L));
+    }
+
+    @Test
+    void accrue_WhenBalanceChangesAfterChunkIsRead_PostFromLockedBalance() throws Exception {
+        // выборка видела карту с 1000.00, до блокировки на нее пришел перевод: проценты считаются с 2000.00
+        stubChunk(1L);
+        stubLockedCards(List.of(cardRow(1L, 200000L, 200000L)));
+        List<Object[]> arrays = capturePosting(new AtomicReference<>(), 1);
+
+        accrualJob.accrue(PERIOD);
+
+        assertThat(arrays).containsExactly(new Object[]{1L}, new Object[]{-167L});
+    }
+
+    @Test
+    void accrue_WhenCardIsNoLongerActiveUnderLock_PostNothing() {
+        stubChunk(1L);
+        stubLockedCards(List.of());
+
+        accrualJob.accrue(PERIOD);
+
+        verify(jdbcTemplate, never()).update(any(PreparedStatementCreator.class));
+        verify(cardCacheEvictor).evict(List.of(1L));
+    }
+
+    @Test
+    void accrue_WhenEveryCardIsAlreadyPosted_UpdateNothing() {
+        stubChunk();
+
+        accrualJob.accrue(PERIOD);
+
+        verify(jdbcTemplate, never()).update(any(PreparedStatementCreator.class));
+        verifyNoInteractions(cardCacheEvictor);
+    }
+
+    /// Первая пачка - переданные id, следующая пустая: так выглядит выборка без уже начисленных карт.
+    @SuppressWarnings("unchecked")
+    private void stubChunk(Long... cardIds) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any(), any())).thenAnswer(invocation ->
+                invocation.<Long>getArgument(2) > 0 ? List.of() : List.of(cardIds));
+    }
+
+    /// Строки, прочитанные под блокировкой в транзакции пачки.
+    @SuppressWarnings("unchecked")
+    private void stubLockedCards(List<ResultSet> rows) {
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenAnswer(invocation -> {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            List<Object> cards = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                cards.add(mapper.mapRow(rows.get(i), i));
+            }
+            return cards;
+        });
+    }
+
+    /// Запоминает SQL и массивы запроса начисления: id карт и суммы.
+    private List<Object[]> capturePosting(AtomicReference<String> sql, int updated) throws Exception {
+        List<Object[]> arrays = new ArrayList<>();
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            sql.set(invocation.getArgument(0));
+            return mock(PreparedStatement.class);
+        });
+        when(connection.createArrayOf(eq("bigint"), any(Object[].class))).thenAnswer(invocation -> {
+            arrays.add(invocation.getArgument(1));
+            return mock(Array.class);
+        });
+        when(jdbcTemplate.update(any(PreparedStatementCreator.class))).thenAnswer(invocation -> {
+            invocation.<PreparedStatementCreator>getArgument(0).createPreparedStatement(connection);
+            return updated;
+        });
+        return arrays;
+    }
+
+    private static ResultSet cardRow(long id, long balance, long availableBalance) {
+        ResultSet rs = mock(ResultSet.class);
+        try {
+            when(rs.getLong("id")).thenReturn(id);
+            when(rs.getLong("balance")).thenReturn(balance);
+            when(rs.getLong("available_balance")).thenReturn(availableBalance);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return rs;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.bankrest.component;
+
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.exception.TransferLimitExceededException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferLimitTrackerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> rowsCaptor;
+
+    private TransferLimitTracker transferLimitTracker;
+    private long hour;
+
+    @BeforeEach
+    void setUp() {
+        transferLimitTracker = new TransferLimitTracker(jdbcTemplate);
+        ReflectionTestUtils.setField(transferLimitTracker, "enabled", true);
+        ReflectionTestUtils.setField(transferLimitTracker, "dailyLimit", new BigDecimal("100.00"));
+        ReflectionTestUtils.setField(transferLimitTracker, "monthlyLimit", new BigDecimal("150.00"));
+        transferLimitTracker.start();
+        hour = TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis());
+    }
+
+    @Test
+    void reserve_WhenDailyLimitIsUsedWithin24Hours_ThrowUntilWindowSlides() {
+        transferLimitTracker.reserve(1L, Money.of("60.00"), hour);
+
+        assertThatThrownBy(() -> transferLimitTracker.reserve(1L, Money.of("50.00"), hour + 23))
+                .isInstanceOf(TransferLimitExceededException.class)
+                .hasMessage("Daily transfer limit exceeded");
+        assertThatCode(() -> transferLimitTracker.reserve(1L, Money.of("50.00"), hour + 24))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void reserve_WhenMonthlyLimitIsUsedWithin30Days_ThrowUntilWindowSlides() {
+        transferLimitTracker.reserve(1L, Money.of("90.00"), hour);
+
+        assertThatThrownBy(() -> transferLimitTracker.reserve(1L, Money.of("70.00"), hour + 48))
+                .isInstanceOf(TransferLimitExceededException.class)
+                .hasMessage("Monthly transfer limit exceeded");
+        assertThatCode(() -> transferLimitTracker.reserve(1L, Money.of("70.00"), hour + TransferLimitTracker.MONTH_HOURS))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void release_ReturnAmountToWindow() {
+        TransferLimitTracker.Reservation reservation = transferLimitTracker.reserve(1L, Money.of("60.00"), hour);
+
+        transferLimitTracker.release(reservation);
+
+        assertThatCode(() -> transferLimitTracker.reserve(1L, Money.of("100.00"), hour))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void flush_SendOnlyDeltasSinceLastFlushAsAdditiveUpsert() {
+        transferLimitTracker.reserve(1L, Money.of("60.00"), hour);
+        transferLimitTracker.flush();
+        transferLimitTracker.reserve(1L, Money.of("10.00"), hour);
+        transferLimitTracker.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(contains("spent = card_spend_buckets.spent + excluded.spent"), rowsCaptor.capture());
+        assertThat(rowsCaptor.getAllValues().get(0)).containsExactly(new Object[]{1L, hour, 6000L});
+        assertThat(rowsCaptor.getAllValues().get(1)).containsExactly(new Object[]{1L, hour, 1000L});
+    }
+
+    @Test
+    void flush_WhenDatabaseFails_ResendDeltasNextTime() {
+        transferLimitTracker.reserve(1L, Money.of("60.00"), hour);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new IllegalStateException("connection refused"))
+                .thenReturn(new int[]{1});
+
+        transferLimitTracker.flush();
+        transferLimitTracker.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), rowsCaptor.capture());
+        assertThat(rowsCaptor.getAllValues().get(1)).containsExactly(new Object[]{1L, hour, 6000L});
+    }
+}
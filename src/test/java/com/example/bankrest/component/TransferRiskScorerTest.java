@@ -0,0 +1,81 @@
+package com.example.bankrest.component;
+
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.exception.SuspiciousTransferException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TransferRiskScorerTest {
+
+    @TempDir
+    Path directory;
+
+    private TransferRiskScorer transferRiskScorer;
+
+    @BeforeEach
+    void setUp() {
+        transferRiskScorer = createScorer();
+    }
+
+    @Test
+    void check_WhenFiftyTransfersComeAsOneBatch_DoNotFlagBurst() {
+        Money salary = Money.of("1500.00");
+
+        for (int i = 0; i < 50; i++) {
+            boolean countAttempt = i == 0;
+            assertThatCode(() -> transferRiskScorer.check(1L, salary, countAttempt)).doesNotThrowAnyException();
+        }
+    }
+
+    @Test
+    void check_WhenTransfersComeOneByOne_HoldBurst() {
+        Money amount = Money.of("1500.00");
+
+        for (int i = 0; i < 19; i++) {
+            transferRiskScorer.check(1L, amount);
+        }
+
+        assertThatThrownBy(() -> transferRiskScorer.check(1L, amount))
+                .isInstanceOfSatisfying(SuspiciousTransferException.class, e -> assertThat(e.isHeld()).isTrue());
+    }
+
+    @Test
+    void snapshot_WhenRestored_KeepCardStatistics() {
+        Money amount = Money.of("1500.00");
+        for (int i = 0; i < 19; i++) {
+            transferRiskScorer.check(1L, amount);
+        }
+        transferRiskScorer.check(2L, amount);
+        transferRiskScorer.snapshot();
+
+        TransferRiskScorer restored = createScorer();
+        // запас на затухание частоты за время между снимком и проверкой
+        ReflectionTestUtils.setField(restored, "burstRate", 19.5);
+        restored.start();
+
+        assertThatThrownBy(() -> restored.check(1L, amount))
+                .isInstanceOfSatisfying(SuspiciousTransferException.class, e -> assertThat(e.isHeld()).isTrue());
+        assertThatCode(() -> restored.check(2L, amount)).doesNotThrowAnyException();
+    }
+
+    private TransferRiskScorer createScorer() {
+        TransferRiskScorer scorer = new TransferRiskScorer(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scorer, "enabled", true);
+        ReflectionTestUtils.setField(scorer, "rateHalfLifeSeconds", 3600L);
+        ReflectionTestUtils.setField(scorer, "amountAlpha", 0.1);
+        ReflectionTestUtils.setField(scorer, "warmupTransfers", 5);
+        ReflectionTestUtils.setField(scorer, "burstRate", 20.0);
+        ReflectionTestUtils.setField(scorer, "holdScore", 4.0);
+        ReflectionTestUtils.setField(scorer, "rejectScore", 8.0);
+        ReflectionTestUtils.setField(scorer, "idleDays", 30L);
+        ReflectionTestUtils.setField(scorer, "snapshotPath", directory.resolve("scores.bin").toString());
+        return scorer;
+    }
+}
@@ -2,29 +2,38 @@ package com.example.bankrest.controller;
 
 import com.example.bankrest.config.SecurityConfig;
 import com.example.bankrest.dto.card.CardRequestDto;
+import com.example.bankrest.dto.card.CardCountMode;
+import com.example.bankrest.dto.card.CardPageDto;
 import com.example.bankrest.dto.card.CardResponseDto;
+import com.example.bankrest.dto.card.CardSearchFilter;
+import com.example.bankrest.dto.card.ReconciliationRunDto;
+import com.example.bankrest.dto.card.TransferResponseDto;
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.entity.ReconciliationRunStatus;
 import com.example.bankrest.entity.Status;
+import com.example.bankrest.entity.TransferStatus;
 import com.example.bankrest.exception.CardAlreadyActiveException;
 import com.example.bankrest.exception.CardAlreadyBlockedException;
 import com.example.bankrest.exception.CardNotFoundException;
+import com.example.bankrest.exception.ReconciliationAlreadyRunningException;
+import com.example.bankrest.exception.TransferOperationException;
 import com.example.bankrest.exception.UserNotFoundException;
 import com.example.bankrest.service.CardService;
+import com.example.bankrest.service.ReconciliationService;
+import com.example.bankrest.service.TransferService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
@@ -47,6 +56,12 @@ public class AdminControllerTest {
     @MockitoBean
     private CardService cardService;
 
+    @MockitoBean
+    private ReconciliationService reconciliationService;
+
+    @MockitoBean
+    private TransferService transferService;
+
     @Test
     void createCard_WithAdminRole_Return201Created() throws Exception {
         CardRequestDto requestDto = CardRequestDto.builder()
@@ -57,7 +72,7 @@ public class AdminControllerTest {
                 .id(1L)
                 .masked("**** **** **** 1234")
                 .cardHolderName("John Doe")
-                .balance(BigDecimal.ZERO)
+                .balance(Money.ZERO)
                 .status(Status.ACTIVE)
                 .expiryDate(LocalDate.now().plusYears(5))
                 .build();
@@ -112,22 +127,82 @@ public class AdminControllerTest {
                 CardResponseDto.builder().id(2L).masked("**** **** **** 2222").cardHolderName("User2").build()
         );
 
-        Page<CardResponseDto> page = new PageImpl<>(cards, PageRequest.of(0, 10), 2);
+        CardPageDto page = CardPageDto.builder().items(cards).nextCursor("next").total(2L).totalEstimated(true).build();
 
-        when(cardService.getAllCards(0, 10)).thenReturn(page);
+        when(cardService.getAllCards(null, 10, CardCountMode.ESTIMATE, null)).thenReturn(page);
 
         mockMvc.perform(get("/api/admin/cards/all")
-                        .param("page", "0")
-                        .param("size", "10"))
+                        .param("size", "10")
+                        .param("count", "ESTIMATE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(1L))
+                .andExpect(jsonPath("$.items[0].masked").value("**** **** **** 1111"))
+                .andExpect(jsonPath("$.items[1].id").value(2L))
+                .andExpect(jsonPath("$.items[1].masked").value("**** **** **** 2222"))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.totalEstimated").value(true));
+
+        verify(cardService).getAllCards(null, 10, CardCountMode.ESTIMATE, null);
+    }
+
+    @Test
+    void searchCards_BindFilterAndReturn200Status() throws Exception {
+        CardSearchFilter filter = CardSearchFilter.builder()
+                .status(Status.PENDING_BLOCK)
+                .expiresFrom(LocalDate.of(2026, 10, 1))
+                .expiresTo(LocalDate.of(2026, 10, 31))
+                .lastDigits("1111")
+                .holderNamePrefix("Joh")
+                .build();
+        CardResponseDto card = CardResponseDto.builder().id(1L).masked("**** **** **** 1111").status(Status.PENDING_BLOCK).build();
+
+        when(cardService.searchCards(filter, null, 10))
+                .thenReturn(CardPageDto.builder().items(List.of(card)).nextCursor("next").build());
+
+        mockMvc.perform(get("/api/admin/cards/search")
+                        .param("status", "PENDING_BLOCK")
+                        .param("expiresFrom", "2026-10-01")
+                        .param("expiresTo", "2026-10-31")
+                        .param("lastDigits", "1111")
+                        .param("holderName", "Joh"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(1L))
+                .andExpect(jsonPath("$.items[0].status").value("PENDING_BLOCK"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+
+        verify(cardService).searchCards(filter, null, 10);
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void searchCards_WithUserRole_Return403Status() throws Exception {
+        mockMvc.perform(get("/api/admin/cards/search")
+                        .param("status", "PENDING_BLOCK"))
+                .andExpect(status().isForbidden());
+
+        verify(cardService, never()).searchCards(any(), any(), anyInt());
+    }
+
+    @Test
+    void getAllCards_WithFields_OmitFieldsNotRequested() throws Exception {
+        CardResponseDto card = CardResponseDto.builder().id(1L).masked("**** **** **** 1111").status(Status.ACTIVE).build();
+        CardPageDto page = CardPageDto.builder().items(List.of(card)).build();
+
+        when(cardService.getAllCards(null, 10, CardCountMode.NONE, "masked,status")).thenReturn(page);
+
+        mockMvc.perform(get("/api/admin/cards/all")
+                        .param("size", "10")
+                        .param("fields", "masked,status"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.content.length()").value(2))
-                .andExpect(jsonPath("$.content[0].id").value(1L))
-                .andExpect(jsonPath("$.content[0].masked").value("**** **** **** 1111"))
-                .andExpect(jsonPath("$.content[1].id").value(2L))
-                .andExpect(jsonPath("$.content[1].masked").value("**** **** **** 2222"))
-                .andExpect(jsonPath("$.totalElements").value(2));
-
-        verify(cardService).getAllCards(0, 10);
+                .andExpect(jsonPath("$.items[0].id").value(1L))
+                .andExpect(jsonPath("$.items[0].masked").value("**** **** **** 1111"))
+                .andExpect(jsonPath("$.items[0].status").value("ACTIVE"))
+                .andExpect(jsonPath("$.items[0].balance").doesNotExist())
+                .andExpect(jsonPath("$.items[0].cardHolderName").doesNotExist());
+
+        verify(cardService).getAllCards(null, 10, CardCountMode.NONE, "masked,status");
     }
 
     @Test
@@ -138,16 +213,15 @@ public class AdminControllerTest {
                 CardResponseDto.builder().id(2L).masked("**** **** **** 2222").cardHolderName("User2").build()
         );
 
-        Page<CardResponseDto> page = new PageImpl<>(cards, PageRequest.of(0, 10), 2);
+        CardPageDto page = CardPageDto.builder().items(cards).build();
 
-        when(cardService.getAllCards(0, 10)).thenReturn(page);
+        when(cardService.getAllCards(null, 10, CardCountMode.NONE, null)).thenReturn(page);
 
         mockMvc.perform(get("/api/admin/cards/all")
-                        .param("page", "0")
                         .param("size", "10"))
                 .andExpect(status().isForbidden());
 
-        verify(cardService, never()).getAllCards(0, 10);
+        verify(cardService, never()).getAllCards(null, 10, CardCountMode.NONE, null);
     }
 
     @Test
@@ -331,4 +405,78 @@ public class AdminControllerTest {
 
         verify(cardService).activateCard(cardId);
     }
+
+    @Test
+    void startReconciliation_WithAdminRole_Return202Status() throws Exception {
+        ReconciliationRunDto responseDto = ReconciliationRunDto.builder()
+                .id(1L)
+                .status(ReconciliationRunStatus.RUNNING)
+                .rangesTotal(4)
+                .currencies(List.of())
+                .startedAt(LocalDateTime.now())
+                .build();
+
+        when(reconciliationService.startRun()).thenReturn(responseDto);
+
+        mockMvc.perform(post("/api/admin/cards/reconciliation"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(1L))
+                .andExpect(jsonPath("$.status").value("RUNNING"))
+                .andExpect(jsonPath("$.rangesTotal").value(4));
+        verify(reconciliationService).startRun();
+    }
+
+    @Test
+    void startReconciliation_WhenAlreadyRunning_Return409Status() throws Exception {
+        when(reconciliationService.startRun())
+                .thenThrow(new ReconciliationAlreadyRunningException("Reconciliation is already running"));
+
+        mockMvc.perform(post("/api/admin/cards/reconciliation"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void getReconciliation_WithUserRole_Return403Status() throws Exception {
+        mockMvc.perform(get("/api/admin/cards/reconciliation/{runId}", 1L))
+                .andExpect(status().isForbidden());
+
+        verify(reconciliationService, never()).getRun(any());
+    }
+
+    @Test
+    void releaseHeldTransfer_WithAdminRole_Return200Status() throws Exception {
+        TransferResponseDto responseDto = TransferResponseDto.builder()
+                .id(7L)
+                .fromCardId(1L)
+                .toCardId(2L)
+                .amount(Money.of("500.00"))
+                .status(TransferStatus.COMPLETED)
+                .build();
+        when(transferService.releaseHeld(7L)).thenReturn(responseDto);
+
+        mockMvc.perform(post("/api/admin/cards/transfers/{transferId}/release", 7L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(7L))
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+        verify(transferService).releaseHeld(7L);
+    }
+
+    @Test
+    void rejectHeldTransfer_WhenTransferIsNotHeld_Return409Status() throws Exception {
+        when(transferService.rejectHeld(7L))
+                .thenThrow(new TransferOperationException("Transfer is not held for review"));
+
+        mockMvc.perform(post("/api/admin/cards/transfers/{transferId}/reject", 7L))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void releaseHeldTransfer_WithUserRole_Return403Status() throws Exception {
+        mockMvc.perform(post("/api/admin/cards/transfers/{transferId}/release", 7L))
+                .andExpect(status().isForbidden());
+
+        verify(transferService, never()).releaseHeld(any());
+    }
 }
@@ -1,26 +1,36 @@
 package com.example.bankrest.controller;
 
 import com.example.bankrest.config.SecurityConfig;
+import com.example.bankrest.dto.card.BatchTransferItemDto;
+import com.example.bankrest.dto.card.BatchTransferRequestDto;
+import com.example.bankrest.dto.card.CardBalanceDto;
+import com.example.bankrest.dto.card.CardChangesDto;
+import com.example.bankrest.dto.card.CardCountMode;
+import com.example.bankrest.dto.card.CardPageDto;
 import com.example.bankrest.dto.card.CardResponseDto;
+import com.example.bankrest.dto.card.HoldResponseDto;
 import com.example.bankrest.dto.card.TransferCardRequestDto;
+import com.example.bankrest.dto.card.TransferResponseDto;
+import com.example.bankrest.entity.HoldStatus;
+import com.example.bankrest.entity.Money;
 import com.example.bankrest.entity.Status;
+import com.example.bankrest.entity.TransferStatus;
 import com.example.bankrest.exception.*;
 import com.example.bankrest.service.CardService;
+import com.example.bankrest.service.HoldService;
+import com.example.bankrest.service.TransferService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
@@ -45,18 +55,24 @@ public class CardControllerTest{
     @MockitoBean
     private CardService cardService;
 
+    @MockitoBean
+    private TransferService transferService;
+
+    @MockitoBean
+    private HoldService holdService;
+
     @Test
     void requestCreateCard_Return202Status() throws Exception {
         CardResponseDto responseDto = CardResponseDto.builder()
                 .id(1L)
                 .masked("**** **** **** 1234")
                 .cardHolderName("John Doe")
-                .balance(BigDecimal.ZERO)
+                .balance(Money.ZERO)
                 .status(Status.PENDING_ACTIVE)
                 .expiryDate(LocalDate.now().plusYears(5))
                 .build();
 
-        when(cardService.requestCreateCard()).thenReturn(responseDto);
+        when(cardService.requestCreateCard(null)).thenReturn(responseDto);
 
         mockMvc.perform(post("/api/cards/create")
                         .contentType(MediaType.APPLICATION_JSON))
@@ -72,7 +88,7 @@ public class CardControllerTest{
 
     @Test
     void requestCreateCard_WhenUesrNotFound_Return404Status() throws Exception {
-        when(cardService.requestCreateCard())
+        when(cardService.requestCreateCard(null))
                 .thenThrow(new UserNotFoundException("User not found"));
 
         mockMvc.perform(post("/api/cards/create")
@@ -90,7 +106,7 @@ public class CardControllerTest{
                         .id(1L)
                         .masked("**** **** **** 1111")
                         .cardHolderName("John Doe")
-                        .balance(new BigDecimal("100.00"))
+                        .balance(Money.of("100.00"))
                         .status(Status.ACTIVE)
                         .expiryDate(LocalDate.now().plusYears(3))
                         .build(),
@@ -98,52 +114,90 @@ public class CardControllerTest{
                         .id(2L)
                         .masked("**** **** **** 2222")
                         .cardHolderName("John Doe")
-                        .balance(new BigDecimal("50.00"))
+                        .balance(Money.of("50.00"))
                         .status(Status.ACTIVE)
                         .expiryDate(LocalDate.now().plusYears(2))
                         .build()
         );
 
-        Page<CardResponseDto> page = new PageImpl<>(cards, PageRequest.of(0, 10), 2);
+        CardPageDto page = CardPageDto.builder().items(cards).build();
 
-        when(cardService.getUserCards(0, 10)).thenReturn(page);
+        when(cardService.getUserCards(null, 10, CardCountMode.NONE, null)).thenReturn(page);
 
         mockMvc.perform(get("/api/cards")
-                        .param("page", "0")
                         .param("size", "10"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(2))
-                .andExpect(jsonPath("$[0].id").value(1L))
-                .andExpect(jsonPath("$[0].masked").value("**** **** **** 1111"))
-                .andExpect(jsonPath("$[0].cardHolderName").value("John Doe"))
-                .andExpect(jsonPath("$[0].balance").value(100.00))
-                .andExpect(jsonPath("$[0].status").value("ACTIVE"))
-                .andExpect(jsonPath("$[1].id").value(2L))
-                .andExpect(jsonPath("$[1].masked").value("**** **** **** 2222"))
-                .andExpect(jsonPath("$[1].balance").value(50.00))
-                .andExpect(jsonPath("$[1].status").value("ACTIVE"));
-
-        verify(cardService).getUserCards(0, 10);
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(1L))
+                .andExpect(jsonPath("$.items[0].masked").value("**** **** **** 1111"))
+                .andExpect(jsonPath("$.items[0].cardHolderName").value("John Doe"))
+                .andExpect(jsonPath("$.items[0].balance").value(100.00))
+                .andExpect(jsonPath("$.items[0].status").value("ACTIVE"))
+                .andExpect(jsonPath("$.items[1].id").value(2L))
+                .andExpect(jsonPath("$.items[1].masked").value("**** **** **** 2222"))
+                .andExpect(jsonPath("$.items[1].balance").value(50.00))
+                .andExpect(jsonPath("$.items[1].status").value("ACTIVE"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        verify(cardService).getUserCards(null, 10, CardCountMode.NONE, null);
+    }
+
+    @Test
+    void findCardChanges_Return200Status() throws Exception {
+        CardChangesDto changes = CardChangesDto.builder()
+                .changed(List.of(CardResponseDto.builder()
+                        .id(1L)
+                        .masked("**** **** **** 1111")
+                        .balance(Money.of("100.00"))
+                        .status(Status.ACTIVE)
+                        .build()))
+                .deleted(List.of(2L))
+                .nextCursor("next")
+                .build();
+
+        when(cardService.getCardChanges("prev", 100)).thenReturn(changes);
+
+        mockMvc.perform(get("/api/cards/changes")
+                        .param("since", "prev"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed[0].id").value(1))
+                .andExpect(jsonPath("$.deleted[0]").value(2))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.hasMore").value(false));
+
+        verify(cardService).getCardChanges("prev", 100);
+    }
+
+    @Test
+    void findCardChanges_WhenCursorExpired_Return410Status() throws Exception {
+        when(cardService.getCardChanges("old", 100))
+                .thenThrow(new CursorExpiredException("Cursor is older than the deleted cards history"));
+
+        mockMvc.perform(get("/api/cards/changes")
+                        .param("since", "old"))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.message").value("Cursor expired, sync changes from scratch"));
+
+        verify(cardService).getCardChanges("old", 100);
     }
 
     @Test
     void findUserCards_WhenUserNotFound_Return404Status() throws Exception {
-        when(cardService.getUserCards(0, 10))
+        when(cardService.getUserCards(null, 10, CardCountMode.NONE, null))
                 .thenThrow(new UserNotFoundException("User not found"));
 
         mockMvc.perform(get("/api/cards")
-                        .param("page", "0")
                         .param("size", "10"))
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message").value("User not found"));
 
-        verify(cardService).getUserCards(0, 10);
+        verify(cardService).getUserCards(null, 10, CardCountMode.NONE, null);
     }
 
     @Test
     void findBalance_Return200Status() throws Exception {
         Long cardId = 1L;
-        BigDecimal balance = new BigDecimal("150.75");
+        Money balance = Money.of("150.75");
 
         when(cardService.getBalance(cardId)).thenReturn(balance);
 
@@ -154,6 +208,51 @@ public class CardControllerTest{
         verify(cardService).getBalance(cardId);
     }
 
+    @Test
+    void findBalances_Return200Status() throws Exception {
+        when(cardService.getBalances(List.of(1L, 2L))).thenReturn(List.of(
+                CardBalanceDto.builder().cardId(1L).balance(Money.of("100.00")).currency("RUB").build(),
+                CardBalanceDto.builder().cardId(2L).balance(Money.of("5.00")).currency("USD").build()));
+
+        mockMvc.perform(get("/api/cards/balances")
+                        .param("ids", "1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].cardId").value(1))
+                .andExpect(jsonPath("$[1].currency").value("USD"));
+
+        verify(cardService).getBalances(List.of(1L, 2L));
+    }
+
+    @Test
+    void findBalance_WhenEtagMatches_Return304WithoutLoadingBalance() throws Exception {
+        Long cardId = 1L;
+
+        when(cardService.getBalanceEtag(cardId)).thenReturn("\"v1\"");
+
+        mockMvc.perform(get("/api/cards/{cardId}/balance", cardId)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v1\""))
+                .andExpect(content().string(""));
+
+        verify(cardService, never()).getBalance(any());
+    }
+
+    @Test
+    void findBalance_WhenEtagChanged_Return200WithCurrentEtag() throws Exception {
+        Long cardId = 1L;
+
+        when(cardService.getBalanceEtag(cardId)).thenReturn("\"v2\"");
+        when(cardService.getBalance(cardId)).thenReturn(Money.of("10.00"));
+
+        mockMvc.perform(get("/api/cards/{cardId}/balance", cardId)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v2\""))
+                .andExpect(content().string("10.00"));
+    }
+
     @Test
     void findBalance_WhenCardNotFound_Return404Status() throws Exception {
         Long cardId = 999L;
@@ -175,7 +274,7 @@ public class CardControllerTest{
                 .id(cardId)
                 .masked("**** **** **** 1234")
                 .cardHolderName("John Doe")
-                .balance(new BigDecimal("100.00"))
+                .balance(Money.of("100.00"))
                 .status(Status.PENDING_BLOCK)
                 .expiryDate(LocalDate.now().plusYears(3))
                 .build();
@@ -240,139 +339,183 @@ public class CardControllerTest{
     }
 
     @Test
-    void transferCard_Return202Status() throws Exception {
+    void transferCard_Return202StatusWithLocation() throws Exception {
         Long fromCardId = 1L;
         TransferCardRequestDto requestDto = TransferCardRequestDto.builder()
                 .id(2L)
-                .amount(new BigDecimal("100.00"))
+                .amount(Money.of("100.00"))
                 .build();
 
+        when(transferService.submitTransfer(fromCardId, requestDto))
+                .thenReturn(createTransferResponse(TransferStatus.PENDING, null));
+
         mockMvc.perform(post("/api/cards/{cardId}/transfer", fromCardId)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(requestDto)))
-                .andExpect(status().isAccepted());
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/api/cards/transfers/10"))
+                .andExpect(jsonPath("$.id").value(10L))
+                .andExpect(jsonPath("$.status").value("PENDING"));
 
-        verify(cardService).moneyTransfer(fromCardId, requestDto);
+        verify(transferService).submitTransfer(fromCardId, requestDto);
+        verifyNoInteractions(cardService);
     }
 
     @Test
-    void transferCard_WhenSenderCardNotFound_Return404Status() throws Exception {
-        Long fromCardId = 999L;
+    void transferCard_WhenAmountHasTooManyDecimalPlaces_Return400StatusWithAmountError() throws Exception {
+        mockMvc.perform(post("/api/cards/{cardId}/transfer", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":2,\"amount\":100.001}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid amount"))
+                .andExpect(jsonPath("$.message").value("Amount must have at most 2 decimal places"));
+
+        verifyNoInteractions(transferService);
+    }
+
+    @Test
+    void authorizeHold_Return201Status() throws Exception {
         TransferCardRequestDto requestDto = TransferCardRequestDto.builder()
                 .id(2L)
-                .amount(new BigDecimal("100.00"))
+                .amount(Money.of("100.00"))
+                .build();
+        HoldResponseDto responseDto = HoldResponseDto.builder()
+                .id(5L)
+                .fromCardId(1L)
+                .toCardId(2L)
+                .amount(Money.of("100.00"))
+                .status(HoldStatus.ACTIVE)
                 .build();
 
-        doThrow(new CardNotFoundException("Sender card not found"))
-                .when(cardService).moneyTransfer(fromCardId, requestDto);
+        when(holdService.authorize(1L, requestDto)).thenReturn(responseDto);
 
-        mockMvc.perform(post("/api/cards/{cardId}/transfer", fromCardId)
+        mockMvc.perform(post("/api/cards/{cardId}/holds", 1L)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(requestDto)))
-                .andExpect(status().isNotFound())
-                .andExpect(jsonPath("$.message").value("Sender card not found"));
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(5L))
+                .andExpect(jsonPath("$.amount").value(100.00))
+                .andExpect(jsonPath("$.status").value("ACTIVE"));
+
+        verify(holdService).authorize(1L, requestDto);
+    }
 
-        verify(cardService).moneyTransfer(fromCardId, requestDto);
+    @Test
+    void captureHold_WhenHoldIsNotActive_Return409Status() throws Exception {
+        when(holdService.capture(5L)).thenThrow(new TransferOperationException("Hold is not active"));
+
+        mockMvc.perform(post("/api/cards/holds/{holdId}/capture", 5L))
+                .andExpect(status().isConflict());
+
+        verify(holdService).capture(5L);
     }
 
     @Test
-    void transferCard_WhenRecipientCardNotFound_Return404Status() throws Exception {
+    void transferCard_WhenUserNotFound_Return404Status() throws Exception {
         Long fromCardId = 1L;
         TransferCardRequestDto requestDto = TransferCardRequestDto.builder()
-                .id(999L)
-                .amount(new BigDecimal("100.00"))
+                .id(2L)
+                .amount(Money.of("100.00"))
                 .build();
 
-        doThrow(new CardNotFoundException("Recipient card not found"))
-                .when(cardService).moneyTransfer(fromCardId, requestDto);
+        when(transferService.submitTransfer(fromCardId, requestDto))
+                .thenThrow(new UserNotFoundException("User not found"));
 
         mockMvc.perform(post("/api/cards/{cardId}/transfer", fromCardId)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(requestDto)))
                 .andExpect(status().isNotFound())
-                .andExpect(jsonPath("$.message").value("Recipient card not found"));
-
-        verify(cardService).moneyTransfer(fromCardId, requestDto);
+                .andExpect(jsonPath("$.message").value("User not found"));
     }
 
     @Test
-    void transferCard_WhenInsufficientFunds_Return409Status() throws Exception {
+    void transferCard_WhenTooManyTransfersInProgress_Return503StatusWithRetryAfter() throws Exception {
         Long fromCardId = 1L;
         TransferCardRequestDto requestDto = TransferCardRequestDto.builder()
                 .id(2L)
-                .amount(new BigDecimal("1000.00"))
+                .amount(Money.of("100.00"))
                 .build();
 
-        doThrow(new InsufficientFundsException("Insufficient funds"))
-                .when(cardService).moneyTransfer(fromCardId, requestDto);
+        when(transferService.submitTransfer(fromCardId, requestDto))
+                .thenThrow(new TransferCapacityExceededException("Too many transfers in progress, retry later"));
 
         mockMvc.perform(post("/api/cards/{cardId}/transfer", fromCardId)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(requestDto)))
-                .andExpect(status().isConflict())
-                .andExpect(jsonPath("$.message").value("Insufficient funds"));
-
-        verify(cardService).moneyTransfer(fromCardId, requestDto);
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.message").value("Too many transfers in progress, retry later"));
     }
 
     @Test
-    void transferCard_WhenCardNotActive_Return409Status() throws Exception {
-        Long fromCardId = 1L;
-        TransferCardRequestDto requestDto = TransferCardRequestDto.builder()
-                .id(2L)
-                .amount(new BigDecimal("100.00"))
+    void transferBatch_WhenCardBelongsToAnotherUser_Return404Status() throws Exception {
+        BatchTransferRequestDto requestDto = BatchTransferRequestDto.builder()
+                .transfers(List.of(BatchTransferItemDto.builder()
+                        .fromCardId(1L)
+                        .toCardId(99L)
+                        .amount(Money.of("100.00"))
+                        .build()))
                 .build();
 
-        doThrow(new CardNotActiveException("Card not active"))
-                .when(cardService).moneyTransfer(fromCardId, requestDto);
+        when(transferService.executeBatch(requestDto))
+                .thenThrow(new CardNotFoundException("Card not found"));
 
-        mockMvc.perform(post("/api/cards/{cardId}/transfer", fromCardId)
+        mockMvc.perform(post("/api/cards/transfers/batch")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(requestDto)))
-                .andExpect(status().isConflict())
-                .andExpect(jsonPath("$.message").value("Card not active"));
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Card not found"));
 
-        verify(cardService).moneyTransfer(fromCardId, requestDto);
+        verify(transferService).executeBatch(requestDto);
     }
 
     @Test
-    void transferCard_WhenDifferentCardholders_Return409Status() throws Exception {
-        Long fromCardId = 1L;
-        TransferCardRequestDto requestDto = TransferCardRequestDto.builder()
-                .id(2L)
-                .amount(new BigDecimal("100.00"))
-                .build();
+    void findTransfer_WhenCompleted_Return200Status() throws Exception {
+        when(transferService.getTransfer(10L))
+                .thenReturn(createTransferResponse(TransferStatus.COMPLETED, null));
 
-        doThrow(new DifferentCardholdersException("Different cardholders"))
-                .when(cardService).moneyTransfer(fromCardId, requestDto);
+        mockMvc.perform(get("/api/cards/transfers/{transferId}", 10L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(10L))
+                .andExpect(jsonPath("$.fromCardId").value(1L))
+                .andExpect(jsonPath("$.toCardId").value(2L))
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
 
-        mockMvc.perform(post("/api/cards/{cardId}/transfer", fromCardId)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(requestDto)))
-                .andExpect(status().isConflict())
-                .andExpect(jsonPath("$.message").value("Different cardholders"));
+        verify(transferService).getTransfer(10L);
+    }
 
-        verify(cardService).moneyTransfer(fromCardId, requestDto);
+    @Test
+    void findTransfer_WhenInsufficientFunds_ReturnFailedStatus() throws Exception {
+        when(transferService.getTransfer(10L))
+                .thenReturn(createTransferResponse(TransferStatus.FAILED, "There are not enough funds on the sender card"));
+
+        mockMvc.perform(get("/api/cards/transfers/{transferId}", 10L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.errorMessage").value("There are not enough funds on the sender card"));
     }
 
     @Test
-    void transferCard_WhenSameCardTransfer_Return409Status() throws Exception {
-        Long fromCardId = 1L;
-        TransferCardRequestDto requestDto = TransferCardRequestDto.builder()
-                .id(1L)
-                .amount(new BigDecimal("100.00"))
-                .build();
+    void findTransfer_WhenTransferNotFound_Return404Status() throws Exception {
+        when(transferService.getTransfer(999L))
+                .thenThrow(new TransferNotFoundException("Transfer not found"));
 
-        doThrow(new SameCardTransferException("Same card transfer"))
-                .when(cardService).moneyTransfer(fromCardId, requestDto);
+        mockMvc.perform(get("/api/cards/transfers/{transferId}", 999L))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Transfer not found"));
 
-        mockMvc.perform(post("/api/cards/{cardId}/transfer", fromCardId)
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(requestDto)))
-                .andExpect(status().isConflict())
-                .andExpect(jsonPath("$.message").value("Same card transfer"));
+        verify(transferService).getTransfer(999L);
+    }
 
-        verify(cardService).moneyTransfer(fromCardId, requestDto);
+    private TransferResponseDto createTransferResponse(TransferStatus status, String errorMessage) {
+        return TransferResponseDto.builder()
+                .id(10L)
+                .fromCardId(1L)
+                .toCardId(2L)
+                .amount(Money.of("100.00"))
+                .status(status)
+                .errorMessage(errorMessage)
+                .build();
     }
 
 }
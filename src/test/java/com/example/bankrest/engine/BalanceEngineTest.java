@@ -0,0 +1,116 @@
+package com.example.bankrest.engine;
+
+import com.example.bankrest.component.CardCacheEvictor;
+import com.example.bankrest.component.TransactionLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceEngineTest {
+
+    private static final String SHARD_COUNT_QUERY = "SELECT shard_count FROM balance_engine_state WHERE id = 1";
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private CardCacheEvictor cardCacheEvictor;
+
+    @Mock
+    private TransactionLedger transactionLedger;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BalanceEngine balanceEngine;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        balanceEngine = new BalanceEngine(jdbcTemplate, transactionManager, cardCacheEvictor, transactionLedger, meterRegistry);
+        ReflectionTestUtils.setField(balanceEngine, "enabled", true);
+        ReflectionTestUtils.setField(balanceEngine, "shardCount", 2);
+        ReflectionTestUtils.setField(balanceEngine, "queueSize", 16);
+        ReflectionTestUtils.setField(balanceEngine, "walDir", directory.toString());
+        ReflectionTestUtils.setField(balanceEngine, "walSizeMb", 1);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException, InterruptedException {
+        balanceEngine.stop();
+    }
+
+    @Test
+    void start_WhenShardCountChangedWithUnsavedOperations_RefuseToStart() {
+        writeWal(0, new WriteAheadLog.WalRecord(1L, 7L, 1L, 2L, 300L));
+        when(jdbcTemplate.queryForList(SHARD_COUNT_QUERY, Integer.class)).thenReturn(List.of(4));
+
+        assertThatThrownBy(() -> balanceEngine.start())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("changed from 4 to 2");
+
+        verify(jdbcTemplate, never()).update(contains("balance_engine_state"), eq(2));
+        ReflectionTestUtils.setField(balanceEngine, "enabled", false);
+    }
+
+    @Test
+    void start_WhenRemovedShardStillHasUnsavedOperations_RefuseToStart() {
+        writeWal(3, new WriteAheadLog.WalRecord(1L, 7L, 1L, 2L, 300L));
+        when(jdbcTemplate.queryForList(SHARD_COUNT_QUERY, Integer.class)).thenReturn(List.of(4));
+
+        assertThatThrownBy(() -> balanceEngine.start())
+                .isInstanceOf(IllegalStateException.class);
+        ReflectionTestUtils.setField(balanceEngine, "enabled", false);
+    }
+
+    @Test
+    void start_WhenShardCountChangedAfterCleanStop_StoreNewShardCount() {
+        when(jdbcTemplate.queryForList(SHARD_COUNT_QUERY, Integer.class)).thenReturn(List.of(4));
+
+        balanceEngine.start();
+
+        verify(jdbcTemplate).update(contains("balance_engine_state"), eq(2));
+    }
+
+    @Test
+    void start_WhenWalOperationCardIsMissing_CountDroppedOperation() {
+        // cards пуста: loadBalances не находит ни одной карты операции
+        writeWal(0, new WriteAheadLog.WalRecord(1L, 7L, 1L, 2L, 300L));
+        when(jdbcTemplate.queryForList(SHARD_COUNT_QUERY, Integer.class)).thenReturn(List.of(2));
+
+        balanceEngine.start();
+
+        assertThat(meterRegistry.get("balance.engine.recovery.dropped").counter().count()).isEqualTo(1.0);
+    }
+
+    private void writeWal(int shard, WriteAheadLog.WalRecord record) {
+        try (WriteAheadLog wal = new WriteAheadLog(directory.resolve("shard-" + shard + ".wal"), 1024 * 1024)) {
+            wal.append(record.sequence(), record.transferId(), record.fromCardId(), record.toCardId(), record.amount());
+            wal.force();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.bankrest.engine;
+
+import com.example.bankrest.exception.InsufficientFundsException;
+import com.example.bankrest.util.LongLongHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BalanceShardTest {
+
+    private static final int CAPACITY = 64 * WriteAheadLog.RECORD_SIZE;
+
+    @TempDir
+    Path directory;
+
+    private WriteAheadLog wal;
+    private BalanceShard shard;
+
+    @AfterEach
+    void tearDown() throws InterruptedException, IOException {
+        if (shard != null) {
+            shard.stop();
+        }
+        if (wal != null) {
+            wal.close();
+        }
+    }
+
+    @Test
+    void transfer_Success_MoveBalancesAndWriteWal() {
+        startShard(0L, new LongLongHashMap(16), List.of());
+
+        shard.transfer(7L, 1L, 1000L, 2L, 500L, 300L).join();
+
+        assertThat(shard.balance(1L, 0L).join()).isEqualTo(700L);
+        assertThat(shard.balance(2L, 0L).join()).isEqualTo(800L);
+        assertThat(wal.readAll()).containsExactly(new WriteAheadLog.WalRecord(1L, 7L, 1L, 2L, 300L));
+    }
+
+    @Test
+    void transfer_WhenInsufficientFunds_RejectWithoutWalRecord() {
+        startShard(0L, new LongLongHashMap(16), List.of());
+
+        assertThatThrownBy(() -> shard.transfer(7L, 1L, 100L, 2L, 0L, 300L).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(InsufficientFundsException.class);
+
+        assertThat(shard.balance(1L, 0L).join()).isEqualTo(100L);
+        assertThat(wal.readAll()).isEmpty();
+    }
+
+    @Test
+    void snapshot_ReturnDirtyBalancesAndUnsavedTransfersOnce() {
+        startShard(0L, new LongLongHashMap(16), List.of());
+        shard.transfer(7L, 1L, 1000L, 2L, 0L, 300L).join();
+        shard.transfer(8L, 2L, 0L, 3L, 0L, 100L).join();
+
+        BalanceShard.ShardSnapshot snapshot = shard.snapshot().join();
+
+        assertThat(snapshot.sequence()).isEqualTo(2L);
+        assertThat(snapshot.cardIds()).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(snapshot.transfers()).extracting(WriteAheadLog.WalRecord::transferId).containsExactly(7L, 8L);
+
+        BalanceShard.ShardSnapshot next = shard.snapshot().join();
+        assertThat(next.cardIds()).isEmpty();
+        assertThat(next.transfers()).isEmpty();
+    }
+
+    @Test
+    void markDirty_WhenSnapshotWasNotSaved_ReturnTransfersToNextSnapshotInOrder() {
+        startShard(0L, new LongLongHashMap(16), List.of());
+        shard.transfer(7L, 1L, 1000L, 2L, 0L, 300L).join();
+        BalanceShard.ShardSnapshot failed = shard.snapshot().join();
+        shard.transfer(8L, 1L, 0L, 2L, 0L, 100L).join();
+
+        shard.markDirty(failed);
+        BalanceShard.ShardSnapshot retry = shard.snapshot().join();
+
+        assertThat(retry.cardIds()).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(retry.transfers()).extracting(WriteAheadLog.WalRecord::transferId).containsExactly(7L, 8L);
+    }
+
+    @Test
+    void snapshot_AfterRecovery_IncludeReplayedTransfers() {
+        LongLongHashMap recovered = new LongLongHashMap(16);
+        recovered.put(1L, 700L);
+        recovered.put(2L, 800L);
+        WriteAheadLog.WalRecord replayed = new WriteAheadLog.WalRecord(5L, 7L, 1L, 2L, 300L);
+        startShard(5L, recovered, List.of(replayed));
+
+        shard.transfer(8L, 1L, 0L, 2L, 0L, 100L).join();
+        BalanceShard.ShardSnapshot snapshot = shard.snapshot().join();
+
+        assertThat(snapshot.sequence()).isEqualTo(6L);
+        assertThat(snapshot.transfers()).extracting(WriteAheadLog.WalRecord::sequence).containsExactly(5L, 6L);
+        assertThat(shard.balance(1L, 0L).join()).isEqualTo(600L);
+    }
+
+    @Test
+    void isUnsaved_TrueUntilTransferIsTakenBySnapshot() {
+        startShard(0L, new LongLongHashMap(16), List.of());
+        shard.transfer(7L, 1L, 1000L, 2L, 0L, 300L).join();
+
+        assertThat(shard.isUnsaved(7L).join()).isTrue();
+        assertThat(shard.isUnsaved(8L).join()).isFalse();
+
+        BalanceShard.ShardSnapshot snapshot = shard.snapshot().join();
+        assertThat(shard.isUnsaved(7L).join()).isFalse();
+
+        shard.markDirty(snapshot);
+        assertThat(shard.isUnsaved(7L).join()).isTrue();
+    }
+
+    @Test
+    void compact_AfterSnapshot_DropSavedRecordsFromWal() {
+        startShard(0L, new LongLongHashMap(16), List.of());
+        shard.transfer(7L, 1L, 1000L, 2L, 0L, 300L).join();
+        BalanceShard.ShardSnapshot snapshot = shard.snapshot().join();
+        shard.transfer(8L, 1L, 0L, 2L, 0L, 100L).join();
+
+        shard.compact(snapshot.sequence());
+        shard.balance(1L, 0L).join();
+
+        assertThat(wal.readAll()).extracting(WriteAheadLog.WalRecord::transferId).containsExactly(8L);
+    }
+
+    private void startShard(long sequence, LongLongHashMap balances, List<WriteAheadLog.WalRecord> transfers) {
+        wal = new WriteAheadLog(directory.resolve("shard-0.wal"), CAPACITY);
+        shard = new BalanceShard(0, wal, 16, sequence, balances, transfers);
+        shard.start();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.bankrest.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    private static final int CAPACITY = 16 * WriteAheadLog.RECORD_SIZE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readAll_AfterReopen_ReplayAppendedRecords() throws IOException {
+        Path path = directory.resolve("shard-0.wal");
+        try (WriteAheadLog wal = new WriteAheadLog(path, CAPACITY)) {
+            wal.append(1L, 11L, 1L, 2L, 100L);
+            wal.append(2L, 0L, 2L, 1L, 50L);
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(path, CAPACITY)) {
+            assertThat(wal.readAll()).containsExactly(
+                    new WriteAheadLog.WalRecord(1L, 11L, 1L, 2L, 100L),
+                    new WriteAheadLog.WalRecord(2L, 0L, 2L, 1L, 50L));
+
+            wal.append(3L, 12L, 1L, 2L, 10L);
+            assertThat(wal.readAll()).extracting(WriteAheadLog.WalRecord::sequence).containsExactly(1L, 2L, 3L);
+        }
+    }
+
+    @Test
+    void readAll_WhenTailRecordIsTorn_StopBeforeIt() throws IOException {
+        Path path = directory.resolve("shard-0.wal");
+        try (WriteAheadLog wal = new WriteAheadLog(path, CAPACITY)) {
+            wal.append(1L, 11L, 1L, 2L, 100L);
+            wal.append(2L, 12L, 1L, 2L, 200L);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(WriteAheadLog.RECORD_SIZE + 4 * Long.BYTES);
+            file.writeLong(999L);
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(path, CAPACITY)) {
+            assertThat(wal.readAll()).containsExactly(new WriteAheadLog.WalRecord(1L, 11L, 1L, 2L, 100L));
+
+            wal.append(2L, 13L, 1L, 2L, 300L);
+            assertThat(wal.readAll()).containsExactly(
+                    new WriteAheadLog.WalRecord(1L, 11L, 1L, 2L, 100L),
+                    new WriteAheadLog.WalRecord(2L, 13L, 1L, 2L, 300L));
+        }
+    }
+
+    @Test
+    void hasRoom_WhenLogIsFull_ReturnFalse() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory.resolve("shard-0.wal"), 2 * WriteAheadLog.RECORD_SIZE)) {
+            wal.append(1L, 0L, 1L, 2L, 1L);
+            assertThat(wal.hasRoom()).isTrue();
+
+            wal.append(2L, 0L, 1L, 2L, 1L);
+            assertThat(wal.hasRoom()).isFalse();
+        }
+    }
+
+    @Test
+    void compact_KeepRecordsAfterSnapshotAndFreeSpace() throws IOException {
+        Path path = directory.resolve("shard-0.wal");
+        try (WriteAheadLog wal = new WriteAheadLog(path, 3 * WriteAheadLog.RECORD_SIZE)) {
+            wal.append(1L, 11L, 1L, 2L, 100L);
+            wal.append(2L, 12L, 1L, 2L, 200L);
+            wal.append(3L, 13L, 1L, 2L, 300L);
+
+            wal.compact(2L);
+
+            assertThat(wal.readAll()).containsExactly(new WriteAheadLog.WalRecord(3L, 13L, 1L, 2L, 300L));
+            assertThat(wal.hasRoom()).isTrue();
+            wal.append(4L, 14L, 1L, 2L, 400L);
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(path, 3 * WriteAheadLog.RECORD_SIZE)) {
+            assertThat(wal.readAll()).extracting(WriteAheadLog.WalRecord::sequence).containsExactly(3L, 4L);
+        }
+        assertThat(directory.resolve("shard-0.wal.compact")).doesNotExist();
+    }
+
+    @Test
+    void open_WhenCompactionWasInterrupted_KeepOriginalLog() throws IOException {
+        Path path = directory.resolve("shard-0.wal");
+        try (WriteAheadLog wal = new WriteAheadLog(path, CAPACITY)) {
+            wal.append(1L, 11L, 1L, 2L, 100L);
+        }
+        Files.write(directory.resolve("shard-0.wal.compact"), new byte[WriteAheadLog.RECORD_SIZE / 2]);
+
+        try (WriteAheadLog wal = new WriteAheadLog(path, CAPACITY)) {
+            assertThat(wal.readAll()).containsExactly(new WriteAheadLog.WalRecord(1L, 11L, 1L, 2L, 100L));
+        }
+        assertThat(directory.resolve("shard-0.wal.compact")).doesNotExist();
+    }
+}
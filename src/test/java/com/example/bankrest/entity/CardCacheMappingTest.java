@@ -0,0 +1,40 @@
+package com.example.bankrest.entity;
+
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/// Фабрика сессий собирается с тем же регионом Ehcache, что и в приложении, но без подключения к БД.
+class CardCacheMappingTest {
+
+    @Test
+    void card_WhenSecondLevelCacheEnabled_UpdateOnlyChangedColumns() {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DIALECT, PostgreSQLDialect.class.getName())
+                .applySetting(AvailableSettings.ALLOW_METADATA_ON_BOOT, false)
+                .applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, true)
+                .applySetting(AvailableSettings.CACHE_REGION_FACTORY, "jcache")
+                .applySetting("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider")
+                .applySetting("hibernate.javax.cache.uri", "classpath:ehcache.xml")
+                .applySetting("hibernate.javax.cache.missing_cache_strategy", "fail")
+                .build();
+
+        try (SessionFactoryImplementor sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClasses(Card.class, User.class, MoneyConverter.class)
+                .buildMetadata()
+                .buildSessionFactory()
+                .unwrap(SessionFactoryImplementor.class)) {
+            EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(Card.class);
+
+            assertThat(persister.canWriteToCache()).isTrue();
+            assertThat(persister.getEntityMetamodel().isDynamicUpdate()).isTrue();
+        }
+    }
+}
@@ -2,35 +2,60 @@ package com.example.bankrest.service;
 
 
 import com.example.bankrest.component.CardNumberGenerator;
+import com.example.bankrest.component.FxRateProvider;
+import com.example.bankrest.component.FxRates;
+import com.example.bankrest.component.TransactionLedger;
+import com.example.bankrest.component.TransferLimitTracker;
+import com.example.bankrest.component.TransferRiskScorer;
+import com.example.bankrest.dto.card.CardBalanceDto;
+import com.example.bankrest.dto.card.CardBalanceRow;
+import com.example.bankrest.dto.card.CardBalanceView;
+import com.example.bankrest.dto.card.CardChangesDto;
+import com.example.bankrest.dto.card.CardCountMode;
+import com.example.bankrest.dto.card.CardField;
 import com.example.bankrest.dto.card.CardInfo;
+import com.example.bankrest.dto.card.CardPageDto;
 import com.example.bankrest.dto.card.CardResponseDto;
+import com.example.bankrest.dto.card.CardSearchFilter;
+import com.example.bankrest.dto.card.CardTransactionPageDto;
 import com.example.bankrest.dto.card.TransferCardRequestDto;
+import com.example.bankrest.dto.card.TransferCommand;
+import com.example.bankrest.dto.card.TransferResult;
+import com.example.bankrest.engine.BalanceEngine;
 import com.example.bankrest.entity.Card;
+import com.example.bankrest.entity.CardTransaction;
+import com.example.bankrest.entity.Money;
 import com.example.bankrest.entity.Status;
+import com.example.bankrest.entity.TransactionDirection;
+import com.example.bankrest.entity.TransferStatus;
 import com.example.bankrest.entity.User;
 import com.example.bankrest.exception.*;
 import com.example.bankrest.repository.CardRepository;
+import com.example.bankrest.repository.CardTransactionRepository;
+import com.example.bankrest.repository.TransferRepository;
 import com.example.bankrest.repository.UserRepository;
+import com.example.bankrest.util.CursorCodec;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -46,6 +71,27 @@ public class CardServiceTest {
     @Mock
     private CardNumberGenerator cardNumberGenerator;
 
+    @Mock
+    private BalanceEngine balanceEngine;
+
+    @Mock
+    private TransferLimitTracker transferLimitTracker;
+
+    @Mock
+    private TransferRiskScorer transferRiskScorer;
+
+    @Mock
+    private TransactionLedger transactionLedger;
+
+    @Mock
+    private CardTransactionRepository cardTransactionRepository;
+
+    @Mock
+    private FxRateProvider fxRateProvider;
+
+    @Mock
+    private TransferRepository transferRepository;
+
     @InjectMocks
     private CardService cardService;
 
@@ -60,13 +106,15 @@ public class CardServiceTest {
         when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
         when(cardNumberGenerator.generateUniqueCardNumber()).thenReturn(cardInfo);
         when(cardRepository.save(any(Card.class))).thenReturn(createSavedCardWithId(user, cardInfo));
+        when(fxRateProvider.getDefaultCurrency()).thenReturn("RUB");
 
-        CardResponseDto result = cardService.requestCreateCard();
+        CardResponseDto result = cardService.requestCreateCard(null);
 
         assertThat(result.getStatus()).isEqualTo(Status.PENDING_ACTIVE);
+        assertThat(result.getCurrency()).isEqualTo("RUB");
         assertThat(result.getMasked()).isEqualTo("**** **** **** 1234");
         assertThat(result.getCardHolderName()).isEqualTo("John Doe");
-        assertThat(result.getBalance()).isEqualTo(BigDecimal.ZERO);
+        assertThat(result.getBalance()).isEqualTo(Money.ZERO);
         assertThat(result.getExpiryDate()).isEqualTo(LocalDate.now().plusYears(5));
     }
 
@@ -81,7 +129,7 @@ public class CardServiceTest {
         when(cardNumberGenerator.generateUniqueCardNumber()).thenReturn(cardInfo);
         when(cardRepository.save(any(Card.class))).thenReturn(createSavedCardWithId(user, cardInfo));
 
-        cardService.requestCreateCard();
+        cardService.requestCreateCard(null);
 
         verify(userRepository).findByUsername(username);
         verify(cardNumberGenerator).generateUniqueCardNumber();
@@ -96,7 +144,8 @@ public class CardServiceTest {
                 .hashCardNumber(cardInfo.getHashCardNumber())
                 .user(user)
                 .cardholderName("John Doe")
-                .balance(BigDecimal.ZERO)
+                .balance(Money.ZERO)
+                .availableBalance(Money.ZERO)
                 .status(Status.PENDING_ACTIVE)
                 .expiryDate(LocalDate.now().plusYears(5))
                 .build();
@@ -108,13 +157,40 @@ public class CardServiceTest {
         setupSecurityContext(username);
         when(userRepository.findByUsername(username)).thenReturn(Optional.empty());
 
-        assertThatThrownBy(() -> cardService.requestCreateCard())
+        assertThatThrownBy(() -> cardService.requestCreateCard(null))
                 .isInstanceOf(UserNotFoundException.class);
 
         verifyNoInteractions(cardNumberGenerator);
         verifyNoInteractions(cardRepository);
     }
 
+    @Test
+    void requestCreateCard_WhenCurrencyHasNoRates_ThrowUnsupportedCurrencyException() {
+        FxRates fxRates = mock(FxRates.class);
+        when(fxRateProvider.current()).thenReturn(fxRates);
+        when(fxRates.supports("XYZ")).thenReturn(false);
+
+        assertThatThrownBy(() -> cardService.requestCreateCard("xyz"))
+                .isInstanceOf(UnsupportedCurrencyException.class);
+
+        verifyNoInteractions(userRepository);
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void requestCreateCard_WhenCurrencyHasNoCents_ThrowUnsupportedCurrencyException() {
+        FxRates fxRates = mock(FxRates.class);
+        when(fxRateProvider.current()).thenReturn(fxRates);
+        when(fxRates.supports("JPY")).thenReturn(true);
+
+        assertThatThrownBy(() -> cardService.requestCreateCard("JPY"))
+                .isInstanceOf(UnsupportedCurrencyException.class)
+                .hasMessage("Unsupported currency: JPY");
+
+        verifyNoInteractions(userRepository);
+        verifyNoInteractions(cardRepository);
+    }
+
     @Test
     void createCardForAdmin_Success() {
         Long userId = 1L;
@@ -150,86 +226,285 @@ public class CardServiceTest {
         String username = "testUser";
         User user = createTestUser(username);
 
-        List<Card> mockCards = Arrays.asList(
-                Card.builder()
-                        .id(1L)
-                        .user(user)
-                        .cardNumber("encrypted1")
-                        .lastDigits("1111")
-                        .hashCardNumber("hash1")
-                        .cardholderName("John Doe")
-                        .balance(new BigDecimal("100.00"))
-                        .status(Status.ACTIVE)
-                        .expiryDate(LocalDate.now().plusYears(5))
-                        .createdAt(LocalDateTime.now().minusDays(2))
-                        .build(),
-                Card.builder()
-                        .id(2L)
-                        .user(user)
-                        .cardNumber("encrypted2")
-                        .lastDigits("2222")
-                        .hashCardNumber("hash2")
-                        .cardholderName("John Doe")
-                        .balance(new BigDecimal("50.00"))
-                        .status(Status.ACTIVE)
-                        .expiryDate(LocalDate.now().plusYears(5))
-                        .createdAt(LocalDateTime.now().minusDays(1))
-                        .build()
-        );
-
-        Page<Card> mockPage = new PageImpl<>(
-                mockCards,
-                PageRequest.of(0, 10, Sort.by("createdAt").descending()),
-                mockCards.size()
+        List<CardResponseDto> mockCards = Arrays.asList(
+                createCardRow(1L, "1111", Money.of("100.00"), LocalDateTime.now().minusDays(1)),
+                createCardRow(2L, "2222", Money.of("50.00"), LocalDateTime.now().minusDays(2))
         );
 
         setupSecurityContext(username);
         when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
 
-        when(cardRepository.findByUser_Id(eq(3L), any(PageRequest.class))).thenReturn(mockPage);
+        when(cardRepository.findUserFirstPage(3L, Limit.of(11))).thenReturn(mockCards);
 
-        Page<CardResponseDto> result = cardService.getUserCards(0, 10);
+        CardPageDto result = cardService.getUserCards(null, 10, CardCountMode.NONE, null);
 
         assertThat(result).isNotNull();
-        assertThat(result.getContent()).hasSize(2);
-        assertThat(result.getTotalElements()).isEqualTo(2);
-        assertThat(result.getNumber()).isEqualTo(0);
-        assertThat(result.getSize()).isEqualTo(10);
+        assertThat(result.getItems()).hasSize(2);
+        assertThat(result.getNextCursor()).isNull();
+        assertThat(result.getTotal()).isNull();
 
-        CardResponseDto firstCard = result.getContent().get(0);
+        CardResponseDto firstCard = result.getItems().get(0);
         assertThat(firstCard.getId()).isEqualTo(1L);
         assertThat(firstCard.getMasked()).isEqualTo("**** **** **** 1111");
-        assertThat(firstCard.getBalance()).isEqualTo(new BigDecimal("100.00"));
+        assertThat(firstCard.getBalance()).isEqualTo(Money.of("100.00"));
 
-        CardResponseDto secondCard = result.getContent().get(1);
+        CardResponseDto secondCard = result.getItems().get(1);
         assertThat(secondCard.getId()).isEqualTo(2L);
         assertThat(secondCard.getMasked()).isEqualTo("**** **** **** 2222");
-        assertThat(secondCard.getBalance()).isEqualTo(new BigDecimal("50.00"));
+        assertThat(secondCard.getBalance()).isEqualTo(Money.of("50.00"));
 
-        verify(cardRepository).findByUser_Id(eq(3L),
-                argThat(pageRequest ->
-                        pageRequest.getPageNumber() == 0 &&
-                        pageRequest.getPageSize() == 10 &&
-                        pageRequest.getSort().getOrderFor("createdAt").isDescending()
-                ));
+        verify(cardRepository, never()).countByUser_Id(any());
     }
 
     @Test
-    void getBalance_Success() {
+    void getUserCards_WhenMoreCardsThanPage_ReturnNextCursorAndContinueFromIt() {
         String username = "testUser";
         User user = createTestUser(username);
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 1, 12, 0);
+        CardResponseDto first = createCardRow(5L, "5555", Money.of("10.00"), createdAt.plusDays(1));
+        CardResponseDto second = createCardRow(4L, "4444", Money.of("10.00"), createdAt);
+        CardResponseDto extra = createCardRow(3L, "3333", Money.of("10.00"), createdAt.minusDays(1));
+
         setupSecurityContext(username);
         when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+        when(cardRepository.findUserFirstPage(3L, Limit.of(3))).thenReturn(List.of(first, second, extra));
+        when(cardRepository.countByUser_Id(3L)).thenReturn(3L);
+
+        CardPageDto firstPage = cardService.getUserCards(null, 2, CardCountMode.EXACT, null);
+
+        assertThat(firstPage.getItems()).containsExactly(first, second);
+        assertThat(firstPage.getNextCursor()).isEqualTo(CursorCodec.encode(createdAt, 4L));
+        assertThat(firstPage.getTotal()).isEqualTo(3L);
+        assertThat(firstPage.getTotalEstimated()).isFalse();
+
+        when(cardRepository.findUserPageAfter(3L, createdAt, 4L, Limit.of(3))).thenReturn(List.of(extra));
+
+        CardPageDto secondPage = cardService.getUserCards(firstPage.getNextCursor(), 2, CardCountMode.NONE, null);
+
+        assertThat(secondPage.getItems()).containsExactly(extra);
+        assertThat(secondPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    void getCardChanges_WithoutCursor_ReturnAllCardsAndCursorWithoutTombstones() {
+        String username = "testUser";
+        CardResponseDto card = createCardRow(1L, "1111", Money.of("100.00"), LocalDateTime.now().minusDays(1));
+
+        setupSecurityContext(username);
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(3L));
+        when(cardRepository.findDatabaseTime()).thenReturn(LocalDateTime.now());
+        when(cardRepository.findUserChangesFirstPage(eq(3L), any(LocalDateTime.class), eq(Limit.of(101))))
+                .thenReturn(List.of(card));
+
+        CardChangesDto changes = cardService.getCardChanges(null, 100);
+
+        assertThat(changes.getChanged()).containsExactly(card);
+        assertThat(changes.getDeleted()).isEmpty();
+        assertThat(changes.isHasMore()).isFalse();
+        assertThat(changes.getNextCursor()).isNotNull();
+        verify(cardRepository, never()).findDeletedCardIds(any(), any(), any());
+    }
+
+    @Test
+    void getCardChanges_WhenMoreChangesThanPage_ReturnTombstonesUpToPageEnd() {
+        String username = "testUser";
+        LocalDateTime since = LocalDateTime.of(2026, 10, 1, 12, 0);
+        CardResponseDto first = createCardRow(5L, "5555", Money.of("10.00"), since.plusMinutes(1));
+        CardResponseDto extra = createCardRow(6L, "6666", Money.of("10.00"), since.plusMinutes(2));
+
+        ReflectionTestUtils.setField(cardService, "tombstoneRetentionDays", 30);
+        setupSecurityContext(username);
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(3L));
+        when(cardRepository.findDatabaseTime()).thenReturn(since.plusDays(18));
+        when(cardRepository.findUserChangesAfter(eq(3L), eq(since), eq(4L), any(LocalDateTime.class), eq(Limit.of(2))))
+                .thenReturn(List.of(first, extra));
+        when(cardRepository.findDeletedCardIds(3L, since, since.plusMinutes(1))).thenReturn(List.of(7L));
+
+        CardChangesDto changes = cardService.getCardChanges(CursorCodec.encode(since, 4L), 1);
+
+        assertThat(changes.getChanged()).containsExactly(first);
+        assertThat(changes.getDeleted()).containsExactly(7L);
+        assertThat(changes.isHasMore()).isTrue();
+        assertThat(changes.getNextCursor()).isEqualTo(CursorCodec.encode(since.plusMinutes(1), 5L));
+    }
+
+    @Test
+    void getCardChanges_WhenCursorIsOlderThanTombstoneRetention_ThrowCursorExpiredException() {
+        String username = "testUser";
+        LocalDateTime now = LocalDateTime.of(2026, 10, 19, 12, 0);
+
+        ReflectionTestUtils.setField(cardService, "tombstoneRetentionDays", 30);
+        setupSecurityContext(username);
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(3L));
+        when(cardRepository.findDatabaseTime()).thenReturn(now);
+
+        assertThatThrownBy(() -> cardService.getCardChanges(CursorCodec.encode(now.minusDays(31), 4L), 10))
+                .isInstanceOf(CursorExpiredException.class);
+        verify(cardRepository, never()).findUserChangesAfter(any(), any(), any(), any(), any());
+        verify(cardRepository, never()).findDeletedCardIds(any(), any(), any());
+    }
+
+    private CardResponseDto createCardRow(Long id, String lastDigits, Money balance, LocalDateTime createdAt) {
+        return CardResponseDto.builder()
+                .id(id)
+                .masked("**** **** **** " + lastDigits)
+                .cardHolderName("John Doe")
+                .balance(balance)
+                .availableBalance(balance)
+                .status(Status.ACTIVE)
+                .expiryDate(LocalDate.now().plusYears(5))
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+    }
+
+    @Test
+    void getBalance_Success() {
+        String username = "testUser";
+        User user = createTestUser(username);
+        setupSecurityContext(username);
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(user.getId()));
 
         Card card = createDefaultTestCard(user, Status.ACTIVE);
 
-        when(cardRepository.findByIdAndUser_Id(card.getId(), user.getId())).thenReturn(Optional.of(card));
-        BigDecimal expected = cardService.getBalance(card.getId());
+        when(cardRepository.findBalanceByIdAndUserId(card.getId(), user.getId()))
+                .thenReturn(Optional.of(new CardBalanceView(card.getCardholderName(), card.getBalance())));
+        Money expected = cardService.getBalance(card.getId());
 
-        assertThat(expected).isEqualTo(new BigDecimal("100.00"));
+        assertThat(expected).isEqualTo(Money.of("100.00"));
 
-        verify(userRepository).findByUsername(username);
-        verify(cardRepository).findByIdAndUser_Id(card.getId(), user.getId());
+        verify(userRepository).findIdByUsername(username);
+        verify(cardRepository).findBalanceByIdAndUserId(card.getId(), user.getId());
+        verify(cardRepository, never()).findByIdAndUser_Id(any(), any());
+        verify(userRepository, never()).findByUsername(any());
+    }
+
+    @Test
+    void getCardTransactions_WhenMoreRowsThanPageSize_ReturnNextCursorOfLastItem() {
+        String username = "testUser";
+        User user = createTestUser(username);
+        setupSecurityContext(username);
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(user.getId()));
+        when(cardRepository.existsByIdAndUser_Id(1L, user.getId())).thenReturn(true);
+
+        LocalDateTime now = LocalDateTime.of(2026, 10, 1, 12, 0);
+        when(cardTransactionRepository.findFirstPage(eq(1L), any(LocalDateTime.class), eq(3))).thenReturn(List.of(
+                createTestTransaction(30L, now),
+                createTestTransaction(29L, now.minusMinutes(1)),
+                createTestTransaction(28L, now.minusMinutes(2))));
+
+        CardTransactionPageDto result = cardService.getCardTransactions(1L, null, 2);
+
+        assertThat(result.getItems()).hasSize(2);
+        assertThat(result.getNextCursor()).isEqualTo(CursorCodec.encode(now.minusMinutes(1), 29L));
+    }
+
+    @Test
+    void getCardTransactions_WithCursor_ContinueAfterCursorPosition() {
+        String username = "testUser";
+        User user = createTestUser(username);
+        setupSecurityContext(username);
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(user.getId()));
+        when(cardRepository.existsByIdAndUser_Id(1L, user.getId())).thenReturn(true);
+
+        LocalDateTime position = LocalDateTime.of(2026, 10, 1, 11, 59, 0, 123456000);
+        when(cardTransactionRepository.findPageAfter(eq(1L), any(LocalDateTime.class), eq(position), eq(29L), eq(3)))
+                .thenReturn(List.of(createTestTransaction(28L, position.minusMinutes(1))));
+
+        CardTransactionPageDto result = cardService.getCardTransactions(1L, CursorCodec.encode(position, 29L), 2);
+
+        assertThat(result.getItems()).hasSize(1);
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    void getCardTransactions_WhenCursorIsMalformed_ThrowInvalidCursorException() {
+        String username = "testUser";
+        User user = createTestUser(username);
+        setupSecurityContext(username);
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(user.getId()));
+        when(cardRepository.existsByIdAndUser_Id(1L, user.getId())).thenReturn(true);
+
+        assertThatThrownBy(() -> cardService.getCardTransactions(1L, "not-a-cursor", 20))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void getCardTransactions_WhenCardBelongsToAnotherUser_ThrowCardNotFoundException() {
+        String username = "testUser";
+        setupSecurityContext(username);
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(3L));
+        when(cardRepository.existsByIdAndUser_Id(1L, 3L)).thenReturn(false);
+
+        assertThatThrownBy(() -> cardService.getCardTransactions(1L, null, 20))
+                .isInstanceOf(CardNotFoundException.class);
+        verify(userRepository, never()).findByUsername(any());
+        verifyNoInteractions(cardTransactionRepository);
+    }
+
+    @Test
+    void getBalances_WithIds_LoadOnlyOwnCardsInOneQuery() {
+        String username = "testUser";
+        setupSecurityContext(username);
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(3L));
+        when(cardRepository.findBalancesByIdInAndUserId(Set.of(1L, 2L), 3L)).thenReturn(List.of(
+                new CardBalanceRow(1L, "John Doe", Money.of("100.00"), "RUB")));
+
+        List<CardBalanceDto> balances = cardService.getBalances(List.of(1L, 2L, 1L));
+
+        assertThat(balances).containsExactly(CardBalanceDto.builder()
+                .cardId(1L)
+                .balance(Money.of("100.00"))
+                .currency("RUB")
+                .build());
+        verify(cardRepository, never()).findBalancesByUserId(any());
+    }
+
+    @Test
+    void getBalances_WithoutIds_LoadAllUserCards() {
+        String username = "testUser";
+        setupSecurityContext(username);
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(3L));
+        when(cardRepository.findBalancesByUserId(3L)).thenReturn(List.of(
+                new CardBalanceRow(1L, "John Doe", Money.of("100.00"), "RUB"),
+                new CardBalanceRow(2L, "John Doe", Money.of("5.00"), "USD")));
+
+        List<CardBalanceDto> balances = cardService.getBalances(null);
+
+        assertThat(balances).extracting(CardBalanceDto::getCardId).containsExactly(1L, 2L);
+        assertThat(balances).extracting(CardBalanceDto::getCurrency).containsExactly("RUB", "USD");
+    }
+
+    @Test
+    void getBalances_WhenTooManyIds_ThrowTooManyCardIdsException() {
+        String username = "testUser";
+        setupSecurityContext(username);
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(3L));
+        List<Long> cardIds = LongStream.rangeClosed(1, 101).boxed().toList();
+
+        assertThatThrownBy(() -> cardService.getBalances(cardIds))
+                .isInstanceOf(TooManyCardIdsException.class);
+
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void getBalanceEtag_ChangesWhenCardIsUpdated() {
+        String username = "testUser";
+        setupSecurityContext(username);
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(3L));
+        LocalDateTime updatedAt = LocalDateTime.of(2026, 10, 1, 12, 0);
+        when(cardRepository.findVersionByIdAndUserId(1L, 3L))
+                .thenReturn(Optional.of(updatedAt), Optional.of(updatedAt), Optional.of(updatedAt.plusNanos(1000)));
+
+        String first = cardService.getBalanceEtag(1L);
+        String unchanged = cardService.getBalanceEtag(1L);
+        String changed = cardService.getBalanceEtag(1L);
+
+        assertThat(first).startsWith("\"").endsWith("\"");
+        assertThat(unchanged).isEqualTo(first);
+        assertThat(changed).isNotEqualTo(first);
+        verify(cardRepository, never()).findBalanceByIdAndUserId(any(), any());
     }
 
     @Test
@@ -240,9 +515,9 @@ public class CardServiceTest {
         User user = createTestUser(username);
 
         setupSecurityContext(username);
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(user.getId()));
 
-        when(cardRepository.findByIdAndUser_Id(cardId, user.getId()))
+        when(cardRepository.findBalanceByIdAndUserId(cardId, user.getId()))
                 .thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> cardService.getBalance(cardId))
@@ -255,7 +530,7 @@ public class CardServiceTest {
         String username = "NonExistsUser";
 
         setupSecurityContext(username);
-        when(userRepository.findByUsername(username)).thenReturn(Optional.empty());
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> cardService.getBalance(cardId))
                 .isInstanceOf(UserNotFoundException.class);
@@ -264,61 +539,91 @@ public class CardServiceTest {
     }
 
     @Test
-    void getAllCardsForAdmin_Success() {
-        String username = "testUser";
-        User user = createTestUser(username);
+    void getAllCardsForAdmin_WhenTableNeverAnalyzed_FallBackToExactCount() {
+        when(cardRepository.findFirstPage(Limit.of(11))).thenReturn(List.of());
+        when(cardRepository.estimateCount()).thenReturn(-1L);
+        when(cardRepository.count()).thenReturn(0L);
 
-        List<Card> mockCards = Arrays.asList(
-                Card.builder()
-                        .id(1L)
-                        .user(user)
-                        .cardNumber("encrypted1")
-                        .lastDigits("1111")
-                        .hashCardNumber("hash1")
-                        .cardholderName("John Doe")
-                        .balance(new BigDecimal("100.00"))
-                        .status(Status.ACTIVE)
-                        .expiryDate(LocalDate.now().plusYears(5))
-                        .createdAt(LocalDateTime.now().minusDays(2))
-                        .build(),
-                Card.builder()
-                        .id(2L)
-                        .user(user)
-                        .cardNumber("encrypted2")
-                        .lastDigits("2222")
-                        .hashCardNumber("hash2")
-                        .cardholderName("John Doe")
-                        .balance(new BigDecimal("50.00"))
-                        .status(Status.ACTIVE)
-                        .expiryDate(LocalDate.now().plusYears(5))
-                        .createdAt(LocalDateTime.now().minusDays(1))
-                        .build()
-        );
+        CardPageDto result = cardService.getAllCards(null, 10, CardCountMode.ESTIMATE, null);
+
+        assertThat(result.getItems()).isEmpty();
+        assertThat(result.getTotal()).isZero();
+        assertThat(result.getTotalEstimated()).isFalse();
+    }
+
+    @Test
+    void getAllCardsForAdmin_WithFields_SelectOnlyRequestedFieldsAndKeepCursor() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 10, 1, 12, 0);
+        CardResponseDto first = CardResponseDto.builder().id(2L).masked("**** **** **** 2222").status(Status.ACTIVE).createdAt(createdAt).build();
+        CardResponseDto extra = CardResponseDto.builder().id(1L).masked("**** **** **** 1111").status(Status.ACTIVE).createdAt(createdAt.minusDays(1)).build();
+        Set<CardField> fields = EnumSet.of(CardField.ID, CardField.MASKED, CardField.STATUS);
+
+        when(cardRepository.findPageWithFields(null, null, fields, 2)).thenReturn(List.of(first, extra));
+
+        CardPageDto result = cardService.getAllCards(null, 1, CardCountMode.NONE, "masked,status");
+
+        assertThat(result.getItems()).hasSize(1);
+        assertThat(result.getItems().get(0).getMasked()).isEqualTo("**** **** **** 2222");
+        assertThat(result.getItems().get(0).getCreatedAt()).isNull();
+        assertThat(result.getNextCursor()).isEqualTo(CursorCodec.encode(createdAt, 2L));
+        verify(cardRepository, never()).findFirstPage(any());
+    }
+
+    @Test
+    void getAllCardsForAdmin_WithUnknownField_ThrowUnknownCardFieldException() {
+        assertThatThrownBy(() -> cardService.getAllCards(null, 10, CardCountMode.NONE, "id,cardNumber"))
+                .isInstanceOf(UnknownCardFieldException.class);
+
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void searchCardsForAdmin_ContinueFromCursorAndReturnNextCursor() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 10, 1, 12, 0);
+        CardSearchFilter filter = CardSearchFilter.builder()
+                .status(Status.PENDING_BLOCK)
+                .holderNamePrefix("joh")
+                .build();
+        CardResponseDto first = createCardRow(4L, "4444", Money.of("10.00"), createdAt);
+        CardResponseDto extra = createCardRow(3L, "3333", Money.of("10.00"), createdAt.minusDays(1));
 
-        Page<Card> mockPage = new PageImpl<>(
-                mockCards,
-                PageRequest.of(0, 10, Sort.by("createdAt").descending()),
-                mockCards.size()
+        when(cardRepository.search(filter, new CursorCodec.Position(createdAt.plusDays(1), 5L), 2))
+                .thenReturn(List.of(first, extra));
+
+        CardPageDto result = cardService.searchCards(filter, CursorCodec.encode(createdAt.plusDays(1), 5L), 1);
+
+        assertThat(result.getItems()).containsExactly(first);
+        assertThat(result.getNextCursor()).isEqualTo(CursorCodec.encode(createdAt, 4L));
+        assertThat(result.getTotal()).isNull();
+    }
+
+    @Test
+    void getAllCardsForAdmin_Success() {
+        List<CardResponseDto> mockCards = Arrays.asList(
+                createCardRow(1L, "1111", Money.of("100.00"), LocalDateTime.now().minusDays(1)),
+                createCardRow(2L, "2222", Money.of("50.00"), LocalDateTime.now().minusDays(2))
         );
 
-        when(cardRepository.findAll(any(PageRequest.class))).thenReturn(mockPage);
-        Page<CardResponseDto> result = cardService.getAllCards(0, 10);
+        when(cardRepository.findFirstPage(Limit.of(11))).thenReturn(mockCards);
+        when(cardRepository.estimateCount()).thenReturn(2L);
+        CardPageDto result = cardService.getAllCards(null, 10, CardCountMode.ESTIMATE, null);
 
         assertThat(result).isNotNull();
-        assertThat(result.getContent()).hasSize(2);
-        assertThat(result.getTotalElements()).isEqualTo(2);
-        assertThat(result.getNumber()).isEqualTo(0);
-        assertThat(result.getSize()).isEqualTo(10);
+        assertThat(result.getItems()).hasSize(2);
+        assertThat(result.getNextCursor()).isNull();
+        assertThat(result.getTotal()).isEqualTo(2L);
+        assertThat(result.getTotalEstimated()).isTrue();
+        verify(cardRepository, never()).count();
 
-        CardResponseDto firstCard = result.getContent().get(0);
+        CardResponseDto firstCard = result.getItems().get(0);
         assertThat(firstCard.getId()).isEqualTo(1L);
         assertThat(firstCard.getMasked()).isEqualTo("**** **** **** 1111");
-        assertThat(firstCard.getBalance()).isEqualTo(new BigDecimal("100.00"));
+        assertThat(firstCard.getBalance()).isEqualTo(Money.of("100.00"));
 
-        CardResponseDto secondCard = result.getContent().get(1);
+        CardResponseDto secondCard = result.getItems().get(1);
         assertThat(secondCard.getId()).isEqualTo(2L);
         assertThat(secondCard.getMasked()).isEqualTo("**** **** **** 2222");
-        assertThat(secondCard.getBalance()).isEqualTo(new BigDecimal("50.00"));
+        assertThat(secondCard.getBalance()).isEqualTo(Money.of("50.00"));
     }
 
     @Test
@@ -327,7 +632,7 @@ public class CardServiceTest {
         User user = createTestUser(username);
 
         setupSecurityContext(username);
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(user.getId()));
 
         Card card = createDefaultTestCard(user, Status.ACTIVE);
 
@@ -338,9 +643,9 @@ public class CardServiceTest {
         assertThat(result).isNotNull();
         assertThat(result.getStatus()).isEqualTo(Status.PENDING_BLOCK);
         assertThat(result.getCardHolderName()).isEqualTo("John Doe");
-        assertThat(result.getBalance()).isEqualTo(new BigDecimal("100.00"));
+        assertThat(result.getBalance()).isEqualTo(Money.of("100.00"));
 
-        verify(userRepository).findByUsername(username);
+        verify(userRepository).findIdByUsername(username);
         verify(cardRepository).findByIdAndUser_Id(card.getId(), user.getId());
 
     }
@@ -353,7 +658,7 @@ public class CardServiceTest {
         User user = createTestUser(username);
 
         setupSecurityContext(username);
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(user.getId()));
 
         when(cardRepository.findByIdAndUser_Id(cardId, user.getId()))
                 .thenReturn(Optional.empty());
@@ -368,7 +673,7 @@ public class CardServiceTest {
         String username = "NonExistsUser";
 
         setupSecurityContext(username);
-        when(userRepository.findByUsername(username)).thenReturn(Optional.empty());
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> cardService.requestCardBlock(cardId))
                 .isInstanceOf(UserNotFoundException.class);
@@ -382,7 +687,7 @@ public class CardServiceTest {
         User user = createTestUser(username);
 
         setupSecurityContext(username);
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(user.getId()));
 
         Card card = createDefaultTestCard(user, Status.BLOCKED);
 
@@ -405,14 +710,15 @@ public class CardServiceTest {
         User user = createTestUser(username);
 
         Card card = createDefaultTestCard(user, Status.PENDING_BLOCK);
-        when(cardRepository.findById(cardId)).thenReturn(Optional.of(card));
+        when(cardRepository.findByIdWithLock(cardId)).thenReturn(Optional.of(card));
 
         CardResponseDto result = cardService.cardBlock(cardId);
 
         assertThat(result).isNotNull();
         assertThat(result.getStatus()).isEqualTo(Status.BLOCKED);
 
-        verify(cardRepository).findById(cardId);
+        verify(cardRepository).findByIdWithLock(cardId);
+        verify(cardRepository, never()).findById(any());
     }
 
     @Test
@@ -421,7 +727,7 @@ public class CardServiceTest {
         User user = createTestUser(username);
 
         Card card = createDefaultTestCard(user, Status.BLOCKED);
-        when(cardRepository.findById(card.getId())).thenReturn(Optional.of(card));
+        when(cardRepository.findByIdWithLock(card.getId())).thenReturn(Optional.of(card));
 
         assertThatThrownBy(() -> cardService.cardBlock(card.getId()))
                 .isInstanceOf(CardAlreadyBlockedException.class);
@@ -435,7 +741,7 @@ public class CardServiceTest {
         User user = createTestUser(username);
 
         Card card = createDefaultTestCard(user, Status.ACTIVE);
-        when(cardRepository.findById(card.getId())).thenReturn(Optional.of(card));
+        when(cardRepository.findByIdWithLock(card.getId())).thenReturn(Optional.of(card));
 
         assertThatThrownBy(() -> cardService.cardBlock(card.getId()))
                 .isInstanceOf(CardAlreadyActiveException.class);
@@ -449,7 +755,7 @@ public class CardServiceTest {
         User user = createTestUser(username);
 
         Card card = createDefaultTestCard(user, Status.PENDING_ACTIVE);  // для теста, так как это состояние как раз упадет в default
-        when(cardRepository.findById(card.getId())).thenReturn(Optional.of(card));
+        when(cardRepository.findByIdWithLock(card.getId())).thenReturn(Optional.of(card));
 
         assertThatThrownBy(() -> cardService.cardBlock(card.getId()))
                 .isInstanceOf(CardInvalidStatusException.class);
@@ -460,7 +766,7 @@ public class CardServiceTest {
     @Test
     void cardBlockForAdmin_WhenCardNotFound_ThrowCardNotFoundException() {
         Long cardId = 999L;
-        when(cardRepository.findById(cardId)).thenReturn(Optional.empty());
+        when(cardRepository.findByIdWithLock(cardId)).thenReturn(Optional.empty());
         assertThatThrownBy(() -> cardService.cardBlock(cardId))
                 .isInstanceOf(CardNotFoundException.class);
 
@@ -473,14 +779,15 @@ public class CardServiceTest {
         User user = createTestUser(username);
 
         Card card = createDefaultTestCard(user, Status.BLOCKED);
-        when(cardRepository.findById(card.getId())).thenReturn(Optional.of(card));
+        when(cardRepository.findByIdWithLock(card.getId())).thenReturn(Optional.of(card));
 
         CardResponseDto result = cardService.activateCard(card.getId());
 
         assertThat(result).isNotNull();
         assertThat(result.getStatus()).isEqualTo(Status.ACTIVE);
 
-        verify(cardRepository).findById(card.getId());
+        verify(cardRepository).findByIdWithLock(card.getId());
+        verify(cardRepository, never()).findById(any());
     }
 
     @Test
@@ -489,19 +796,19 @@ public class CardServiceTest {
         User user = createTestUser(username);
 
         Card card = createDefaultTestCard(user, Status.ACTIVE);
-        when(cardRepository.findById(card.getId())).thenReturn(Optional.of(card));
+        when(cardRepository.findByIdWithLock(card.getId())).thenReturn(Optional.of(card));
 
         assertThatThrownBy(() -> cardService.activateCard(card.getId()))
                 .isInstanceOf(CardAlreadyActiveException.class);
 
-        verify(cardRepository).findById(card.getId());
+        verify(cardRepository).findByIdWithLock(card.getId());
         verify(cardRepository, never()).save(any(Card.class));
     }
 
     @Test
     void activateCardForAdmin_WhenCardNotFound_ThrowCardNotFoundException() {
         Long cardId = 999L;
-        when(cardRepository.findById(cardId)).thenReturn(Optional.empty());
+        when(cardRepository.findByIdWithLock(cardId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> cardService.activateCard(cardId))
                 .isInstanceOf(CardNotFoundException.class);
@@ -531,7 +838,7 @@ public class CardServiceTest {
     void moneyTransfer_Success() {
         Long fromCardId = 1L;
         Long toCardId = 2L;
-        BigDecimal amount = new BigDecimal("100.00");
+        Money amount = Money.of("100.00");
 
         TransferCardRequestDto request = TransferCardRequestDto.builder()
                 .id(toCardId)
@@ -545,7 +852,8 @@ public class CardServiceTest {
                 .id(fromCardId)
                 .user(user)
                 .cardholderName("John Doe")
-                .balance(new BigDecimal("500.00"))
+                .balance(Money.of("500.00"))
+                .availableBalance(Money.of("500.00"))
                 .status(Status.ACTIVE)
                 .build();
 
@@ -553,7 +861,8 @@ public class CardServiceTest {
                 .id(toCardId)
                 .user(user)
                 .cardholderName("John Doe")
-                .balance(new BigDecimal("200.00"))
+                .balance(Money.of("200.00"))
+                .availableBalance(Money.of("200.00"))
                 .status(Status.ACTIVE)
                 .build();
 
@@ -561,18 +870,63 @@ public class CardServiceTest {
         when(cardRepository.findByIdWithLock(2L)).thenReturn(Optional.of(toCard));
 
         cardService.moneyTransfer(fromCardId, request);
-        assertThat(fromCard.getBalance()).isEqualTo(new BigDecimal("400.00"));
-        assertThat(toCard.getBalance()).isEqualTo(new BigDecimal("300.00"));
+        assertThat(fromCard.getBalance()).isEqualTo(Money.of("400.00"));
+        assertThat(toCard.getBalance()).isEqualTo(Money.of("300.00"));
 
         verify(cardRepository).findByIdWithLock(1L);
         verify(cardRepository).findByIdWithLock(2L);
+        verify(transactionLedger).recordTransfer(1L, 2L, amount, amount);
+    }
+
+    @Test
+    void moneyTransfer_WhenCardsInDifferentCurrencies_CreditConvertedAmount() {
+        User user = createTestUser("testUser");
+        Money amount = Money.of("100.00");
+        Money converted = Money.of("1.10");
+
+        TransferCardRequestDto request = TransferCardRequestDto.builder()
+                .id(2L)
+                .amount(amount)
+                .build();
+
+        Card fromCard = Card.builder()
+                .id(1L)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.of("500.00"))
+                .availableBalance(Money.of("500.00"))
+                .currency("RUB")
+                .status(Status.ACTIVE)
+                .build();
+
+        Card toCard = Card.builder()
+                .id(2L)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.of("20.00"))
+                .availableBalance(Money.of("20.00"))
+                .currency("USD")
+                .status(Status.ACTIVE)
+                .build();
+
+        FxRates fxRates = mock(FxRates.class);
+        when(fxRateProvider.current()).thenReturn(fxRates);
+        when(fxRates.convert(amount, "RUB", "USD")).thenReturn(converted);
+        when(cardRepository.findByIdWithLock(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdWithLock(2L)).thenReturn(Optional.of(toCard));
+
+        cardService.moneyTransfer(1L, request);
+
+        assertThat(fromCard.getBalance()).isEqualTo(Money.of("400.00"));
+        assertThat(toCard.getBalance()).isEqualTo(Money.of("21.10"));
+        verify(transactionLedger).recordTransfer(1L, 2L, amount, converted);
     }
 
     @Test
     void moneyTransfer_WhenOneCardIsNotActive_ThrowCardNotActiveException() {
         Long fromCardId = 1L;
         Long toCardId = 2L;
-        BigDecimal amount = new BigDecimal("100.00");
+        Money amount = Money.of("100.00");
 
         TransferCardRequestDto request = TransferCardRequestDto.builder()
                 .id(toCardId)
@@ -586,7 +940,8 @@ public class CardServiceTest {
                 .id(fromCardId)
                 .user(user)
                 .cardholderName("John Doe")
-                .balance(new BigDecimal("500.00"))
+                .balance(Money.of("500.00"))
+                .availableBalance(Money.of("500.00"))
                 .status(Status.ACTIVE)
                 .build();
 
@@ -594,7 +949,8 @@ public class CardServiceTest {
                 .id(toCardId)
                 .user(user)
                 .cardholderName("John Doe")
-                .balance(new BigDecimal("200.00"))
+                .balance(Money.of("200.00"))
+                .availableBalance(Money.of("200.00"))
                 .status(Status.BLOCKED)
                 .build();
 
@@ -613,7 +969,7 @@ public class CardServiceTest {
     void moneyTransfer_WhenInsufficientFundsOnSenderCards_ThrowInsufficientFundsException() {
         Long fromCardId = 1L;
         Long toCardId = 2L;
-        BigDecimal amount = new BigDecimal("100.00");
+        Money amount = Money.of("100.00");
 
         TransferCardRequestDto request = TransferCardRequestDto.builder()
                 .id(toCardId)
@@ -627,7 +983,8 @@ public class CardServiceTest {
                 .id(fromCardId)
                 .user(user)
                 .cardholderName("John Doe")
-                .balance(new BigDecimal("10.00"))
+                .balance(Money.of("10.00"))
+                .availableBalance(Money.of("10.00"))
                 .status(Status.ACTIVE)
                 .build();
 
@@ -635,7 +992,8 @@ public class CardServiceTest {
                 .id(toCardId)
                 .user(user)
                 .cardholderName("John Doe")
-                .balance(new BigDecimal("200.00"))
+                .balance(Money.of("200.00"))
+                .availableBalance(Money.of("200.00"))
                 .status(Status.ACTIVE)
                 .build();
 
@@ -650,11 +1008,60 @@ public class CardServiceTest {
         verify(cardRepository, never()).save(any(Card.class));
     }
 
+    @Test
+    void moneyTransfer_WhenAmountIsNotPositive_ThrowInvalidAmountException() {
+        TransferCardRequestDto request = TransferCardRequestDto.builder()
+                .id(2L)
+                .amount(Money.ZERO)
+                .build();
+
+        assertThatThrownBy(() -> cardService.moneyTransfer(1L, request))
+                .isInstanceOf(InvalidAmountException.class);
+
+        verify(cardRepository, never()).findByIdWithLock(any());
+        verify(transferLimitTracker, never()).reserve(any(), any());
+    }
+
+    @Test
+    void moneyTransfer_WhenTransferLimitExceeded_ThrowBeforeLockingCards() {
+        Money amount = Money.of("100.00");
+        TransferCardRequestDto request = TransferCardRequestDto.builder()
+                .id(2L)
+                .amount(amount)
+                .build();
+
+        when(transferLimitTracker.reserve(1L, amount))
+                .thenThrow(new TransferLimitExceededException("Daily transfer limit exceeded"));
+
+        assertThatThrownBy(() -> cardService.moneyTransfer(1L, request))
+                .isInstanceOf(TransferLimitExceededException.class);
+
+        verify(cardRepository, never()).findByIdWithLock(any());
+    }
+
+    @Test
+    void moneyTransfer_WhenScoredAsSuspicious_ThrowBeforeReservingLimitAndLockingCards() {
+        Money amount = Money.of("90000.00");
+        TransferCardRequestDto request = TransferCardRequestDto.builder()
+                .id(2L)
+                .amount(amount)
+                .build();
+
+        doThrow(new SuspiciousTransferException("Transfer rejected as suspicious", false))
+                .when(transferRiskScorer).check(1L, amount);
+
+        assertThatThrownBy(() -> cardService.moneyTransfer(1L, request))
+                .isInstanceOf(SuspiciousTransferException.class);
+
+        verify(transferLimitTracker, never()).reserve(any(), any());
+        verify(cardRepository, never()).findByIdWithLock(any());
+    }
+
     @Test
     void moneyTransfer_WhenDifferentCardholders_ThrowDifferentCardholdersException() {
         Long fromCardId = 1L;
         Long toCardId = 2L;
-        BigDecimal amount = new BigDecimal("100.00");
+        Money amount = Money.of("100.00");
 
         TransferCardRequestDto request = TransferCardRequestDto.builder()
                 .id(toCardId)
@@ -668,7 +1075,8 @@ public class CardServiceTest {
                 .id(fromCardId)
                 .user(user)
                 .cardholderName("Harry Gob")
-                .balance(new BigDecimal("500.00"))
+                .balance(Money.of("500.00"))
+                .availableBalance(Money.of("500.00"))
                 .status(Status.ACTIVE)
                 .build();
 
@@ -676,7 +1084,8 @@ public class CardServiceTest {
                 .id(toCardId)
                 .user(user)
                 .cardholderName("John Doe")
-                .balance(new BigDecimal("200.00"))
+                .balance(Money.of("200.00"))
+                .availableBalance(Money.of("200.00"))
                 .status(Status.ACTIVE)
                 .build();
 
@@ -695,7 +1104,7 @@ public class CardServiceTest {
     void moneyTransfer_WhenSameCardTransfer_ThrowSameCardTransferException() {
         Long fromCardId = 1L;
         Long toCardId = 1L;
-        BigDecimal amount = new BigDecimal("100.00");
+        Money amount = Money.of("100.00");
 
         TransferCardRequestDto request = TransferCardRequestDto.builder()
                 .id(toCardId)
@@ -709,7 +1118,8 @@ public class CardServiceTest {
                 .id(fromCardId)
                 .user(user)
                 .cardholderName("John Doe")
-                .balance(new BigDecimal("500.00"))
+                .balance(Money.of("500.00"))
+                .availableBalance(Money.of("500.00"))
                 .status(Status.ACTIVE)
                 .build();
 
@@ -721,6 +1131,267 @@ public class CardServiceTest {
         verify(cardRepository, never()).save(any(Card.class));
     }
 
+    @Test
+    void moneyTransferBatch_AppliesEachTransferAndReportsFailuresIndividually() {
+        User user = createTestUser("testUser");
+
+        Card firstCard = Card.builder()
+                .id(1L)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.of("500.00"))
+                .availableBalance(Money.of("500.00"))
+                .status(Status.ACTIVE)
+                .build();
+
+        Card secondCard = Card.builder()
+                .id(2L)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.of("200.00"))
+                .availableBalance(Money.of("200.00"))
+                .status(Status.ACTIVE)
+                .build();
+
+        List<TransferCommand> commands = List.of(
+                TransferCommand.builder().fromCardId(1L).toCardId(2L).amount(Money.of("100.00")).build(),
+                TransferCommand.builder().fromCardId(2L).toCardId(1L).amount(Money.of("1000.00")).build(),
+                TransferCommand.builder().fromCardId(2L).toCardId(1L).amount(Money.of("50.00")).build()
+        );
+
+        when(cardRepository.findAllByIdInWithLock(any())).thenReturn(List.of(firstCard, secondCard));
+
+        List<TransferResult> results = cardService.moneyTransferBatch(commands, false);
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(results.get(1).getError()).isInstanceOf(InsufficientFundsException.class);
+        assertThat(results.get(2).isSuccess()).isTrue();
+        assertThat(firstCard.getBalance()).isEqualTo(Money.of("450.00"));
+        assertThat(secondCard.getBalance()).isEqualTo(Money.of("250.00"));
+
+        verify(cardRepository).findAllByIdInWithLock(any());
+    }
+
+    @Test
+    void moneyTransferBatch_WhenTransferIsNoLongerPending_SkipItWithoutMovingMoney() {
+        User user = createTestUser("testUser");
+        Card firstCard = Card.builder()
+                .id(1L)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.of("500.00"))
+                .availableBalance(Money.of("500.00"))
+                .status(Status.ACTIVE)
+                .build();
+        Card secondCard = Card.builder()
+                .id(2L)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.of("200.00"))
+                .availableBalance(Money.of("200.00"))
+                .status(Status.ACTIVE)
+                .build();
+
+        List<TransferCommand> commands = List.of(
+                TransferCommand.builder().transferId(10L).fromCardId(1L).toCardId(2L).amount(Money.of("100.00")).build(),
+                TransferCommand.builder().transferId(11L).fromCardId(1L).toCardId(2L).amount(Money.of("50.00")).build()
+        );
+
+        when(transferRepository.lockPending(List.of(10L, 11L))).thenReturn(List.of(11L));
+        when(cardRepository.findAllByIdInWithLock(any())).thenReturn(List.of(firstCard, secondCard));
+
+        List<TransferResult> results = cardService.moneyTransferBatch(commands, false);
+
+        assertThat(results).extracting(TransferResult::isSuccess).containsExactly(true, true);
+        assertThat(firstCard.getBalance()).isEqualTo(Money.of("450.00"));
+        assertThat(secondCard.getBalance()).isEqualTo(Money.of("250.00"));
+        verify(transferRepository).completePending(eq(List.of(11L)), eq(TransferStatus.COMPLETED), isNull(), any());
+    }
+
+    @Test
+    void moneyTransferBatch_WhenFiftyTransfersFromOneCard_ScoreVelocityOnce() {
+        User user = createTestUser("testUser");
+        Card payer = Card.builder()
+                .id(1L)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.of("100000.00"))
+                .availableBalance(Money.of("100000.00"))
+                .status(Status.ACTIVE)
+                .build();
+        Card payee = Card.builder()
+                .id(2L)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.ZERO)
+                .availableBalance(Money.ZERO)
+                .status(Status.ACTIVE)
+                .build();
+        Money salary = Money.of("1500.00");
+        List<TransferCommand> commands = Collections.nCopies(50,
+                TransferCommand.builder().fromCardId(1L).toCardId(2L).amount(salary).build());
+
+        when(cardRepository.findAllByIdInWithLock(any())).thenReturn(List.of(payer, payee));
+
+        List<TransferResult> results = cardService.moneyTransferBatch(commands, true);
+
+        assertThat(results).hasSize(50).allMatch(TransferResult::isSuccess);
+        assertThat(payee.getBalance()).isEqualTo(Money.of("75000.00"));
+        verify(transferRiskScorer, times(1)).check(1L, salary, true);
+        verify(transferRiskScorer, times(49)).check(1L, salary, false);
+    }
+
+    @Test
+    void moneyTransferBatch_WhenCardNotFound_ReportCardNotFoundException() {
+        TransferCommand command = TransferCommand.builder()
+                .fromCardId(1L)
+                .toCardId(2L)
+                .amount(Money.of("100.00"))
+                .build();
+
+        when(cardRepository.findAllByIdInWithLock(any())).thenReturn(List.of());
+
+        List<TransferResult> results = cardService.moneyTransferBatch(List.of(command), false);
+
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).getError()).isInstanceOf(CardNotFoundException.class);
+    }
+
+    @Test
+    void moneyTransferBatch_WhenAtomicAndOneTransferFails_ThrowBatchTransferAbortedException() {
+        User user = createTestUser("testUser");
+
+        Card firstCard = Card.builder()
+                .id(1L)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.of("500.00"))
+                .availableBalance(Money.of("500.00"))
+                .status(Status.ACTIVE)
+                .build();
+
+        Card secondCard = Card.builder()
+                .id(2L)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.of("200.00"))
+                .availableBalance(Money.of("200.00"))
+                .status(Status.BLOCKED)
+                .build();
+
+        List<TransferCommand> commands = List.of(
+                TransferCommand.builder().fromCardId(1L).toCardId(1L).amount(Money.of("10.00")).build(),
+                TransferCommand.builder().fromCardId(1L).toCardId(2L).amount(Money.of("100.00")).build(),
+                TransferCommand.builder().fromCardId(2L).toCardId(1L).amount(Money.of("50.00")).build()
+        );
+
+        when(cardRepository.findAllByIdInWithLock(any())).thenReturn(List.of(firstCard, secondCard));
+
+        Throwable thrown = catchThrowable(() -> cardService.moneyTransferBatch(commands, true));
+
+        assertThat(thrown).isInstanceOf(BatchTransferAbortedException.class);
+        List<TransferResult> results = ((BatchTransferAbortedException) thrown).getResults();
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getError()).isInstanceOf(SameCardTransferException.class);
+        assertThat(results.get(1).isExecuted()).isFalse();
+        assertThat(results.get(2).isExecuted()).isFalse();
+    }
+
+    @Test
+    void moneyTransferThroughEngine_Success_TransferWithoutRowLocksAndLedgerRows() {
+        User user = createTestUser("testUser");
+
+        Card fromCard = Card.builder()
+                .id(1L)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.of("500.00"))
+                .availableBalance(Money.of("500.00"))
+                .status(Status.ACTIVE)
+                .build();
+
+        Card toCard = Card.builder()
+                .id(2L)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.of("200.00"))
+                .availableBalance(Money.of("200.00"))
+                .status(Status.ACTIVE)
+                .build();
+
+        TransferCommand command = TransferCommand.builder()
+                .transferId(7L)
+                .fromCardId(1L)
+                .toCardId(2L)
+                .amount(Money.of("100.50"))
+                .build();
+
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+
+        cardService.moneyTransferThroughEngine(command);
+
+        verify(balanceEngine).transfer("John Doe", 7L, 1L, 50000L, 2L, 20000L, 10050L);
+        verify(cardRepository, never()).findByIdWithLock(any());
+        verifyNoInteractions(transactionLedger);
+        assertThat(fromCard.getBalance()).isEqualTo(Money.of("500.00"));
+    }
+
+    @Test
+    void moneyTransferThroughEngine_WhenEngineRejects_ReleaseLimitReservation() {
+        User user = createTestUser("testUser");
+        Card fromCard = Card.builder()
+                .id(1L)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.of("50.00"))
+                .availableBalance(Money.of("50.00"))
+                .status(Status.ACTIVE)
+                .build();
+        Card toCard = Card.builder()
+                .id(2L)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.of("200.00"))
+                .availableBalance(Money.of("200.00"))
+                .status(Status.ACTIVE)
+                .build();
+        TransferCommand command = TransferCommand.builder()
+                .transferId(7L)
+                .fromCardId(1L)
+                .toCardId(2L)
+                .amount(Money.of("100.50"))
+                .build();
+        TransferLimitTracker.Reservation reservation = new TransferLimitTracker.Reservation(1L, 10050L, 0L);
+
+        when(transferLimitTracker.reserve(1L, Money.of("100.50"))).thenReturn(reservation);
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        doThrow(new InsufficientFundsException("There are not enough funds on the sender card"))
+                .when(balanceEngine).transfer("John Doe", 7L, 1L, 5000L, 2L, 20000L, 10050L);
+
+        assertThatThrownBy(() -> cardService.moneyTransferThroughEngine(command))
+                .isInstanceOf(InsufficientFundsException.class);
+
+        verify(transferLimitTracker).release(reservation);
+    }
+
+    @Test
+    void moneyTransfer_WhenBalanceEngineEnabled_ThrowTransferOperationException() {
+        TransferCardRequestDto request = TransferCardRequestDto.builder()
+                .id(2L)
+                .amount(Money.of("100.50"))
+                .build();
+
+        when(balanceEngine.isEnabled()).thenReturn(true);
+
+        assertThatThrownBy(() -> cardService.moneyTransfer(1L, request))
+                .isInstanceOf(TransferOperationException.class);
+
+        verifyNoInteractions(transferLimitTracker, cardRepository);
+    }
+
     private CardInfo createTestCardInfo() {
         return CardInfo.builder()
                 .cardNumber("encryptedCardNumber")
@@ -749,6 +1420,17 @@ public class CardServiceTest {
                 .build();
     }
 
+    private CardTransaction createTestTransaction(Long id, LocalDateTime createdAt) {
+        return CardTransaction.builder()
+                .id(id)
+                .cardId(1L)
+                .counterpartyCardId(2L)
+                .direction(TransactionDirection.DEBIT)
+                .amount(Money.of("10.00"))
+                .createdAt(createdAt)
+                .build();
+    }
+
     private Card createDefaultTestCard(User user, Status status) {
         return Card.builder()
                 .id(1L)
@@ -758,7 +1440,8 @@ public class CardServiceTest {
                 .user(user)
                 .cardholderName("John Doe")
                 .status(status)
-                .balance(new BigDecimal("100.00"))
+                .balance(Money.of("100.00"))
+                .availableBalance(Money.of("100.00"))
                 .expiryDate(LocalDate.now().plusYears(5))
                 .build();
     }
@@ -0,0 +1,247 @@
+package com.example.bankrest.service;
+
+import com.example.bankrest.component.FxRateProvider;
+import com.example.bankrest.component.TransactionLedger;
+import com.example.bankrest.component.TransferLimitTracker;
+import com.example.bankrest.component.TransferRiskScorer;
+import com.example.bankrest.dto.card.HoldResponseDto;
+import com.example.bankrest.dto.card.TransferCardRequestDto;
+import com.example.bankrest.engine.BalanceEngine;
+import com.example.bankrest.entity.Card;
+import com.example.bankrest.entity.Hold;
+import com.example.bankrest.entity.HoldStatus;
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.entity.Status;
+import com.example.bankrest.entity.User;
+import com.example.bankrest.exception.*;
+import com.example.bankrest.repository.CardRepository;
+import com.example.bankrest.repository.HoldRepository;
+import com.example.bankrest.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class HoldServiceTest {
+
+    @Mock
+    private HoldRepository holdRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private BalanceEngine balanceEngine;
+
+    @Mock
+    private TransferLimitTracker transferLimitTracker;
+
+    @Mock
+    private TransferRiskScorer transferRiskScorer;
+
+    @Mock
+    private TransactionLedger transactionLedger;
+
+    @Mock
+    private FxRateProvider fxRateProvider;
+
+    @InjectMocks
+    private HoldService holdService;
+
+    @Test
+    void authorize_Success() {
+        User user = createTestUser("testUser");
+        setupSecurityContext("testUser");
+        when(userRepository.findByUsername("testUser")).thenReturn(Optional.of(user));
+        when(cardRepository.findByIdAndUser_Id(1L, 3L)).thenReturn(Optional.of(createTestCard(1L, user)));
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(createTestCard(2L, user)));
+        when(cardRepository.reserveAvailable(1L, 10000L)).thenReturn(1);
+        when(holdRepository.save(any(Hold.class))).thenAnswer(invocation -> {
+            Hold hold = invocation.getArgument(0);
+            hold.setId(5L);
+            return hold;
+        });
+
+        HoldResponseDto result = holdService.authorize(1L, TransferCardRequestDto.builder()
+                .id(2L)
+                .amount(Money.of("100.00"))
+                .build());
+
+        assertThat(result.getId()).isEqualTo(5L);
+        assertThat(result.getStatus()).isEqualTo(HoldStatus.ACTIVE);
+        assertThat(result.getAmount()).isEqualTo(Money.of("100.00"));
+        verify(cardRepository, never()).findByIdWithLock(any());
+    }
+
+    @Test
+    void authorize_WhenNotEnoughAvailableFunds_ThrowInsufficientFundsException() {
+        User user = createTestUser("testUser");
+        setupSecurityContext("testUser");
+        when(userRepository.findByUsername("testUser")).thenReturn(Optional.of(user));
+        when(cardRepository.findByIdAndUser_Id(1L, 3L)).thenReturn(Optional.of(createTestCard(1L, user)));
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(createTestCard(2L, user)));
+        when(cardRepository.reserveAvailable(1L, 10000L)).thenReturn(0);
+
+        assertThatThrownBy(() -> holdService.authorize(1L, TransferCardRequestDto.builder()
+                .id(2L)
+                .amount(Money.of("100.00"))
+                .build()))
+                .isInstanceOf(InsufficientFundsException.class);
+
+        verify(holdRepository, never()).save(any(Hold.class));
+    }
+
+    @Test
+    void authorize_WhenBalanceEngineEnabled_ThrowTransferOperationException() {
+        when(balanceEngine.isEnabled()).thenReturn(true);
+
+        assertThatThrownBy(() -> holdService.authorize(1L, TransferCardRequestDto.builder()
+                .id(2L)
+                .amount(Money.of("100.00"))
+                .build()))
+                .isInstanceOf(TransferOperationException.class);
+
+        verifyNoInteractions(cardRepository, holdRepository);
+    }
+
+    @Test
+    void capture_WhenBalanceEngineEnabled_ThrowTransferOperationException() {
+        when(balanceEngine.isEnabled()).thenReturn(true);
+
+        assertThatThrownBy(() -> holdService.capture(5L))
+                .isInstanceOf(TransferOperationException.class);
+
+        verifyNoInteractions(cardRepository, holdRepository, transactionLedger);
+    }
+
+    @Test
+    void voidHold_WhenBalanceEngineEnabled_ThrowTransferOperationException() {
+        when(balanceEngine.isEnabled()).thenReturn(true);
+
+        assertThatThrownBy(() -> holdService.voidHold(5L))
+                .isInstanceOf(TransferOperationException.class);
+
+        verifyNoInteractions(cardRepository, holdRepository);
+    }
+
+    @Test
+    void expireStaleHolds_WhenBalanceEngineEnabled_LeaveHoldsUntouched() {
+        when(balanceEngine.isEnabled()).thenReturn(true);
+
+        assertThat(holdService.expireStaleHolds(100)).isZero();
+
+        verifyNoInteractions(cardRepository, holdRepository);
+    }
+
+    @Test
+    void capture_WhenHoldIsNotActive_ThrowTransferOperationException() {
+        User user = createTestUser("testUser");
+        setupSecurityContext("testUser");
+        when(userRepository.findByUsername("testUser")).thenReturn(Optional.of(user));
+        when(holdRepository.findByIdAndUserId(5L, 3L)).thenReturn(Optional.of(createTestHold()));
+        when(holdRepository.completeActive(eq(5L), eq(HoldStatus.CAPTURED), any(LocalDateTime.class))).thenReturn(0);
+
+        assertThatThrownBy(() -> holdService.capture(5L))
+                .isInstanceOf(TransferOperationException.class);
+
+        verify(cardRepository, never()).debitHeld(any(), anyLong());
+        verify(cardRepository, never()).credit(any(), anyLong());
+    }
+
+    @Test
+    void capture_Success_UpdatesCardsInIdOrder() {
+        User user = createTestUser("testUser");
+        setupSecurityContext("testUser");
+        Hold hold = createTestHold();
+        hold.setFromCardId(7L);
+        hold.setToCardId(2L);
+        when(userRepository.findByUsername("testUser")).thenReturn(Optional.of(user));
+        when(holdRepository.findByIdAndUserId(5L, 3L)).thenReturn(Optional.of(hold));
+        when(holdRepository.completeActive(eq(5L), eq(HoldStatus.CAPTURED), any(LocalDateTime.class))).thenReturn(1);
+        when(cardRepository.credit(2L, 10000L)).thenReturn(1);
+
+        HoldResponseDto result = holdService.capture(5L);
+
+        assertThat(result.getStatus()).isEqualTo(HoldStatus.CAPTURED);
+        InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).credit(2L, 10000L);
+        inOrder.verify(cardRepository).debitHeld(7L, 10000L);
+        verify(transactionLedger).recordTransfer(7L, 2L, Money.of("100.00"), Money.of("100.00"));
+    }
+
+    @Test
+    void expireStaleHolds_ReleasesReservedAmountPerCard() {
+        Hold first = createTestHold();
+        Hold second = createTestHold();
+        second.setId(6L);
+        when(holdRepository.findExpiredForUpdateSkipLocked(any(LocalDateTime.class), eq(100)))
+                .thenReturn(List.of(first, second));
+
+        int expired = holdService.expireStaleHolds(100);
+
+        assertThat(expired).isEqualTo(2);
+        verify(cardRepository).releaseAvailable(1L, 20000L);
+        verify(holdRepository).markExpired(eq(List.of(5L, 6L)), any(LocalDateTime.class));
+    }
+
+    private void setupSecurityContext(String username) {
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+        UserDetails userDetails = mock(UserDetails.class);
+
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        SecurityContextHolder.setContext(securityContext);
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+        when(userDetails.getUsername()).thenReturn(username);
+    }
+
+    private User createTestUser(String username) {
+        return User.builder()
+                .id(3L)
+                .username(username)
+                .firstname("John")
+                .lastname("Doe")
+                .build();
+    }
+
+    private Card createTestCard(Long id, User user) {
+        return Card.builder()
+                .id(id)
+                .user(user)
+                .cardholderName("John Doe")
+                .balance(Money.of("500.00"))
+                .availableBalance(Money.of("500.00"))
+                .status(Status.ACTIVE)
+                .build();
+    }
+
+    private Hold createTestHold() {
+        return Hold.builder()
+                .id(5L)
+                .userId(3L)
+                .fromCardId(1L)
+                .toCardId(2L)
+                .amount(Money.of("100.00"))
+                .creditAmount(Money.of("100.00"))
+                .status(HoldStatus.ACTIVE)
+                .expiresAt(LocalDateTime.now().plusMinutes(15))
+                .build();
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.bankrest.service;
+
+import com.example.bankrest.component.BalanceReconciler;
+import com.example.bankrest.dto.card.ReconciliationRunDto;
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.entity.ReconciliationCurrencyTotals;
+import com.example.bankrest.entity.ReconciliationRun;
+import com.example.bankrest.entity.ReconciliationRunStatus;
+import com.example.bankrest.exception.ReconciliationAlreadyRunningException;
+import com.example.bankrest.exception.ReconciliationRunNotFoundException;
+import com.example.bankrest.repository.CardRepository;
+import com.example.bankrest.repository.ReconciliationRunRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReconciliationServiceTest {
+
+    @Mock
+    private ReconciliationRunRepository reconciliationRunRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private BalanceReconciler balanceReconciler;
+
+    @Mock
+    private ExecutorService reconciliationExecutor;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ReconciliationService reconciliationService;
+
+    @BeforeEach
+    void setUp() {
+        reconciliationService = new ReconciliationService(reconciliationRunRepository, cardRepository,
+                balanceReconciler, reconciliationExecutor, transactionManager, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void startRun_WhenRunIsActive_ThrowReconciliationAlreadyRunningException() {
+        when(reconciliationRunRepository.existsByStatus(ReconciliationRunStatus.RUNNING)).thenReturn(true);
+
+        assertThatThrownBy(() -> reconciliationService.startRun())
+                .isInstanceOf(ReconciliationAlreadyRunningException.class);
+        verify(reconciliationRunRepository, never()).save(any());
+    }
+
+    @Test
+    void startRun_WhenThereAreNoCards_CompleteRunImmediately() {
+        ReconciliationRun run = createTestRun(ReconciliationRunStatus.RUNNING);
+        when(reconciliationRunRepository.existsByStatus(ReconciliationRunStatus.RUNNING)).thenReturn(false);
+        when(cardRepository.findMinId()).thenReturn(null);
+        when(cardRepository.findMaxId()).thenReturn(null);
+        when(reconciliationRunRepository.save(any(ReconciliationRun.class))).thenReturn(run);
+        when(reconciliationRunRepository.findById(1L)).thenReturn(Optional.of(run));
+
+        ReconciliationRunDto result = reconciliationService.startRun();
+
+        assertThat(result.getId()).isEqualTo(1L);
+        verify(reconciliationRunRepository).complete(eq(1L), eq(ReconciliationRunStatus.COMPLETED), any(LocalDateTime.class));
+        verifyNoInteractions(balanceReconciler, reconciliationExecutor);
+    }
+
+    @Test
+    void startRun_WhenPreviousRunIsAbandoned_FailItBeforeCheckingForActiveRun() {
+        ReflectionTestUtils.setField(reconciliationService, "staleAfterSeconds", 600L);
+        ReconciliationRun run = createTestRun(ReconciliationRunStatus.RUNNING);
+        when(reconciliationRunRepository.failAbandoned(600L)).thenReturn(1);
+        when(reconciliationRunRepository.existsByStatus(ReconciliationRunStatus.RUNNING)).thenReturn(false);
+        when(reconciliationRunRepository.save(any(ReconciliationRun.class))).thenReturn(run);
+        when(reconciliationRunRepository.findById(1L)).thenReturn(Optional.of(run));
+
+        reconciliationService.startRun();
+
+        InOrder inOrder = inOrder(reconciliationRunRepository);
+        inOrder.verify(reconciliationRunRepository).failAbandoned(600L);
+        inOrder.verify(reconciliationRunRepository).existsByStatus(ReconciliationRunStatus.RUNNING);
+        inOrder.verify(reconciliationRunRepository).save(any(ReconciliationRun.class));
+    }
+
+    @Test
+    void startRun_ReconcileAllRangesInOneExportedSnapshot() {
+        ReflectionTestUtils.setField(reconciliationService, "rangeSize", 10L);
+        ReconciliationRun run = createTestRun(ReconciliationRunStatus.RUNNING);
+        BalanceReconciler.SharedSnapshot snapshot = mock(BalanceReconciler.SharedSnapshot.class);
+        BalanceReconciler.RangeTotals totals = new BalanceReconciler.RangeTotals(10L, 0L, List.of(
+                new BalanceReconciler.CurrencyTotals("RUB", 6L, 5000L, 5000L, 0L, -300L, 300L),
+                new BalanceReconciler.CurrencyTotals("USD", 4L, 700L, 695L, 0L, 5L, 0L)));
+        when(reconciliationRunRepository.existsByStatus(ReconciliationRunStatus.RUNNING)).thenReturn(false);
+        when(cardRepository.findMinId()).thenReturn(1L);
+        when(cardRepository.findMaxId()).thenReturn(25L);
+        when(reconciliationRunRepository.save(any(ReconciliationRun.class))).thenReturn(run);
+        when(reconciliationRunRepository.findById(1L)).thenReturn(Optional.of(run));
+        when(balanceReconciler.exportSnapshot()).thenReturn(snapshot);
+        when(snapshot.id()).thenReturn("00000003-0000001B-1");
+        when(balanceReconciler.reconcileRange(eq(1L), eq("00000003-0000001B-1"), anyLong(), anyLong())).thenReturn(totals);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(reconciliationExecutor).execute(any(Runnable.class));
+
+        reconciliationService.startRun();
+
+        InOrder inOrder = inOrder(balanceReconciler, snapshot, reconciliationRunRepository);
+        inOrder.verify(balanceReconciler).exportSnapshot();
+        inOrder.verify(balanceReconciler).reconcileRange(1L, "00000003-0000001B-1", 0L, 10L);
+        inOrder.verify(balanceReconciler).reconcileRange(1L, "00000003-0000001B-1", 10L, 20L);
+        inOrder.verify(balanceReconciler).reconcileRange(1L, "00000003-0000001B-1", 20L, 30L);
+        inOrder.verify(snapshot).close();
+        inOrder.verify(reconciliationRunRepository).complete(eq(1L), eq(ReconciliationRunStatus.COMPLETED), any(LocalDateTime.class));
+        verify(reconciliationRunRepository, times(3)).addRange(1L, 10L, 0L);
+        verify(reconciliationRunRepository, times(3)).addCurrencyTotals(1L, "RUB", 6L, 5000L, 5000L, 0L, -300L, 300L);
+        verify(reconciliationRunRepository, times(3)).addCurrencyTotals(1L, "USD", 4L, 700L, 695L, 0L, 5L, 0L);
+    }
+
+    @Test
+    void startRun_WhenSnapshotExportFails_FailRunWithoutStartingRanges() {
+        ReflectionTestUtils.setField(reconciliationService, "rangeSize", 10L);
+        ReconciliationRun run = createTestRun(ReconciliationRunStatus.RUNNING);
+        when(reconciliationRunRepository.existsByStatus(ReconciliationRunStatus.RUNNING)).thenReturn(false);
+        when(cardRepository.findMinId()).thenReturn(1L);
+        when(cardRepository.findMaxId()).thenReturn(25L);
+        when(reconciliationRunRepository.save(any(ReconciliationRun.class))).thenReturn(run);
+        when(balanceReconciler.exportSnapshot()).thenThrow(new DataAccessResourceFailureException("no connection"));
+
+        assertThatThrownBy(() -> reconciliationService.startRun())
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        verify(reconciliationRunRepository).complete(eq(1L), eq(ReconciliationRunStatus.FAILED), any(LocalDateTime.class));
+        verifyNoInteractions(reconciliationExecutor);
+    }
+
+    @Test
+    void getRun_WhenCompletedAndTotalsMatch_ReportConserved() {
+        ReconciliationRun run = createTestRun(ReconciliationRunStatus.COMPLETED,
+                currencyTotals("RUB", 150000L, 150000L, 0L, 0L));
+        when(reconciliationRunRepository.findById(1L)).thenReturn(Optional.of(run));
+
+        ReconciliationRunDto result = reconciliationService.getRun(1L);
+
+        assertThat(result.getConserved()).isTrue();
+        assertThat(result.getCurrencies()).singleElement()
+                .satisfies(currency -> assertThat(currency.getTotalBalance()).isEqualTo(Money.of("1500.00")));
+        assertThat(result.getCardsPerSecond()).isPositive();
+    }
+
+    @Test
+    void getRun_WhenTransfersCrossCurrencies_ReportConservedPerCurrency() {
+        // 10.00 RUB ушли с рублевой карты и пришли на долларовую как 0.11 USD
+        ReconciliationRun run = createTestRun(ReconciliationRunStatus.COMPLETED,
+                currencyTotals("RUB", 149000L, 150000L, 0L, -1000L),
+                currencyTotals("USD", 511L, 500L, 0L, 11L));
+        when(reconciliationRunRepository.findById(1L)).thenReturn(Optional.of(run));
+
+        ReconciliationRunDto result = reconciliationService.getRun(1L);
+
+        assertThat(result.getConserved()).isTrue();
+        assertThat(result.getCurrencies()).extracting(currency -> currency.getConserved()).containsExactly(true, true);
+    }
+
+    @Test
+    void getRun_WhenLedgerIsNotBalanced_ReportNotConserved() {
+        ReconciliationRun run = createTestRun(ReconciliationRunStatus.COMPLETED,
+                currencyTotals("RUB", 150100L, 150000L, 100L, 0L),
+                currencyTotals("USD", 500L, 500L, 0L, 0L));
+        when(reconciliationRunRepository.findById(1L)).thenReturn(Optional.of(run));
+
+        ReconciliationRunDto result = reconciliationService.getRun(1L);
+
+        assertThat(result.getConserved()).isFalse();
+        assertThat(result.getCurrencies()).extracting(currency -> currency.getConserved()).containsExactly(false, true);
+    }
+
+    @Test
+    void getRun_WhenRunNotFound_ThrowReconciliationRunNotFoundException() {
+        when(reconciliationRunRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> reconciliationService.getRun(1L))
+                .isInstanceOf(ReconciliationRunNotFoundException.class);
+    }
+
+    private ReconciliationCurrencyTotals currencyTotals(String currency, long totalBalance, long totalOpeningBalance,
+                                                        long ledgerNet, long fxNet) {
+        return ReconciliationCurrencyTotals.builder()
+                .currency(currency)
+                .cards(500)
+                .totalBalance(totalBalance)
+                .totalOpeningBalance(totalOpeningBalance)
+                .ledgerNet(ledgerNet)
+                .fxNet(fxNet)
+                .build();
+    }
+
+    private ReconciliationRun createTestRun(ReconciliationRunStatus status, ReconciliationCurrencyTotals... currencyTotals) {
+        LocalDateTime startedAt = LocalDateTime.now().minusSeconds(10);
+        return ReconciliationRun.builder()
+                .id(1L)
+                .status(status)
+                .rangesTotal(2)
+                .rangesDone(status == ReconciliationRunStatus.RUNNING ? 0 : 2)
+                .cardsChecked(status == ReconciliationRunStatus.RUNNING ? 0 : 1000)
+                .currencyTotals(List.of(currencyTotals))
+                .startedAt(startedAt)
+                .completedAt(status == ReconciliationRunStatus.RUNNING ? null : startedAt.plusSeconds(5))
+                .build();
+    }
+}
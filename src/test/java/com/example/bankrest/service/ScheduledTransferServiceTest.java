@@ -0,0 +1,144 @@
+package com.example.bankrest.service;
+
+import com.example.bankrest.dto.card.ScheduledTransferRequestDto;
+import com.example.bankrest.dto.card.TransferCommand;
+import com.example.bankrest.entity.Card;
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.entity.ScheduleFrequency;
+import com.example.bankrest.entity.ScheduledTransfer;
+import com.example.bankrest.entity.ScheduledTransferStatus;
+import com.example.bankrest.entity.Status;
+import com.example.bankrest.entity.Transfer;
+import com.example.bankrest.entity.User;
+import com.example.bankrest.exception.*;
+import com.example.bankrest.repository.CardRepository;
+import com.example.bankrest.repository.ScheduledTransferRepository;
+import com.example.bankrest.repository.TransferRepository;
+import com.example.bankrest.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ScheduledTransferServiceTest {
+
+    @Mock
+    private ScheduledTransferRepository scheduledTransferRepository;
+
+    @Mock
+    private TransferRepository transferRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private ScheduledTransferService scheduledTransferService;
+
+    @Test
+    void claimDue_CreatesPendingTransfersAndMovesNextRunToFuture() {
+        ScheduledTransfer daily = createScheduledTransfer(ScheduleFrequency.DAILY, LocalDateTime.now().minusDays(3).minusMinutes(1));
+        when(scheduledTransferRepository.findDueForUpdateSkipLocked(any(LocalDateTime.class), eq(500)))
+                .thenReturn(List.of(daily));
+        when(transferRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Transfer> transfers = invocation.getArgument(0);
+            transfers.forEach(transfer -> transfer.setId(10L));
+            return transfers;
+        });
+
+        List<TransferCommand> commands = scheduledTransferService.claimDue(500);
+
+        assertThat(commands).hasSize(1);
+        assertThat(commands.get(0).getTransferId()).isEqualTo(10L);
+        assertThat(commands.get(0).getAmount()).isEqualTo(Money.of("25.00"));
+        assertThat(daily.getNextRunAt()).isAfter(LocalDateTime.now());
+        assertThat(daily.getNextRunAt()).isBefore(LocalDateTime.now().plusDays(1));
+    }
+
+    @Test
+    void claimDue_WhenNothingIsDue_ReturnEmptyList() {
+        when(scheduledTransferRepository.findDueForUpdateSkipLocked(any(LocalDateTime.class), eq(500)))
+                .thenReturn(List.of());
+
+        assertThat(scheduledTransferService.claimDue(500)).isEmpty();
+        verifyNoInteractions(transferRepository);
+    }
+
+    @Test
+    void followingRunAt_WhenMonthIsShorterThanAnchorDay_RunOnLastDayOfMonth() {
+        ScheduledTransfer monthly = createScheduledTransfer(ScheduleFrequency.MONTHLY, LocalDateTime.of(2026, 1, 31, 9, 0));
+        monthly.setAnchorDay(31);
+
+        LocalDateTime february = monthly.followingRunAt(monthly.getNextRunAt());
+        LocalDateTime march = monthly.followingRunAt(february);
+
+        assertThat(february).isEqualTo(LocalDateTime.of(2026, 2, 28, 9, 0));
+        assertThat(march).isEqualTo(LocalDateTime.of(2026, 3, 31, 9, 0));
+    }
+
+    @Test
+    void createScheduledTransfer_WhenDifferentCardholders_ThrowDifferentCardholdersException() {
+        User user = User.builder().id(3L).username("testUser").build();
+        setupSecurityContext("testUser");
+        when(userRepository.findByUsername("testUser")).thenReturn(Optional.of(user));
+        when(cardRepository.findByIdAndUser_Id(1L, 3L)).thenReturn(Optional.of(createCard(1L, "John Doe")));
+        when(cardRepository.findByIdAndUser_Id(2L, 3L)).thenReturn(Optional.of(createCard(2L, "Jane Doe")));
+
+        assertThatThrownBy(() -> scheduledTransferService.createScheduledTransfer(1L, ScheduledTransferRequestDto.builder()
+                .toCardId(2L)
+                .amount(Money.of("25.00"))
+                .frequency(ScheduleFrequency.MONTHLY)
+                .build()))
+                .isInstanceOf(DifferentCardholdersException.class);
+
+        verify(scheduledTransferRepository, never()).save(any(ScheduledTransfer.class));
+    }
+
+    private void setupSecurityContext(String username) {
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+        UserDetails userDetails = mock(UserDetails.class);
+
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        SecurityContextHolder.setContext(securityContext);
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+        when(userDetails.getUsername()).thenReturn(username);
+    }
+
+    private Card createCard(Long id, String cardholderName) {
+        return Card.builder()
+                .id(id)
+                .cardholderName(cardholderName)
+                .status(Status.ACTIVE)
+                .build();
+    }
+
+    private ScheduledTransfer createScheduledTransfer(ScheduleFrequency frequency, LocalDateTime nextRunAt) {
+        return ScheduledTransfer.builder()
+                .id(7L)
+                .userId(3L)
+                .fromCardId(1L)
+                .toCardId(2L)
+                .amount(Money.of("25.00"))
+                .frequency(frequency)
+                .anchorDay(nextRunAt.getDayOfMonth())
+                .nextRunAt(nextRunAt)
+                .status(ScheduledTransferStatus.ACTIVE)
+                .build();
+    }
+}
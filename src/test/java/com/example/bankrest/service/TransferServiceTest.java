@@ -0,0 +1,233 @@
+package com.example.bankrest.service;
+
+import com.example.bankrest.component.CardLockManager;
+import com.example.bankrest.dto.card.BatchTransferItemDto;
+import com.example.bankrest.dto.card.BatchTransferRequestDto;
+import com.example.bankrest.dto.card.TransferCardRequestDto;
+import com.example.bankrest.dto.card.TransferCommand;
+import com.example.bankrest.engine.BalanceEngine;
+import com.example.bankrest.entity.Money;
+import com.example.bankrest.entity.Transfer;
+import com.example.bankrest.entity.TransferStatus;
+import com.example.bankrest.exception.CardNotFoundException;
+import com.example.bankrest.exception.TransferOperationException;
+import com.example.bankrest.repository.CardRepository;
+import com.example.bankrest.repository.TransferRepository;
+import com.example.bankrest.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferServiceTest {
+
+    @Mock
+    private TransferRepository transferRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private CardService cardService;
+
+    @Mock
+    private TransferPipeline transferPipeline;
+
+    @Mock
+    private BalanceEngine balanceEngine;
+
+    @Mock
+    private CardLockManager cardLockManager;
+
+    @Mock
+    private ExecutorService transferExecutor;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransferService transferService;
+
+    @BeforeEach
+    void setUp() {
+        transferService = new TransferService(transferRepository, userRepository, cardRepository, cardService,
+                transferPipeline, balanceEngine, cardLockManager, transferExecutor, transactionManager, 16);
+        ReflectionTestUtils.setField(transferService, "maxBatchSize", 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void executeBatch_WhenOneCardBelongsToAnotherUser_RejectWholeBatch() {
+        setupCurrentUser("testUser", 5L);
+        BatchTransferRequestDto request = BatchTransferRequestDto.builder()
+                .transfers(List.of(
+                        BatchTransferItemDto.builder().fromCardId(1L).toCardId(2L).amount(Money.of("10.00")).build(),
+                        BatchTransferItemDto.builder().fromCardId(1L).toCardId(99L).amount(Money.of("10.00")).build()))
+                .build();
+        when(cardRepository.countByIdInAndUser_Id(Set.of(1L, 2L, 99L), 5L)).thenReturn(2L);
+
+        assertThatThrownBy(() -> transferService.executeBatch(request))
+                .isInstanceOf(CardNotFoundException.class)
+                .hasMessage("Card not found");
+
+        verifyNoInteractions(cardService);
+    }
+
+    @Test
+    void submitTransfer_WhenSenderCardBelongsToAnotherUser_ThrowCardNotFoundException() {
+        setupCurrentUser("testUser", 5L);
+        TransferCardRequestDto request = TransferCardRequestDto.builder()
+                .id(2L)
+                .amount(Money.of("10.00"))
+                .build();
+        when(cardRepository.countByIdInAndUser_Id(Set.of(1L, 2L), 5L)).thenReturn(1L);
+
+        assertThatThrownBy(() -> transferService.submitTransfer(1L, request))
+                .isInstanceOf(CardNotFoundException.class);
+
+        verify(transferRepository, never()).save(any());
+        verifyNoInteractions(transferExecutor);
+    }
+
+    @Test
+    void recover_WhenEngineLoggedTransfer_LeavePendingForSnapshot() {
+        when(balanceEngine.isEnabled()).thenReturn(true);
+        when(balanceEngine.runUnlessLogged(eq(10L), any())).thenReturn(false);
+
+        transferService.recover(command(10L));
+
+        verifyNoInteractions(transferRepository, cardService);
+    }
+
+    @Test
+    void recover_WhenEngineDidNotLogTransfer_MarkFailed() {
+        when(balanceEngine.isEnabled()).thenReturn(true);
+        when(balanceEngine.runUnlessLogged(eq(10L), any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        });
+
+        transferService.recover(command(10L));
+
+        verify(transferRepository).completePending(eq(List.of(10L)), eq(TransferStatus.FAILED),
+                eq("Transfer was interrupted"), any());
+        verifyNoInteractions(cardService);
+    }
+
+    @Test
+    void recover_WhenEngineIsStopped_LeavePending() {
+        when(balanceEngine.isEnabled()).thenReturn(true);
+        when(balanceEngine.runUnlessLogged(eq(10L), any()))
+                .thenThrow(new TransferOperationException("Balance engine is not running"));
+
+        transferService.recover(command(10L));
+
+        verifyNoInteractions(transferRepository);
+    }
+
+    @Test
+    void execute_WhenEngineFailsAfterLoggingTransfer_LeavePending() {
+        when(balanceEngine.isEnabled()).thenReturn(true);
+        doThrow(new TransferOperationException("Balance engine failure"))
+                .when(cardService).moneyTransferThroughEngine(any());
+        when(balanceEngine.runUnlessLogged(eq(10L), any())).thenReturn(false);
+
+        transferService.execute(command(10L));
+
+        verifyNoInteractions(transferRepository);
+    }
+
+    @Test
+    void claimStale_WhenEngineEnabled_ClaimOnlyTransfersUntouchedSinceStart() {
+        LocalDateTime startedAt = LocalDateTime.now().minusHours(1);
+        when(balanceEngine.isEnabled()).thenReturn(true);
+        when(balanceEngine.getStartedAt()).thenReturn(startedAt);
+        when(transferRepository.findStaleForUpdateSkipLocked(startedAt, 100)).thenReturn(List.of());
+
+        assertThat(transferService.claimStale(100, Duration.ofMinutes(1))).isEmpty();
+    }
+
+    @Test
+    void releaseHeld_WhenTransferIsHeld_ExecuteWithoutRiskCheck() {
+        Transfer transfer = Transfer.builder()
+                .id(10L)
+                .fromCardId(1L)
+                .toCardId(2L)
+                .amount(Money.of("10.00"))
+                .status(TransferStatus.PENDING)
+                .build();
+        when(transferRepository.reviewHeld(eq(10L), eq(TransferStatus.PENDING), isNull(), any())).thenReturn(1);
+        when(transferRepository.findById(10L)).thenReturn(Optional.of(transfer));
+        when(balanceEngine.isEnabled()).thenReturn(true);
+
+        transferService.releaseHeld(10L);
+
+        ArgumentCaptor<TransferCommand> command = ArgumentCaptor.forClass(TransferCommand.class);
+        verify(cardService).moneyTransferThroughEngine(command.capture());
+        assertThat(command.getValue().getTransferId()).isEqualTo(10L);
+        assertThat(command.getValue().isReviewed()).isTrue();
+        verify(transferRepository).completePending(eq(List.of(10L)), eq(TransferStatus.COMPLETED), isNull(), any());
+    }
+
+    @Test
+    void rejectHeld_WhenTransferIsNotHeld_ThrowTransferOperationException() {
+        when(transferRepository.reviewHeld(eq(10L), eq(TransferStatus.FAILED), any(), any())).thenReturn(0);
+        when(transferRepository.existsById(10L)).thenReturn(true);
+
+        assertThatThrownBy(() -> transferService.rejectHeld(10L))
+                .isInstanceOf(TransferOperationException.class)
+                .hasMessage("Transfer is not held for review");
+    }
+
+    private static TransferCommand command(Long transferId) {
+        return TransferCommand.builder()
+                .transferId(transferId)
+                .fromCardId(1L)
+                .toCardId(2L)
+                .amount(Money.of("10.00"))
+                .build();
+    }
+
+    private void setupCurrentUser(String username, Long userId) {
+        setupSecurityContext(username);
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(userId));
+    }
+
+    private void setupSecurityContext(String username) {
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+        UserDetails userDetails = mock(UserDetails.class);
+        when(userDetails.getUsername()).thenReturn(username);
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        SecurityContextHolder.setContext(securityContext);
+    }
+}
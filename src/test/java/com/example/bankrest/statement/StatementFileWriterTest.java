@@ -0,0 +1,55 @@
+package com.example.bankrest.statement;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.*;
+
+class StatementFileWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void write_WhenTextIsLargerThanBuffer_WriteEverythingInUtf8() throws IOException {
+        Path path = directory.resolve("card.json");
+        String text = "Выписка по карте: 1234.56;".repeat(50);
+
+        try (StatementFileWriter writer = new StatementFileWriter(7)) {
+            writer.open(path);
+            writer.write(text).write("\n");
+        }
+
+        assertThat(Files.readString(path, StandardCharsets.UTF_8)).isEqualTo(text + "\n");
+    }
+
+    @Test
+    void open_WhenAnotherFileIsOpen_CloseItAndTruncateTheNewOne() throws IOException {
+        Path first = directory.resolve("1.json");
+        Path second = directory.resolve("2.json");
+        Files.writeString(second, "old content that must disappear");
+
+        try (StatementFileWriter writer = new StatementFileWriter(16)) {
+            writer.open(first);
+            writer.write("первый");
+            writer.open(second);
+            writer.write("второй");
+        }
+
+        assertThat(Files.readString(first, StandardCharsets.UTF_8)).isEqualTo("первый");
+        assertThat(Files.readString(second, StandardCharsets.UTF_8)).isEqualTo("второй");
+    }
+
+    @Test
+    void close_WhenNothingIsOpen_DoNothing() throws IOException {
+        StatementFileWriter writer = new StatementFileWriter(16);
+
+        assertThatCode(writer::close).doesNotThrowAnyException();
+        assertThatCode(writer::close).doesNotThrowAnyException();
+    }
+}
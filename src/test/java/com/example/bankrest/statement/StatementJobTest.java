@@ -0,0 +1,170 @@
+package com.example.bankrest.statement;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatementJobTest {
+
+    private static final YearMonth PERIOD = YearMonth.of(2026, 1);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private StatementJob statementJob;
+
+    @BeforeEach
+    void setUp() {
+        statementJob = new StatementJob(jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(statementJob, "statementsDir", directory.toString());
+        ReflectionTestUtils.setField(statementJob, "rangeSize", 10L);
+        ReflectionTestUtils.setField(statementJob, "parallelism", 2);
+        ReflectionTestUtils.setField(statementJob, "fetchSize", 100);
+        ReflectionTestUtils.setField(statementJob, "bufferKb", 1);
+    }
+
+    @Test
+    void run_WhenDisabled_DoNothing() {
+        statementJob.run();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void generate_ClosingBalanceIsOpeningPlusPeriodNet() throws IOException {
+        stubCards(List.of());
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            feed(handler, List.of(
+                    row(1L, 100000L, 11L, 2L, "DEBIT", 2500L),
+                    row(1L, 100000L, 12L, null, "CREDIT", 1000L),
+                    row(2L, 0L, null, null, null, null)));
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        statementJob.generate(PERIOD);
+
+        Path range = directory.resolve(PERIOD.toString()).resolve("0");
+        assertThat(Files.readString(range.resolve("1.json")))
+                .contains("\"openingBalance\":1000.00", "\"closingBalance\":985.00",
+                        "\"totalDebit\":25.00", "\"totalCredit\":10.00",
+                        "\"counterpartyCardId\":2", "\"counterpartyCardId\":null");
+        assertThat(Files.readString(range.resolve("2.json")))
+                .contains("\"transactions\":[]", "\"openingBalance\":0.00", "\"closingBalance\":0.00");
+        assertThat(Files.readAllLines(range.resolve("summary.csv"))).containsExactly(
+                "card_id,opening_balance,closing_balance,total_debit,total_credit,transactions",
+                "1,1000.00,985.00,25.00,10.00,2",
+                "2,0.00,0.00,0.00,0.00,0");
+        assertThat(directory.resolve(PERIOD.toString()).resolve("0.tmp")).doesNotExist();
+        verify(jdbcTemplate).update(startsWith("INSERT INTO statement_checkpoints"),
+                eq(Date.valueOf(PERIOD.atDay(1))), eq(0L), eq(10L), eq(2));
+        verify(jdbcTemplate).update(startsWith("UPDATE statement_runs SET status = 'COMPLETED'"),
+                eq(Date.valueOf(PERIOD.atDay(1))));
+    }
+
+    @Test
+    void generate_WhenRangeFails_LeaveRunRunningWithoutCheckpoint() {
+        stubCards(List.of());
+        doThrow(new QueryTimeoutException("timeout"))
+                .when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        statementJob.generate(PERIOD);
+
+        verify(jdbcTemplate, never()).update(startsWith("INSERT INTO statement_checkpoints"), any(Object[].class));
+        verify(jdbcTemplate, never()).update(startsWith("UPDATE statement_runs"), any(Object[].class));
+    }
+
+    @Test
+    void generate_WhenRangeIsCheckpointed_SkipItAndCompleteRun() {
+        stubCards(List.of(0L));
+
+        statementJob.generate(PERIOD);
+
+        verify(jdbcTemplate, never()).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        verify(jdbcTemplate).update(startsWith("UPDATE statement_runs SET status = 'COMPLETED'"),
+                eq(Date.valueOf(PERIOD.atDay(1))));
+    }
+
+    private void stubCards(List<Long> completedRanges) {
+        when(jdbcTemplate.queryForList(startsWith("SELECT range_start"), eq(Long.class), any()))
+                .thenReturn(completedRanges);
+        when(jdbcTemplate.queryForObject("SELECT min(id) FROM cards", Long.class)).thenReturn(1L);
+        when(jdbcTemplate.queryForObject("SELECT max(id) FROM cards", Long.class)).thenReturn(2L);
+    }
+
+    private static Map<String, Object> row(Long cardId, Long openingBalance, Long transactionId,
+                                           Long counterpartyCardId, String direction, Long amount) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("card_id", cardId);
+        row.put("opening_balance", openingBalance);
+        row.put("transaction_id", transactionId);
+        row.put("counterparty_card_id", counterpartyCardId);
+        row.put("direction", direction);
+        row.put("amount", amount);
+        if (transactionId != null) {
+            row.put("created_at", Timestamp.valueOf(LocalDateTime.of(2026, 1, 10, 12, 0).plusMinutes(transactionId)));
+        }
+        return row;
+    }
+
+    /// ResultSet поверх списка строк: wasNull отражает последнее прочитанное значение, как в JDBC.
+    private static void feed(RowCallbackHandler handler, List<Map<String, Object>> rows) throws Exception {
+        AtomicReference<Map<String, Object>> current = new AtomicReference<>();
+        AtomicBoolean lastNull = new AtomicBoolean();
+        ResultSet rs = mock(ResultSet.class);
+        lenient().when(rs.getLong(anyString())).thenAnswer(invocation -> {
+            Object value = current.get().get(invocation.<String>getArgument(0));
+            lastNull.set(value == null);
+            return value == null ? 0L : value;
+        });
+        lenient().when(rs.getString(anyString())).thenAnswer(invocation -> {
+            Object value = current.get().get(invocation.<String>getArgument(0));
+            lastNull.set(value == null);
+            return value;
+        });
+        lenient().when(rs.getTimestamp(anyString())).thenAnswer(invocation -> {
+            Object value = current.get().get(invocation.<String>getArgument(0));
+            lastNull.set(value == null);
+            return value;
+        });
+        lenient().when(rs.wasNull()).thenAnswer(invocation -> lastNull.get());
+        for (Map<String, Object> row : rows) {
+            current.set(row);
+            handler.processRow(rs);
+        }
+    }
+}
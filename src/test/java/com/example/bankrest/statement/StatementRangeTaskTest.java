@@ -0,0 +1,55 @@
+package com.example.bankrest.statement;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatementRangeTaskTest {
+
+    private static final YearMonth PERIOD = YearMonth.of(2026, 1);
+
+    @Mock
+    private StatementJob statementJob;
+
+    private final StatementJob.Run run = new StatementJob.Run(PERIOD,
+            PERIOD.atDay(1).atStartOfDay(), PERIOD.plusMonths(1).atDay(1).atStartOfDay(),
+            Path.of("statements"), Set.of(), new AtomicInteger(), new AtomicInteger());
+
+    @Test
+    void compute_ProcessEveryRangeExactlyOnce() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            pool.invoke(new StatementRangeTask(statementJob, run, 3, 10));
+        } finally {
+            pool.shutdown();
+        }
+
+        for (long range = 3; range < 10; range++) {
+            verify(statementJob).processRange(run, range);
+        }
+        verifyNoMoreInteractions(statementJob);
+    }
+
+    @Test
+    void compute_WhenSingleRange_ProcessItWithoutSplitting() {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            pool.invoke(new StatementRangeTask(statementJob, run, 5, 6));
+        } finally {
+            pool.shutdown();
+        }
+
+        verify(statementJob).processRange(run, 5L);
+        verifyNoMoreInteractions(statementJob);
+    }
+}
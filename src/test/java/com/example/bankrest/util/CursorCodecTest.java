@@ -0,0 +1,42 @@
+package com.example.bankrest.util;
+
+import com.example.bankrest.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CursorCodecTest {
+
+    @Test
+    void decode_EncodedPosition_ReturnSamePosition() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 14, 15, 9, 26, 535_897_000);
+
+        CursorCodec.Position position = CursorCodec.decode(CursorCodec.encode(createdAt, 42L));
+
+        assertThat(position).isEqualTo(new CursorCodec.Position(createdAt, 42L));
+    }
+
+    @Test
+    void decode_WhenNotBase64_ThrowInvalidCursorException() {
+        assertThatThrownBy(() -> CursorCodec.decode("not a cursor!"))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void decode_WhenTimestampIsOutOfRange_ThrowInvalidCursorException() {
+        assertThatThrownBy(() -> CursorCodec.decode(cursor(Long.MAX_VALUE, 1L)))
+                .isInstanceOf(InvalidCursorException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> CursorCodec.decode(cursor(Long.MIN_VALUE, 1L)))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    private static String cursor(long micros, long id) {
+        byte[] bytes = ByteBuffer.allocate(2 * Long.BYTES).putLong(micros).putLong(id).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
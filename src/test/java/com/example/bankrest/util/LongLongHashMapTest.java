@@ -0,0 +1,108 @@
+package com.example.bankrest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LongLongHashMapTest {
+
+    @Test
+    void put_WhenKeyExists_ReplaceValue() {
+        LongLongHashMap map = new LongLongHashMap(16);
+
+        map.put(1L, 100L);
+        map.put(1L, 200L);
+
+        assertThat(map.size()).isEqualTo(1);
+        assertThat(map.get(1L, -1L)).isEqualTo(200L);
+    }
+
+    @Test
+    void get_WhenKeyMissing_ReturnDefault() {
+        LongLongHashMap map = new LongLongHashMap(16);
+
+        assertThat(map.containsKey(42L)).isFalse();
+        assertThat(map.get(42L, -1L)).isEqualTo(-1L);
+    }
+
+    @Test
+    void addTo_WhenKeyMissing_StartFromZero() {
+        LongLongHashMap map = new LongLongHashMap(16);
+
+        assertThat(map.addTo(5L, 30L)).isEqualTo(30L);
+        assertThat(map.addTo(5L, -10L)).isEqualTo(20L);
+        assertThat(map.get(5L, 0L)).isEqualTo(20L);
+    }
+
+    @Test
+    void remove_WhenCollidingKeysFollow_KeepThemReachable() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        for (long key = 1; key <= 64; key++) {
+            map.put(key, key * 10);
+        }
+
+        for (long key = 1; key <= 64; key += 2) {
+            map.remove(key);
+        }
+
+        assertThat(map.size()).isEqualTo(32);
+        for (long key = 1; key <= 64; key++) {
+            if (key % 2 == 0) {
+                assertThat(map.get(key, -1L)).isEqualTo(key * 10);
+            } else {
+                assertThat(map.containsKey(key)).isFalse();
+            }
+        }
+    }
+
+    @Test
+    void put_WhenGrowingPastCapacity_MatchHashMap() {
+        LongLongHashMap map = new LongLongHashMap(2);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10_000; i++) {
+            long key = 1 + random.nextInt(2_000);
+            long value = random.nextLong();
+            if (random.nextInt(4) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, value);
+                expected.put(key, value);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        Map<Long, Long> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertThat(actual).isEqualTo(expected);
+        assertThat(Arrays.stream(map.keys()).boxed().toList()).containsExactlyInAnyOrderElementsOf(expected.keySet());
+    }
+
+    @Test
+    void put_WhenKeyIsZero_ThrowIllegalArgumentException() {
+        LongLongHashMap map = new LongLongHashMap(16);
+
+        assertThatThrownBy(() -> map.put(0L, 1L))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void clear_RemoveAllKeys() {
+        LongLongHashMap map = new LongLongHashMap(16);
+        map.put(1L, 1L);
+        map.put(2L, 2L);
+
+        map.clear();
+
+        assertThat(map.isEmpty()).isTrue();
+        assertThat(map.containsKey(1L)).isFalse();
+        assertThat(map.keys()).isEmpty();
+    }
+}